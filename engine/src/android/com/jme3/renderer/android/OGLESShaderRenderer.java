@@ -132,6 +132,10 @@ public class OGLESShaderRenderer implements Renderer {
         return caps;
     }
 
+    public int getMaxVertexUniformComponents() {
+        return vertexUniforms;
+    }
+
     private int extractVersion(String prefixStr, String versionStr) {
         if (versionStr != null) {
             int spaceIdx = versionStr.indexOf(" ", prefixStr.length());
@@ -383,6 +387,8 @@ public class OGLESShaderRenderer implements Renderer {
     }
 
     public void applyRenderState(RenderState state) {
+        statistics.onRenderStateApplied(context.isApplied(state));
+
         /*
         if (state.isWireframe() && !context.wireframe){
         GLES20.glPolygonMode(GLES20.GL_FRONT_AND_BACK, GLES20.GL_LINE);
@@ -710,6 +716,8 @@ public class OGLESShaderRenderer implements Renderer {
             Uniform uniform = uniforms.getValue(i);
             if (uniform.isUpdateNeeded()) {
                 updateUniform(shader, uniform);
+            } else {
+                statistics.onUniformSkipped();
             }
         }
     }
@@ -1717,6 +1725,18 @@ public class OGLESShaderRenderer implements Renderer {
                 default:
                     throw new RuntimeException("Unknown buffer format.");
             }
+        } else if (vb.getNumUpdateRanges() > 0) {
+            // only send the modified elements
+            Buffer data = vb.getData();
+            int components = vb.getNumComponents();
+            int componentSize = vb.getFormat().getComponentSize();
+            for (int i = 0; i < vb.getNumUpdateRanges(); i++) {
+                int start = vb.getUpdateRangeStart(i) * components;
+                data.position(start);
+                GLES20.glBufferSubData(target, start * componentSize,
+                        vb.getUpdateRangeLength(i) * components * componentSize, data);
+            }
+            data.rewind();
         } else {
             int size = vb.getData().limit() * vb.getFormat().getComponentSize();
 
@@ -1,6 +1,15 @@
+#import "Common/ShaderLib/Skinning.glsllib"
+
 uniform mat4 g_WorldViewProjectionMatrix;
 uniform mat4 g_WorldMatrix;
 
+#ifdef INSTANCING
+    uniform mat4 g_ViewProjectionMatrix;
+    // the world matrix of the instance, instances are expected
+    // to be uniformly scaled so it can also transform normals
+    attribute mat4 inInstanceData;
+#endif
+
 uniform vec4 m_Ambient;
 uniform vec4 m_Diffuse;
 uniform vec4 m_Specular;
@@ -30,17 +39,30 @@ varying float vDepth;
 
 void main(){
    vec4 pos = vec4(inPosition, 1.0);
-   gl_Position = g_WorldViewProjectionMatrix * pos;
+   vec3 modelSpaceNorm = inNormal;
+   #if defined(NORMALMAP)
+     vec3 modelSpaceTan = inTangent;
+     Skinning_Compute(pos, modelSpaceNorm, modelSpaceTan);
+   #else
+     Skinning_Compute(pos, modelSpaceNorm);
+   #endif
+   #ifdef INSTANCING
+     mat4 worldMatrix = inInstanceData;
+     gl_Position = g_ViewProjectionMatrix * (worldMatrix * pos);
+   #else
+     mat4 worldMatrix = g_WorldMatrix;
+     gl_Position = g_WorldViewProjectionMatrix * pos;
+   #endif
    texCoord = inTexCoord;
 
    #if defined(NORMALMAP)
      vec4 wvNormal, wvTangent, wvBinormal;
 
-     wvNormal   = vec4(inNormal, 0.0);
-     wvTangent  = vec4(inTangent, 0.0);
+     wvNormal   = vec4(modelSpaceNorm, 0.0);
+     wvTangent  = vec4(modelSpaceTan, 0.0);
 
-     wvNormal.xyz   = normalize( (g_WorldMatrix * wvNormal).xyz   );
-     wvTangent.xyz  = normalize( (g_WorldMatrix * wvTangent).xyz  );
+     wvNormal.xyz   = normalize( (worldMatrix * wvNormal).xyz   );
+     wvTangent.xyz  = normalize( (worldMatrix * wvTangent).xyz  );
      wvBinormal.xyz = cross(wvNormal.xyz, wvTangent.xyz);
      tbnMat = mat3(wvTangent.xyz, wvBinormal.xyz, wvNormal.xyz);
 
@@ -50,9 +72,9 @@ void main(){
      #ifdef V_TANGENT
         wvNormal = vec4(inTangent, 0.0);
      #else
-        wvNormal = vec4(inNormal, 0.0);
+        wvNormal = vec4(modelSpaceNorm, 0.0);
      #endif
-     vNormal = normalize( (g_WorldMatrix * wvNormal).xyz );
+     vNormal = normalize( (worldMatrix * wvNormal).xyz );
    #endif
 
    #ifdef MATERIAL_COLORS
@@ -1,11 +1,20 @@
 #define ATTENUATION
 //#define HQ_ATTENUATION
 
+#import "Common/ShaderLib/Skinning.glsllib"
+
 uniform mat4 g_WorldViewProjectionMatrix;
 uniform mat4 g_WorldViewMatrix;
 uniform mat3 g_NormalMatrix;
 uniform mat4 g_ViewMatrix;
 
+#ifdef INSTANCING
+    uniform mat4 g_ViewProjectionMatrix;
+    // the world matrix of the instance, instances are expected
+    // to be uniformly scaled so it can also transform normals
+    attribute mat4 inInstanceData;
+#endif
+
 uniform vec4 m_Ambient;
 uniform vec4 m_Diffuse;
 uniform vec4 m_Specular;
@@ -60,19 +69,24 @@ varying vec3 lightVec;
 
     /**
      * Input:
-     * attribute inPosition
-     * attribute inNormal
+     * modelSpacePos
+     * modelSpaceNorm
      * uniform g_WorldMatrix
      * uniform g_CameraPosition
      *
      * Output:
      * varying refVec
      */
-    void computeRef(){
-        vec3 worldPos = (g_WorldMatrix * vec4(inPosition,1.0)).xyz;
+    void computeRef(in vec4 modelSpacePos, in vec3 modelSpaceNorm){
+        #ifdef INSTANCING
+          mat4 worldMatrix = inInstanceData;
+        #else
+          mat4 worldMatrix = g_WorldMatrix;
+        #endif
+        vec3 worldPos = (worldMatrix * modelSpacePos).xyz;
 
         vec3 I = normalize( g_CameraPosition - worldPos  ).xyz;
-        vec3 N = normalize( (g_WorldMatrix * vec4(inNormal, 0.0)).xyz );
+        vec3 N = normalize( (worldMatrix * vec4(modelSpaceNorm, 0.0)).xyz );
 
         refVec.xyz = reflect(I, N);
         refVec.w   = m_FresnelParams.x + m_FresnelParams.y * pow(1.0 + dot(I, N), m_FresnelParams.z);
@@ -132,14 +146,29 @@ vec2 computeLighting(in vec3 wvPos, in vec3 wvNorm, in vec3 wvViewDir, in vec4 w
 
 void main(){
    vec4 pos = vec4(inPosition, 1.0);
-   gl_Position = g_WorldViewProjectionMatrix * pos;
+   vec3 modelSpaceNorm = inNormal;
+   #ifndef VERTEX_LIGHTING
+     vec3 modelSpaceTan = inTangent.xyz;
+     Skinning_Compute(pos, modelSpaceNorm, modelSpaceTan);
+   #else
+     Skinning_Compute(pos, modelSpaceNorm);
+   #endif
+   #ifdef INSTANCING
+     mat4 worldViewMatrix = g_ViewMatrix * inInstanceData;
+     mat3 normalMatrix = mat3(worldViewMatrix[0].xyz, worldViewMatrix[1].xyz, worldViewMatrix[2].xyz);
+     gl_Position = g_ViewProjectionMatrix * (inInstanceData * pos);
+   #else
+     mat4 worldViewMatrix = g_WorldViewMatrix;
+     mat3 normalMatrix = g_NormalMatrix;
+     gl_Position = g_WorldViewProjectionMatrix * pos;
+   #endif
    texCoord = inTexCoord;
    #ifdef SEPARATE_TEXCOORD
       texCoord2 = inTexCoord2;
    #endif
 
-   vec3 wvPosition = (g_WorldViewMatrix * pos).xyz;
-   vec3 wvNormal  = normalize(g_NormalMatrix * inNormal);
+   vec3 wvPosition = (worldViewMatrix * pos).xyz;
+   vec3 wvNormal  = normalize(normalMatrix * modelSpaceNorm);
    vec3 viewDir = normalize(-wvPosition);
   
        //vec4 lightColor = g_LightColor[gl_InstanceID];
@@ -152,7 +181,7 @@ void main(){
    vec4 lightColor = g_LightColor;
 
    #if defined(NORMALMAP) && !defined(VERTEX_LIGHTING)
-     vec3 wvTangent = normalize(g_NormalMatrix * inTangent.xyz);
+     vec3 wvTangent = normalize(normalMatrix * modelSpaceTan);
      vec3 wvBinormal = cross(wvNormal, wvTangent);
 
      mat3 tbnMat = mat3(wvTangent, wvBinormal * -inTangent.w,wvNormal);
@@ -171,7 +200,7 @@ void main(){
      lightComputeDir(wvPosition, lightColor, wvLightPos, vLightDir);
 
      #ifdef V_TANGENT
-        vNormal = normalize(g_NormalMatrix * inTangent.xyz);
+        vNormal = normalize(normalMatrix * modelSpaceTan);
         vNormal = -cross(cross(vLightDir.xyz, vNormal), vNormal);
      #endif
    #endif
@@ -202,6 +231,6 @@ void main(){
     #endif
 
     #ifdef USE_REFLECTION
-        computeRef();
+        computeRef(pos, modelSpaceNorm);
     #endif 
 }
\ No newline at end of file
@@ -1,6 +1,14 @@
+#import "Common/ShaderLib/Skinning.glsllib"
+
 uniform mat4 g_WorldViewProjectionMatrix;
 attribute vec3 inPosition;
 
+#ifdef INSTANCING
+    uniform mat4 g_ViewProjectionMatrix;
+    // the world matrix of the instance
+    attribute mat4 inInstanceData;
+#endif
+
 #if defined(HAS_COLORMAP) || (defined(HAS_LIGHTMAP) && !defined(SEPARATE_TEXCOORD))
     #define NEED_TEXCOORD1
 #endif
@@ -27,5 +35,12 @@ void main(){
         vertColor = inColor;
     #endif
 
-    gl_Position = g_WorldViewProjectionMatrix * vec4(inPosition, 1.0);
+    vec4 modelSpacePos = vec4(inPosition, 1.0);
+    Skinning_Compute(modelSpacePos);
+
+    #ifdef INSTANCING
+        gl_Position = g_ViewProjectionMatrix * (inInstanceData * modelSpacePos);
+    #else
+        gl_Position = g_WorldViewProjectionMatrix * modelSpacePos;
+    #endif
 }
\ No newline at end of file
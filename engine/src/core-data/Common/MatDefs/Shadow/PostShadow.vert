@@ -1,3 +1,5 @@
+#import "Common/ShaderLib/Skinning.glsllib"
+
 uniform mat4 m_LightViewProjectionMatrix0;
 uniform mat4 m_LightViewProjectionMatrix1;
 uniform mat4 m_LightViewProjectionMatrix2;
@@ -8,6 +10,12 @@ uniform mat4 g_WorldMatrix;
 uniform mat4 g_ViewMatrix;
 uniform vec3 m_LightPos; 
 
+#ifdef INSTANCING
+    uniform mat4 g_ViewProjectionMatrix;
+    // the world matrix of the instance
+    attribute mat4 inInstanceData;
+#endif
+
 varying vec4 projCoord0;
 varying vec4 projCoord1;
 varying vec4 projCoord2;
@@ -41,7 +49,13 @@ const mat4 biasMat = mat4(0.5, 0.0, 0.0, 0.0,
 
 
 void main(){
-    gl_Position = g_WorldViewProjectionMatrix * vec4(inPosition, 1.0);
+    vec4 modelSpacePos = vec4(inPosition, 1.0);
+    Skinning_Compute(modelSpacePos);
+    #ifdef INSTANCING
+        gl_Position = g_ViewProjectionMatrix * (inInstanceData * modelSpacePos);
+    #else
+        gl_Position = g_WorldViewProjectionMatrix * modelSpacePos;
+    #endif
 
     #ifndef POINTLIGHT
         #ifdef PSSM
@@ -50,7 +64,11 @@ void main(){
         vec4 worldPos=vec4(0.0);
     #endif
     // get the vertex in world space
-    worldPos = g_WorldMatrix * vec4(inPosition, 1.0);
+    #ifdef INSTANCING
+        worldPos = inInstanceData * modelSpacePos;
+    #else
+        worldPos = g_WorldMatrix * modelSpacePos;
+    #endif
 
     #ifdef DISCARD_ALPHA
        texCoord = inTexCoord;
@@ -1,12 +1,26 @@
+#import "Common/ShaderLib/Skinning.glsllib"
+
 attribute vec4 inPosition;
 attribute vec2 inTexCoord;
 
 uniform mat4 g_WorldViewProjectionMatrix;
 uniform mat4 g_WorldViewMatrix;
 
+#ifdef INSTANCING
+    uniform mat4 g_ViewProjectionMatrix;
+    // the world matrix of the instance
+    attribute mat4 inInstanceData;
+#endif
+
 varying vec2 texCoord;
 
 void main(){
-    gl_Position = g_WorldViewProjectionMatrix * inPosition;
+    vec4 modelSpacePos = inPosition;
+    Skinning_Compute(modelSpacePos);
+    #ifdef INSTANCING
+        gl_Position = g_ViewProjectionMatrix * (inInstanceData * modelSpacePos);
+    #else
+        gl_Position = g_WorldViewProjectionMatrix * modelSpacePos;
+    #endif
     texCoord = inTexCoord;
 }
\ No newline at end of file
@@ -1,6 +1,16 @@
+#import "Common/ShaderLib/Skinning.glsllib"
+
 uniform mat4 g_WorldViewProjectionMatrix;
 uniform mat3 g_NormalMatrix;
 
+#ifdef INSTANCING
+    uniform mat4 g_ViewProjectionMatrix;
+    uniform mat4 g_ViewMatrix;
+    // the world matrix of the instance, instances are expected
+    // to be uniformly scaled so it can also transform normals
+    attribute mat4 inInstanceData;
+#endif
+
 attribute vec3 inPosition;
 attribute vec3 inNormal;
 attribute vec4 inTexCoord;
@@ -11,6 +21,16 @@ varying vec2 texCoord;
 void main(void)
 {
    texCoord=inTexCoord.xy;
-   normal = normalize(g_NormalMatrix * inNormal);
-   gl_Position = g_WorldViewProjectionMatrix * vec4(inPosition,1.0);
+   vec4 modelSpacePos = vec4(inPosition, 1.0);
+   vec3 modelSpaceNorm = inNormal;
+   Skinning_Compute(modelSpacePos, modelSpaceNorm);
+   #ifdef INSTANCING
+     mat4 worldViewMatrix = g_ViewMatrix * inInstanceData;
+     mat3 normalMatrix = mat3(worldViewMatrix[0].xyz, worldViewMatrix[1].xyz, worldViewMatrix[2].xyz);
+     normal = normalize(normalMatrix * modelSpaceNorm);
+     gl_Position = g_ViewProjectionMatrix * (inInstanceData * modelSpacePos);
+   #else
+     normal = normalize(g_NormalMatrix * modelSpaceNorm);
+     gl_Position = g_WorldViewProjectionMatrix * modelSpacePos;
+   #endif
 }
\ No newline at end of file
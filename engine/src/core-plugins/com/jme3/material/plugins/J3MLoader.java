@@ -59,6 +59,7 @@ public class J3MLoader implements AssetLoader {
     
     private AssetManager assetManager;
     private AssetKey key;
+    private DependencyLoader dependencies;
 
     private MaterialDef materialDef;
     private Material material;
@@ -148,7 +149,7 @@ public class J3MLoader implements AssetLoader {
 
             Texture tex;
             try {
-                tex = assetManager.loadTexture(texKey);
+                tex = dependencies.loadTexture(texKey);
             } catch (AssetNotFoundException ex){
                 logger.log(Level.WARNING, "Cannot locate {0} for material {1}", new Object[]{texKey, key});
                 tex = null;
@@ -526,14 +527,25 @@ public class J3MLoader implements AssetLoader {
     public Object load(AssetInfo info) throws IOException {
         this.assetManager = info.getManager();
 
+        // the material definition of a material is loaded by this same 
+        // loader while loading the material, keep the dependencies apart
+        DependencyLoader parentDependencies = dependencies;
+        dependencies = new DependencyLoader(assetManager, info.getKey());
+        
         InputStream in = info.openStream();
         try {
             key = info.getKey();
             loadFromRoot(BlockLanguageParser.parse(in));
+            
+            // wait for the textures loading in parallel
+            dependencies.join();
         } finally {
             if (in != null){
                 in.close();
             }
+            // stop loading the textures if the material failed to load
+            dependencies.cancel();
+            dependencies = parentDependencies;
         }
         
         if (material != null){
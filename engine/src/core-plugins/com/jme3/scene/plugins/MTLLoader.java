@@ -55,6 +55,7 @@ public class MTLLoader implements AssetLoader {
     
     protected Scanner scan;
     protected MaterialList matList;
+    protected DependencyLoader dependencies;
     //protected Material material;
     protected AssetManager assetManager;
     protected String folderName;
@@ -178,7 +179,7 @@ public class MTLLoader implements AssetLoader {
         texKey.setGenerateMips(true);
         Texture texture;
         try {
-            texture = assetManager.loadTexture(texKey);
+            texture = dependencies.loadTexture(texKey);
             texture.setWrap(WrapMode.Repeat);
         } catch (AssetNotFoundException ex){
             logger.log(Level.WARNING, "Cannot locate {0} for material {1}", new Object[]{texKey, key});
@@ -293,6 +294,7 @@ public class MTLLoader implements AssetLoader {
         this.assetManager = info.getManager();
         folderName = info.getKey().getFolder();
         matList = new MaterialList();
+        dependencies = new DependencyLoader(assetManager, key);
 
         InputStream in = null;
         try {
@@ -301,16 +303,22 @@ public class MTLLoader implements AssetLoader {
             scan.useLocale(Locale.US);
             
             while (readLine());
+            
+            if (matName != null){
+                // still have a material in the vars
+                createMaterial();
+                resetMaterial();
+            }
+            
+            // wait for the textures loading in parallel
+            dependencies.join();
         } finally {
             if (in != null){
                 in.close();
             }
-        }
-        
-        if (matName != null){
-            // still have a material in the vars
-            createMaterial();
-            resetMaterial();
+            // stop loading the textures if the library failed to load
+            dependencies.cancel();
+            dependencies = null;
         }
         
         MaterialList list = matList;
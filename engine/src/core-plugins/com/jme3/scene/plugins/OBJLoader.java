@@ -53,6 +53,7 @@ import java.nio.IntBuffer;
 import java.nio.ShortBuffer;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -83,6 +84,9 @@ public final class OBJLoader implements AssetLoader {
     protected ModelKey key;
     protected AssetManager assetManager;
     protected MaterialList matList;
+    protected DependencyLoader dependencies;
+    protected AssetKey<MaterialList> pendingMtlKey;
+    protected Future<MaterialList> pendingMatList;
 
     protected String objName;
     protected Node objNode;
@@ -170,6 +174,9 @@ public final class OBJLoader implements AssetLoader {
 
         currentMatName = null;
         matList = null;
+        dependencies = null;
+        pendingMtlKey = null;
+        pendingMatList = null;
         curIndex = 0;
         geomIndex = 0;
         scan = null;
@@ -287,7 +294,16 @@ public final class OBJLoader implements AssetLoader {
             f.verticies[i] = vertList.get(i);
         }
 
-        if (matList != null && matFaces.containsKey(currentMatName)){
+        if (pendingMatList != null && currentMatName != null){
+            // the material library is still loading, 
+            // sort the faces by material name for now
+            ArrayList<Face> materialFaces = matFaces.get(currentMatName);
+            if (materialFaces == null){
+                materialFaces = new ArrayList<Face>();
+                matFaces.put(currentMatName, materialFaces);
+            }
+            materialFaces.add(f);
+        }else if (matList != null && matFaces.containsKey(currentMatName)){
             matFaces.get(currentMatName).add(f);
         }else{
             faces.add(f); // faces that belong to the default material
@@ -329,17 +345,44 @@ public final class OBJLoader implements AssetLoader {
 
         // NOTE: Cut off any relative/absolute paths
         name = new File(name).getName();
-        AssetKey mtlKey = new AssetKey(key.getFolder() + name);
+        
+        // the material library and its textures are loaded
+        // while the rest of the model is read
+        finishMtlLib();
+        pendingMtlKey = new AssetKey<MaterialList>(key.getFolder() + name);
+        pendingMatList = dependencies.loadAsset(pendingMtlKey);
+    }
+
+    protected void finishMtlLib(){
+        if (pendingMatList == null){
+            return;
+        }
+
         try {
-            matList = (MaterialList) assetManager.loadAsset(mtlKey);
+            matList = dependencies.get(pendingMatList);
         } catch (AssetNotFoundException ex){
-            logger.log(Level.WARNING, "Cannot locate {0} for model {1}", new Object[]{name, key});
+            logger.log(Level.WARNING, "Cannot locate {0} for model {1}", new Object[]{pendingMtlKey, key});
+        }
+        pendingMatList = null;
+        pendingMtlKey = null;
+
+        // faces using materials missing from the library 
+        // belong to the default material
+        Iterator<Entry<String, ArrayList<Face>>> it = matFaces.entrySet().iterator();
+        while (it.hasNext()){
+            Entry<String, ArrayList<Face>> entry = it.next();
+            if (matList == null || !matList.containsKey(entry.getKey())){
+                faces.addAll(entry.getValue());
+                it.remove();
+            }
         }
 
         if (matList != null){
             // create face lists for every material
             for (String matName : matList.keySet()){
-                matFaces.put(matName, new ArrayList<Face>());
+                if (!matFaces.containsKey(matName)){
+                    matFaces.put(matName, new ArrayList<Face>());
+                }
             }
         }
     }
@@ -552,6 +595,7 @@ public final class OBJLoader implements AssetLoader {
         
         key = (ModelKey) info.getKey();
         assetManager = info.getManager();
+        dependencies = new DependencyLoader(assetManager, key);
         objName    = key.getName();
         
         String folderName = key.getFolder();
@@ -574,10 +618,14 @@ public final class OBJLoader implements AssetLoader {
             scan.useLocale(Locale.US);
 
             while (readLine());
+            
+            finishMtlLib();
         } finally {
             if (in != null){
                 in.close();
             }
+            // stop loading the material library if the model failed to load
+            dependencies.cancel();
         }
         
         if (matFaces.size() > 0){
@@ -347,6 +347,15 @@ public final class AnimChannel {
     BitSet getAffectedBones(){
         return affectedBones;
     }
+
+    /**
+     * @return true if the animations played by this channel only modify
+     * the bones of the skeleton
+     */
+    boolean hasOnlyBoneTracks() {
+        return (animation == null || animation.hasOnlyBoneTracks())
+                && (blendFrom == null || blendFrom.hasOnlyBoneTracks());
+    }
     
     public void reset(boolean rewind){
         if(rewind){
@@ -392,13 +401,25 @@ public final class AnimChannel {
         time += tpf * speed;
 
         if (animation.getLength() > 0){
-            if (time >= animation.getLength()) {
-                control.notifyAnimCycleDone(this, animation.getName());
-            } else if (time < 0) {
+            if (time >= animation.getLength() || time < 0) {
+                if (control.queueAnimCycleDone(this, animation.getName())) {
+                    // the time is wrapped once the listeners are notified
+                    return;
+                }
                 control.notifyAnimCycleDone(this, animation.getName());
             } 
         }
 
+        wrapTime();
+    }
+
+    /**
+     * Wraps the time of the animation according to the loop mode.
+     */
+    void wrapTime() {
+        if (animation == null) {
+            return;
+        }
         time = clampWrapTime(time, animation.getLength(), loopMode);
         if (time < 0){
             // Negative time indicates that speed should be inverted
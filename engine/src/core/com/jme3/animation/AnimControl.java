@@ -86,6 +86,37 @@ public final class AnimControl extends AbstractControl implements Cloneable {
      * Animation event listeners
      */
     private transient ArrayList<AnimEventListener> listeners = new ArrayList<AnimEventListener>();
+    /**
+     * Number of frames between two updates of the animations
+     */
+    private int updateInterval = 1;
+    /**
+     * Time elapsed since the last update of the animations
+     */
+    private transient float pendingTime = 0;
+    /**
+     * Counts the frames to find the ones updating the animations, starts
+     * at a different value for each control so that the controls sharing
+     * an interval do not all update on the same frame
+     */
+    private transient int frameCount = System.identityHashCode(this) & 0xffff;
+    /**
+     * The state updating the animations in parallel, or null to update
+     * them in {@link #controlUpdate(float) }
+     */
+    private transient ParallelAnimationAppState parallelState;
+    /**
+     * Time to update the animations by, while queued in the parallel state
+     */
+    private transient float queuedTime = 0;
+    private transient boolean queued = false;
+    /**
+     * True while updated by the parallel state, the animation cycle events
+     * are then queued until they can be delivered on the rendering thread
+     */
+    private transient boolean queueEvents = false;
+    private transient ArrayList<AnimChannel> eventChannels = new ArrayList<AnimChannel>();
+    private transient ArrayList<String> eventNames = new ArrayList<String>();
 
     /**
      * Creates a new animation control for the given skeleton.
@@ -114,12 +145,19 @@ public final class AnimControl extends AbstractControl implements Cloneable {
             clone.spatial = spatial;
             clone.channels = new ArrayList<AnimChannel>();
             clone.listeners = new ArrayList<AnimEventListener>();
+            clone.pendingTime = 0;
+            clone.frameCount = System.identityHashCode(clone) & 0xffff;
+            clone.queuedTime = 0;
+            clone.queued = false;
+            clone.eventChannels = new ArrayList<AnimChannel>();
+            clone.eventNames = new ArrayList<String>();
 
             if (skeleton != null) {
                 clone.skeleton = new Skeleton(skeleton);
             }
 
             // animationMap is cloned, but only ClonableTracks will be cloned as they need a reference to a cloned spatial
+            clone.animationMap = new HashMap<String, Animation>();
             for (Entry<String, Animation> animEntry : animationMap.entrySet()) {
                 clone.animationMap.put(animEntry.getKey(), animEntry.getValue().cloneForSpatial(spatial));
             }
@@ -266,6 +304,22 @@ public final class AnimControl extends AbstractControl implements Cloneable {
         }
     }
 
+    /**
+     * Queues the notification of an animation cycle done when the
+     * animations are updated by the parallel state.
+     * 
+     * @return true if queued, the channel then waits for the listeners
+     * to be notified before wrapping its time
+     */
+    boolean queueAnimCycleDone(AnimChannel channel, String name) {
+        if (!queueEvents || listeners.isEmpty()) {
+            return false;
+        }
+        eventChannels.add(channel);
+        eventNames.add(name);
+        return true;
+    }
+
     void notifyAnimCycleDone(AnimChannel channel, String name) {
         for (int i = 0; i < listeners.size(); i++) {
             listeners.get(i).onAnimCycleDone(this, channel, name);
@@ -318,24 +372,169 @@ public final class AnimControl extends AbstractControl implements Cloneable {
         return a.getLength();
     }
 
+    /**
+     * Sets the number of frames between two updates of the animations.
+     * <p>
+     * The channels, the bones and the skinning of the model are only
+     * updated once every <code>updateInterval</code> frames, with the time
+     * elapsed since the previous update, so the animations keep playing
+     * at the same speed at a lower frame rate. Listeners are notified
+     * when the animations are updated. An interval of 0 pauses the
+     * animations until the interval is set again, the paused time is
+     * then caught up on the next update.
+     * <p>
+     * Bones moved directly, without updating the animations or the
+     * skeleton, are not skinned on the frames that skip the update.
+     * 
+     * @param updateInterval the number of frames between two updates,
+     * 1 to update the animations every frame (the default)
+     * @see AnimLodControl
+     */
+    public void setUpdateInterval(int updateInterval) {
+        if (updateInterval < 0) {
+            throw new IllegalArgumentException("The update interval cannot be negative");
+        }
+        this.updateInterval = updateInterval;
+    }
+
+    /**
+     * @return the number of frames between two updates of the animations
+     * @see #setUpdateInterval(int) 
+     */
+    public int getUpdateInterval() {
+        return updateInterval;
+    }
+
+    /**
+     * Sets the state updating the animations of this control in parallel
+     * with the animations of the other controls of the state.
+     * <p>
+     * The animations are then updated on the worker threads of the state
+     * once the logical state of the scene has been updated, 
+     * see {@link ParallelAnimationAppState} for the details. 
+     * The animations with other tracks than bone tracks are still updated
+     * by the control.
+     * 
+     * @param parallelState the state, or null to update the animations 
+     * in the update of the control (the default)
+     * @see ParallelAnimationAppState#add(com.jme3.scene.Spatial) 
+     */
+    public void setParallelAnimationState(ParallelAnimationAppState parallelState) {
+        if (queued && parallelState != this.parallelState) {
+            this.parallelState.updateQueued();
+        }
+        this.parallelState = parallelState;
+    }
+
+    /**
+     * @return the state updating the animations of this control in
+     * parallel, or null
+     * @see #setParallelAnimationState(com.jme3.animation.ParallelAnimationAppState) 
+     */
+    public ParallelAnimationAppState getParallelAnimationState() {
+        return parallelState;
+    }
+
     /**
      * Internal use only.
      */
     @Override
     protected void controlUpdate(float tpf) {
+        pendingTime += tpf;
+        frameCount = (frameCount + 1) & Integer.MAX_VALUE;
+        if (updateInterval != 1 && (updateInterval == 0 || frameCount % updateInterval != 0)) {
+            return;
+        }
+        tpf = pendingTime;
+        pendingTime = 0;
+
+        if (queued) {
+            // updated twice before the parallel state ran
+            queuedTime += tpf;
+            return;
+        }
+        if (parallelState != null && parallelState.isInitialized()
+                && parallelState.isEnabled() && hasOnlyBoneTracks()) {
+            queuedTime = tpf;
+            queued = true;
+            parallelState.queue(this);
+            return;
+        }
+
+        updateAnimations(tpf, false);
+    }
+
+    /**
+     * @return true if the channels only modify the bones of the skeleton
+     */
+    private boolean hasOnlyBoneTracks() {
+        for (int i = 0; i < channels.size(); i++) {
+            if (!channels.get(i).hasOnlyBoneTracks()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Updates the channels and the skeleton.
+     * 
+     * @param tpf the time elapsed since the last update
+     * @param parallel true if updated on a worker thread, the scene graph 
+     * is then left unmodified and the listeners are not notified
+     */
+    private void updateAnimations(float tpf, boolean parallel) {
         if (skeleton != null) {
             skeleton.reset(); // reset skeleton to bind pose
         }
 
+        queueEvents = parallel;
         TempVars vars = TempVars.get();
-        for (int i = 0; i < channels.size(); i++) {
-            channels.get(i).update(tpf, vars);
+        try {
+            for (int i = 0; i < channels.size(); i++) {
+                channels.get(i).update(tpf, vars);
+            }
+        } finally {
+            vars.release();
+            queueEvents = false;
         }
-        vars.release();
 
         if (skeleton != null) {
-            skeleton.updateWorldVectors();
+            skeleton.updateWorldVectors(!parallel);
+        }
+    }
+
+    /**
+     * Updates the queued animations, called by the parallel state on 
+     * one of its threads.
+     */
+    void runQueuedUpdate() {
+        updateAnimations(queuedTime, true);
+    }
+
+    /**
+     * Completes the update of the queued animations on the rendering
+     * thread: moves the attach nodes of the bones and notifies the
+     * listeners of the animation cycles done, in the order of the channels,
+     * as the channels would have during their update.
+     * 
+     * @return true if the scene graph may have been modified, by moving
+     * attach nodes or by the listeners
+     */
+    boolean applyQueuedUpdate() {
+        queued = false;
+        boolean modified = skeleton != null && skeleton.updateAttachNodes();
+        if (!eventChannels.isEmpty()) {
+            for (int i = 0; i < eventChannels.size(); i++) {
+                AnimChannel channel = eventChannels.get(i);
+                notifyAnimCycleDone(channel, eventNames.get(i));
+                channel.wrapTime();
+            }
+            eventChannels.clear();
+            eventNames.clear();
+            modified = true;
         }
+        return modified;
     }
 
     /**
@@ -351,6 +550,7 @@ public final class AnimControl extends AbstractControl implements Cloneable {
         OutputCapsule oc = ex.getCapsule(this);
         oc.write(skeleton, "skeleton", null);
         oc.writeStringSavableMap(animationMap, "animations", null);
+        oc.write(updateInterval, "updateInterval", 1);
     }
 
     @Override
@@ -362,6 +562,7 @@ public final class AnimControl extends AbstractControl implements Cloneable {
         if (loadedAnimationMap != null) {
             animationMap = loadedAnimationMap;
         }
+        updateInterval = in.readInt("updateInterval", 1);
 
         if (im.getFormatVersion() == 0) {
             // Changed for backward compatibility with j3o files generated 
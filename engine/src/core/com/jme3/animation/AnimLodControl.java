@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.animation;
+
+import com.jme3.bounding.BoundingVolume;
+import com.jme3.export.InputCapsule;
+import com.jme3.export.JmeExporter;
+import com.jme3.export.JmeImporter;
+import com.jme3.export.OutputCapsule;
+import com.jme3.math.FastMath;
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.ViewPort;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.control.AbstractControl;
+import com.jme3.scene.control.AreaUtils;
+import com.jme3.scene.control.Control;
+import java.io.IOException;
+
+/**
+ * Determines how often the {@link AnimControl} of a model updates its
+ * animations, based on the area of the model on the screen.
+ * <p>
+ * The model animates every frame when its area is at least the first
+ * of the {@link #setScreenAreas(float[]) screen areas}, every 2 frames when
+ * it is at least the second one, every 4 frames when it is at least the
+ * third one and so on. A model that was not rendered in the last frame,
+ * because it is out of the view or occluded, animates every
+ * {@link #setCulledUpdateInterval(int) culled update interval} frames.
+ * <p>
+ * Add this control to the spatial holding the <code>AnimControl</code>.
+ * 
+ * @see AnimControl#setUpdateInterval(int) 
+ */
+public class AnimLodControl extends AbstractControl implements Cloneable {
+
+    private float[] screenAreas = {10000f, 2500f, 625f};
+    private int culledUpdateInterval = 16;
+    private transient float maxArea = 0;
+    private transient boolean rendered = false;
+
+    /**
+     * Creates a new <code>AnimLodControl</code>.
+     */
+    public AnimLodControl() {
+    }
+
+    /**
+     * Returns the screen areas of the update levels.
+     * 
+     * @return the screen areas of the update levels, in pixels
+     * 
+     * @see #setScreenAreas(float[]) 
+     */
+    public float[] getScreenAreas() {
+        return screenAreas;
+    }
+
+    /**
+     * Sets the screen areas, in pixels, at which the update rate of the
+     * animations is halved. The model animates every frame when its area
+     * is at least <code>screenAreas[0]</code>, every 2<sup>i</sup> frames
+     * when it is between <code>screenAreas[i]</code> and 
+     * <code>screenAreas[i - 1]</code>, and every 2<sup>n</sup> frames when
+     * it is below the last of the <code>n</code> areas.
+     * The default areas are 100x100, 50x50 and 25x25 pixels.
+     * 
+     * @param screenAreas the screen areas, in decreasing order
+     */
+    public void setScreenAreas(float[] screenAreas) {
+        for (int i = 1; i < screenAreas.length; i++) {
+            if (screenAreas[i] > screenAreas[i - 1]) {
+                throw new IllegalArgumentException("The screen areas must be in decreasing order");
+            }
+        }
+        this.screenAreas = screenAreas;
+    }
+
+    /**
+     * Returns the update interval of the model when it is not rendered.
+     * 
+     * @return the update interval when the model is not rendered
+     * 
+     * @see #setCulledUpdateInterval(int) 
+     */
+    public int getCulledUpdateInterval() {
+        return culledUpdateInterval;
+    }
+
+    /**
+     * Sets the number of frames between two updates of the animations
+     * when the model was not rendered in the last frame. 0 pauses the
+     * animations until the model is rendered again, the animation
+     * listeners are then not notified while the model is out of the view.
+     * The default is 16.
+     * 
+     * @param culledUpdateInterval the update interval when the model is
+     * not rendered
+     */
+    public void setCulledUpdateInterval(int culledUpdateInterval) {
+        if (culledUpdateInterval < 0) {
+            throw new IllegalArgumentException("The update interval cannot be negative");
+        }
+        this.culledUpdateInterval = culledUpdateInterval;
+    }
+
+    /**
+     * Returns the update interval for the given screen area.
+     * 
+     * @param area the screen area of the model, in pixels
+     * @return the number of frames between two updates of the animations
+     */
+    public int getUpdateInterval(float area) {
+        int level = 0;
+        while (level < screenAreas.length && area < screenAreas[level]) {
+            level++;
+        }
+        return 1 << level;
+    }
+
+    public Control cloneForSpatial(Spatial spatial) {
+        try {
+            AnimLodControl clone = (AnimLodControl) super.clone();
+            clone.screenAreas = screenAreas.clone();
+            clone.maxArea = 0;
+            clone.rendered = false;
+            return clone;
+        } catch (CloneNotSupportedException ex) {
+            throw new AssertionError();
+        }
+    }
+
+    @Override
+    protected void controlUpdate(float tpf) {
+        AnimControl animControl = spatial.getControl(AnimControl.class);
+        if (animControl != null) {
+            // the area measured while rendering the last frame
+            animControl.setUpdateInterval(rendered ? getUpdateInterval(maxArea) : culledUpdateInterval);
+        }
+        rendered = false;
+        maxArea = 0;
+    }
+
+    @Override
+    protected void controlRender(RenderManager rm, ViewPort vp) {
+        BoundingVolume bv = spatial.getWorldBound();
+
+        Camera cam = vp.getCamera();
+        float atanNH = FastMath.atan(cam.getFrustumNear() * cam.getFrustumTop());
+        float ratio = (FastMath.PI / (8f * atanNH));
+        float distance = bv.distanceTo(cam.getLocation()) / ratio;
+        float area = AreaUtils.calcScreenArea(bv, distance, cam.getWidth());
+
+        // keep the largest area when the model is in several views
+        maxArea = Math.max(maxArea, area);
+        rendered = true;
+    }
+
+    @Override
+    public void write(JmeExporter ex) throws IOException {
+        super.write(ex);
+        OutputCapsule oc = ex.getCapsule(this);
+        oc.write(screenAreas, "screenAreas", null);
+        oc.write(culledUpdateInterval, "culledUpdateInterval", 16);
+    }
+
+    @Override
+    public void read(JmeImporter im) throws IOException {
+        super.read(im);
+        InputCapsule ic = im.getCapsule(this);
+        float[] areas = ic.readFloatArray("screenAreas", null);
+        if (areas != null) {
+            screenAreas = areas;
+        }
+        culledUpdateInterval = ic.readInt("culledUpdateInterval", 16);
+    }
+}
@@ -111,6 +111,20 @@ public class Animation implements Savable, Cloneable {
         }
     }
 
+    /**
+     * @return true if all the tracks of this animation only modify the 
+     * bones of the skeleton, so that animations of different models can 
+     * be updated in parallel
+     */
+    boolean hasOnlyBoneTracks() {
+        for (Track track : tracks.getArray()) {
+            if (!(track instanceof BoneTrack) && !(track instanceof CompressedBoneTrack)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Set the {@link Track}s to be used by this animation.
      * 
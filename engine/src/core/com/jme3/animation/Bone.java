@@ -95,6 +95,11 @@ public final class Bone implements Savable {
      * on how this variable is used.
      */
     private transient float currentWeightSum = -1;
+    /**
+     * The number of times the transforms of this bone were changed outside
+     * of the skeleton update, see <code>Skeleton.getPoseUpdateCount()</code>.
+     */
+    private transient int userUpdateCount;
 
     /**
      * Creates a new bone with the given name.
@@ -331,6 +336,23 @@ public final class Bone implements Savable {
      * world transform with this bones' local transform.
      */
     public final void updateWorldVectors() {
+        updateModelTransforms();
+        updateAttachNode();
+        userUpdateCount++;
+    }
+
+    /**
+     * @return the number of times the user transforms of this bone were
+     * set or its world transforms were updated by the user
+     */
+    int getUserUpdateCount() {
+        return userUpdateCount;
+    }
+
+    /**
+     * Updates the world transforms for this bone, without the attach node.
+     */
+    private void updateModelTransforms() {
         if (currentWeightSum == 1f) {
             currentWeightSum = -1;
         } else if (currentWeightSum != -1f) {
@@ -369,7 +391,12 @@ public final class Bone implements Savable {
             worldPos.set(localPos);
             worldScale.set(localScale);
         }
+    }
 
+    /**
+     * Moves the attach node, if any, to the world transforms of this bone.
+     */
+    final void updateAttachNode() {
         if (attachNode != null) {
             attachNode.setLocalTranslation(worldPos);
             attachNode.setLocalRotation(worldRot);
@@ -381,13 +408,33 @@ public final class Bone implements Savable {
      * Updates world transforms for this bone and it's children.
      */
     final void update() {
-        this.updateWorldVectors();
+        update(true);
+    }
+
+    /**
+     * Updates world transforms for this bone and it's children.
+     * 
+     * @param updateAttachNodes false to leave the attach nodes in place,
+     * when the scene graph cannot be modified
+     */
+    final void update(boolean updateAttachNodes) {
+        updateModelTransforms();
+        if (updateAttachNodes) {
+            updateAttachNode();
+        }
 
         for (int i = children.size() - 1; i >= 0; i--) {
-            children.get(i).update();
+            children.get(i).update(updateAttachNodes);
         }
     }
 
+    /**
+     * @return true if this bone has an attach node
+     */
+    final boolean hasAttachNode() {
+        return attachNode != null;
+    }
+
     /**
      * Saves the current bone state as its binding pose, including its children.
      */
@@ -473,6 +520,7 @@ public final class Bone implements Savable {
         localPos.addLocal(translation);
         localRot = localRot.mult(rotation);
         localScale.multLocal(scale);
+        userUpdateCount++;
     }
 
     /**
@@ -488,6 +536,7 @@ public final class Bone implements Savable {
         // TODO: add scale here ???
         worldPos.set(translation);
         worldRot.set(rotation);
+        userUpdateCount++;
         
         //if there is an attached Node we need to set it's local transforms too.
         if(attachNode != null){
@@ -257,6 +257,25 @@ public final class BoneTrack implements Track {
         return times == null ? 0 : times[times.length - 1] - times[0];
     }
 
+    /**
+     * @return the number of bytes taken by the keyframes of this track
+     */
+    int getKeyframesSize() {
+        int size = times.length * 4 + getSize(translations) + getSize(rotations);
+        if (scales != null) {
+            size += getSize(scales);
+        }
+        return size;
+    }
+
+    private static int getSize(CompactArray<?> array) {
+        int size = array.getSerializedSize() * 4;
+        if (array.index != null) {
+            size += array.index.length * 4;
+        }
+        return size;
+    }
+
     /**
      * This method creates a clone of the current object.
      * @return a clone of the current object
@@ -0,0 +1,511 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.animation;
+
+import com.jme3.export.*;
+import com.jme3.math.FastMath;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.util.TempVars;
+import java.io.IOException;
+import java.util.BitSet;
+
+/**
+ * A bone track stored in a compressed form, built from a {@link BoneTrack}.
+ * <p>
+ * The keyframes are evenly spaced, so the keyframes around a given time
+ * are found without searching. Rotations are stored as 16 bit fixed point
+ * quaternions, translations and scales as 16 bit fixed point values within
+ * the range of the track, and a translation or scale that does not change
+ * is stored once. The values of a keyframe are stored next to each other
+ * and decoded straight into the bone.
+ * <p>
+ * Evenly spaced keyframes come at a price: a track whose keyframes are not
+ * evenly spaced is resampled, which rounds off the poses between two
+ * samples, and a sparse track such as a bone that only moves now and then
+ * gets far more keyframes than it had. A keyframe takes 8 to 20 bytes
+ * instead of up to 44 bytes, which does not make up for that.
+ * {@link #compress(com.jme3.animation.Animation, float) } keeps the tracks
+ * it would make bigger.
+ * <p>
+ * The data of a compressed track never changes, clones share it.
+ */
+public final class CompressedBoneTrack implements Track {
+
+    /**
+     * The largest value of a quantized rotation component
+     */
+    private static final float ROTATION_RANGE = Short.MAX_VALUE;
+    /**
+     * The number of steps of a quantized translation or scale component
+     */
+    private static final float VECTOR_STEPS = 65535f;
+
+    /**
+     * Bone index in the skeleton which this track effects.
+     */
+    private int targetBoneIndex;
+    private float startTime;
+    private float length;
+    private int numKeys;
+    /**
+     * Keyframes per second
+     */
+    private float keyRate;
+    /**
+     * The values of the keyframes, for each keyframe the rotation 
+     * followed by the translation and the scale when they are animated
+     */
+    private short[] keys;
+    /**
+     * The number of values of a keyframe
+     */
+    private int stride;
+    /**
+     * The smallest translation, or the translation when it is constant
+     */
+    private float[] translationMin;
+    /**
+     * The size of a quantization step of the translation, zero when the
+     * translation is constant
+     */
+    private float[] translationStep;
+    /**
+     * The position of the translation in a keyframe, 0 when the
+     * translation is constant: the rotation is decoded with a zero step
+     * instead, which yields the constant translation without a branch
+     */
+    private int translationOffset;
+    /**
+     * Same as the translation, null when the track has no scales
+     */
+    private float[] scaleMin;
+    private float[] scaleStep;
+    private int scaleOffset;
+
+    /**
+     * Serialization-only. Do not use.
+     */
+    public CompressedBoneTrack() {
+    }
+
+    /**
+     * Compresses the given bone track.
+     * 
+     * @param track the track to compress
+     * @param sampleRate the largest number of keyframes per second of the
+     * compressed track. The keyframes of a track that are evenly spaced at
+     * this rate or a lower one are kept as they are, the keyframes of
+     * other tracks are interpolated at this rate.
+     */
+    public CompressedBoneTrack(BoneTrack track, float sampleRate) {
+        if (sampleRate <= 0) {
+            throw new IllegalArgumentException("The sample rate must be positive");
+        }
+        targetBoneIndex = track.getTargetBoneIndex();
+
+        float[] times = track.getTimes();
+        Vector3f[] translations = track.getTranslations();
+        Quaternion[] rotations = track.getRotations();
+        Vector3f[] scales = track.getScales();
+
+        startTime = times[0];
+        length = track.getLength();
+        boolean keepKeyframes = isEvenlySpaced(times, sampleRate);
+        if (keepKeyframes) {
+            numKeys = times.length;
+        } else {
+            numKeys = length > 0 ? (int) FastMath.ceil(length * sampleRate) + 1 : 1;
+        }
+
+        Quaternion[] keyRotations = new Quaternion[numKeys];
+        Vector3f[] keyTranslations = new Vector3f[numKeys];
+        Vector3f[] keyScales = scales != null ? new Vector3f[numKeys] : null;
+        for (int i = 0; i < numKeys; i++) {
+            if (keepKeyframes) {
+                keyRotations[i] = rotations[i].clone();
+                keyTranslations[i] = translations[i];
+                if (keyScales != null) {
+                    keyScales[i] = scales[i];
+                }
+                continue;
+            }
+            // resample the track at a uniform rate
+            float time = numKeys > 1 ? startTime + i * length / (numKeys - 1) : startTime;
+            keyRotations[i] = new Quaternion();
+            keyTranslations[i] = new Vector3f();
+            if (keyScales != null) {
+                keyScales[i] = new Vector3f();
+            }
+            sample(time, times, translations, rotations, scales,
+                    keyTranslations[i], keyRotations[i], keyScales != null ? keyScales[i] : null);
+        }
+
+        translationMin = new float[3];
+        translationStep = computeRange(keyTranslations, translationMin);
+        if (keyScales != null) {
+            scaleMin = new float[3];
+            scaleStep = computeRange(keyScales, scaleMin);
+        }
+        initLayout();
+
+        keys = new short[numKeys * stride];
+        Quaternion previous = null;
+        for (int i = 0; i < numKeys; i++) {
+            Quaternion rot = keyRotations[i].normalizeLocal();
+            // neighbour keyframes on the same side of the hypersphere can
+            // be interpolated without checking the sign of their dot product
+            if (previous != null && previous.dot(rot) < 0) {
+                rot.set(-rot.getX(), -rot.getY(), -rot.getZ(), -rot.getW());
+            }
+            previous = rot;
+
+            int index = i * stride;
+            keys[index] = (short) Math.round(rot.getX() * ROTATION_RANGE);
+            keys[index + 1] = (short) Math.round(rot.getY() * ROTATION_RANGE);
+            keys[index + 2] = (short) Math.round(rot.getZ() * ROTATION_RANGE);
+            keys[index + 3] = (short) Math.round(rot.getW() * ROTATION_RANGE);
+            if (translationOffset > 0) {
+                quantize(keyTranslations[i], translationMin, translationStep, index + translationOffset);
+            }
+            if (scaleOffset > 0) {
+                quantize(keyScales[i], scaleMin, scaleStep, index + scaleOffset);
+            }
+        }
+    }
+
+    /**
+     * Computes the layout of a keyframe and the keyframe rate. A constant
+     * translation or scale is not stored in the keyframes, it gets a zero
+     * quantization step instead.
+     */
+    private void initLayout() {
+        keyRate = length > 0 ? (numKeys - 1) / length : 0;
+        stride = 4;
+        translationOffset = 0;
+        if (translationStep != null) {
+            translationOffset = stride;
+            stride += 3;
+        } else {
+            translationStep = new float[3];
+        }
+        scaleOffset = 0;
+        if (scaleStep != null) {
+            scaleOffset = stride;
+            stride += 3;
+        } else if (scaleMin != null) {
+            scaleStep = new float[3];
+        }
+    }
+
+    /**
+     * Checks if the keyframes are evenly spaced at no more than the given
+     * rate.
+     */
+    private static boolean isEvenlySpaced(float[] times, float sampleRate) {
+        int lastFrame = times.length - 1;
+        float length = times[lastFrame] - times[0];
+        if (lastFrame == 0 || length <= 0 || lastFrame / length > sampleRate * 1.001f) {
+            return false;
+        }
+        float interval = length / lastFrame;
+        for (int i = 1; i < lastFrame; i++) {
+            if (FastMath.abs(times[i] - times[0] - i * interval) > interval * 0.001f) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Replaces the bone tracks of an animation with compressed tracks.
+     * <p>
+     * A bone track is only replaced when its compressed track takes less
+     * memory. Sparse tracks, which would get many more keyframes when
+     * resampled, are kept as they are: finding their keyframes is cheap
+     * anyway.
+     * 
+     * @param anim the animation to compress
+     * @param sampleRate the largest number of keyframes per second of the
+     * compressed tracks
+     * 
+     * @see #CompressedBoneTrack(com.jme3.animation.BoneTrack, float) 
+     */
+    public static void compress(Animation anim, float sampleRate) {
+        Track[] tracks = anim.getTracks();
+        for (Track track : tracks) {
+            anim.removeTrack(track);
+        }
+        for (Track track : tracks) {
+            if (track instanceof BoneTrack) {
+                BoneTrack boneTrack = (BoneTrack) track;
+                CompressedBoneTrack compressed = new CompressedBoneTrack(boneTrack, sampleRate);
+                if (compressed.getKeyframesSize() < boneTrack.getKeyframesSize()) {
+                    anim.addTrack(compressed);
+                } else {
+                    anim.addTrack(track);
+                }
+            } else {
+                anim.addTrack(track);
+            }
+        }
+    }
+
+    /**
+     * Interpolates the keyframes of a bone track the same way
+     * {@link BoneTrack} does.
+     */
+    private static void sample(float time, float[] times, Vector3f[] translations,
+            Quaternion[] rotations, Vector3f[] scales,
+            Vector3f translation, Quaternion rotation, Vector3f scale) {
+        int lastFrame = times.length - 1;
+        int startFrame;
+        int endFrame;
+        if (time < 0 || lastFrame == 0) {
+            startFrame = endFrame = 0;
+        } else if (time >= times[lastFrame]) {
+            startFrame = endFrame = lastFrame;
+        } else {
+            startFrame = 0;
+            endFrame = 1;
+            for (int i = 0; i < lastFrame && times[i] < time; i++) {
+                startFrame = i;
+                endFrame = i + 1;
+            }
+        }
+
+        rotation.set(rotations[startFrame]);
+        translation.set(translations[startFrame]);
+        if (scale != null) {
+            scale.set(scales[startFrame]);
+        }
+        if (startFrame != endFrame) {
+            float blend = (time - times[startFrame])
+                    / (times[endFrame] - times[startFrame]);
+            rotation.nlerp(rotations[endFrame], blend);
+            translation.interpolate(translations[endFrame], blend);
+            if (scale != null) {
+                scale.interpolate(scales[endFrame], blend);
+            }
+        }
+    }
+
+    /**
+     * Computes the smallest value and the quantization step of each
+     * component of the vectors.
+     * 
+     * @return the quantization steps, or null if the vectors are all equal
+     */
+    private static float[] computeRange(Vector3f[] vectors, float[] min) {
+        Vector3f lo = new Vector3f(vectors[0]);
+        Vector3f hi = new Vector3f(vectors[0]);
+        for (int i = 1; i < vectors.length; i++) {
+            lo.minLocal(vectors[i]);
+            hi.maxLocal(vectors[i]);
+        }
+        min[0] = lo.x;
+        min[1] = lo.y;
+        min[2] = lo.z;
+        if (lo.equals(hi)) {
+            return null;
+        }
+        return new float[]{
+                    (hi.x - lo.x) / VECTOR_STEPS,
+                    (hi.y - lo.y) / VECTOR_STEPS,
+                    (hi.z - lo.z) / VECTOR_STEPS
+                };
+    }
+
+    private void quantize(Vector3f vector, float[] min, float[] step, int index) {
+        keys[index] = quantize(vector.x, min[0], step[0]);
+        keys[index + 1] = quantize(vector.y, min[1], step[1]);
+        keys[index + 2] = quantize(vector.z, min[2], step[2]);
+    }
+
+    private static short quantize(float value, float min, float step) {
+        if (step == 0) {
+            return Short.MIN_VALUE;
+        }
+        int steps = Math.round((value - min) / step);
+        return (short) (Math.min(Math.max(steps, 0), (int) VECTOR_STEPS) + Short.MIN_VALUE);
+    }
+
+    /**
+     * @return the bone index of this bone track.
+     */
+    public int getTargetBoneIndex() {
+        return targetBoneIndex;
+    }
+
+    /**
+     * @return the number of keyframes of this track
+     */
+    public int getNumKeys() {
+        return numKeys;
+    }
+
+    /**
+     * @return the number of keyframes per second of this track
+     */
+    public float getKeyRate() {
+        return keyRate;
+    }
+
+    /**
+     * @return the number of bytes taken by the keyframes of this track
+     */
+    int getKeyframesSize() {
+        int size = keys.length * 2 + (translationMin.length + translationStep.length) * 4;
+        if (scaleMin != null) {
+            size += (scaleMin.length + scaleStep.length) * 4;
+        }
+        return size;
+    }
+
+    /**
+     * 
+     * Modify the bone which this track modifies in the skeleton to contain
+     * the correct animation transforms for a given time.
+     * The transforms are interpolated from the two keyframes around the time.
+     *
+     * @param time the current time of the animation
+     * @param weight the weight of the animation
+     * @param control
+     * @param channel
+     * @param vars
+     */
+    public void setTime(float time, float weight, AnimControl control, AnimChannel channel, TempVars vars) {
+        BitSet affectedBones = channel.getAffectedBones();
+        if (affectedBones != null && !affectedBones.get(targetBoneIndex)) {
+            return;
+        }
+
+        Bone target = control.getSkeleton().getBone(targetBoneIndex);
+
+        int key = 0;
+        float blend = 0;
+        if (time >= startTime + length) {
+            key = numKeys - 1;
+        } else if (time > startTime) {
+            float position = (time - startTime) * keyRate;
+            key = (int) position;
+            blend = position - key;
+            if (key >= numKeys - 1) {
+                // rounding, time is just below the end of the track
+                key = numKeys - 1;
+                blend = 0;
+            }
+        }
+        int start = key * stride;
+        int end = blend > 0 ? start + stride : start;
+        float startBlend = 1 - blend;
+
+        // the keyframes are on the same side of the hypersphere, nlerp
+        // without flipping, the normalization also removes the quantization scale
+        float x = keys[start] * startBlend + keys[end] * blend;
+        float y = keys[start + 1] * startBlend + keys[end + 1] * blend;
+        float z = keys[start + 2] * startBlend + keys[end + 2] * blend;
+        float w = keys[start + 3] * startBlend + keys[end + 3] * blend;
+        float invLength = FastMath.invSqrt(x * x + y * y + z * z + w * w);
+        Quaternion tempQ = vars.quat1;
+        tempQ.set(x * invLength, y * invLength, z * invLength, w * invLength);
+
+        Vector3f tempV = vars.vect1;
+        decode(tempV, translationMin, translationStep,
+                start + translationOffset, end + translationOffset, blend);
+
+        Vector3f tempS = null;
+        if (scaleMin != null) {
+            tempS = vars.vect2;
+            decode(tempS, scaleMin, scaleStep, start + scaleOffset, end + scaleOffset, blend);
+        }
+
+        target.blendAnimTransforms(tempV, tempQ, tempS, weight);
+    }
+
+    private void decode(Vector3f store, float[] min, float[] step, int start, int end, float blend) {
+        float startBlend = 1 - blend;
+        store.x = min[0] + ((keys[start] - Short.MIN_VALUE) * startBlend + (keys[end] - Short.MIN_VALUE) * blend) * step[0];
+        store.y = min[1] + ((keys[start + 1] - Short.MIN_VALUE) * startBlend + (keys[end + 1] - Short.MIN_VALUE) * blend) * step[1];
+        store.z = min[2] + ((keys[start + 2] - Short.MIN_VALUE) * startBlend + (keys[end + 2] - Short.MIN_VALUE) * blend) * step[2];
+    }
+
+    /**
+     * @return the length of the track
+     */
+    public float getLength() {
+        return length;
+    }
+
+    /**
+     * This method creates a clone of the current object, sharing the
+     * keyframes which never change.
+     * @return a clone of the current object
+     */
+    @Override
+    public CompressedBoneTrack clone() {
+        try {
+            return (CompressedBoneTrack) super.clone();
+        } catch (CloneNotSupportedException ex) {
+            throw new AssertionError();
+        }
+    }
+
+    @Override
+    public void write(JmeExporter ex) throws IOException {
+        OutputCapsule oc = ex.getCapsule(this);
+        oc.write(targetBoneIndex, "boneIndex", 0);
+        oc.write(startTime, "startTime", 0);
+        oc.write(length, "length", 0);
+        oc.write(numKeys, "numKeys", 0);
+        oc.write(keys, "keys", null);
+        oc.write(translationMin, "translationMin", null);
+        oc.write(translationOffset > 0 ? translationStep : null, "translationStep", null);
+        oc.write(scaleMin, "scaleMin", null);
+        oc.write(scaleOffset > 0 ? scaleStep : null, "scaleStep", null);
+    }
+
+    @Override
+    public void read(JmeImporter im) throws IOException {
+        InputCapsule ic = im.getCapsule(this);
+        targetBoneIndex = ic.readInt("boneIndex", 0);
+        startTime = ic.readFloat("startTime", 0);
+        length = ic.readFloat("length", 0);
+        numKeys = ic.readInt("numKeys", 0);
+        keys = ic.readShortArray("keys", null);
+        translationMin = ic.readFloatArray("translationMin", null);
+        translationStep = ic.readFloatArray("translationStep", null);
+        scaleMin = ic.readFloatArray("scaleMin", null);
+        scaleStep = ic.readFloatArray("scaleStep", null);
+        initLayout();
+    }
+}
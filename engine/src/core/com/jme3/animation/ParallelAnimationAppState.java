@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.animation;
+
+import com.jme3.app.state.AbstractAppState;
+import com.jme3.renderer.RenderManager;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import java.util.ArrayList;
+
+/**
+ * <code>ParallelAnimationAppState</code> updates the animations of many
+ * {@link AnimControl}s in parallel.
+ * <p>
+ * The controls using the state, see {@link #add(com.jme3.scene.Spatial) },
+ * queue themselves in the state when they are updated with the logical
+ * state of the scene instead of updating their animations. Once the 
+ * geometric state of the scene has been updated, when the states are 
+ * rendered, the channels and the skeletons of the queued controls are 
+ * updated by the threads of a {@link ParallelSkinner}, the models do not
+ * depend on each other.
+ * The rendering thread then moves the nodes attached to the bones, 
+ * notifies the {@link AnimEventListener}s of the animation cycles done
+ * and updates the geometric state of the scenes containing the models
+ * whose nodes moved or whose listeners were notified again.
+ * The listeners are notified in the order the controls were queued, 
+ * which is the order of the scene graph, then in the order of the 
+ * channels, the same order as when the controls update their animations.
+ * <p>
+ * The listeners are notified after the animations of all the queued
+ * controls are updated rather than during the update of each control, 
+ * so a listener changing the animations of another control changes them
+ * on the next frame, even if that control comes later in the scene graph.
+ * The animations with other tracks than bone tracks, which modify the
+ * scene graph, are still updated by their control.
+ */
+public class ParallelAnimationAppState extends AbstractAppState {
+
+    /**
+     * The number of jobs per thread, more than one balances the work
+     * between controls of different costs
+     */
+    private static final int JOBS_PER_THREAD = 4;
+
+    private final ParallelSkinner executor;
+    private final ArrayList<AnimControl> queue = new ArrayList<AnimControl>();
+    private final ArrayList<Spatial> roots = new ArrayList<Spatial>();
+    private UpdateJob[] jobs = new UpdateJob[0];
+
+    private class UpdateJob implements Runnable {
+
+        int start;
+        int end;
+
+        public void run() {
+            for (int i = start; i < end; i++) {
+                queue.get(i).runQueuedUpdate();
+            }
+        }
+    }
+
+    /**
+     * Creates a <code>ParallelAnimationAppState</code> using the threads
+     * of the default {@link ParallelSkinner}.
+     */
+    public ParallelAnimationAppState() {
+        this(ParallelSkinner.getDefault());
+    }
+
+    /**
+     * Creates a <code>ParallelAnimationAppState</code>.
+     * 
+     * @param executor the skinner whose threads update the animations
+     */
+    public ParallelAnimationAppState(ParallelSkinner executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Updates the animations of all the {@link AnimControl}s of the given
+     * spatial and its children with this state.
+     * 
+     * @param spatial the spatial
+     * @see AnimControl#setParallelAnimationState(com.jme3.animation.ParallelAnimationAppState) 
+     */
+    public void add(Spatial spatial) {
+        setState(spatial, this);
+    }
+
+    /**
+     * Stops updating the animations of the {@link AnimControl}s of the given
+     * spatial and its children with this state.
+     * 
+     * @param spatial the spatial
+     */
+    public void remove(Spatial spatial) {
+        setState(spatial, null);
+    }
+
+    private void setState(Spatial spatial, ParallelAnimationAppState state) {
+        AnimControl control = spatial.getControl(AnimControl.class);
+        if (control != null) {
+            control.setParallelAnimationState(state);
+        }
+        if (spatial instanceof Node) {
+            for (Spatial child : ((Node) spatial).getChildren()) {
+                setState(child, state);
+            }
+        }
+    }
+
+    /**
+     * Queues the update of the animations of a control, called by the
+     * control in its update.
+     */
+    void queue(AnimControl control) {
+        queue.add(control);
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        if (!enabled) {
+            updateQueued();
+        }
+        super.setEnabled(enabled);
+    }
+
+    @Override
+    public void render(RenderManager rm) {
+        updateQueued();
+    }
+
+    @Override
+    public void cleanup() {
+        updateQueued();
+        super.cleanup();
+    }
+
+    /**
+     * Updates the animations of the queued controls.
+     */
+    void updateQueued() {
+        int count = queue.size();
+        if (count == 0) {
+            return;
+        }
+
+        int numJobs = Math.min(count, executor.getThreads() * JOBS_PER_THREAD);
+        if (jobs.length < numJobs) {
+            UpdateJob[] newJobs = new UpdateJob[numJobs];
+            System.arraycopy(jobs, 0, newJobs, 0, jobs.length);
+            for (int i = jobs.length; i < numJobs; i++) {
+                newJobs[i] = new UpdateJob();
+            }
+            jobs = newJobs;
+        }
+        for (int i = 0; i < numJobs; i++) {
+            jobs[i].start = (int) ((long) count * i / numJobs);
+            jobs[i].end = (int) ((long) count * (i + 1) / numJobs);
+        }
+
+        try {
+            executor.execute(jobs, numJobs);
+        } finally {
+            try {
+                for (int i = 0; i < count; i++) {
+                    AnimControl control = queue.get(i);
+                    if (control.applyQueuedUpdate()) {
+                        addRoot(control.getSpatial());
+                    }
+                }
+                for (int i = 0; i < roots.size(); i++) {
+                    roots.get(i).updateGeometricState();
+                }
+            } finally {
+                queue.clear();
+                roots.clear();
+            }
+        }
+    }
+
+    /**
+     * Keeps the root of the scene containing the given spatial, for its
+     * geometric state to be updated again
+     */
+    private void addRoot(Spatial spatial) {
+        if (spatial == null) {
+            return;
+        }
+        while (spatial.getParent() != null) {
+            spatial = spatial.getParent();
+        }
+        for (int i = 0; i < roots.size(); i++) {
+            if (roots.get(i) == spatial) {
+                return;
+            }
+        }
+        roots.add(spatial);
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.animation;
+
+import com.jme3.post.SceneProcessor;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.ViewPort;
+import com.jme3.renderer.queue.RenderQueue;
+import com.jme3.texture.FrameBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <code>ParallelSkinner</code> runs the software skinning of
+ * {@link SkeletonControl}s on a pool of worker threads.
+ * <p>
+ * Set it on a control with {@link SkeletonControl#setParallelSkinner(com.jme3.animation.ParallelSkinner) }.
+ * Once the skinning matrices have been computed, the control splits its
+ * target meshes into jobs of at most {@link #getChunkVertices() } vertices
+ * and gives them to the skinner.
+ * <p>
+ * The skinner is a {@link SceneProcessor}: add it to the viewports the
+ * controls are rendered in with {@link ViewPort#addProcessor(com.jme3.post.SceneProcessor) },
+ * before the processors drawing the meshes in their <code>postQueue</code>
+ * such as the shadow renderers. The jobs of all the controls rendered in
+ * such a viewport are then executed together in
+ * {@link #postQueue(com.jme3.renderer.queue.RenderQueue) }, once the 
+ * scenes of the viewport are queued for rendering. This way many small
+ * models, e.g. a crowd of characters skinned by one job each, are skinned
+ * in parallel as well. In the other viewports, the jobs of each control
+ * are executed when the control is rendered.
+ * The worker threads and the rendering thread take the jobs from a shared
+ * counter and the rendering thread waits for all of them to complete.
+ * Every vertex is transformed by exactly the same operations as in the
+ * serial path, so the results are identical.
+ * <p>
+ * The jobs and their buffer views are kept by the controls and reused
+ * every frame.
+ */
+public class ParallelSkinner implements SceneProcessor {
+
+    /**
+     * The default maximum number of vertices skinned by one job.
+     */
+    public static final int DEFAULT_CHUNK_VERTICES = 2048;
+
+    private static ParallelSkinner defaultSkinner;
+
+    private final ExecutorService executor;
+    private final int threads;
+    private int chunkVertices = DEFAULT_CHUNK_VERTICES;
+
+    /**
+     * the jobs queued by the controls since the last flush
+     */
+    private final ArrayList<Runnable> queuedJobs = new ArrayList<Runnable>();
+    private Runnable[] flushedJobs = new Runnable[0];
+    private final ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
+    private boolean initialized = false;
+
+    private static class SkinningThreadFactory implements ThreadFactory {
+
+        private int nextThreadId = 0;
+
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "jME3 Skinning Thread " + (nextThreadId++));
+            t.setDaemon(true);
+            return t;
+        }
+    }
+
+    /**
+     * Takes jobs from the shared counter until none are left.
+     */
+    private static class JobRunner implements Runnable {
+
+        private final Runnable[] jobs;
+        private final int numJobs;
+        private final AtomicInteger nextJob = new AtomicInteger();
+
+        public JobRunner(Runnable[] jobs, int numJobs) {
+            this.jobs = jobs;
+            this.numJobs = numJobs;
+        }
+
+        public void run() {
+            int job;
+            while ((job = nextJob.getAndIncrement()) < numJobs) {
+                jobs[job].run();
+            }
+        }
+    }
+
+    /**
+     * Creates a <code>ParallelSkinner</code> that uses one thread 
+     * per available processor, the rendering thread included.
+     */
+    public ParallelSkinner() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a <code>ParallelSkinner</code>.
+     * 
+     * @param threads The number of threads skinning the meshes, including
+     * the rendering thread.
+     */
+    public ParallelSkinner(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one thread is required");
+        }
+        this.threads = threads;
+        this.executor = threads > 1
+                ? Executors.newFixedThreadPool(threads - 1, new SkinningThreadFactory())
+                : null;
+    }
+
+    /**
+     * @return A shared <code>ParallelSkinner</code> using all available
+     * processors.
+     */
+    public static synchronized ParallelSkinner getDefault() {
+        if (defaultSkinner == null) {
+            defaultSkinner = new ParallelSkinner();
+        }
+        return defaultSkinner;
+    }
+
+    /**
+     * @return The number of threads skinning the meshes.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the maximum number of vertices skinned by one job. Smaller
+     * jobs balance the work better at the cost of more synchronization.
+     * 
+     * @param chunkVertices The number of vertices, {@link #DEFAULT_CHUNK_VERTICES} by default.
+     */
+    public void setChunkVertices(int chunkVertices) {
+        if (chunkVertices < 1) {
+            throw new IllegalArgumentException("At least one vertex per job is required");
+        }
+        this.chunkVertices = chunkVertices;
+    }
+
+    /**
+     * @return The maximum number of vertices skinned by one job.
+     * @see #setChunkVertices(int) 
+     */
+    public int getChunkVertices() {
+        return chunkVertices;
+    }
+
+    /**
+     * Stops the worker threads. The skinner must not be used afterwards.
+     */
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Queues skinning jobs, called by the controls while the scene
+     * is rendered. The jobs are executed right away if the skinner
+     * is not a processor of the viewport.
+     * 
+     * @param vp The viewport the meshes are rendered in, or null
+     * @param jobs The jobs to queue
+     * @param numJobs The number of jobs to queue from the start of the array
+     */
+    synchronized void queue(ViewPort vp, Runnable[] jobs, int numJobs) {
+        if (vp == null || !vp.getProcessors().contains(this)) {
+            // nothing would flush the jobs before the meshes are drawn
+            execute(jobs, numJobs);
+            return;
+        }
+        for (int i = 0; i < numJobs; i++) {
+            queuedJobs.add(jobs[i]);
+        }
+    }
+
+    /**
+     * Executes the jobs queued by the controls and returns once all of
+     * them have completed. Called when a viewport using the skinner has
+     * been queued for rendering, call it after rendering the controls
+     * directly with {@link SkeletonControl#render(com.jme3.renderer.RenderManager, com.jme3.renderer.ViewPort) }
+     * in a viewport the skinner was added to.
+     */
+    public synchronized void flush() {
+        int numJobs = queuedJobs.size();
+        if (numJobs == 0) {
+            return;
+        }
+        flushedJobs = queuedJobs.toArray(flushedJobs);
+        queuedJobs.clear();
+        try {
+            execute(flushedJobs, numJobs);
+        } finally {
+            for (int i = 0; i < numJobs; i++) {
+                flushedJobs[i] = null;
+            }
+        }
+    }
+
+    /**
+     * Runs the given jobs, in parallel when worthwhile.
+     * Returns once all of them have completed.
+     * 
+     * @param jobs The jobs to run
+     * @param numJobs The number of jobs to run from the start of the array
+     */
+    synchronized void execute(Runnable[] jobs, int numJobs) {
+        if (executor == null || numJobs < 2) {
+            for (int i = 0; i < numJobs; i++) {
+                jobs[i].run();
+            }
+            return;
+        }
+
+        JobRunner runner = new JobRunner(jobs, numJobs);
+        int workers = Math.min(threads, numJobs) - 1;
+        for (int i = 0; i < workers; i++) {
+            futures.add(executor.submit(runner));
+        }
+
+        // the rendering thread does its share of the work as well
+        RuntimeException failure = null;
+        try {
+            runner.run();
+        } catch (RuntimeException ex) {
+            failure = ex;
+        }
+
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                futures.get(i).get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                if (failure == null) {
+                    failure = new IllegalStateException("Interrupted while skinning", ex);
+                }
+            } catch (ExecutionException ex) {
+                if (failure == null) {
+                    Throwable cause = ex.getCause();
+                    failure = cause instanceof RuntimeException
+                            ? (RuntimeException) cause
+                            : new IllegalStateException("Failed to skin the meshes", cause);
+                }
+            }
+        }
+        futures.clear();
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    public void initialize(RenderManager rm, ViewPort vp) {
+        initialized = true;
+    }
+
+    public void reshape(ViewPort vp, int w, int h) {
+    }
+
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    public void preFrame(float tpf) {
+    }
+
+    public void postQueue(RenderQueue rq) {
+        flush();
+    }
+
+    public void postFrame(FrameBuffer out) {
+    }
+
+    public void cleanup() {
+        // the jobs of a removed viewport must not wait for another one
+        flush();
+        initialized = false;
+    }
+}
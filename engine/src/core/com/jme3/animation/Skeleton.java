@@ -55,6 +55,11 @@ public final class Skeleton implements Savable {
      * will cause it to go to the animated position.
      */
     private transient Matrix4f[] skinningMatrixes;
+    /**
+     * Incremented each time the world transforms of the bones are updated,
+     * lets the skinning be skipped when the pose did not change.
+     */
+    private transient int poseUpdateCount;
 
     /**
      * Creates a skeleton from a bone list. 
@@ -144,9 +149,38 @@ public final class Skeleton implements Savable {
      * Typically called after setting local animation transforms.
      */
     public void updateWorldVectors() {
+        updateWorldVectors(true);
+    }
+
+    /**
+     * Updates world transforms for all bones in this skeleton.
+     * 
+     * @param updateAttachNodes false to leave the attach nodes of the bones
+     * in place, when the scene graph cannot be modified
+     * @see #updateAttachNodes() 
+     */
+    void updateWorldVectors(boolean updateAttachNodes) {
         for (int i = rootBones.length - 1; i >= 0; i--) {
-            rootBones[i].update();
+            rootBones[i].update(updateAttachNodes);
         }
+        poseUpdateCount++;
+    }
+
+    /**
+     * Moves the attach nodes of the bones to the world transforms of
+     * the bones.
+     * 
+     * @return true if at least one bone has an attach node
+     */
+    boolean updateAttachNodes() {
+        boolean moved = false;
+        for (int i = 0; i < boneList.length; i++) {
+            if (boneList[i].hasAttachNode()) {
+                boneList[i].updateAttachNode();
+                moved = true;
+            }
+        }
+        return moved;
     }
 
     /**
@@ -176,6 +210,20 @@ public final class Skeleton implements Savable {
             rootBone.reset();
             rootBone.update();
         }
+        poseUpdateCount++;
+    }
+
+    /**
+     * @return the number of times the world transforms of the bones
+     * were updated, by the skeleton or by setting the user transforms
+     * of the bones, e.g. by a ragdoll
+     */
+    int getPoseUpdateCount() {
+        int count = poseUpdateCount;
+        for (int i = 0; i < boneList.length; i++) {
+            count += boneList[i].getUserUpdateCount();
+        }
+        return count;
     }
 
     /**
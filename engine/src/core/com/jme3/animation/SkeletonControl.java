@@ -32,10 +32,14 @@
 package com.jme3.animation;
 
 import com.jme3.export.*;
-import com.jme3.math.FastMath;
+import com.jme3.material.MatParam;
+import com.jme3.material.Material;
 import com.jme3.math.Matrix4f;
+import com.jme3.renderer.Caps;
 import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.Renderer;
 import com.jme3.renderer.ViewPort;
+import com.jme3.shader.VarType;
 import com.jme3.scene.*;
 import com.jme3.scene.VertexBuffer.Type;
 import com.jme3.scene.control.AbstractControl;
@@ -45,16 +49,29 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 
 /**
  * The Skeleton control deforms a model according to a skeleton, 
  * It handles the computation of the deformation matrices and performs 
  * the transformations on the mesh
+ * <p>
+ * When {@link #setHardwareSkinningPreferred(boolean) hardware skinning} is
+ * preferred, the meshes whose materials support it and whose bone matrices
+ * fit in the vertex shader uniforms are skinned on the GPU, the others are
+ * skinned on the CPU.
  * 
  * @author Rémy Bouquet Based on AnimControl by Kirill Vainer
  */
 public class SkeletonControl extends AbstractControl implements Cloneable {
 
+    /**
+     * The number of vertex uniform components left to the other uniforms
+     * of the material when checking if the bone matrices of a mesh fit
+     * in the vertex shader.
+     */
+    private static final int RESERVED_UNIFORM_COMPONENTS = 256;
+
     /**
      * The skeleton of the model
      */
@@ -68,6 +85,54 @@ public class SkeletonControl extends AbstractControl implements Cloneable {
      * if they are visible in at least one camera.
      */
     private boolean wasMeshUpdated = false;
+    /**
+     * The pose update count of the skeleton when the targets were last
+     * skinned, the targets are skinned again only when the pose changed.
+     */
+    private int skinnedPoseUpdateCount = -1;
+    /**
+     * Skins the targets on several threads when set, see
+     * {@link #setParallelSkinner(com.jme3.animation.ParallelSkinner) }.
+     */
+    private ParallelSkinner parallelSkinner;
+    /**
+     * The jobs given to the parallel skinner, reused every frame.
+     */
+    private SkinningJob[] skinningJobs = new SkinningJob[0];
+    /**
+     * True to skin the targets on the GPU when possible.
+     */
+    private boolean hwSkinningPreferred = false;
+    /**
+     * True for the targets skinned on the GPU, null until the skinning
+     * modes are picked.
+     */
+    private boolean[] hwSkinned;
+    /**
+     * The skinning modes the targets could use this frame.
+     */
+    private boolean[] hwSkinnable;
+    /**
+     * The number of bones each target is weighted to.
+     */
+    private int[] targetBoneCounts;
+    /**
+     * True when the skinning modes of every target must be applied again.
+     */
+    private boolean skinningModesDirty = true;
+    /**
+     * The children of the node, their materials and the maximum number of
+     * bones of the renderer when the skinning modes were last picked, 
+     * the modes are picked again when they change.
+     */
+    private Spatial[] skinningModesChildren = new Spatial[0];
+    private Material[] skinningModesMaterials = new Material[0];
+    private int skinningModesMaxBones = -1;
+    /**
+     * The materials cloned for the targets skinned on the GPU, the bone 
+     * matrices of this control are only set on them.
+     */
+    private IdentityHashMap<Material, Material> hwSkinningMaterials = new IdentityHashMap<Material, Material>();
 
     /**
      * Serialization only. Do not use.
@@ -151,24 +216,50 @@ public class SkeletonControl extends AbstractControl implements Cloneable {
         } else {
             targets = null;
         }
+        hwSkinned = null;
+        skinnedPoseUpdateCount = -1;
     }
 
     @Override
     protected void controlRender(RenderManager rm, ViewPort vp) {
         if (!wasMeshUpdated) {
+            if (hwSkinned == null || skinningModesDirty
+                    || (hwSkinningPreferred && haveSkinningModesChanged(rm.getRenderer()))) {
+                updateSkinningModes(rm.getRenderer());
+            }
+
+            if (skeleton.getPoseUpdateCount() == skinnedPoseUpdateCount) {
+                // the animation was not updated this frame, see
+                // AnimControl#setUpdateInterval(int)
+                wasMeshUpdated = true;
+                return;
+            }
+            skinnedPoseUpdateCount = skeleton.getPoseUpdateCount();
+
             resetToBind(); // reset morph meshes to bind pose
 
             Matrix4f[] offsetMatrices = skeleton.computeSkinningMatrices();
 
-            // if hardware skinning is supported, the matrices and weight buffer
-            // will be sent by the SkinningShaderLogic object assigned to the shader
-            for (int i = 0; i < targets.length; i++) {
-                // NOTE: This assumes that code higher up
-                // Already ensured those targets are animated
-                // otherwise a crash will happen in skin update
-                //if (isMeshAnimated(targets[i])) {
-                softwareSkinUpdate(targets[i], offsetMatrices);
-                //}
+            if (hwSkinningPreferred) {
+                // the matrices are sent to the shader of the meshes
+                // skinned on the GPU through their material
+                updateBoneMatrices(offsetMatrices);
+            }
+
+            if (parallelSkinner != null) {
+                // the skinner skins the vertices before the meshes are drawn
+                parallelSkinUpdate(vp, offsetMatrices);
+            } else {
+                for (int i = 0; i < targets.length; i++) {
+                    // NOTE: This assumes that code higher up
+                    // Already ensured those targets are animated
+                    // otherwise a crash will happen in skin update
+                    //if (isMeshAnimated(targets[i])) {
+                    if (!hwSkinned[i]) {
+                        softwareSkinUpdate(targets[i], offsetMatrices);
+                    }
+                    //}
+                }
             }
 
             wasMeshUpdated = true;
@@ -181,44 +272,277 @@ public class SkeletonControl extends AbstractControl implements Cloneable {
     }
 
     void resetToBind() {
-        for (Mesh mesh : targets) {
-            if (isMeshAnimated(mesh)) {                
+        for (int i = 0; i < targets.length; i++) {
+            Mesh mesh = targets[i];
+            // meshes skinned on the GPU stay in bind pose
+            if (isMeshAnimated(mesh) && (hwSkinned == null || !hwSkinned[i])) {                
                 FloatBuffer bwBuff = (FloatBuffer) mesh.getBuffer(Type.BoneWeight).getData();
                 ByteBuffer biBuff = (ByteBuffer)mesh.getBuffer(Type.BoneIndex).getData();                
                 if (!biBuff.hasArray() || !bwBuff.hasArray()) {
                     mesh.prepareForAnim(true); // prepare for software animation
                 }
-                VertexBuffer bindPos = mesh.getBuffer(Type.BindPosePosition);
-                VertexBuffer bindNorm = mesh.getBuffer(Type.BindPoseNormal);
-                VertexBuffer pos = mesh.getBuffer(Type.Position);
-                VertexBuffer norm = mesh.getBuffer(Type.Normal);
-                FloatBuffer pb = (FloatBuffer) pos.getData();
-                FloatBuffer nb = (FloatBuffer) norm.getData();
-                FloatBuffer bpb = (FloatBuffer) bindPos.getData();
-                FloatBuffer bnb = (FloatBuffer) bindNorm.getData();
-                pb.clear();
-                nb.clear();
-                bpb.clear();
-                bnb.clear();
-
-                //reseting bind tangents if there is a bind tangent buffer
-                VertexBuffer bindTangents = mesh.getBuffer(Type.BindPoseTangent);
-                if (bindTangents != null) {
-                    VertexBuffer tangents = mesh.getBuffer(Type.Tangent);
-                    FloatBuffer tb = (FloatBuffer) tangents.getData();
-                    FloatBuffer btb = (FloatBuffer) bindTangents.getData();
-                    tb.clear();
-                    btb.clear();
-                    tb.put(btb).clear();
+                resetToBind(mesh);
+            }
+        }
+    }
+
+    private void resetToBind(Mesh mesh) {
+        VertexBuffer bindPos = mesh.getBuffer(Type.BindPosePosition);
+        VertexBuffer bindNorm = mesh.getBuffer(Type.BindPoseNormal);
+        VertexBuffer pos = mesh.getBuffer(Type.Position);
+        VertexBuffer norm = mesh.getBuffer(Type.Normal);
+        FloatBuffer pb = (FloatBuffer) pos.getData();
+        FloatBuffer nb = (FloatBuffer) norm.getData();
+        FloatBuffer bpb = (FloatBuffer) bindPos.getData();
+        FloatBuffer bnb = (FloatBuffer) bindNorm.getData();
+        pb.clear();
+        nb.clear();
+        bpb.clear();
+        bnb.clear();
+
+        //reseting bind tangents if there is a bind tangent buffer
+        VertexBuffer bindTangents = mesh.getBuffer(Type.BindPoseTangent);
+        if (bindTangents != null) {
+            VertexBuffer tangents = mesh.getBuffer(Type.Tangent);
+            FloatBuffer tb = (FloatBuffer) tangents.getData();
+            FloatBuffer btb = (FloatBuffer) bindTangents.getData();
+            tb.clear();
+            btb.clear();
+            tb.put(btb).clear();
+        }
+
+
+        pb.put(bpb).clear();
+        nb.put(bnb).clear();
+    }
+
+    /**
+     * Returns true if children were attached to or detached from the node,
+     * if the material of a child changed or if the renderer can hold
+     * another number of bones since the skinning modes were last picked.
+     */
+    private boolean haveSkinningModesChanged(Renderer renderer) {
+        if (getMaxBones(renderer) != skinningModesMaxBones) {
+            return true;
+        }
+        Node node = (Node) spatial;
+        int numChildren = node.getQuantity();
+        if (numChildren != skinningModesChildren.length) {
+            return true;
+        }
+        for (int i = 0; i < numChildren; i++) {
+            Spatial child = node.getChild(i);
+            if (child != skinningModesChildren[i]
+                    || (child instanceof Geometry && ((Geometry) child).getMaterial() != skinningModesMaterials[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Picks the skinning mode of each target and switches the meshes and
+     * the materials of the targets whose mode changed.
+     * 
+     * @param renderer the renderer giving the uniform limits
+     */
+    private void updateSkinningModes(Renderer renderer) {
+        if (hwSkinned == null || hwSkinned.length != targets.length) {
+            hwSkinned = new boolean[targets.length];
+            hwSkinnable = new boolean[targets.length];
+            targetBoneCounts = new int[targets.length];
+            for (int i = 0; i < targets.length; i++) {
+                targetBoneCounts[i] = getBoneCount(targets[i]);
+            }
+            skinningModesDirty = true;
+        }
+
+        int maxBones = getMaxBones(renderer);
+        for (int i = 0; i < targets.length; i++) {
+            hwSkinnable[i] = targetBoneCounts[i] <= maxBones;
+        }
+
+        Node node = (Node) spatial;
+        int numChildren = node.getQuantity();
+        for (int i = 0; i < numChildren; i++) {
+            int target = getTargetIndex(node.getChild(i));
+            if (target >= 0 && !isHardwareSkinningSupported(((Geometry) node.getChild(i)).getMaterial())) {
+                hwSkinnable[target] = false;
+            }
+        }
+
+        // a material shared by a target skinned on the CPU and a target
+        // skinned on the GPU would skin the first one twice
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 0; i < numChildren; i++) {
+                int target = getTargetIndex(node.getChild(i));
+                if (target < 0 || !hwSkinnable[target]) {
+                    continue;
+                }
+                Material mat = ((Geometry) node.getChild(i)).getMaterial();
+                for (int j = 0; j < numChildren; j++) {
+                    int other = getTargetIndex(node.getChild(j));
+                    if (other >= 0 && !hwSkinnable[other]
+                            && ((Geometry) node.getChild(j)).getMaterial() == mat) {
+                        hwSkinnable[target] = false;
+                        changed = true;
+                        break;
+                    }
                 }
+            }
+        }
+
+        for (int i = 0; i < targets.length; i++) {
+            if (skinningModesDirty || hwSkinnable[i] != hwSkinned[i]) {
+                hwSkinned[i] = hwSkinnable[i];
+                skinnedPoseUpdateCount = -1;
+                if (hwSkinned[i]) {
+                    // the shader skins the bind pose
+                    resetToBind(targets[i]);
+                    targets[i].prepareForAnim(false);
+                    targets[i].getBuffer(Type.Position).setUpdateNeeded();
+                    targets[i].getBuffer(Type.Normal).setUpdateNeeded();
+                    VertexBuffer tb = targets[i].getBuffer(Type.Tangent);
+                    if (tb != null) {
+                        tb.setUpdateNeeded();
+                    }
+                } else if (targets[i].getBuffer(Type.BoneIndex).getUsage() != VertexBuffer.Usage.CpuOnly) {
+                    targets[i].prepareForAnim(true);
+                }
+            }
+        }
+
+        // the bone matrices are set on the materials, a material shared with
+        // other models, e.g. the clones of this model, would render all of
+        // them with the same pose: the targets get materials of their own,
+        // still shared by the children of the node sharing a material
+        IdentityHashMap<Material, Material> clones = new IdentityHashMap<Material, Material>();
+        IdentityHashMap<Material, Material> owned = new IdentityHashMap<Material, Material>();
+        for (int i = 0; i < numChildren; i++) {
+            int target = getTargetIndex(node.getChild(i));
+            if (target < 0 || !hwSkinned[target]) {
+                continue;
+            }
+            Geometry geom = (Geometry) node.getChild(i);
+            Material mat = geom.getMaterial();
+            if (!hwSkinningMaterials.containsKey(mat) && !owned.containsKey(mat)) {
+                Material clone = clones.get(mat);
+                if (clone == null) {
+                    clone = mat.clone();
+                    clones.put(mat, clone);
+                }
+                geom.setMaterial(clone);
+                mat = clone;
+            }
+            owned.put(mat, mat);
+        }
+        hwSkinningMaterials = owned;
+
+        for (int i = 0; i < numChildren; i++) {
+            int target = getTargetIndex(node.getChild(i));
+            if (target < 0) {
+                continue;
+            }
+            Material mat = ((Geometry) node.getChild(i)).getMaterial();
+            if (hwSkinned[target]) {
+                // the shader must hold the bones of all the targets sharing the material
+                int numBones = targetBoneCounts[target];
+                for (int j = 0; j < numChildren; j++) {
+                    int other = getTargetIndex(node.getChild(j));
+                    if (other >= 0 && ((Geometry) node.getChild(j)).getMaterial() == mat) {
+                        numBones = Math.max(numBones, targetBoneCounts[other]);
+                    }
+                }
+                MatParam param = mat.getParam("NumberOfBones");
+                if (param == null || ((Integer) param.getValue()).intValue() != numBones) {
+                    mat.setInt("NumberOfBones", numBones);
+                }
+            } else if (mat.getParam("NumberOfBones") != null) {
+                mat.clearParam("NumberOfBones");
+                mat.clearParam("BoneMatrices");
+            }
+        }
+
+        if (skinningModesChildren.length != numChildren) {
+            skinningModesChildren = new Spatial[numChildren];
+            skinningModesMaterials = new Material[numChildren];
+        }
+        for (int i = 0; i < numChildren; i++) {
+            Spatial child = node.getChild(i);
+            skinningModesChildren[i] = child;
+            skinningModesMaterials[i] = child instanceof Geometry ? ((Geometry) child).getMaterial() : null;
+        }
+        skinningModesMaxBones = maxBones;
+        skinningModesDirty = false;
+    }
 
+    /**
+     * Returns the maximum number of bones of a target skinned on the GPU.
+     */
+    private int getMaxBones(Renderer renderer) {
+        if (hwSkinningPreferred && renderer.getCaps().contains(Caps.GLSL100)) {
+            return (renderer.getMaxVertexUniformComponents() - RESERVED_UNIFORM_COMPONENTS) / 16;
+        }
+        return 0;
+    }
 
-                pb.put(bpb).clear();
-                nb.put(bnb).clear();
+    /**
+     * Sets the bone matrices on the materials of the targets skinned on the GPU.
+     * 
+     * @param offsetMatrices the skinning matrices of the skeleton
+     */
+    private void updateBoneMatrices(Matrix4f[] offsetMatrices) {
+        Node node = (Node) spatial;
+        for (int i = 0; i < node.getQuantity(); i++) {
+            int target = getTargetIndex(node.getChild(i));
+            if (target >= 0 && hwSkinned[target]) {
+                // the skeleton updates the same matrices every frame
+                Material mat = ((Geometry) node.getChild(i)).getMaterial();
+                MatParam param = mat.getParam("BoneMatrices");
+                if (param == null || param.getValue() != offsetMatrices) {
+                    mat.setParam("BoneMatrices", VarType.Matrix4Array, offsetMatrices);
+                }
             }
         }
     }
 
+    /**
+     * @return the index of the target used by the given child, 
+     * or -1 if the child is not a geometry using one of the targets
+     */
+    private int getTargetIndex(Spatial child) {
+        if (child instanceof Geometry) {
+            Mesh mesh = ((Geometry) child).getMesh();
+            for (int i = 0; i < targets.length; i++) {
+                if (targets[i] == mesh) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private boolean isHardwareSkinningSupported(Material mat) {
+        return mat != null
+                && mat.getMaterialDef().getMaterialParam("NumberOfBones") != null
+                && mat.getMaterialDef().getMaterialParam("BoneMatrices") != null;
+    }
+
+    /**
+     * @return the number of bones the vertices of the mesh may be weighted
+     * to, that is the highest bone index plus one
+     */
+    private static int getBoneCount(Mesh mesh) {
+        ByteBuffer ib = (ByteBuffer) mesh.getBuffer(Type.BoneIndex).getData();
+        int maxIndex = 0;
+        for (int i = ib.limit() - 1; i >= 0; i--) {
+            maxIndex = Math.max(maxIndex, ib.get(i) & 0xff);
+        }
+        return maxIndex + 1;
+    }
+
     public Control cloneForSpatial(Spatial spatial) {
         Node clonedNode = (Node) spatial;
         AnimControl ctrl = spatial.getControl(AnimControl.class);
@@ -226,6 +550,7 @@ public class SkeletonControl extends AbstractControl implements Cloneable {
         clone.setSpatial(clonedNode);
 
         clone.skeleton = ctrl.getSkeleton();
+        clone.parallelSkinner = parallelSkinner;
         // Fix animated targets for the cloned node
         clone.targets = findTargets(clonedNode);
 
@@ -275,6 +600,76 @@ public class SkeletonControl extends AbstractControl implements Cloneable {
         return skeleton;
     }
 
+    /**
+     * Sets the skinner used to skin the targets on several threads.
+     * The targets are split into ranges of vertices that are skinned
+     * in parallel once the bone matrices are computed. In the viewports
+     * the skinner was added to as a processor, they are skinned together
+     * with the ranges of the other controls using the same skinner, before
+     * the meshes are drawn. The result is the same as the one of the single
+     * threaded skinning.
+     * 
+     * @param parallelSkinner the skinner to use, or null to skin the
+     * targets on the render thread only (the default)
+     * @see ParallelSkinner#getDefault() 
+     */
+    public void setParallelSkinner(ParallelSkinner parallelSkinner) {
+        this.parallelSkinner = parallelSkinner;
+    }
+
+    /**
+     * @return the skinner used to skin the targets on several threads,
+     * or null if the targets are skinned on the render thread only
+     */
+    public ParallelSkinner getParallelSkinner() {
+        return parallelSkinner;
+    }
+
+    /**
+     * Sets whether the targets should be skinned on the GPU.
+     * A target is skinned on the GPU when the materials of all its
+     * geometries define the NumberOfBones and BoneMatrices parameters
+     * and the matrices of the bones it is weighted to fit in the vertex
+     * uniforms of the renderer, otherwise it is skinned on the CPU.
+     * <p>
+     * The geometries of the targets skinned on the GPU get a clone of
+     * their material, the bone matrices of this control are set on it.
+     * 
+     * @param preferred true to skin the targets on the GPU when possible,
+     * false to always skin them on the CPU (the default)
+     */
+    public void setHardwareSkinningPreferred(boolean preferred) {
+        hwSkinningPreferred = preferred;
+        skinningModesDirty = true;
+    }
+
+    /**
+     * @return true if the targets are skinned on the GPU when possible
+     * @see #setHardwareSkinningPreferred(boolean) 
+     */
+    public boolean isHardwareSkinningPreferred() {
+        return hwSkinningPreferred;
+    }
+
+    /**
+     * Returns whether the given target was skinned on the GPU the last
+     * time the control was rendered.
+     * 
+     * @param target one of the {@link #getTargets() targets}
+     * @return true if the target is skinned on the GPU, false if it is
+     * skinned on the CPU
+     */
+    public boolean isHardwareSkinned(Mesh target) {
+        if (hwSkinned != null) {
+            for (int i = 0; i < targets.length; i++) {
+                if (targets[i] == target) {
+                    return hwSkinned[i];
+                }
+            }
+        }
+        return false;
+    }
+
     /**
      * sets the skeleton for this control
      * @param skeleton 
@@ -316,12 +711,137 @@ public class SkeletonControl extends AbstractControl implements Cloneable {
 
     }
 
+    /**
+     * Skins the targets with the parallel skinner, each target is split
+     * into jobs of consecutive vertices queued in the skinner.
+     * @param vp the viewport the targets are rendered in
+     * @param offsetMatrices the transformation matrices to apply 
+     */
+    private void parallelSkinUpdate(ViewPort vp, Matrix4f[] offsetMatrices) {
+        int chunkVertices = parallelSkinner.getChunkVertices();
+        int numJobs = 0;
+        for (int i = 0; i < targets.length; i++) {
+            if (hwSkinned[i]) {
+                continue;
+            }
+            int vertices = targets[i].getBuffer(Type.Position).getData().limit() / 3;
+            numJobs += (vertices + chunkVertices - 1) / chunkVertices;
+        }
+        if (skinningJobs.length < numJobs) {
+            SkinningJob[] jobs = new SkinningJob[numJobs];
+            System.arraycopy(skinningJobs, 0, jobs, 0, skinningJobs.length);
+            for (int i = skinningJobs.length; i < numJobs; i++) {
+                jobs[i] = new SkinningJob();
+            }
+            skinningJobs = jobs;
+        }
+
+        int job = 0;
+        for (int i = 0; i < targets.length; i++) {
+            if (hwSkinned[i]) {
+                continue;
+            }
+            Mesh mesh = targets[i];
+            int vertices = mesh.getBuffer(Type.Position).getData().limit() / 3;
+            for (int start = 0; start < vertices; start += chunkVertices) {
+                skinningJobs[job++].set(mesh, offsetMatrices, start, Math.min(start + chunkVertices, vertices));
+            }
+        }
+
+        parallelSkinner.queue(vp, skinningJobs, numJobs);
+
+        for (int i = 0; i < targets.length; i++) {
+            if (hwSkinned[i]) {
+                continue;
+            }
+            Mesh mesh = targets[i];
+            mesh.getBuffer(Type.Position).setUpdateNeeded();
+            mesh.getBuffer(Type.Normal).setUpdateNeeded();
+            VertexBuffer tb = mesh.getBuffer(Type.Tangent);
+            if (tb != null) {
+                tb.setUpdateNeeded();
+            }
+        }
+    }
+
+    /**
+     * Skins a range of vertices of a mesh, executed by the {@link ParallelSkinner}.
+     * Reads and writes the buffers through views of its own, so that several
+     * jobs can work on the same mesh at the same time. The views are
+     * kept across frames and recreated only when the buffers change.
+     */
+    private static class SkinningJob implements Runnable {
+
+        Mesh mesh;
+        Matrix4f[] offsetMatrices;
+        int startVertex;
+        int endVertex;
+        private FloatBuffer position, positionView;
+        private FloatBuffer normal, normalView;
+        private FloatBuffer tangent, tangentView;
+
+        void set(Mesh mesh, Matrix4f[] offsetMatrices, int startVertex, int endVertex) {
+            this.mesh = mesh;
+            this.offsetMatrices = offsetMatrices;
+            this.startVertex = startVertex;
+            this.endVertex = endVertex;
+
+            FloatBuffer data = (FloatBuffer) mesh.getBuffer(Type.Position).getData();
+            if (data != position) {
+                position = data;
+                positionView = data.duplicate();
+            }
+            data = (FloatBuffer) mesh.getBuffer(Type.Normal).getData();
+            if (data != normal) {
+                normal = data;
+                normalView = data.duplicate();
+            }
+            VertexBuffer tb = mesh.getBuffer(Type.Tangent);
+            data = tb != null ? (FloatBuffer) tb.getData() : null;
+            if (data != tangent) {
+                tangent = data;
+                tangentView = data != null ? data.duplicate() : null;
+            }
+        }
+
+        public void run() {
+            if (tangentView == null) {
+                applySkinning(mesh, offsetMatrices, positionView, normalView, startVertex, endVertex);
+            } else {
+                applySkinningTangents(mesh, offsetMatrices, positionView, normalView, tangentView, startVertex, endVertex);
+            }
+        }
+    }
+
     /**
      * Method to apply skinning transforms to a mesh's buffers    
      * @param mesh the mesh
      * @param offsetMatrices the offset matices to apply
      */
     private void applySkinning(Mesh mesh, Matrix4f[] offsetMatrices) {
+        VertexBuffer vb = mesh.getBuffer(Type.Position);
+        FloatBuffer fvb = (FloatBuffer) vb.getData();
+
+        VertexBuffer nb = mesh.getBuffer(Type.Normal);
+        FloatBuffer fnb = (FloatBuffer) nb.getData();
+
+        applySkinning(mesh, offsetMatrices, fvb, fnb, 0, fvb.limit() / 3);
+
+        vb.updateData(fvb);
+        nb.updateData(fnb);
+
+    }
+
+    /**
+     * Applies the skinning transforms to a range of vertices of a mesh
+     * @param mesh the mesh
+     * @param offsetMatrices the offset matices to apply
+     * @param fvb the position buffer
+     * @param fnb the normal buffer
+     * @param startVertex the first vertex to skin
+     * @param endVertex the vertex after the last vertex to skin
+     */
+    private static void applySkinning(Mesh mesh, Matrix4f[] offsetMatrices, FloatBuffer fvb, FloatBuffer fnb, int startVertex, int endVertex) {
         int maxWeightsPerVert = mesh.getMaxNumWeights();
         if (maxWeightsPerVert <= 0) {
             throw new IllegalStateException("Max weights per vert is incorrectly set!");
@@ -331,35 +851,28 @@ public class SkeletonControl extends AbstractControl implements Cloneable {
 
         // NOTE: This code assumes the vertex buffer is in bind pose
         // resetToBind() has been called this frame
-        VertexBuffer vb = mesh.getBuffer(Type.Position);
-        FloatBuffer fvb = (FloatBuffer) vb.getData();
-        fvb.rewind();
-
-        VertexBuffer nb = mesh.getBuffer(Type.Normal);
-        FloatBuffer fnb = (FloatBuffer) nb.getData();
-        fnb.rewind();
+        fvb.position(startVertex * 3);
+        fnb.position(startVertex * 3);
 
         // get boneIndexes and weights for mesh
         ByteBuffer ib = (ByteBuffer) mesh.getBuffer(Type.BoneIndex).getData();
         FloatBuffer wb = (FloatBuffer) mesh.getBuffer(Type.BoneWeight).getData();
 
-        ib.rewind();
-        wb.rewind();
-
         float[] weights = wb.array();
         byte[] indices = ib.array();
-        int idxWeights = 0;
+        int idxWeights = startVertex * 4;
 
         TempVars vars = TempVars.get();
 
         float[] posBuf = vars.skinPositions;
         float[] normBuf = vars.skinNormals;
 
-        int iterations = (int) FastMath.ceil(fvb.limit() / ((float) posBuf.length));
+        int remaining = (endVertex - startVertex) * 3;
         int bufLength = posBuf.length;
-        for (int i = iterations - 1; i >= 0; i--) {
+        while (remaining > 0) {
             // read next set of positions and normals from native buffer
-            bufLength = Math.min(posBuf.length, fvb.remaining());
+            bufLength = Math.min(posBuf.length, remaining);
+            remaining -= bufLength;
             fvb.get(posBuf, 0, bufLength);
             fnb.get(normBuf, 0, bufLength);
             int verts = bufLength / 3;
@@ -414,10 +927,6 @@ public class SkeletonControl extends AbstractControl implements Cloneable {
         }
 
         vars.release();
-
-        vb.updateData(fvb);
-        nb.updateData(fnb);
-
     }
 
     /**
@@ -430,6 +939,33 @@ public class SkeletonControl extends AbstractControl implements Cloneable {
      * @param tb the tangent vertexBuffer
      */
     private void applySkinningTangents(Mesh mesh, Matrix4f[] offsetMatrices, VertexBuffer tb) {
+        VertexBuffer vb = mesh.getBuffer(Type.Position);
+        FloatBuffer fvb = (FloatBuffer) vb.getData();
+
+        VertexBuffer nb = mesh.getBuffer(Type.Normal);
+        FloatBuffer fnb = (FloatBuffer) nb.getData();
+
+        FloatBuffer ftb = (FloatBuffer) tb.getData();
+
+        applySkinningTangents(mesh, offsetMatrices, fvb, fnb, ftb, 0, fvb.limit() / 3);
+
+        vb.updateData(fvb);
+        nb.updateData(fnb);
+        tb.updateData(ftb);
+
+    }
+
+    /**
+     * Applies the skinning transforms with tangents to a range of vertices of a mesh
+     * @param mesh the mesh
+     * @param offsetMatrices the offset matices to apply
+     * @param fvb the position buffer
+     * @param fnb the normal buffer
+     * @param ftb the tangent buffer
+     * @param startVertex the first vertex to skin
+     * @param endVertex the vertex after the last vertex to skin
+     */
+    private static void applySkinningTangents(Mesh mesh, Matrix4f[] offsetMatrices, FloatBuffer fvb, FloatBuffer fnb, FloatBuffer ftb, int startVertex, int endVertex) {
         int maxWeightsPerVert = mesh.getMaxNumWeights();
 
         if (maxWeightsPerVert <= 0) {
@@ -440,30 +976,17 @@ public class SkeletonControl extends AbstractControl implements Cloneable {
 
         // NOTE: This code assumes the vertex buffer is in bind pose
         // resetToBind() has been called this frame
-        VertexBuffer vb = mesh.getBuffer(Type.Position);
-        FloatBuffer fvb = (FloatBuffer) vb.getData();
-        fvb.rewind();
-
-        VertexBuffer nb = mesh.getBuffer(Type.Normal);
-
-        FloatBuffer fnb = (FloatBuffer) nb.getData();
-        fnb.rewind();
-
-
-        FloatBuffer ftb = (FloatBuffer) tb.getData();
-        ftb.rewind();
-
+        fvb.position(startVertex * 3);
+        fnb.position(startVertex * 3);
+        ftb.position(startVertex * 4);
 
         // get boneIndexes and weights for mesh
         ByteBuffer ib = (ByteBuffer) mesh.getBuffer(Type.BoneIndex).getData();
         FloatBuffer wb = (FloatBuffer) mesh.getBuffer(Type.BoneWeight).getData();
 
-        ib.rewind();
-        wb.rewind();
-
         float[] weights = wb.array();
         byte[] indices = ib.array();
-        int idxWeights = 0;
+        int idxWeights = startVertex * 4;
 
         TempVars vars = TempVars.get();
 
@@ -472,13 +995,14 @@ public class SkeletonControl extends AbstractControl implements Cloneable {
         float[] normBuf = vars.skinNormals;
         float[] tanBuf = vars.skinTangents;
 
-        int iterations = (int) FastMath.ceil(fvb.limit() / ((float) posBuf.length));
+        int remaining = (endVertex - startVertex) * 3;
         int bufLength = 0;
         int tanLength = 0;
-        for (int i = iterations - 1; i >= 0; i--) {
+        while (remaining > 0) {
             // read next set of positions and normals from native buffer
-            bufLength = Math.min(posBuf.length, fvb.remaining());
-            tanLength = Math.min(tanBuf.length, ftb.remaining());
+            bufLength = Math.min(posBuf.length, remaining);
+            remaining -= bufLength;
+            tanLength = bufLength / 3 * 4;
             fvb.get(posBuf, 0, bufLength);
             fnb.get(normBuf, 0, bufLength);
             ftb.get(tanBuf, 0, tanLength);
@@ -560,12 +1084,6 @@ public class SkeletonControl extends AbstractControl implements Cloneable {
         }
 
         vars.release();
-
-        vb.updateData(fvb);
-        nb.updateData(fnb);
-        tb.updateData(ftb);
-
-
     }
 
     @Override
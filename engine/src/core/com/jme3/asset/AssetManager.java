@@ -215,6 +215,25 @@ public interface AssetManager {
     @Deprecated
     public void setAssetEventListener(AssetEventListener listener);
 
+    /**
+     * Enables or disables parallel loading of dependencies, such as
+     * the textures of a material or the material library of a model.
+     * When disabled, loaders load dependencies one after the other 
+     * on the loading thread. Enabled by default.
+     * 
+     * @param enabled True to load dependencies in parallel
+     * 
+     * @see DependencyLoader
+     */
+    public void setParallelDependencyLoading(boolean enabled);
+
+    /**
+     * @return True if dependencies are loaded in parallel.
+     * 
+     * @see #setParallelDependencyLoading(boolean) 
+     */
+    public boolean isParallelDependencyLoading();
+
     /**
      * Manually locates an asset with the given {@link AssetKey}. This method
      * should be used for debugging or internal uses. <br/>
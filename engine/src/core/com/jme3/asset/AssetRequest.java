@@ -0,0 +1,371 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.asset;
+
+import com.jme3.math.Vector3f;
+import java.util.ArrayList;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * <code>AssetRequest</code> tracks an asset requested from an
+ * {@link AssetStreamer}.
+ * <p>
+ * Requests are loaded in increasing order of priority. The priority of a
+ * request made with a location is its distance to the viewer, updated
+ * whenever the viewer moves. A request can be cancelled until its
+ * listener has been notified, after which it is considered delivered.
+ * 
+ * @param <T> The type of the requested asset
+ */
+public class AssetRequest<T> implements Future<T>, Runnable, Comparable<AssetRequest<?>> {
+
+    private static final int WAITING = 0;
+    private static final int QUEUED = 1;
+    private static final int RUNNING = 2;
+    private static final int COMPLETED = 3;
+    private static final int CANCELLED = 4;
+
+    private final AssetStreamer streamer;
+    private final AssetKey<T> key;
+    private final AssetRequestListener<T> listener;
+    private final Vector3f location;
+    private final long sequence;
+
+    private AssetRequest<?>[] dependencies;
+    private final ArrayList<AssetRequest<?>> dependents = new ArrayList<AssetRequest<?>>(1);
+    private int pendingDependencies;
+
+    private volatile float priority;
+    private int state = WAITING;
+    private boolean delivered;
+    private T asset;
+    private Throwable error;
+
+    AssetRequest(AssetStreamer streamer, AssetKey<T> key, AssetRequestListener<T> listener,
+                 Vector3f location, float priority, long sequence) {
+        this.streamer = streamer;
+        this.key = key;
+        this.listener = listener;
+        this.location = location != null ? location.clone() : null;
+        this.priority = priority;
+        this.sequence = sequence;
+    }
+
+    /**
+     * @return The key of the requested asset.
+     */
+    public AssetKey<T> getKey() {
+        return key;
+    }
+
+    /**
+     * @return The location the asset is needed at, or null if the request
+     * was made with a fixed priority.
+     */
+    public Vector3f getLocation() {
+        return location;
+    }
+
+    /**
+     * @return The priority of the request, lower priorities load first.
+     */
+    public float getPriority() {
+        return priority;
+    }
+
+    /**
+     * Changes the priority of the request. This has no effect once the
+     * request has started loading.
+     * 
+     * @param priority The new priority, lower priorities load first
+     */
+    public void setPriority(float priority) {
+        streamer.reprioritize(this, priority);
+    }
+
+    /**
+     * @return The loaded asset, or null if it is not loaded yet or failed
+     * to load.
+     */
+    public synchronized T getAsset() {
+        return asset;
+    }
+
+    /**
+     * @return The exception thrown while loading the asset, or null.
+     */
+    public synchronized Throwable getError() {
+        return error;
+    }
+
+    /**
+     * Cancels the request. A request that has not started loading is
+     * removed from the queue, a request being loaded still completes but
+     * its listener is not notified. The dependencies no other request 
+     * waits for are cancelled as well.
+     * 
+     * @param mayInterruptIfRunning Ignored, loading threads are never
+     * interrupted
+     * @return False if the listener has already been notified or the
+     * request was already cancelled.
+     */
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        AssetRequest<?>[] deps;
+        synchronized (this) {
+            if (state == CANCELLED || delivered) {
+                return false;
+            }
+            state = CANCELLED;
+            deps = dependencies;
+            dependencies = null;
+            asset = null;
+            notifyAll();
+        }
+        streamer.removeQueued(this);
+        if (deps != null) {
+            for (AssetRequest<?> dep : deps) {
+                if (dep.removeDependent(this)) {
+                    dep.cancel(false);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Cancels the request.
+     * 
+     * @return False if the listener has already been notified or the
+     * request was already cancelled.
+     * 
+     * @see #cancel(boolean) 
+     */
+    public boolean cancel() {
+        return cancel(false);
+    }
+
+    public synchronized boolean isCancelled() {
+        return state == CANCELLED;
+    }
+
+    public synchronized boolean isDone() {
+        return state == COMPLETED || state == CANCELLED;
+    }
+
+    /**
+     * Waits for the asset to be loaded. The listener may not have been
+     * notified yet when this returns.
+     */
+    public synchronized T get() throws InterruptedException, ExecutionException {
+        while (state != COMPLETED && state != CANCELLED) {
+            wait();
+        }
+        return getResult();
+    }
+
+    public synchronized T get(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        long end = System.nanoTime() + unit.toNanos(timeout);
+        while (state != COMPLETED && state != CANCELLED) {
+            long remaining = end - System.nanoTime();
+            if (remaining <= 0) {
+                throw new TimeoutException();
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return getResult();
+    }
+
+    private T getResult() throws ExecutionException {
+        if (state == CANCELLED) {
+            throw new CancellationException("Request for " + key + " was cancelled");
+        }
+        if (error != null) {
+            throw new ExecutionException(error);
+        }
+        return asset;
+    }
+
+    /**
+     * Loads the asset, called on a loading thread. The request completes
+     * with an error if the asset fails to load, errors such as an 
+     * {@link OutOfMemoryError} are thrown again once it completed.
+     */
+    public void run() {
+        synchronized (this) {
+            if (state != QUEUED) {
+                return;
+            }
+            state = RUNNING;
+        }
+
+        T result = null;
+        Throwable failure = null;
+        try {
+            result = streamer.getAssetManager().loadAsset(key);
+        } catch (Throwable t) {
+            failure = t;
+        }
+
+        boolean cancelled;
+        synchronized (this) {
+            cancelled = state == CANCELLED;
+            if (!cancelled) {
+                asset = result;
+                error = failure;
+                state = COMPLETED;
+                // keep dependencies in the cache until now only
+                dependencies = null;
+                notifyAll();
+            }
+        }
+        if (!cancelled) {
+            streamer.completed(this);
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+    }
+
+    public int compareTo(AssetRequest<?> other) {
+        float p1 = getPriority();
+        float p2 = other.getPriority();
+        if (p1 != p2) {
+            return p1 < p2 ? -1 : 1;
+        }
+        return sequence < other.sequence ? -1 : (sequence > other.sequence ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+        return "AssetRequest[" + key + ", priority=" + getPriority() + "]";
+    }
+
+    AssetRequestListener<T> getListener() {
+        return listener;
+    }
+
+    /**
+     * @return The requests waiting for this one to complete.
+     */
+    synchronized AssetRequest<?>[] getDependents() {
+        return dependents.toArray(new AssetRequest<?>[dependents.size()]);
+    }
+
+    /**
+     * Adds a request waiting for this one to complete, returns false if
+     * this request is already done.
+     */
+    synchronized boolean addDependent(AssetRequest<?> request) {
+        if (state == COMPLETED || state == CANCELLED) {
+            return false;
+        }
+        dependents.add(request);
+        return true;
+    }
+
+    /**
+     * Removes a request waiting for this one, returns true if no other 
+     * request waits for it.
+     */
+    synchronized boolean removeDependent(AssetRequest<?> request) {
+        dependents.remove(request);
+        return dependents.isEmpty();
+    }
+
+    synchronized AssetRequest<?>[] getDependencies() {
+        return dependencies;
+    }
+
+    void setPriorityInternal(float priority) {
+        this.priority = priority;
+    }
+
+    synchronized boolean isQueued() {
+        return state == QUEUED;
+    }
+
+    /**
+     * Sets the number of requests that must complete before this one
+     * is queued, before they are added.
+     */
+    synchronized void setPendingDependencies(int pendingDependencies) {
+        this.pendingDependencies = pendingDependencies;
+    }
+
+    /**
+     * Sets the requests that must complete before this one is queued,
+     * to reprioritize and cancel them with this one.
+     */
+    synchronized void setDependencies(AssetRequest<?>[] dependencies) {
+        if (state == WAITING) {
+            this.dependencies = dependencies;
+        }
+    }
+
+    /**
+     * Marks the request as queued, returns false if it was cancelled or
+     * still waits for dependencies.
+     */
+    synchronized boolean queue() {
+        if (state != WAITING || pendingDependencies > 0) {
+            return false;
+        }
+        state = QUEUED;
+        return true;
+    }
+
+    /**
+     * Called when one of the dependencies completed, returns true if
+     * the request can now be queued.
+     */
+    synchronized boolean dependencyCompleted() {
+        pendingDependencies--;
+        return pendingDependencies == 0 && state == WAITING;
+    }
+
+    /**
+     * Marks the request as delivered, returns false if it was cancelled
+     * in the meantime and the listener must not be notified.
+     */
+    synchronized boolean deliver() {
+        if (state == CANCELLED) {
+            return false;
+        }
+        delivered = true;
+        return true;
+    }
+}
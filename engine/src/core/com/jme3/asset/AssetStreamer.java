@@ -0,0 +1,350 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.asset;
+
+import com.jme3.app.Application;
+import com.jme3.math.Vector3f;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <code>AssetStreamer</code> loads assets in the background, most
+ * important first, and notifies the application on its render thread.
+ * <p>
+ * Each request has a priority, lower priorities being loaded first. A
+ * request can be made with a fixed priority, or with a location in which
+ * case its priority is its distance to the viewer and is updated by
+ * {@link #setViewerLocation(com.jme3.math.Vector3f) } while it waits.
+ * Requests can be cancelled as long as their listener has not been
+ * notified, so that regions left behind stop taking loading time.
+ * <p>
+ * A request can list dependencies, assets that must be in the asset cache
+ * before it loads. They are loaded in parallel first, and the asset itself
+ * is loaded once they all completed, finding them in the asset cache. 
+ * Requests listing the same dependency wait for the same load, which is
+ * loaded with the priority of the most urgent of them and cancelled once
+ * all of them are cancelled.
+ * The loaders of OBJ, Ogre and j3m files already load the materials and
+ * textures the model references in parallel on their own, see
+ * {@link DependencyLoader}, so only the assets the model does not
+ * reference need to be listed.
+ * <p>
+ * Listeners are notified through {@link Application#enqueue(java.util.concurrent.Callable) },
+ * so they can safely attach the loaded assets to the scene graph.
+ */
+public class AssetStreamer {
+
+    private static final Logger logger = Logger.getLogger(AssetStreamer.class.getName());
+
+    private final Application app;
+    private final PriorityBlockingQueue<Runnable> queue = new PriorityBlockingQueue<Runnable>();
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final Vector3f viewerLocation = new Vector3f();
+    /**
+     * The dependencies being loaded, by key, shared by the requests
+     * depending on the same asset
+     */
+    private final HashMap<AssetKey<?>, AssetRequest<?>> pendingDependencies = new HashMap<AssetKey<?>, AssetRequest<?>>();
+
+    /**
+     * Creates a streamer loading with one thread per available processor.
+     * 
+     * @param app The application the listeners are notified on
+     */
+    public AssetStreamer(Application app) {
+        this(app, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a streamer.
+     * 
+     * @param app The application the listeners are notified on
+     * @param threads The number of loading threads
+     */
+    public AssetStreamer(Application app, int threads) {
+        this.app = app;
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                                          queue, new StreamingThreadFactory());
+    }
+
+    private static class StreamingThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger nextThreadId = new AtomicInteger();
+
+        public Thread newThread(Runnable r) {
+            // the name makes ThreadingManager.isLoadingThread() true
+            Thread t = new Thread(r, "jME3-threadpool-streaming-" + nextThreadId.getAndIncrement());
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        }
+    }
+
+    /**
+     * Requests an asset with a fixed priority.
+     * 
+     * @param key The asset to load
+     * @param priority The priority of the request, lower priorities load
+     * first
+     * @param listener Notified on the render thread once the asset is
+     * loaded, can be null
+     * @param dependencies Assets loaded in parallel before the asset
+     * @return The request
+     */
+    public <T> AssetRequest<T> request(AssetKey<T> key, float priority,
+                                       AssetRequestListener<T> listener, AssetKey<?>... dependencies) {
+        return submit(key, null, priority, listener, dependencies);
+    }
+
+    /**
+     * Requests an asset needed at the given location. The closer it is to
+     * the viewer, the sooner it is loaded.
+     * 
+     * @param key The asset to load
+     * @param location Where the asset is needed
+     * @param listener Notified on the render thread once the asset is
+     * loaded, can be null
+     * @param dependencies Assets loaded in parallel before the asset
+     * @return The request
+     * 
+     * @see #setViewerLocation(com.jme3.math.Vector3f) 
+     */
+    public <T> AssetRequest<T> request(AssetKey<T> key, Vector3f location,
+                                       AssetRequestListener<T> listener, AssetKey<?>... dependencies) {
+        if (location == null) {
+            throw new IllegalArgumentException("location cannot be null");
+        }
+        return submit(key, location, getDistance(location), listener, dependencies);
+    }
+
+    /**
+     * Sets the location of the viewer, usually the camera, and updates
+     * the priority of the waiting requests made with a location.
+     * 
+     * @param location The location of the viewer
+     */
+    public void setViewerLocation(Vector3f location) {
+        synchronized (viewerLocation) {
+            if (viewerLocation.equals(location)) {
+                return;
+            }
+            viewerLocation.set(location);
+        }
+
+        // priorities cannot change while the requests are in the queue
+        List<Runnable> waiting = new ArrayList<Runnable>(queue.size());
+        queue.drainTo(waiting);
+        for (Runnable r : waiting) {
+            AssetRequest<?> request = (AssetRequest<?>) r;
+            if (request.getLocation() != null) {
+                request.setPriorityInternal(getDistance(request.getLocation()));
+            }
+        }
+        queue.addAll(waiting);
+    }
+
+    /**
+     * @return The location of the viewer.
+     */
+    public Vector3f getViewerLocation() {
+        synchronized (viewerLocation) {
+            return viewerLocation.clone();
+        }
+    }
+
+    /**
+     * @return The number of requests waiting for a loading thread.
+     */
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    /**
+     * Cancels the waiting requests and stops the loading threads. Requests
+     * being loaded complete, but their listeners are not notified.
+     */
+    public void shutdown() {
+        List<Runnable> waiting = executor.shutdownNow();
+        for (Runnable r : waiting) {
+            AssetRequest<?> request = (AssetRequest<?>) r;
+            request.cancel();
+            for (AssetRequest<?> dependent : request.getDependents()) {
+                dependent.cancel();
+            }
+        }
+    }
+
+    AssetManager getAssetManager() {
+        return app.getAssetManager();
+    }
+
+    private float getDistance(Vector3f location) {
+        synchronized (viewerLocation) {
+            return viewerLocation.distance(location);
+        }
+    }
+
+    private <T> AssetRequest<T> submit(AssetKey<T> key, Vector3f location, float priority,
+                                       AssetRequestListener<T> listener, AssetKey<?>[] dependencies) {
+        if (key == null) {
+            throw new IllegalArgumentException("key cannot be null");
+        }
+        AssetRequest<T> request = new AssetRequest<T>(this, key, listener, location, priority,
+                                                      nextSequence.getAndIncrement());
+        if (dependencies.length == 0) {
+            enqueue(request);
+            return request;
+        }
+
+        // the dependencies may complete as soon as they are added
+        request.setPendingDependencies(dependencies.length);
+        AssetRequest<?>[] requests = new AssetRequest<?>[dependencies.length];
+        for (int i = 0; i < dependencies.length; i++) {
+            requests[i] = addDependency(request, dependencies[i], location, priority);
+        }
+        request.setDependencies(requests);
+        return request;
+    }
+
+    /**
+     * Makes the given request wait for the asset of the given key, 
+     * sharing the request of another request depending on it if any.
+     */
+    private AssetRequest<?> addDependency(AssetRequest<?> dependent, AssetKey<?> key,
+                                          Vector3f location, float priority) {
+        AssetRequest<?> dep;
+        synchronized (pendingDependencies) {
+            dep = pendingDependencies.get(key);
+            if (dep != null && dep.addDependent(dependent)) {
+                if (priority < dep.getPriority()) {
+                    reprioritize(dep, priority);
+                }
+                return dep;
+            }
+            dep = createDependency(key, location, priority);
+            dep.addDependent(dependent);
+            pendingDependencies.put(key, dep);
+        }
+        enqueue(dep);
+        return dep;
+    }
+
+    private <D> AssetRequest<D> createDependency(AssetKey<D> key, Vector3f location, float priority) {
+        return new AssetRequest<D>(this, key, null, location, priority, nextSequence.getAndIncrement());
+    }
+
+    /**
+     * Stops sharing the given dependency with new requests.
+     */
+    private void forgetDependency(AssetRequest<?> request) {
+        synchronized (pendingDependencies) {
+            if (pendingDependencies.get(request.getKey()) == request) {
+                pendingDependencies.remove(request.getKey());
+            }
+        }
+    }
+
+    private void enqueue(AssetRequest<?> request) {
+        if (request.getLocation() != null) {
+            request.setPriorityInternal(getDistance(request.getLocation()));
+        }
+        if (request.queue()) {
+            executor.execute(request);
+        }
+    }
+
+    void reprioritize(AssetRequest<?> request, float priority) {
+        if (queue.remove(request)) {
+            request.setPriorityInternal(priority);
+            queue.add(request);
+        } else {
+            request.setPriorityInternal(priority);
+        }
+        AssetRequest<?>[] deps = request.getDependencies();
+        if (deps != null) {
+            for (AssetRequest<?> dep : deps) {
+                reprioritize(dep, priority);
+            }
+        }
+    }
+
+    void removeQueued(AssetRequest<?> request) {
+        queue.remove(request);
+        forgetDependency(request);
+    }
+
+    /**
+     * Called on the loading thread once a request has been loaded.
+     */
+    void completed(AssetRequest<?> request) {
+        forgetDependency(request);
+        for (AssetRequest<?> dependent : request.getDependents()) {
+            if (request.getError() != null) {
+                logger.log(Level.WARNING, "Failed to load " + request.getKey()
+                        + " needed by " + dependent.getKey(), request.getError());
+            }
+            if (dependent.dependencyCompleted()) {
+                enqueue(dependent);
+            }
+        }
+        if (request.getListener() != null) {
+            notifyListener(request);
+        }
+    }
+
+    private <T> void notifyListener(final AssetRequest<T> request) {
+        app.enqueue(new Callable<Object>() {
+            public Object call() throws Exception {
+                // the request may have been cancelled since it was loaded
+                if (request.deliver()) {
+                    if (request.getError() != null) {
+                        request.getListener().assetFailed(request, request.getError());
+                    } else {
+                        request.getListener().assetLoaded(request, request.getAsset());
+                    }
+                }
+                return null;
+            }
+        });
+    }
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.asset;
+
+import com.jme3.texture.Texture;
+import com.jme3.texture.Texture2D;
+import com.jme3.util.PlaceholderAssets;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <code>DependencyLoader</code> lets an {@link AssetLoader} load the assets
+ * it depends on in parallel, and join on them at the end of its load.
+ * <p>
+ * A loader creates one for each asset it loads, requests dependencies
+ * as it parses, and calls {@link #join() } before returning. Dependencies
+ * are loaded by a shared pool with one thread per available processor, so
+ * for example the textures of a material are decoded concurrently
+ * instead of one after the other.
+ * <p>
+ * Textures are handled specially: {@link #loadTexture(com.jme3.asset.TextureKey) }
+ * hands out the texture right away so the loader can set it on a
+ * material, and fills in its image once it is loaded. 
+ * <p>
+ * Waiting on a dependency that no thread has started yet loads it on the
+ * calling thread, so loaders running on the pool themselves,
+ * e.g. a material list loaded in parallel for a model, cannot deadlock it.
+ * <p>
+ * If the asset fails to load before {@link #join() } is called, the loader
+ * should call {@link #cancel() } so its dependencies stop loading.
+ * Parallel loading can be disabled for each asset manager with
+ * {@link AssetManager#setParallelDependencyLoading(boolean) }.
+ */
+public class DependencyLoader {
+
+    private static final Logger logger = Logger.getLogger(DependencyLoader.class.getName());
+
+    private static volatile ThreadPoolExecutor executor;
+
+    private final AssetManager assetManager;
+    private final AssetKey parentKey;
+    private final boolean parallel;
+    private final ArrayList<PendingTexture> textures = new ArrayList<PendingTexture>();
+    private final ArrayList<FutureTask<?>> tasks = new ArrayList<FutureTask<?>>();
+
+    private static class PendingTexture {
+
+        final Future<Texture> future;
+        final TextureKey key;
+        final Texture store;
+        final boolean clone;
+
+        PendingTexture(Future<Texture> future, TextureKey key, Texture store, boolean clone) {
+            this.future = future;
+            this.key = key;
+            this.store = store;
+            this.clone = clone;
+        }
+    }
+
+    private static class DependencyThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger nextThreadId = new AtomicInteger();
+
+        public Thread newThread(Runnable r) {
+            // the name makes ThreadingManager.isLoadingThread() true
+            Thread t = new Thread(r, "jME3-threadpool-dependency-" + nextThreadId.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+
+    /**
+     * Creates a dependency loader for an asset being loaded.
+     * 
+     * @param assetManager The asset manager to load the dependencies with
+     * @param parentKey The key of the asset being loaded, used for logging
+     */
+    public DependencyLoader(AssetManager assetManager, AssetKey parentKey) {
+        this.assetManager = assetManager;
+        this.parentKey = parentKey;
+        this.parallel = assetManager.isParallelDependencyLoading();
+    }
+
+    /**
+     * @return True if dependencies are loaded in parallel, 
+     * otherwise they are loaded on the calling thread as they are requested.
+     * 
+     * @see AssetManager#setParallelDependencyLoading(boolean) 
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    private static synchronized ThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            int threads = Runtime.getRuntime().availableProcessors();
+            executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                                              new LinkedBlockingQueue<Runnable>(),
+                                              new DependencyThreadFactory());
+            // don't keep threads around once loading is done
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
+    /**
+     * Requests a dependency. 
+     * 
+     * @param key The key of the dependency
+     * @return The future result, to pass to {@link #get(java.util.concurrent.Future) }
+     */
+    public <T> Future<T> loadAsset(final AssetKey<T> key) {
+        FutureTask<T> task = new FutureTask<T>(new Callable<T>() {
+            public T call() throws Exception {
+                return assetManager.loadAsset(key);
+            }
+        });
+        if (parallel) {
+            tasks.add(task);
+            getExecutor().execute(task);
+        } else {
+            task.run();
+        }
+        return task;
+    }
+
+    /**
+     * Waits for a dependency requested with {@link #loadAsset(com.jme3.asset.AssetKey) }.
+     * If it has not been started yet, it is loaded on the calling thread.
+     * Exceptions thrown while loading the dependency, such 
+     * as {@link AssetNotFoundException}, are rethrown as is.
+     * 
+     * @param future The future returned by loadAsset
+     * @return The loaded dependency
+     */
+    public <T> T get(Future<T> future) {
+        if (future instanceof FutureTask && executor != null
+         && executor.remove((FutureTask<T>) future)) {
+            ((FutureTask<T>) future).run();
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new AssetLoadException("Interrupted while loading dependencies of " + parentKey, ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new AssetLoadException("Failed to load dependency of " + parentKey, cause);
+            }
+        }
+    }
+
+    /**
+     * Requests a texture.
+     * <p>
+     * 2D textures are loaded in parallel: the returned texture gets
+     * its image, filters, name and key once {@link #join() } is called,
+     * while its wrap modes can be set by the loader right away.
+     * If the texture cannot be found, a warning is logged and
+     * a placeholder image is used.
+     * <p>
+     * Cube maps, 3D textures and textures requested while parallel loading
+     * is disabled are loaded immediately, and an {@link AssetNotFoundException}
+     * is thrown if they cannot be found.
+     * 
+     * @param key The key of the texture
+     * @return The texture
+     */
+    public Texture loadTexture(TextureKey key) {
+        if (!parallel || key.isAsCube() || key.isAsTexture3D()) {
+            return assetManager.loadTexture(key);
+        }
+
+        Texture2D tex = new Texture2D();
+        tex.setKey(key);
+        textures.add(new PendingTexture(loadAsset(key), key, tex, true));
+        return tex;
+    }
+
+    /**
+     * Requests a texture, to be loaded into the given texture.
+     * <p>
+     * 2D textures are loaded in parallel: the image, filters and key of
+     * <code>store</code> are set once {@link #join() } is called, while
+     * its wrap modes, name and other settings are left to the loader.
+     * If the texture cannot be found, a warning is logged and
+     * a placeholder image is used.
+     * <p>
+     * Cube maps, 3D textures and textures requested while parallel loading
+     * is disabled are loaded immediately, and an {@link AssetNotFoundException}
+     * is thrown if they cannot be found.
+     * 
+     * @param key The key of the texture
+     * @param store The texture to load into, must be a Texture2D 
+     * for 2D textures
+     * @return <code>store</code>
+     */
+    public Texture loadTexture(TextureKey key, Texture store) {
+        if (!parallel || key.isAsCube() || key.isAsTexture3D()) {
+            copyTexture(assetManager.loadTexture(key), store, false);
+            return store;
+        }
+
+        // the key tells the loader an image is on its way
+        store.setKey(key);
+        textures.add(new PendingTexture(loadAsset(key), key, store, false));
+        return store;
+    }
+
+    /**
+     * Like {@link Texture#createSimpleClone(com.jme3.texture.Texture) }, 
+     * but keeps the wrap modes set by the loader.
+     */
+    private static void copyTexture(Texture tex, Texture store, boolean clone) {
+        store.setImage(tex.getImage());
+        store.setMinFilter(tex.getMinFilter());
+        store.setMagFilter(tex.getMagFilter());
+        store.setKey(tex.getKey());
+        if (clone || ((TextureKey) tex.getKey()).getAnisotropy() > 0) {
+            store.setAnisotropicFilter(tex.getAnisotropicFilter());
+        }
+        if (clone) {
+            store.setName(tex.getName());
+        }
+    }
+
+    /**
+     * Waits for all textures requested with <code>loadTexture</code>
+     * and sets them up. Must be called before the loader returns.
+     * Textures that cannot be found get a placeholder image.
+     */
+    public void join() {
+        for (int i = 0; i < textures.size(); i++) {
+            PendingTexture pending = textures.get(i);
+            try {
+                copyTexture(get(pending.future), pending.store, pending.clone);
+            } catch (AssetNotFoundException ex) {
+                logger.log(Level.WARNING, "Cannot locate {0} for {1}", new Object[]{pending.key, parentKey});
+                pending.store.setKey(null);
+                pending.store.setImage(PlaceholderAssets.getPlaceholderImage());
+            }
+        }
+        textures.clear();
+        tasks.clear();
+    }
+
+    /**
+     * Cancels the dependencies that have not been loaded yet.
+     * Dependencies already being loaded are left to finish, 
+     * but their results are discarded.
+     * <p>
+     * Does nothing once {@link #join() } has been called, so loaders
+     * can call it from a finally block to clean up after a failed load.
+     */
+    public void cancel() {
+        ThreadPoolExecutor exec = executor;
+        for (int i = 0; i < tasks.size(); i++) {
+            FutureTask<?> task = tasks.get(i);
+            if (task.cancel(false) && exec != null) {
+                exec.remove(task);
+            }
+        }
+        textures.clear();
+        tasks.clear();
+    }
+}
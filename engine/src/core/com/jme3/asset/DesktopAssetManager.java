@@ -71,6 +71,8 @@ public class DesktopAssetManager implements AssetManager {
     private List<ClassLoader> classLoaders =
             Collections.synchronizedList(new ArrayList<ClassLoader>());
 
+    private volatile boolean parallelDependencyLoading = true;
+
     public DesktopAssetManager(){
         this(null);
     }
@@ -133,6 +135,14 @@ public class DesktopAssetManager implements AssetManager {
         eventListeners.add(listener);
     }
 
+    public void setParallelDependencyLoading(boolean enabled) {
+        parallelDependencyLoading = enabled;
+    }
+
+    public boolean isParallelDependencyLoading() {
+        return parallelDependencyLoading;
+    }
+
     public void registerLoader(Class<? extends AssetLoader> loader, String ... extensions){
         handler.addLoader(loader, extensions);
         if (logger.isLoggable(Level.FINER)){
@@ -201,6 +211,20 @@ public class DesktopAssetManager implements AssetManager {
         return info;
     }
     
+    /**
+     * Returns the asset cache of the given type used by this asset manager,
+     * creating it if no asset used it yet. This allows configuring a cache
+     * or reading its statistics, e.g. the budget and hit rate of the 
+     * {@link com.jme3.asset.cache.LRUAssetCache}.
+     * 
+     * @param cacheClass The type of the cache, as returned 
+     * by {@link AssetKey#getCacheType() }
+     * @return The cache
+     */
+    public <T extends AssetCache> T getCache(Class<T> cacheClass) {
+        return handler.getCache(cacheClass);
+    }
+    
     public <T> T getFromCache(AssetKey<T> key) {
         AssetCache cache = handler.getCache(key.getCacheType());
         if (cache != null) {
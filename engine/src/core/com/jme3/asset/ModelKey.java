@@ -32,20 +32,34 @@
 package com.jme3.asset;
 
 import com.jme3.asset.cache.AssetCache;
+import com.jme3.asset.cache.LRUAssetCache;
 import com.jme3.asset.cache.WeakRefCloneAssetCache;
+import com.jme3.export.InputCapsule;
+import com.jme3.export.JmeExporter;
+import com.jme3.export.JmeImporter;
+import com.jme3.export.OutputCapsule;
+import com.jme3.scene.ModelProcessor;
 import com.jme3.scene.Spatial;
+import java.io.IOException;
 
 /**
  * Used to load model files, such as OBJ or Blender models.
  * This uses cloneable smart asset management, so that when all clones of
  * this model become unreachable, the original asset is purged from the cache,
  * allowing textures, materials, shaders, etc referenced by the model to 
- * become collected.
+ * become collected. Alternatively, the model can be kept in the 
+ * {@link LRUAssetCache}, see {@link #setUseLRUCache(boolean) }.
+ * <p>
+ * The meshes of the model can optionally be optimized for the vertex
+ * cache as it is loaded, see {@link #setOptimizeVertexCache(boolean) }.
  * 
  * @author Kirill Vainer
  */
 public class ModelKey extends AssetKey<Spatial> {
 
+    private boolean optimizeVertexCache;
+    private boolean useLRUCache;
+
     public ModelKey(String name) {
         super(name);
     }
@@ -56,11 +70,96 @@ public class ModelKey extends AssetKey<Spatial> {
     
     @Override
     public Class<? extends AssetCache> getCacheType(){
-        return WeakRefCloneAssetCache.class;
+        return useLRUCache ? LRUAssetCache.class : WeakRefCloneAssetCache.class;
     }
     
     @Override
     public Class<? extends AssetProcessor> getProcessorType(){
-        return CloneableAssetProcessor.class;
+        return ModelProcessor.class;
+    }
+
+    /**
+     * @return True if the meshes of the model are optimized for the vertex
+     * cache when it is loaded.
+     */
+    public boolean isOptimizeVertexCache() {
+        return optimizeVertexCache;
+    }
+
+    /**
+     * Enables reordering the triangles and vertices of the meshes of the
+     * model for the post-transform vertex cache when it is loaded.
+     * Disabled by default.
+     * 
+     * @param optimizeVertexCache True to optimize the meshes
+     * 
+     * @see com.jme3.scene.mesh.VertexCacheOptimizer
+     */
+    public void setOptimizeVertexCache(boolean optimizeVertexCache) {
+        this.optimizeVertexCache = optimizeVertexCache;
+    }
+
+    /**
+     * @return True if the {@link Spatial model} is cached in the {@link LRUAssetCache}.
+     * @see #setUseLRUCache(boolean) 
+     */
+    public boolean isUseLRUCache() {
+        return useLRUCache;
+    }
+
+    /**
+     * Selects the cache of the model. By default it is kept in the 
+     * {@link WeakRefCloneAssetCache} until all its clones are collected, 
+     * with this enabled it is kept in the {@link LRUAssetCache} 
+     * while it fits in its memory budget.
+     * 
+     * @param useLRUCache True to cache the model in the LRUAssetCache
+     */
+    public void setUseLRUCache(boolean useLRUCache) {
+        this.useLRUCache = useLRUCache;
+    }
+
+    @Override
+    public String toString() {
+        return name + (optimizeVertexCache ? " (Cache Optimized)" : "");
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final ModelKey other = (ModelKey) obj;
+        if (!super.equals(obj)) {
+            return false;
+        }
+        return this.optimizeVertexCache == other.optimizeVertexCache;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 5;
+        hash = 17 * hash + (super.hashCode());
+        hash = 17 * hash + (this.optimizeVertexCache ? 1 : 0);
+        return hash;
+    }
+
+    @Override
+    public void write(JmeExporter ex) throws IOException {
+        super.write(ex);
+        OutputCapsule oc = ex.getCapsule(this);
+        oc.write(optimizeVertexCache, "optimize_vertex_cache", false);
+        oc.write(useLRUCache, "lru_cache", false);
+    }
+
+    @Override
+    public void read(JmeImporter im) throws IOException {
+        super.read(im);
+        InputCapsule ic = im.getCapsule(this);
+        optimizeVertexCache = ic.readBoolean("optimize_vertex_cache", false);
+        useLRUCache = ic.readBoolean("lru_cache", false);
     }
 }
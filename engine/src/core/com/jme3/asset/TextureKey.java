@@ -32,6 +32,7 @@
 package com.jme3.asset;
 
 import com.jme3.asset.cache.AssetCache;
+import com.jme3.asset.cache.LRUAssetCache;
 import com.jme3.asset.cache.WeakRefCloneAssetCache;
 import com.jme3.export.InputCapsule;
 import com.jme3.export.JmeExporter;
@@ -50,7 +51,7 @@ import java.io.IOException;
  * {@link TextureProcessor#postProcess(com.jme3.asset.AssetKey, java.lang.Object) }
  * method. Since textures are cloneable smart assets, the texture stored
  * in the cache will be collected when all clones of the texture become
- * unreachable.
+ * unreachable, unless the key selects the {@link LRUAssetCache}.
  * 
  * @author Kirill Vainer
  */
@@ -62,6 +63,7 @@ public class TextureKey extends AssetKey<Texture> {
     private boolean asTexture3D;
     private int anisotropy;
     private Texture.Type textureTypeHint = Texture.Type.TwoDimensional;
+    private boolean useLRUCache;
 
     public TextureKey(String name, boolean flipY) {
         super(name);
@@ -83,7 +85,7 @@ public class TextureKey extends AssetKey<Texture> {
     
     @Override
     public Class<? extends AssetCache> getCacheType(){
-        return WeakRefCloneAssetCache.class;
+        return useLRUCache ? LRUAssetCache.class : WeakRefCloneAssetCache.class;
     }
 
     @Override
@@ -134,6 +136,26 @@ public class TextureKey extends AssetKey<Texture> {
     public void setTextureTypeHint(Type textureTypeHint) {
         this.textureTypeHint = textureTypeHint;
     }   
+
+    /**
+     * @return True if the {@link Texture} is cached in the {@link LRUAssetCache}.
+     * @see #setUseLRUCache(boolean) 
+     */
+    public boolean isUseLRUCache() {
+        return useLRUCache;
+    }
+
+    /**
+     * Selects the cache of the texture. By default it is kept in the 
+     * {@link WeakRefCloneAssetCache} until all its clones are collected, 
+     * with this enabled it is kept in the {@link LRUAssetCache} 
+     * while it fits in its memory budget.
+     * 
+     * @param useLRUCache True to cache the texture in the LRUAssetCache
+     */
+    public void setUseLRUCache(boolean useLRUCache) {
+        this.useLRUCache = useLRUCache;
+    }
     
     @Override
     public boolean equals(Object obj) {
@@ -189,6 +211,7 @@ public class TextureKey extends AssetKey<Texture> {
         oc.write(generateMips, "generate_mips", false);
         oc.write(asCube, "as_cubemap", false);
         oc.write(anisotropy, "anisotropy", 0);
+        oc.write(useLRUCache, "lru_cache", false);
     }
 
     @Override
@@ -199,5 +222,6 @@ public class TextureKey extends AssetKey<Texture> {
         generateMips = ic.readBoolean("generate_mips", false);
         asCube = ic.readBoolean("as_cubemap", false);
         anisotropy = ic.readInt("anisotropy", 0);
+        useLRUCache = ic.readBoolean("lru_cache", false);
     }
 }
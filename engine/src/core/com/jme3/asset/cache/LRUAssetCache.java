@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.asset.cache;
+
+import com.jme3.asset.AssetKey;
+import com.jme3.asset.CloneableSmartAsset;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.SceneGraphVisitorAdapter;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.texture.Image;
+import com.jme3.texture.Texture;
+import java.nio.*;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <code>LRUAssetCache</code> is an asset cache with a memory budget.
+ * When the estimated size of the cached assets exceeds the budget, 
+ * the least recently used assets are removed from the cache until
+ * it fits again. Unlike {@link WeakRefCloneAssetCache}, which assets
+ * stay cached does not depend on the garbage collector.
+ * <p>
+ * The size of textures and images is the size of their image data, the
+ * size of models is the size of the vertex and index buffers of their
+ * meshes. Other assets are considered to have no size and are never
+ * evicted, since removing them would not free any room; 
+ * {@link #estimateSize(java.lang.Object) } can be overriden to account for them.
+ * <p>
+ * The cache only accounts for the originals it holds: clones of an asset
+ * given out to the application keep its data alive after it was removed
+ * from the cache, and cause it to be loaded again when it is next requested.
+ * <p>
+ * Select this cache with {@link com.jme3.asset.TextureKey#setUseLRUCache(boolean) }
+ * or {@link com.jme3.asset.ModelKey#setUseLRUCache(boolean) }, and get it
+ * from {@link com.jme3.asset.DesktopAssetManager#getCache(java.lang.Class) }
+ * to set its budget or read its statistics.
+ */
+public class LRUAssetCache implements AssetCache {
+
+    private static final Logger logger = Logger.getLogger(LRUAssetCache.class.getName());
+
+    /**
+     * The default memory budget, 64 MB.
+     */
+    public static final long DEFAULT_MAX_MEMORY = 64L * 1024 * 1024;
+
+    private static final class CacheEntry {
+
+        final Object asset;
+        final long size;
+
+        CacheEntry(Object asset, long size) {
+            this.asset = asset;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Iterates from least to most recently used.
+     */
+    private final LinkedHashMap<AssetKey, CacheEntry> cache
+            = new LinkedHashMap<AssetKey, CacheEntry>(16, 0.75f, true);
+
+    private long maxMemory = DEFAULT_MAX_MEMORY;
+    private long memoryUsed;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Sets the memory budget of the cache. If the cached assets exceed
+     * the new budget, the least recently used are removed right away.
+     * 
+     * @param maxMemory The budget in bytes
+     */
+    public synchronized void setMaxMemory(long maxMemory) {
+        if (maxMemory < 0) {
+            throw new IllegalArgumentException("maxMemory cannot be negative");
+        }
+        this.maxMemory = maxMemory;
+        evict(0);
+    }
+
+    /**
+     * @return The memory budget of the cache in bytes.
+     * @see #setMaxMemory(long) 
+     */
+    public synchronized long getMaxMemory() {
+        return maxMemory;
+    }
+
+    /**
+     * @return The estimated size of the cached assets in bytes.
+     */
+    public synchronized long getMemoryUsed() {
+        return memoryUsed;
+    }
+
+    /**
+     * @return The number of cached assets.
+     */
+    public synchronized int getAssetCount() {
+        return cache.size();
+    }
+
+    /**
+     * @return The number of times a requested asset was found in the cache.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return The number of times a requested asset was not in the cache.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return The number of assets removed from the cache to 
+     * stay within the budget.
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Resets the hit, miss and eviction counts.
+     */
+    public synchronized void resetStatistics() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    /**
+     * Estimates the memory taken by an asset.
+     * 
+     * @param asset The asset to estimate
+     * @return The estimated size in bytes
+     */
+    protected long estimateSize(Object asset) {
+        if (asset instanceof Texture) {
+            return estimateSize(((Texture) asset).getImage());
+        } else if (asset instanceof Image) {
+            long size = 0;
+            for (Buffer data : ((Image) asset).getData()) {
+                if (data != null) {
+                    size += getSize(data);
+                }
+            }
+            return size;
+        } else if (asset instanceof Spatial) {
+            // meshes can be shared by several geometries
+            final IdentityHashMap<Mesh, Mesh> meshes = new IdentityHashMap<Mesh, Mesh>();
+            ((Spatial) asset).breadthFirstTraversal(new SceneGraphVisitorAdapter() {
+                @Override
+                public void visit(Geometry geom) {
+                    meshes.put(geom.getMesh(), geom.getMesh());
+                }
+            });
+            long size = 0;
+            for (Mesh mesh : meshes.keySet()) {
+                size += estimateSize(mesh);
+            }
+            return size;
+        } else if (asset instanceof Mesh) {
+            Mesh mesh = (Mesh) asset;
+            long size = 0;
+            for (VertexBuffer vb : mesh.getBufferList().getArray()) {
+                if (vb.getData() != null) {
+                    size += getSize(vb.getData());
+                }
+            }
+            for (int i = 0; i < mesh.getNumLodLevels(); i++) {
+                VertexBuffer lod = mesh.getLodLevel(i);
+                if (lod.getData() != null) {
+                    size += getSize(lod.getData());
+                }
+            }
+            return size;
+        }
+        return 0;
+    }
+
+    private static long getSize(Buffer data) {
+        long capacity = data.capacity();
+        if (data instanceof ByteBuffer) {
+            return capacity;
+        } else if (data instanceof ShortBuffer || data instanceof CharBuffer) {
+            return capacity * 2;
+        } else if (data instanceof DoubleBuffer || data instanceof LongBuffer) {
+            return capacity * 8;
+        } else {
+            return capacity * 4;
+        }
+    }
+
+    /**
+     * Removes least recently used assets until the cache and an 
+     * additional amount of memory fit in the budget.
+     * Assets without a size are skipped.
+     */
+    private void evict(long extraMemory) {
+        Iterator<CacheEntry> it = cache.values().iterator();
+        while (memoryUsed + extraMemory > maxMemory && it.hasNext()) {
+            CacheEntry entry = it.next();
+            if (entry.size == 0) {
+                continue;
+            }
+            it.remove();
+            memoryUsed -= entry.size;
+            evictions++;
+        }
+    }
+
+    public <T> void addToCache(AssetKey<T> key, T obj) {
+        long size = estimateSize(obj);
+        synchronized (this) {
+            CacheEntry old = cache.remove(key);
+            if (old != null) {
+                memoryUsed -= old.size;
+            }
+            if (size > maxMemory) {
+                logger.log(Level.WARNING, "{0} takes {1} bytes, more than "
+                        + "the cache budget of {2} bytes. It will not be cached.",
+                        new Object[]{key, size, maxMemory});
+                return;
+            }
+            evict(size);
+            // the key can be modified by the application once loaded
+            cache.put(key.clone(), new CacheEntry(obj, size));
+            memoryUsed += size;
+        }
+    }
+
+    public <T> void registerAssetClone(AssetKey<T> key, T clone) {
+        // the original is held by the cache, not through the key,
+        // but clones still need it e.g. to be saved
+        ((CloneableSmartAsset) clone).setKey(key);
+    }
+
+    public void notifyNoAssetClone() {
+    }
+
+    public synchronized <T> T getFromCache(AssetKey<T> key) {
+        CacheEntry entry = cache.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return (T) entry.asset;
+    }
+
+    public synchronized boolean deleteFromCache(AssetKey key) {
+        CacheEntry entry = cache.remove(key);
+        if (entry == null) {
+            return false;
+        }
+        memoryUsed -= entry.size;
+        return true;
+    }
+
+    public synchronized void clearCache() {
+        cache.clear();
+        memoryUsed = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return getClass().getSimpleName() + "[assets=" + cache.size()
+                + ", memory=" + memoryUsed + "/" + maxMemory
+                + ", hits=" + hits + ", misses=" + misses
+                + ", evictions=" + evictions + "]";
+    }
+}
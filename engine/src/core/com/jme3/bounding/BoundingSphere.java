@@ -726,6 +726,7 @@ public class BoundingSphere extends BoundingVolume {
         float a = diff.dot(diff) - radiusSquared;
         if (a <= 0.0) {
             // in sphere
+            vars.release();
             return true;
         }
 
@@ -0,0 +1,372 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.collision;
+
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * <code>NearestCollisionResults</code> keeps only the closest collisions
+ * found, for picking and line of sight tests that do not need all of them.
+ * <p>
+ * The results are stored sorted by distance in primitive arrays sized
+ * once, so collecting them does not allocate. With a capacity of 1, only
+ * the closest collision is kept. Ray collisions with meshes use the 
+ * distance of the farthest result kept as the limit of the ray once 
+ * the results are full, so that the triangles farther away are not 
+ * tested.
+ * <p>
+ * The {@link CollisionResult} objects returned are views of the stored 
+ * results, reused by the following calls. Copy the values needed before 
+ * changing the results.
+ */
+public class NearestCollisionResults extends CollisionResults {
+
+    private final int capacity;
+    private int size = 0;
+    private final float[] distances;
+    private final float[] contactPoints;
+    private final float[] contactNormals;
+    private final boolean[] hasContactPoint;
+    private final boolean[] hasContactNormal;
+    private final int[] triangleIndices;
+    private final Geometry[] geometries;
+    private final Entry[] entries;
+    private final ResultIterator iterator = new ResultIterator();
+
+    /**
+     * Creates results keeping only the closest collision.
+     */
+    public NearestCollisionResults() {
+        this(1);
+    }
+
+    /**
+     * Creates results keeping the given number of closest collisions.
+     * 
+     * @param capacity The maximum number of collisions kept.
+     */
+    public NearestCollisionResults(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be at least 1");
+        }
+        this.capacity = capacity;
+        distances = new float[capacity];
+        contactPoints = new float[capacity * 3];
+        contactNormals = new float[capacity * 3];
+        hasContactPoint = new boolean[capacity];
+        hasContactNormal = new boolean[capacity];
+        triangleIndices = new int[capacity];
+        geometries = new Geometry[capacity];
+        entries = new Entry[capacity];
+        for (int i = 0; i < capacity; i++) {
+            entries[i] = new Entry(i);
+        }
+    }
+
+    /**
+     * @return The maximum number of collisions kept.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return The distance a collision must be closer than to be kept,
+     * Float.POSITIVE_INFINITY until the results are full.
+     */
+    public float getMaxDistance() {
+        return size < capacity ? Float.POSITIVE_INFINITY : distances[capacity - 1];
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            geometries[i] = null;
+        }
+        size = 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the place of a new collision, moving the farther results back.
+     * 
+     * @return The index of the new collision, or -1 if it is not kept.
+     */
+    private int insert(float distance) {
+        if (size == capacity) {
+            if (!(distance < distances[capacity - 1])) {
+                return -1;
+            }
+            geometries[capacity - 1] = null;
+            size--;
+        }
+        int index = size;
+        while (index > 0 && distances[index - 1] > distance) {
+            index--;
+        }
+        int moved = size - index;
+        if (moved > 0) {
+            System.arraycopy(distances, index, distances, index + 1, moved);
+            System.arraycopy(contactPoints, index * 3, contactPoints, index * 3 + 3, moved * 3);
+            System.arraycopy(contactNormals, index * 3, contactNormals, index * 3 + 3, moved * 3);
+            System.arraycopy(hasContactPoint, index, hasContactPoint, index + 1, moved);
+            System.arraycopy(hasContactNormal, index, hasContactNormal, index + 1, moved);
+            System.arraycopy(triangleIndices, index, triangleIndices, index + 1, moved);
+            System.arraycopy(geometries, index, geometries, index + 1, moved);
+        }
+        size++;
+        distances[index] = distance;
+        geometries[index] = null;
+        return index;
+    }
+
+    /**
+     * Adds a collision if it is closer than the farthest one kept, or if
+     * the results are not full.
+     * 
+     * @return True if the collision is kept.
+     */
+    public boolean addCollision(float distance, float pointX, float pointY, float pointZ,
+            float normalX, float normalY, float normalZ, int triangleIndex) {
+        int index = insert(distance);
+        if (index == -1) {
+            return false;
+        }
+        int i = index * 3;
+        contactPoints[i] = pointX;
+        contactPoints[i + 1] = pointY;
+        contactPoints[i + 2] = pointZ;
+        contactNormals[i] = normalX;
+        contactNormals[i + 1] = normalY;
+        contactNormals[i + 2] = normalZ;
+        hasContactPoint[index] = true;
+        hasContactNormal[index] = true;
+        triangleIndices[index] = triangleIndex;
+        return true;
+    }
+
+    /**
+     * Copies the values of the given collision if it is kept, the 
+     * collision object itself is not referenced.
+     */
+    @Override
+    public void addCollision(CollisionResult result) {
+        int index = insert(result.getDistance());
+        if (index == -1) {
+            return;
+        }
+        int i = index * 3;
+        Vector3f point = result.getContactPoint();
+        hasContactPoint[index] = point != null;
+        if (point != null) {
+            contactPoints[i] = point.x;
+            contactPoints[i + 1] = point.y;
+            contactPoints[i + 2] = point.z;
+        }
+        Vector3f normal = result.getContactNormal();
+        hasContactNormal[index] = normal != null;
+        if (normal != null) {
+            contactNormals[i] = normal.x;
+            contactNormals[i + 1] = normal.y;
+            contactNormals[i + 2] = normal.z;
+        }
+        triangleIndices[index] = result.getTriangleIndex();
+        geometries[index] = result.getGeometry();
+    }
+
+    /**
+     * Sets the geometry of the collisions kept that have none, called by
+     * {@link Geometry} after colliding its mesh.
+     */
+    public void assignGeometry(Geometry geometry) {
+        for (int i = 0; i < size; i++) {
+            if (geometries[i] == null) {
+                geometries[i] = geometry;
+            }
+        }
+    }
+
+    public float getDistance(int index) {
+        checkIndex(index);
+        return distances[index];
+    }
+
+    public Vector3f getContactPoint(int index, Vector3f store) {
+        checkIndex(index);
+        if (!hasContactPoint[index]) {
+            return null;
+        }
+        if (store == null) {
+            store = new Vector3f();
+        }
+        int i = index * 3;
+        return store.set(contactPoints[i], contactPoints[i + 1], contactPoints[i + 2]);
+    }
+
+    public Vector3f getContactNormal(int index, Vector3f store) {
+        checkIndex(index);
+        if (!hasContactNormal[index]) {
+            return null;
+        }
+        if (store == null) {
+            store = new Vector3f();
+        }
+        int i = index * 3;
+        return store.set(contactNormals[i], contactNormals[i + 1], contactNormals[i + 2]);
+    }
+
+    public int getTriangleIndex(int index) {
+        checkIndex(index);
+        return triangleIndices[index];
+    }
+
+    public Geometry getGeometry(int index) {
+        checkIndex(index);
+        return geometries[index];
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    @Override
+    public Iterator<CollisionResult> iterator() {
+        iterator.next = 0;
+        return iterator;
+    }
+
+    @Override
+    public CollisionResult getClosestCollision() {
+        if (size == 0) {
+            return null;
+        }
+        return getCollision(0);
+    }
+
+    @Override
+    public CollisionResult getFarthestCollision() {
+        if (size == 0) {
+            return null;
+        }
+        return getCollision(size - 1);
+    }
+
+    @Override
+    public CollisionResult getCollision(int index) {
+        checkIndex(index);
+        return entries[index].load();
+    }
+
+    @Override
+    public CollisionResult getCollisionDirect(int index) {
+        return getCollision(index);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("NearestCollisionResults[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(getCollision(i));
+        }
+        sb.append("]");
+        return sb.toString();
+    }
+
+    /**
+     * A view of a stored collision. The geometry and triangle index set
+     * through it are written back.
+     */
+    private class Entry extends CollisionResult {
+
+        private final int index;
+        private final Vector3f point = new Vector3f();
+        private final Vector3f normal = new Vector3f();
+
+        Entry(int index) {
+            this.index = index;
+        }
+
+        Entry load() {
+            super.setDistance(distances[index]);
+            super.setContactPoint(NearestCollisionResults.this.getContactPoint(index, point));
+            super.setContactNormal(NearestCollisionResults.this.getContactNormal(index, normal));
+            super.setTriangleIndex(triangleIndices[index]);
+            super.setGeometry(geometries[index]);
+            return this;
+        }
+
+        @Override
+        public void setGeometry(Geometry geom) {
+            super.setGeometry(geom);
+            geometries[index] = geom;
+        }
+
+        @Override
+        public void setTriangleIndex(int triangleIndex) {
+            super.setTriangleIndex(triangleIndex);
+            triangleIndices[index] = triangleIndex;
+        }
+    }
+
+    private class ResultIterator implements Iterator<CollisionResult> {
+
+        int next = 0;
+
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        public CollisionResult next() {
+            if (next >= size) {
+                throw new NoSuchElementException();
+            }
+            return getCollision(next++);
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
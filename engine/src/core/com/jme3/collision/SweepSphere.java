@@ -31,15 +31,31 @@
  */
 package com.jme3.collision;
 
+import com.jme3.bounding.BoundingBox;
 import com.jme3.math.*;
 
 /**
- * No longer public ..
+ * <code>SweepSphere</code> is an ellipsoid moving along its velocity, to 
+ * find where it first hits the scene. This is intended for character 
+ * controllers that move and slide against level meshes without a 
+ * physics engine.
+ * <p>
+ * The ellipsoid starts at its center and moves by its velocity during a
+ * time of 1. Collided with a {@link com.jme3.scene.Spatial}, the meshes are
+ * tested through their collision trees, only visiting the triangles within
+ * the bounds swept by the ellipsoid, and each mesh hit adds one 
+ * {@link CollisionResult} for the earliest impact. The distance of the 
+ * result is the distance travelled by the center until the impact, see 
+ * {@link #getTimeOfImpact(com.jme3.collision.CollisionResult) }.
+ * Triangles are one sided, the ones facing away from the velocity are
+ * ignored.
+ * <p>
+ * A <code>SweepSphere</code> holds temporary variables and cannot be used
+ * by several threads at the same time.
  *
  * @author Kirill Vainer
  */
-@Deprecated
-class SweepSphere implements Collidable {
+public class SweepSphere implements Collidable {
 
     private Vector3f velocity = new Vector3f();
     private Vector3f center = new Vector3f();
@@ -89,6 +105,34 @@ class SweepSphere implements Collidable {
         this.velocity.set(velocity);
     }
 
+    /**
+     * Computes the box containing the ellipsoid from its center to the
+     * given time along its velocity.
+     * 
+     * @param time The end of the sweep, 1 for the whole velocity.
+     * @param store The box to store the result in, or null.
+     * @return The swept bounds.
+     */
+    public BoundingBox getSweptBounds(float time, BoundingBox store) {
+        if (store == null) {
+            store = new BoundingBox();
+        }
+        float vx = velocity.x * time, vy = velocity.y * time, vz = velocity.z * time;
+        store.getCenter().set(center.x + vx * 0.5f, center.y + vy * 0.5f, center.z + vz * 0.5f);
+        store.setXExtent(dimension.x + FastMath.abs(vx) * 0.5f);
+        store.setYExtent(dimension.y + FastMath.abs(vy) * 0.5f);
+        store.setZExtent(dimension.z + FastMath.abs(vz) * 0.5f);
+        return store;
+    }
+
+    /**
+     * @return The time of impact of a result of this sweep, between 0 and 
+     * 1, 1 being the end of the velocity.
+     */
+    public float getTimeOfImpact(CollisionResult result) {
+        return result.getDistance() / velocity.length();
+    }
+
     private boolean pointsOnSameSide(Vector3f p1, Vector3f p2, Vector3f line1, Vector3f line2) {
         // V1 = (line2 - line1) x (p1    - line1)
         // V2 = (p2    - line1) x (line2 - line1)
@@ -150,17 +194,7 @@ class SweepSphere implements Collidable {
         float a = velocitySquared;
         float b = 2f * sVelocity.dot(temp1);
         float c = temp1.negateLocal().lengthSquared() - 1f;
-        float newT = getLowestRoot(a, b, c, t);
-
-//        float A = velocitySquared;
-//        float B = sCenter.subtract(vertex).dot(sVelocity) * 2f;
-//        float C = vertex.subtract(sCenter).lengthSquared() - 1f;
-//
-//        float newT = getLowestRoot(A, B, C, Float.MAX_VALUE);
-//        if (newT > 1.0f)
-//            newT = Float.NaN;
-        
-        return newT;
+        return getLowestRoot(a, b, c, t);
     }
 
     private float collideWithSegment(Vector3f sCenter,
@@ -194,25 +228,34 @@ class SweepSphere implements Collidable {
         return Float.NaN;
     }
 
-    private CollisionResult collideWithTriangle(AbstractTriangle tri){
+    /**
+     * Finds when the ellipsoid hits a triangle, without allocating.
+     * 
+     * @param v1 The first vertex of the triangle.
+     * @param v2 The second vertex of the triangle.
+     * @param v3 The third vertex of the triangle.
+     * @param maxT Only impacts before this time are searched for.
+     * @param contactPoint Receives the contact point if the triangle is hit.
+     * @return The time of impact between 0 and maxT, or NaN if the 
+     * triangle is not hit before maxT.
+     */
+    public float collideWithTriangle(Vector3f v1, Vector3f v2, Vector3f v3,
+            float maxT, Vector3f contactPoint) {
         // scale scaledTriangle based on dimension
-        scaledTri.get1().set(tri.get1()).multLocal(invDim);
-        scaledTri.get2().set(tri.get2()).multLocal(invDim);
-        scaledTri.get3().set(tri.get3()).multLocal(invDim);
-//        Vector3f sVelocity = velocity.mult(invDim);
-//        Vector3f sCenter = center.mult(invDim);
+        scaledTri.get1().set(v1).multLocal(invDim);
+        scaledTri.get2().set(v2).multLocal(invDim);
+        scaledTri.get3().set(v3).multLocal(invDim);
         velocity.mult(invDim, sVelocity);
         center.mult(invDim, sCenter);
 
         triPlane.setPlanePoints(scaledTri);
 
         float normalDotVelocity = triPlane.getNormal().dot(sVelocity);
-        // XXX: sVelocity.normalize() needed?
         // back facing scaledTriangles not considered
         if (normalDotVelocity > 0f)
-            return null;
+            return Float.NaN;
 
-        float t0, t1;
+        float t0;
         boolean embedded = false;
 
         float signedDistanceToPlane = triPlane.pseudoDistance(sCenter);
@@ -220,18 +263,15 @@ class SweepSphere implements Collidable {
             // we are travelling exactly parrallel to the plane
             if (FastMath.abs(signedDistanceToPlane) >= 1.0f){
                 // no collision possible
-                return null;
-            }else{
-                // we are embedded
-                t0 = 0;
-                t1 = 1;
-                embedded = true;
-                System.out.println("EMBEDDED");
-                return null;
+                return Float.NaN;
             }
+            // we are embedded in the plane, only the vertices and
+            // edges can be hit
+            t0 = 0;
+            embedded = true;
         }else{
             t0 = (-1f - signedDistanceToPlane) / normalDotVelocity;
-            t1 = ( 1f - signedDistanceToPlane) / normalDotVelocity;
+            float t1 = ( 1f - signedDistanceToPlane) / normalDotVelocity;
 
             if (t0 > t1){
                 float tf = t1;
@@ -239,23 +279,16 @@ class SweepSphere implements Collidable {
                 t0 = tf;
             }
 
-            if (t0 > 1.0f || t1 < 0.0f){
+            if (t0 > maxT || t1 < 0.0f){
                 // collision is out of this sVelocity range
-                return null;
+                return Float.NaN;
             }
 
-            // clamp the interval to [0, 1]
+            // clamp the interval to [0, maxT]
             t0 = Math.max(t0, 0.0f);
-            t1 = Math.min(t1, 1.0f);
         }
 
-        boolean foundCollision = false;
-        float minT = 1f;
-
-        Vector3f contactPoint = new Vector3f();
-        Vector3f contactNormal = new Vector3f();
-  
-//        if (!embedded){
+        if (!embedded){
             // check against the inside of the scaledTriangle
             // contactPoint = sCenter - p.normal + t0 * sVelocity
             contactPoint.set(sVelocity);
@@ -264,95 +297,101 @@ class SweepSphere implements Collidable {
             contactPoint.subtractLocal(triPlane.getNormal());
 
             // test to see if the collision is on a scaledTriangle interior
-            if (isPointInTriangle(contactPoint, scaledTri) && !embedded){
-                foundCollision = true;
-
-                minT = t0;
-
+            if (isPointInTriangle(contactPoint, scaledTri)){
+                if (t0 >= maxT) {
+                    return Float.NaN;
+                }
                 // scale collision point back into R3
                 contactPoint.multLocal(dimension);
-                contactNormal.set(velocity).multLocal(t0);
-                contactNormal.addLocal(center);
-                contactNormal.subtractLocal(contactPoint).normalizeLocal();
-
-//                contactNormal.set(triPlane.getNormal());
-                
-                CollisionResult result = new CollisionResult();
-                result.setContactPoint(contactPoint);
-                result.setContactNormal(contactNormal);
-                result.setDistance(minT * velocity.length());
-                return result;
+                return t0;
             }
-//        }
+        }
 
+        boolean foundCollision = false;
+        float minT = maxT;
         float velocitySquared = sVelocity.lengthSquared();
 
-        Vector3f v1 = scaledTri.get1();
-        Vector3f v2 = scaledTri.get2();
-        Vector3f v3 = scaledTri.get3();
+        Vector3f s1 = scaledTri.get1();
+        Vector3f s2 = scaledTri.get2();
+        Vector3f s3 = scaledTri.get3();
 
         // vertex 1
         float newT;
-        newT = collideWithVertex(sCenter, sVelocity, velocitySquared, v1, minT);
+        newT = collideWithVertex(sCenter, sVelocity, velocitySquared, s1, minT);
         if (!Float.isNaN(newT)){
             minT = newT;
-            contactPoint.set(v1);
+            contactPoint.set(s1);
             foundCollision = true;
         }
 
         // vertex 2
-        newT = collideWithVertex(sCenter, sVelocity, velocitySquared, v2, minT);
+        newT = collideWithVertex(sCenter, sVelocity, velocitySquared, s2, minT);
         if (!Float.isNaN(newT)){
             minT = newT;
-            contactPoint.set(v2);
+            contactPoint.set(s2);
             foundCollision = true;
         }
 
         // vertex 3
-        newT = collideWithVertex(sCenter, sVelocity, velocitySquared, v3, minT);
+        newT = collideWithVertex(sCenter, sVelocity, velocitySquared, s3, minT);
         if (!Float.isNaN(newT)){
             minT = newT;
-            contactPoint.set(v3);
+            contactPoint.set(s3);
             foundCollision = true;
         }
 
         // edge 1-2
-        newT = collideWithSegment(sCenter, sVelocity, velocitySquared, v1, v2, minT, contactPoint);
+        newT = collideWithSegment(sCenter, sVelocity, velocitySquared, s1, s2, minT, contactPoint);
         if (!Float.isNaN(newT)){
             minT = newT;
             foundCollision = true;
         }
 
         // edge 2-3
-        newT = collideWithSegment(sCenter, sVelocity, velocitySquared, v2, v3, minT, contactPoint);
+        newT = collideWithSegment(sCenter, sVelocity, velocitySquared, s2, s3, minT, contactPoint);
         if (!Float.isNaN(newT)){
             minT = newT;
             foundCollision = true;
         }
 
         // edge 3-1
-        newT = collideWithSegment(sCenter, sVelocity, velocitySquared, v3, v1, minT, contactPoint);
+        newT = collideWithSegment(sCenter, sVelocity, velocitySquared, s3, s1, minT, contactPoint);
         if (!Float.isNaN(newT)){
             minT = newT;
             foundCollision = true;
         }
 
         if (foundCollision){
-            // compute contact normal based on minimum t
+            // scale collision point back into R3
             contactPoint.multLocal(dimension);
-            contactNormal.set(velocity).multLocal(t0);
-            contactNormal.addLocal(center);
-            contactNormal.subtractLocal(contactPoint).normalizeLocal();
+            return minT;
+        }
+        return Float.NaN;
+    }
 
-            CollisionResult result = new CollisionResult();
-            result.setContactPoint(contactPoint);
-            result.setContactNormal(contactNormal);
-            result.setDistance(minT * velocity.length());
+    /**
+     * Computes the normal of a contact, from the contact point to the 
+     * center of the ellipsoid at the time of impact.
+     */
+    public Vector3f getContactNormal(Vector3f contactPoint, float time, Vector3f store) {
+        if (store == null) {
+            store = new Vector3f();
+        }
+        return store.set(velocity).multLocal(time).addLocal(center)
+                .subtractLocal(contactPoint).normalizeLocal();
+    }
 
-            return result;
-        }else{
+    private CollisionResult collideWithTriangle(AbstractTriangle tri){
+        Vector3f contactPoint = new Vector3f();
+        float t = collideWithTriangle(tri.get1(), tri.get2(), tri.get3(), 1f, contactPoint);
+        if (Float.isNaN(t)) {
             return null;
         }
+        CollisionResult result = new CollisionResult();
+        result.setContactPoint(contactPoint);
+        result.setContactNormal(getContactNormal(contactPoint, t, null));
+        result.setDistance(t * velocity.length());
+        return result;
     }
 
     public CollisionResult collideWithSweepSphere(SweepSphere other){
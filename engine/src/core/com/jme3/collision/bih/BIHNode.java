@@ -111,6 +111,59 @@ public final class BIHNode implements Savable {
         this.rightPlane = rightPlane;
     }
 
+    /**
+     * @return the number of nodes of the subtree of this node
+     */
+    int countNodes() {
+        if (axis == 3) {
+            return 1;
+        }
+        return 1 + left.countNodes() + right.countNodes();
+    }
+
+    /**
+     * Stores the subtree of this node in flat arrays, in depth first order.
+     * Each node stores its axis, two indices: the range of triangles of a
+     * leaf or the positions of the children of an inner node, and the two
+     * planes of an inner node.
+     * 
+     * @param position the position of this node in the arrays
+     * @return the position following the subtree
+     */
+    int flatten(int position, int[] axes, int[] indices, float[] planes) {
+        axes[position] = axis;
+        if (axis == 3) {
+            indices[position * 2] = leftIndex;
+            indices[position * 2 + 1] = rightIndex;
+            return position + 1;
+        }
+        planes[position * 2] = leftPlane;
+        planes[position * 2 + 1] = rightPlane;
+        int leftPosition = position + 1;
+        int rightPosition = left.flatten(leftPosition, axes, indices, planes);
+        indices[position * 2] = leftPosition;
+        indices[position * 2 + 1] = rightPosition;
+        return right.flatten(rightPosition, axes, indices, planes);
+    }
+
+    /**
+     * Creates a node and its subtree from flat arrays.
+     * 
+     * @see #flatten(int, int[], int[], float[]) 
+     */
+    static BIHNode unflatten(int position, int[] axes, int[] indices, float[] planes) {
+        int axis = axes[position];
+        if (axis == 3) {
+            return new BIHNode(indices[position * 2], indices[position * 2 + 1]);
+        }
+        BIHNode node = new BIHNode(axis);
+        node.leftPlane = planes[position * 2];
+        node.rightPlane = planes[position * 2 + 1];
+        node.left = unflatten(indices[position * 2], axes, indices, planes);
+        node.right = unflatten(indices[position * 2 + 1], axes, indices, planes);
+        return node;
+    }
+
     public void write(JmeExporter ex) throws IOException {
         OutputCapsule oc = ex.getCapsule(this);
         oc.write(leftIndex, "left_index", 0);
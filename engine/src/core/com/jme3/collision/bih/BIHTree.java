@@ -35,7 +35,10 @@ import com.jme3.bounding.BoundingBox;
 import com.jme3.bounding.BoundingSphere;
 import com.jme3.bounding.BoundingVolume;
 import com.jme3.collision.Collidable;
+import com.jme3.collision.CollisionResult;
 import com.jme3.collision.CollisionResults;
+import com.jme3.collision.NearestCollisionResults;
+import com.jme3.collision.SweepSphere;
 import com.jme3.collision.UnsupportedCollisionException;
 import com.jme3.export.InputCapsule;
 import com.jme3.export.JmeExporter;
@@ -44,6 +47,7 @@ import com.jme3.export.OutputCapsule;
 import com.jme3.math.FastMath;
 import com.jme3.math.Matrix4f;
 import com.jme3.math.Ray;
+import com.jme3.math.Triangle;
 import com.jme3.math.Vector3f;
 import com.jme3.scene.CollisionData;
 import com.jme3.scene.Mesh;
@@ -56,17 +60,46 @@ import com.jme3.util.TempVars;
 import java.io.IOException;
 import static java.lang.Math.max;
 import java.nio.FloatBuffer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
 
 public class BIHTree implements CollisionData {
 
     public static final int MAX_TREE_DEPTH = 100;
     public static final int MAX_TRIS_PER_NODE = 21;
+    /**
+     * The minimum number of triangles on both sides of a node for
+     * its subtrees to be constructed by different threads.
+     */
+    public static final int MIN_PARALLEL_TRIS = 4096;
+    
+    private static ExecutorService defaultExecutor;
+    
     private Mesh mesh;
     private BIHNode root;
     private int maxTrisPerNode;
     private int numTris;
     private float[] pointData;
     private int[] triIndices;
+    /**
+     * The nodes packed for the ray batches, three values per node in 
+     * depth first order: the axis, 3 for a leaf, then the positions of 
+     * the two children or the range of triangles of a leaf
+     */
+    private transient int[] packedNodes;
+    /**
+     * The left and right planes of each node
+     */
+    private transient float[] packedPlanes;
+    /**
+     * The bounds of the triangles: min x, y, z then max x, y, z
+     */
+    private transient float[] bounds;
     
     private transient CollisionResults boundResults = new CollisionResults();
     private transient float[] bihSwapTmp;
@@ -133,9 +166,98 @@ public class BIHTree implements CollisionData {
     public BIHTree() {
     }
 
+    /**
+     * Constructs the tree, using the threads of a shared pool when the
+     * mesh is large enough and several processors are available.
+     * 
+     * @see #construct(java.util.concurrent.Executor) 
+     */
     public void construct() {
+        if (numTris >= MIN_PARALLEL_TRIS * 2 
+                && Runtime.getRuntime().availableProcessors() > 1) {
+            construct(getDefaultExecutor());
+        } else {
+            construct(null);
+        }
+    }
+
+    /**
+     * Constructs the tree.
+     * <p>
+     * When an executor is given, the right subtree of a node with at
+     * least {@link #MIN_PARALLEL_TRIS} triangles on both sides is
+     * constructed by the executor while the calling thread constructs
+     * the left subtree, then runs the right one itself if no thread of
+     * the executor started it yet. The subtrees sort separate ranges of
+     * triangles, the tree is the same as when constructed by one thread.
+     * 
+     * @param executor the executor constructing subtrees, or null to
+     * construct the tree on the calling thread
+     */
+    public void construct(Executor executor) {
         BoundingBox sceneBbox = createBox(0, numTris - 1);
-        root = createNode(0, numTris - 1, sceneBbox, 0);
+        root = createNode(0, numTris - 1, sceneBbox, 0, executor, bihSwapTmp);
+        pack();
+    }
+
+    /**
+     * Packs the nodes in arrays for the ray batches.
+     */
+    private void pack() {
+        int numNodes = root.countNodes();
+        int[] axes = new int[numNodes];
+        int[] indices = new int[numNodes * 2];
+        float[] planes = new float[numNodes * 2];
+        root.flatten(0, axes, indices, planes);
+        pack(axes, indices, planes);
+    }
+
+    /**
+     * Packs the flattened nodes in arrays for the ray batches.
+     * 
+     * @see BIHNode#flatten(int, int[], int[], float[]) 
+     */
+    private void pack(int[] axes, int[] indices, float[] planes) {
+        int numNodes = axes.length;
+        int[] nodes = new int[numNodes * 3];
+        for (int i = 0; i < numNodes; i++) {
+            nodes[i * 3] = axes[i];
+            nodes[i * 3 + 1] = indices[i * 2];
+            nodes[i * 3 + 2] = indices[i * 2 + 1];
+        }
+
+        float[] box = new float[]{
+            Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY,
+            Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY
+        };
+        for (int i = 0; i < pointData.length; i += 3) {
+            for (int a = 0; a < 3; a++) {
+                box[a] = Math.min(box[a], pointData[i + a]);
+                box[a + 3] = Math.max(box[a + 3], pointData[i + a]);
+            }
+        }
+
+        packedNodes = nodes;
+        packedPlanes = planes;
+        bounds = box;
+    }
+
+    private static synchronized ExecutorService getDefaultExecutor() {
+        if (defaultExecutor == null) {
+            // the thread constructing the tree does its share of the work
+            int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+            defaultExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+                private int nextThreadId = 0;
+
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "jME3 BIH Construction Thread " + (nextThreadId++));
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return defaultExecutor;
     }
 
     private BoundingBox createBox(int l, int r) {
@@ -164,7 +286,7 @@ public class BIHTree implements CollisionData {
         return triIndices[triIndex];
     }
 
-    private int sortTriangles(int l, int r, float split, int axis) {
+    private int sortTriangles(int l, int r, float split, int axis, float[] swapTmp) {
         int pivot = l;
         int j = r;
 
@@ -178,7 +300,7 @@ public class BIHTree implements CollisionData {
             getTriangle(pivot, v1, v2, v3);
             v1.addLocal(v2).addLocal(v3).multLocal(FastMath.ONE_THIRD);
             if (v1.get(axis) > split) {
-                swapTriangles(pivot, j);
+                swapTriangles(pivot, j, swapTmp);
                 --j;
             } else {
                 ++pivot;
@@ -288,7 +410,8 @@ public class BIHTree implements CollisionData {
 //
 //        return node;
 //    }
-    private BIHNode createNode(int l, int r, BoundingBox nodeBbox, int depth) {
+    private BIHNode createNode(int l, int r, BoundingBox nodeBbox, int depth, 
+            Executor executor, float[] swapTmp) {
         if ((r - l) < maxTrisPerNode || depth > MAX_TREE_DEPTH) {
             return new BIHNode(l, r);
         }
@@ -319,7 +442,7 @@ public class BIHTree implements CollisionData {
 
 //        Arrays.sort(tris, l, r, comparators[axis]);
         float split = currentBox.getCenter().get(axis);
-        int pivot = sortTriangles(l, r, split, axis);
+        int pivot = sortTriangles(l, r, split, axis, swapTmp);
         if (pivot == l || pivot == r) {
             pivot = (r + l) / 2;
         }
@@ -329,12 +452,12 @@ public class BIHTree implements CollisionData {
             //Only right
             BoundingBox rbbox = new BoundingBox(currentBox);
             setMinMax(rbbox, true, axis, split);
-            return createNode(l, r, rbbox, depth + 1);
+            return createNode(l, r, rbbox, depth + 1, executor, swapTmp);
         } else if (pivot > r) {
             //Only left
             BoundingBox lbbox = new BoundingBox(currentBox);
             setMinMax(lbbox, false, axis, split);
-            return createNode(l, r, lbbox, depth + 1);
+            return createNode(l, r, lbbox, depth + 1, executor, swapTmp);
         } else {
             //Build the node
             BIHNode node = new BIHNode(axis);
@@ -345,19 +468,68 @@ public class BIHTree implements CollisionData {
 
             //The left node right border is the plane most right
             node.setLeftPlane(getMinMax(createBox(l, max(l, pivot - 1)), false, axis));
-            node.setLeftChild(createNode(l, max(l, pivot - 1), lbbox, depth + 1)); //Recursive call
 
             //Right Child
             BoundingBox rbbox = new BoundingBox(currentBox);
             setMinMax(rbbox, true, axis, split);
             //The right node left border is the plane most left
             node.setRightPlane(getMinMax(createBox(pivot, r), true, axis));
-            node.setRightChild(createNode(pivot, r, rbbox, depth + 1)); //Recursive call
+
+            if (executor != null && pivot - l >= MIN_PARALLEL_TRIS 
+                    && r - pivot + 1 >= MIN_PARALLEL_TRIS) {
+                FutureTask<BIHNode> rightTask = createNodeTask(pivot, r, rbbox, depth + 1, executor);
+                executor.execute(rightTask);
+                node.setLeftChild(createNode(l, max(l, pivot - 1), lbbox, depth + 1, executor, swapTmp)); //Recursive call
+                node.setRightChild(joinNodeTask(rightTask));
+            } else {
+                node.setLeftChild(createNode(l, max(l, pivot - 1), lbbox, depth + 1, executor, swapTmp)); //Recursive call
+                node.setRightChild(createNode(pivot, r, rbbox, depth + 1, executor, swapTmp)); //Recursive call
+            }
 
             return node;
         }
     }
 
+    private FutureTask<BIHNode> createNodeTask(final int l, final int r, final BoundingBox nodeBbox, 
+            final int depth, final Executor executor) {
+        return new FutureTask<BIHNode>(new Callable<BIHNode>() {
+
+            public BIHNode call() {
+                return createNode(l, r, nodeBbox, depth, executor, new float[9]);
+            }
+        });
+    }
+
+    /**
+     * Waits for a subtree constructed by the executor, running it on the
+     * calling thread if no thread of the executor started it yet.
+     */
+    private BIHNode joinNodeTask(FutureTask<BIHNode> task) {
+        task.run();
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return task.get();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     public void getTriangle(int index, Vector3f v1, Vector3f v2, Vector3f v3) {
         int pointIndex = index * 9;
 
@@ -375,17 +547,21 @@ public class BIHTree implements CollisionData {
     }
 
     public void swapTriangles(int index1, int index2) {
+        swapTriangles(index1, index2, bihSwapTmp);
+    }
+
+    private void swapTriangles(int index1, int index2, float[] swapTmp) {
         int p1 = index1 * 9;
         int p2 = index2 * 9;
 
         // store p1 in tmp
-        System.arraycopy(pointData, p1, bihSwapTmp, 0, 9);
+        System.arraycopy(pointData, p1, swapTmp, 0, 9);
 
         // copy p2 to p1
         System.arraycopy(pointData, p2, pointData, p1, 9);
 
         // copy tmp to p2
-        System.arraycopy(bihSwapTmp, 0, pointData, p2, 9);
+        System.arraycopy(swapTmp, 0, pointData, p2, 9);
 
         // swap indices
         int tmp2 = triIndices[index1];
@@ -446,6 +622,456 @@ public class BIHTree implements CollisionData {
         return root.intersectWhere(bv, bbox, worldMatrix, this, results);
     }
 
+    /**
+     * Computes the bounds swept by an ellipsoid until the given time, in 
+     * the space of the triangles.
+     */
+    private static void getSweptBounds(SweepSphere sweep, float time,
+            Matrix4f inv, float[] store) {
+        Vector3f center = sweep.getCenter();
+        Vector3f velocity = sweep.getVelocity();
+        Vector3f dimension = sweep.getDimension();
+        float vx = velocity.x * time * 0.5f;
+        float vy = velocity.y * time * 0.5f;
+        float vz = velocity.z * time * 0.5f;
+        float cx = center.x + vx, cy = center.y + vy, cz = center.z + vz;
+        float ex = dimension.x + Math.abs(vx);
+        float ey = dimension.y + Math.abs(vy);
+        float ez = dimension.z + Math.abs(vz);
+        if (inv != null) {
+            float x = inv.m00 * cx + inv.m01 * cy + inv.m02 * cz + inv.m03;
+            float y = inv.m10 * cx + inv.m11 * cy + inv.m12 * cz + inv.m13;
+            float z = inv.m20 * cx + inv.m21 * cy + inv.m22 * cz + inv.m23;
+            float x2 = Math.abs(inv.m00) * ex + Math.abs(inv.m01) * ey + Math.abs(inv.m02) * ez;
+            float y2 = Math.abs(inv.m10) * ex + Math.abs(inv.m11) * ey + Math.abs(inv.m12) * ez;
+            float z2 = Math.abs(inv.m20) * ex + Math.abs(inv.m21) * ey + Math.abs(inv.m22) * ez;
+            cx = x;
+            cy = y;
+            cz = z;
+            ex = x2;
+            ey = y2;
+            ez = z2;
+        }
+        store[0] = cx - ex;
+        store[1] = cy - ey;
+        store[2] = cz - ez;
+        store[3] = cx + ex;
+        store[4] = cy + ey;
+        store[5] = cz + ez;
+    }
+
+    /**
+     * Sweeps an ellipsoid against the triangles, visiting only the nodes
+     * overlapping the bounds it sweeps, and adds the earliest impact found.
+     * The swept bounds shrink to the earliest impact as triangles are hit.
+     */
+    private int collideWithSweepSphere(SweepSphere sweep, Matrix4f worldMatrix,
+            CollisionResults results) {
+        TempVars vars = TempVars.get();
+        int[] nodeStack = vars.bihNodeStack;
+        float[] box = vars.bihSweptBounds;
+        Vector3f v1 = vars.vect1, v2 = vars.vect2, v3 = vars.vect3;
+        Vector3f contact = vars.vect4;
+        Vector3f closestContact = vars.vect5;
+        Matrix4f inv = null;
+        if (worldMatrix != null) {
+            inv = vars.tempMat4.set(worldMatrix).invertLocal();
+        }
+
+        int[] nodes = packedNodes;
+        float[] planes = packedPlanes;
+        float closest = 1f;
+        int closestTriangle = -1;
+
+        getSweptBounds(sweep, closest, inv, box);
+        int stackSize = 0;
+        if (box[0] <= bounds[3] && box[3] >= bounds[0]
+                && box[1] <= bounds[4] && box[4] >= bounds[1]
+                && box[2] <= bounds[5] && box[5] >= bounds[2]) {
+            nodeStack[0] = 0;
+            stackSize = 1;
+        }
+
+        stackloop:
+        while (stackSize > 0) {
+            int node = nodeStack[--stackSize];
+
+            int axis;
+            while ((axis = nodes[node * 3]) != 3) {
+                float minExt = box[axis];
+                float maxExt = box[axis + 3];
+                float leftPlane = planes[node * 2];
+                float rightPlane = planes[node * 2 + 1];
+
+                if (leftPlane < rightPlane && minExt > leftPlane && maxExt < rightPlane) {
+                    // the bounds are in the gap between the children
+                    continue stackloop;
+                }
+
+                if (maxExt < rightPlane) {
+                    node = nodes[node * 3 + 1];
+                } else if (minExt > leftPlane) {
+                    node = nodes[node * 3 + 2];
+                } else {
+                    nodeStack[stackSize++] = nodes[node * 3 + 2];
+                    node = nodes[node * 3 + 1];
+                }
+            }
+
+            // a leaf
+            boolean hit = false;
+            for (int i = nodes[node * 3 + 1], end = nodes[node * 3 + 2]; i <= end; i++) {
+                getTriangle(i, v1, v2, v3);
+                if (worldMatrix != null) {
+                    worldMatrix.mult(v1, v1);
+                    worldMatrix.mult(v2, v2);
+                    worldMatrix.mult(v3, v3);
+                }
+                float t = sweep.collideWithTriangle(v1, v2, v3, closest, contact);
+                if (t < closest) {
+                    closest = t;
+                    closestTriangle = i;
+                    closestContact.set(contact);
+                    hit = true;
+                }
+            }
+            if (hit) {
+                getSweptBounds(sweep, closest, inv, box);
+            }
+        }
+
+        if (closestTriangle == -1) {
+            vars.release();
+            return 0;
+        }
+
+        Vector3f normal = sweep.getContactNormal(closestContact, closest, vars.vect6);
+        float distance = closest * sweep.getVelocity().length();
+        int triangleIndex = triIndices[closestTriangle];
+        if (results instanceof NearestCollisionResults) {
+            ((NearestCollisionResults) results).addCollision(distance,
+                    closestContact.x, closestContact.y, closestContact.z,
+                    normal.x, normal.y, normal.z, triangleIndex);
+        } else {
+            CollisionResult result = new CollisionResult(closestContact.clone(), distance);
+            result.setContactNormal(normal.clone());
+            result.setTriangleIndex(triangleIndex);
+            results.addCollision(result);
+        }
+        vars.release();
+        return 1;
+    }
+
+    /**
+     * Finds the triangles hit by a batch of rays, without allocating.
+     * <p>
+     * The rays are given in world space and their directions must be 
+     * normalized so that the distances are world distances.
+     * For each ray, the triangle found is written to <code>triangles</code>
+     * and its distance to <code>distances</code>. When the ray hits no 
+     * triangle within its distance, -1 is written to <code>triangles</code>
+     * and the distance is left unchanged.
+     * <p>
+     * The tree must have been constructed or read. Several threads can
+     * cast rays against the same tree at the same time.
+     * 
+     * @param origins the origins of the rays, x, y, z for each ray
+     * @param directions the normalized directions of the rays, x, y, z
+     * for each ray
+     * @param distances the maximum distance of each ray, 
+     * Float.POSITIVE_INFINITY for no limit, replaced by the distance of the
+     * triangle found
+     * @param triangles receives the index of the triangle found by each
+     * ray, or -1
+     * @param numRays the number of rays
+     * @param worldMatrix the world transform of the mesh, or null if
+     * the rays are in the space of the mesh
+     * @param anyHit false to find the closest triangle, true to stop at the 
+     * first triangle found within the distance, for line of sight tests
+     * @return the number of rays hitting a triangle
+     */
+    public int intersectRays(float[] origins, float[] directions,
+            float[] distances, int[] triangles, int numRays,
+            Matrix4f worldMatrix, boolean anyHit) {
+        TempVars vars = TempVars.get();
+        int[] nodeStack = vars.bihNodeStack;
+        float[] intervalStack = vars.bihIntervalStack;
+        Vector3f origin = vars.vect1;
+        Vector3f direction = vars.vect2;
+        Matrix4f inv = null;
+        if (worldMatrix != null) {
+            inv = vars.tempMat4.set(worldMatrix).invertLocal();
+        }
+
+        int hits = 0;
+        for (int ray = 0; ray < numRays; ray++) {
+            origin.set(origins[ray * 3], origins[ray * 3 + 1], origins[ray * 3 + 2]);
+            direction.set(directions[ray * 3], directions[ray * 3 + 1], directions[ray * 3 + 2]);
+            if (inv != null) {
+                // the direction is not normalized again, the distances 
+                // along it stay world distances
+                inv.mult(origin, origin);
+                inv.multNormal(direction, direction);
+            }
+            float ox = origin.x, oy = origin.y, oz = origin.z;
+            float dx = direction.x, dy = direction.y, dz = direction.z;
+
+            int closestTriangle = traceRay(nodeStack, intervalStack,
+                    ox, oy, oz, dx, dy, dz, distances[ray], anyHit,
+                    null, null, null, null, vars);
+
+            if (closestTriangle != -1) {
+                distances[ray] = intersectTriangle(closestTriangle, ox, oy, oz, dx, dy, dz);
+                triangles[ray] = triIndices[closestTriangle];
+                hits++;
+            } else {
+                triangles[ray] = -1;
+            }
+        }
+        vars.release();
+        return hits;
+    }
+
+    /**
+     * Finds the triangles hit by a ray given in the space of the mesh.
+     * Without results to store the collisions in, only the closest 
+     * triangle is searched for. With results, the collisions are added
+     * to them while the farthest collision kept limits the ray. 
+     * 
+     * @return the index of the closest triangle found or -1, or with
+     * results the number of collisions added to them
+     */
+    private int traceRay(int[] nodeStack, float[] intervalStack,
+            float ox, float oy, float oz, float dx, float dy, float dz,
+            float limit, boolean anyHit, NearestCollisionResults store,
+            Vector3f worldOrigin, Vector3f worldDirection, Matrix4f worldMatrix,
+            TempVars vars) {
+        int[] nodes = packedNodes;
+        float[] planes = packedPlanes;
+        float closest = limit;
+        if (store != null) {
+            closest = Math.min(closest, store.getMaxDistance());
+        }
+        int closestTriangle = -1;
+        int added = 0;
+
+        // clip the ray to the bounds of the triangles
+        float tMin = 0;
+        float tMax = closest;
+        for (int a = 0; a < 3; a++) {
+            float o = a == 0 ? ox : a == 1 ? oy : oz;
+            float invDirection = 1f / (a == 0 ? dx : a == 1 ? dy : dz);
+            float tNear = (bounds[a] - o) * invDirection;
+            float tFar = (bounds[a + 3] - o) * invDirection;
+            if (invDirection < 0) {
+                float tmp = tNear;
+                tNear = tFar;
+                tFar = tmp;
+            }
+            if (tNear > tMin) {
+                tMin = tNear;
+            }
+            if (tFar < tMax) {
+                tMax = tFar;
+            }
+        }
+
+        int stackSize = 0;
+        if (tMin <= tMax) {
+            nodeStack[0] = 0;
+            intervalStack[0] = tMin;
+            intervalStack[1] = tMax;
+            stackSize = 1;
+        }
+
+        stackloop:
+        while (stackSize > 0) {
+            stackSize--;
+            int node = nodeStack[stackSize];
+            tMin = intervalStack[stackSize * 2];
+            tMax = Math.min(intervalStack[stackSize * 2 + 1], closest);
+            if (tMax < tMin) {
+                continue;
+            }
+
+            int axis;
+            while ((axis = nodes[node * 3]) != 3) {
+                float o = axis == 0 ? ox : axis == 1 ? oy : oz;
+                float invDirection = 1f / (axis == 0 ? dx : axis == 1 ? dy : dz);
+
+                float tNearSplit = (planes[node * 2] - o) * invDirection;
+                float tFarSplit = (planes[node * 2 + 1] - o) * invDirection;
+                int nearNode = nodes[node * 3 + 1];
+                int farNode = nodes[node * 3 + 2];
+
+                if (invDirection < 0) {
+                    float tmpSplit = tNearSplit;
+                    tNearSplit = tFarSplit;
+                    tFarSplit = tmpSplit;
+
+                    int tmpNode = nearNode;
+                    nearNode = farNode;
+                    farNode = tmpNode;
+                }
+
+                if (tMin > tNearSplit && tMax < tFarSplit) {
+                    continue stackloop;
+                }
+
+                if (tMin > tNearSplit) {
+                    tMin = Math.max(tMin, tFarSplit);
+                    node = farNode;
+                } else if (tMax < tFarSplit) {
+                    tMax = Math.min(tMax, tNearSplit);
+                    node = nearNode;
+                } else {
+                    nodeStack[stackSize] = farNode;
+                    intervalStack[stackSize * 2] = Math.max(tMin, tFarSplit);
+                    intervalStack[stackSize * 2 + 1] = tMax;
+                    stackSize++;
+                    tMax = Math.min(tMax, tNearSplit);
+                    node = nearNode;
+                }
+            }
+
+            // a leaf
+            for (int i = nodes[node * 3 + 1], end = nodes[node * 3 + 2]; i <= end; i++) {
+                float t = intersectTriangle(i, ox, oy, oz, dx, dy, dz);
+                if (t <= closest && t != Float.POSITIVE_INFINITY) {
+                    closestTriangle = i;
+                    if (anyHit) {
+                        break stackloop;
+                    }
+                    if (store == null) {
+                        closest = t;
+                    } else if (addCollision(store, i, t, worldOrigin, worldDirection, worldMatrix, vars)) {
+                        closest = Math.min(limit, store.getMaxDistance());
+                        added++;
+                    }
+                }
+            }
+        }
+
+        return store != null ? added : closestTriangle;
+    }
+
+    /**
+     * Adds a collision with a triangle, computing its contact point and 
+     * normal in world space.
+     */
+    private boolean addCollision(NearestCollisionResults store, int index, float t,
+            Vector3f worldOrigin, Vector3f worldDirection, Matrix4f worldMatrix,
+            TempVars vars) {
+        if (!(t < store.getMaxDistance())) {
+            return false;
+        }
+        Vector3f v1 = vars.vect3, v2 = vars.vect4, v3 = vars.vect5;
+        getTriangle(index, v1, v2, v3);
+        if (worldMatrix != null) {
+            worldMatrix.mult(v1, v1);
+            worldMatrix.mult(v2, v2);
+            worldMatrix.mult(v3, v3);
+        }
+        Vector3f normal = Triangle.computeTriangleNormal(v1, v2, v3, vars.vect6);
+        return store.addCollision(t,
+                worldOrigin.x + worldDirection.x * t,
+                worldOrigin.y + worldDirection.y * t,
+                worldOrigin.z + worldDirection.z * t,
+                normal.x, normal.y, normal.z, triIndices[index]);
+    }
+
+    /**
+     * Collides a ray with the triangles, adding only the collisions closer
+     * than the ones already kept by the results.
+     */
+    private int collideWithRay(Ray r, Matrix4f worldMatrix,
+            NearestCollisionResults results) {
+        TempVars vars = TempVars.get();
+        Vector3f worldDirection = vars.vect7.set(r.getDirection()).normalizeLocal();
+        Vector3f origin = vars.vect1.set(r.getOrigin());
+        Vector3f direction = vars.vect2.set(worldDirection);
+        if (worldMatrix != null) {
+            // the direction is not normalized again, the distances 
+            // along it stay world distances
+            Matrix4f inv = vars.tempMat4.set(worldMatrix).invertLocal();
+            inv.mult(origin, origin);
+            inv.multNormal(direction, direction);
+        }
+
+        int added = traceRay(vars.bihNodeStack, vars.bihIntervalStack,
+                origin.x, origin.y, origin.z, direction.x, direction.y, direction.z,
+                r.getLimit(), false, results, r.getOrigin(), worldDirection, worldMatrix,
+                vars);
+        vars.release();
+        return added;
+    }
+
+    /**
+     * Intersects a ray with a triangle of the tree, the same way as 
+     * {@link Ray#intersects(com.jme3.math.Vector3f, com.jme3.math.Vector3f, com.jme3.math.Vector3f) }.
+     * 
+     * @return the distance along the direction of the ray, or 
+     * Float.POSITIVE_INFINITY
+     */
+    private float intersectTriangle(int index, float ox, float oy, float oz,
+            float dx, float dy, float dz) {
+        int p = index * 9;
+        float v0x = pointData[p], v0y = pointData[p + 1], v0z = pointData[p + 2];
+
+        float edge1X = pointData[p + 3] - v0x;
+        float edge1Y = pointData[p + 4] - v0y;
+        float edge1Z = pointData[p + 5] - v0z;
+
+        float edge2X = pointData[p + 6] - v0x;
+        float edge2Y = pointData[p + 7] - v0y;
+        float edge2Z = pointData[p + 8] - v0z;
+
+        float normX = ((edge1Y * edge2Z) - (edge1Z * edge2Y));
+        float normY = ((edge1Z * edge2X) - (edge1X * edge2Z));
+        float normZ = ((edge1X * edge2Y) - (edge1Y * edge2X));
+
+        float dirDotNorm = dx * normX + dy * normY + dz * normZ;
+
+        float diffX = ox - v0x;
+        float diffY = oy - v0y;
+        float diffZ = oz - v0z;
+
+        float sign;
+        if (dirDotNorm > FastMath.FLT_EPSILON) {
+            sign = 1;
+        } else if (dirDotNorm < -FastMath.FLT_EPSILON) {
+            sign = -1f;
+            dirDotNorm = -dirDotNorm;
+        } else {
+            // ray and triangle are parallel
+            return Float.POSITIVE_INFINITY;
+        }
+
+        float diffEdge2X = ((diffY * edge2Z) - (diffZ * edge2Y));
+        float diffEdge2Y = ((diffZ * edge2X) - (diffX * edge2Z));
+        float diffEdge2Z = ((diffX * edge2Y) - (diffY * edge2X));
+
+        float dirDotDiffxEdge2 = sign * (dx * diffEdge2X + dy * diffEdge2Y + dz * diffEdge2Z);
+        if (dirDotDiffxEdge2 < 0.0f) {
+            return Float.POSITIVE_INFINITY;
+        }
+
+        diffEdge2X = ((edge1Y * diffZ) - (edge1Z * diffY));
+        diffEdge2Y = ((edge1Z * diffX) - (edge1X * diffZ));
+        diffEdge2Z = ((edge1X * diffY) - (edge1Y * diffX));
+
+        float dirDotEdge1xDiff = sign * (dx * diffEdge2X + dy * diffEdge2Y + dz * diffEdge2Z);
+        if (dirDotEdge1xDiff < 0.0f || dirDotDiffxEdge2 + dirDotEdge1xDiff > dirDotNorm) {
+            return Float.POSITIVE_INFINITY;
+        }
+
+        float diffDotNorm = -sign * (diffX * normX + diffY * normY + diffZ * normZ);
+        if (diffDotNorm < 0.0f) {
+            return Float.POSITIVE_INFINITY;
+        }
+        return diffDotNorm / dirDotNorm;
+    }
+
     public int collideWith(Collidable other,
             Matrix4f worldMatrix,
             BoundingVolume worldBound,
@@ -453,10 +1079,15 @@ public class BIHTree implements CollisionData {
 
         if (other instanceof Ray) {
             Ray ray = (Ray) other;
+            if (results instanceof NearestCollisionResults) {
+                return collideWithRay(ray, worldMatrix, (NearestCollisionResults) results);
+            }
             return collideWithRay(ray, worldMatrix, worldBound, results);
         } else if (other instanceof BoundingVolume) {
             BoundingVolume bv = (BoundingVolume) other;
             return collideWithBoundingVolume(bv, worldMatrix, results);
+        } else if (other instanceof SweepSphere) {
+            return collideWithSweepSphere((SweepSphere) other, worldMatrix, results);
         } else {
             throw new UnsupportedCollisionException();
         }
@@ -465,7 +1096,18 @@ public class BIHTree implements CollisionData {
     public void write(JmeExporter ex) throws IOException {
         OutputCapsule oc = ex.getCapsule(this);
         oc.write(mesh, "mesh", null);
-        oc.write(root, "root", null);
+        if (root != null) {
+            // flat arrays are much smaller and faster to read than a
+            // savable per node
+            int numNodes = root.countNodes();
+            int[] axes = new int[numNodes];
+            int[] indices = new int[numNodes * 2];
+            float[] planes = new float[numNodes * 2];
+            root.flatten(0, axes, indices, planes);
+            oc.write(axes, "node_axes", null);
+            oc.write(indices, "node_indices", null);
+            oc.write(planes, "node_planes", null);
+        }
         oc.write(maxTrisPerNode, "tris_per_node", 0);
         oc.write(pointData, "points", null);
         oc.write(triIndices, "indices", null);
@@ -474,9 +1116,22 @@ public class BIHTree implements CollisionData {
     public void read(JmeImporter im) throws IOException {
         InputCapsule ic = im.getCapsule(this);
         mesh = (Mesh) ic.readSavable("mesh", null);
-        root = (BIHNode) ic.readSavable("root", null);
+        int[] axes = ic.readIntArray("node_axes", null);
+        int[] indices = ic.readIntArray("node_indices", null);
+        float[] planes = ic.readFloatArray("node_planes", null);
+        if (axes != null) {
+            root = BIHNode.unflatten(0, axes, indices, planes);
+        } else {
+            // written before the nodes were flattened
+            root = (BIHNode) ic.readSavable("root", null);
+        }
         maxTrisPerNode = ic.readInt("tris_per_node", 0);
         pointData = ic.readFloatArray("points", null);
         triIndices = ic.readIntArray("indices", null);
+        if (axes != null) {
+            pack(axes, indices, planes);
+        } else if (root != null) {
+            pack();
+        }
     }
 }
@@ -46,6 +46,7 @@ import com.jme3.renderer.RenderManager;
 import com.jme3.renderer.Renderer;
 import com.jme3.renderer.queue.RenderQueue.Bucket;
 import com.jme3.scene.Geometry;
+import com.jme3.scene.InstancedGeometry;
 import com.jme3.shader.Shader;
 import com.jme3.shader.Uniform;
 import com.jme3.shader.VarType;
@@ -829,7 +830,7 @@ public class Material implements CloneableSmartAsset, Cloneable, Savable {
             }
             vars.release();
             r.setShader(shader);
-            r.renderMesh(g.getMesh(), g.getLodLevel(), 1);
+            r.renderMesh(g.getMesh(), g.getLodLevel(), getInstanceCount(g));
         }
 
         if (isFirstLight && lightList.size() > 0) {
@@ -839,10 +840,31 @@ public class Material implements CloneableSmartAsset, Cloneable, Savable {
             lightColor.setValue(VarType.Vector4, ColorRGBA.BlackNoAlpha);
             lightPos.setValue(VarType.Vector4, nullDirLight);
             r.setShader(shader);
-            r.renderMesh(g.getMesh(), g.getLodLevel(), 1);
+            r.renderMesh(g.getMesh(), g.getLodLevel(), getInstanceCount(g));
         }
     }
 
+    /**
+     * Returns the number of instances to draw for the given geometry,
+     * 1 unless it is an {@link InstancedGeometry}.
+     */
+    private static int getInstanceCount(Geometry geom) {
+        if (geom instanceof InstancedGeometry) {
+            return ((InstancedGeometry) geom).getNumInstances();
+        }
+        return 1;
+    }
+
+    /**
+     * Returns true if the given technique reads the world matrices
+     * of the instances, see {@link InstancedGeometry}.
+     */
+    private boolean isInstancingEnabled(TechniqueDef techDef) {
+        return techDef.isUsingShaders()
+                && techDef.getShaderParamDefine("UseInstancing") != null
+                && getParam("UseInstancing") != null;
+    }
+
     /**
      * Select the technique to use for rendering this material.
      * <p>
@@ -1007,6 +1029,11 @@ public class Material implements CloneableSmartAsset, Cloneable, Savable {
             return;
         }
 
+        if (geom instanceof InstancedGeometry && !isInstancingEnabled(techDef)) {
+            // the instances would all be drawn at the origin
+            return;
+        }
+
         if (rm.getForcedRenderState() != null) {
             r.applyRenderState(rm.getForcedRenderState());
         } else {
@@ -1060,7 +1087,7 @@ public class Material implements CloneableSmartAsset, Cloneable, Savable {
             r.setShader(shader);
         }
 
-        r.renderMesh(geom.getMesh(), geom.getLodLevel(), 1);
+        r.renderMesh(geom.getMesh(), geom.getLodLevel(), getInstanceCount(geom));
     }
 
     public void write(JmeExporter ex) throws IOException {
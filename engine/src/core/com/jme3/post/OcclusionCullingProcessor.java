@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.post;
+
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.OcclusionBuffer;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.ViewPort;
+import com.jme3.renderer.queue.RenderQueue;
+import com.jme3.scene.Geometry;
+import com.jme3.texture.FrameBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Processor that culls spatials hidden behind occluders.
+ * <p>
+ * Before the scene is queued, the designated occluder geometries are 
+ * rasterized into a low resolution {@link OcclusionBuffer} in software.
+ * While the scene is queued, the {@link RenderManager} then skips every 
+ * spatial whose bounds are completely hidden by the occluders, together with
+ * all of its children.
+ * <p>
+ * Good occluders are large, simple meshes like walls and floors of 
+ * indoor levels, they may be invisible low polygon versions of the actual
+ * geometry. Occluders must be part of a scene graph so their world 
+ * transforms are up to date, use {@link com.jme3.scene.Spatial.CullHint#Always} 
+ * to keep invisible occluders from being rendered.
+ */
+public class OcclusionCullingProcessor implements SceneProcessor {
+
+    private final OcclusionBuffer buffer;
+    private final ArrayList<Geometry> occluders = new ArrayList<Geometry>();
+    private ViewPort vp;
+    private boolean enabled = true;
+
+    /**
+     * Creates an occlusion culling processor with a 256x128 occlusion buffer.
+     */
+    public OcclusionCullingProcessor() {
+        this(256, 128);
+    }
+
+    /**
+     * Creates an occlusion culling processor.
+     *
+     * @param width The width of the occlusion buffer
+     * @param height The height of the occlusion buffer
+     */
+    public OcclusionCullingProcessor(int width, int height) {
+        buffer = new OcclusionBuffer(width, height);
+    }
+
+    /**
+     * Adds an occluder.
+     *
+     * @param occluder The geometry to rasterize into the occlusion buffer
+     */
+    public void addOccluder(Geometry occluder) {
+        if (occluder == null) {
+            throw new IllegalArgumentException("Occluder cannot be null.");
+        }
+        occluders.add(occluder);
+    }
+
+    /**
+     * Removes an occluder.
+     *
+     * @param occluder The occluder to remove
+     */
+    public void removeOccluder(Geometry occluder) {
+        occluders.remove(occluder);
+    }
+
+    /**
+     * @return The list of occluders
+     */
+    public List<Geometry> getOccluders() {
+        return occluders;
+    }
+
+    /**
+     * @return The occlusion buffer used by this processor, it contains the
+     * occluders and statistics of the last rendered frame.
+     */
+    public OcclusionBuffer getOcclusionBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Enables or disables occlusion culling.
+     *
+     * @param enabled True to enable occlusion culling.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (vp != null) {
+            vp.setOcclusionBuffer(enabled ? buffer : null);
+        }
+    }
+
+    /**
+     * @return True if occlusion culling is enabled.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void initialize(RenderManager rm, ViewPort vp) {
+        this.vp = vp;
+        if (enabled) {
+            vp.setOcclusionBuffer(buffer);
+        }
+    }
+
+    public void reshape(ViewPort vp, int w, int h) {
+    }
+
+    public boolean isInitialized() {
+        return vp != null;
+    }
+
+    public void preFrame(float tpf) {
+        if (!enabled) {
+            return;
+        }
+        Camera cam = vp.getCamera();
+        buffer.clear(cam);
+        for (int i = 0; i < occluders.size(); i++) {
+            Geometry occluder = occluders.get(i);
+            cam.setPlaneState(0);
+            if (cam.contains(occluder.getWorldBound()) != Camera.FrustumIntersect.Outside) {
+                buffer.rasterize(occluder);
+            }
+        }
+    }
+
+    public void postQueue(RenderQueue rq) {
+    }
+
+    public void postFrame(FrameBuffer out) {
+    }
+
+    public void cleanup() {
+        if (vp != null && vp.getOcclusionBuffer() == buffer) {
+            vp.setOcclusionBuffer(null);
+        }
+        vp = null;
+    }
+}
@@ -120,6 +120,18 @@ public class Camera implements Savable, Cloneable {
      * MAX_WORLD_PLANES holds the maximum planes allowed by the system.
      */
     private static final int MAX_WORLD_PLANES = 6;
+    /**
+     * Result of {@link #contains(float[], float[], int, int, int, int[]) }
+     * for boxes that are outside of the frustum. For the other boxes the
+     * result holds the planes that the box intersects, a result of 0 means
+     * the box is completely inside.
+     */
+    public static final int OUTSIDE_MASK = 1 << FRUSTUM_PLANES;
+    /**
+     * Mask of all the frustum planes, a plane state equal to this mask
+     * means that all planes have been checked.
+     */
+    public static final int ALL_PLANES_MASK = (1 << FRUSTUM_PLANES) - 1;
     /**
      * Camera's location
      */
@@ -200,6 +212,10 @@ public class Camera implements Savable, Cloneable {
     protected Matrix4f projectionMatrix = new Matrix4f();
     protected Matrix4f viewProjectionMatrix = new Matrix4f();
     private BoundingBox guiBounding = new BoundingBox();
+    /**
+     * Scratch storage for the planes tested by the batch contains() method.
+     */
+    private float[] cullPlanes = new float[FRUSTUM_PLANES * 5];
     /** The camera's name. */
     protected String name;
 
@@ -277,6 +293,7 @@ public class Camera implements Savable, Cloneable {
             cam.projectionMatrix = projectionMatrix.clone();
             cam.viewProjectionMatrix = viewProjectionMatrix.clone();
             cam.guiBounding = (BoundingBox) guiBounding.clone();
+            cam.cullPlanes = new float[FRUSTUM_PLANES * 5];
 
             cam.update();
 
@@ -1049,6 +1066,125 @@ public class Camera implements Savable, Cloneable {
         return rVal;
     }
 
+    /**
+     * Tests a batch of axis aligned bounding boxes against the frustum.
+     *
+     * @see #contains(float[], float[], int, int, int, int[], byte[])
+     */
+    public int contains(float[] centers, float[] extents, int offset, int count,
+            int planeState, int[] results) {
+        return contains(centers, extents, offset, count, planeState, results, null);
+    }
+
+    /**
+     * Tests a batch of axis aligned bounding boxes against the frustum.
+     * <p>
+     * The boxes are given as arrays of centers and extents, three floats
+     * per box, so that flattened geometry lists like batches or terrain
+     * patches can be culled in one tight loop without a virtual
+     * {@link BoundingVolume#whichSide(com.jme3.math.Plane) } call per box and plane.
+     * <p>
+     * Planes that are set in the <code>planeState</code> argument are
+     * skipped, pass the plane state of the parent bound (as obtained from
+     * {@link #getPlaneState() } after the parent was tested with
+     * {@link #contains(com.jme3.bounding.BoundingVolume) }) to avoid testing
+     * planes the parent is already completely inside of.
+     * <p>
+     * Like {@link BoundingVolume#getCheckPlane() }, the optional
+     * <code>checkPlanes</code> array remembers the plane that last culled
+     * each box. That plane is tested first on the next call, so boxes that
+     * stay outside between frames are usually rejected by a single test.
+     * <p>
+     * For every box, the result is a bit mask of the planes the box
+     * intersects, or {@link #OUTSIDE_MASK} if the box is outside
+     * of the frustum. A box with a result of 0 is completely inside.
+     * This matches the result of {@link #contains(com.jme3.bounding.BoundingVolume) }
+     * for a {@link com.jme3.bounding.BoundingBox} with the same plane state.
+     *
+     * @param centers The box centers, x, y, z for every box.
+     * @param extents The box extents, x, y, z for every box.
+     * @param offset The index of the first box to test.
+     * @param count The number of boxes to test.
+     * @param planeState The planes to skip, 0 to test all of them.
+     * @param results Receives the result of every box, the result of the
+     * box at <code>offset + i</code> is stored at <code>results[i]</code>.
+     * @param checkPlanes The plane to test first for every box, indexed
+     * like the boxes and updated for the boxes found outside, or null.
+     * @return The number of boxes that are not outside of the frustum.
+     */
+    public int contains(float[] centers, float[] extents, int offset, int count,
+            int planeState, int[] results, byte[] checkPlanes) {
+        // copy the planes to test into locals so that the inner loop
+        // does not touch any Plane or Vector3f objects
+        float[] planes = cullPlanes;
+        int numPlanes = 0;
+        for (int planeId = 0; planeId < FRUSTUM_PLANES; planeId++) {
+            if ((planeState & (1 << planeId)) != 0) {
+                continue;
+            }
+            Plane plane = worldPlane[planeId];
+            Vector3f normal = plane.getNormal();
+            int k = numPlanes * 5;
+            planes[k] = normal.x;
+            planes[k + 1] = normal.y;
+            planes[k + 2] = normal.z;
+            planes[k + 3] = plane.getConstant();
+            planes[k + 4] = planeId;
+            numPlanes++;
+        }
+
+        int visible = 0;
+        for (int i = 0, j = offset * 3; i < count; i++, j += 3) {
+            float cx = centers[j], cy = centers[j + 1], cz = centers[j + 2];
+            float ex = extents[j], ey = extents[j + 1], ez = extents[j + 2];
+
+            int result = 0;
+            int first = checkPlanes != null ? checkPlanes[offset + i] : 0;
+            if ((planeState & (1 << first)) == 0) {
+                // test the plane that culled this box the last time first
+                Plane plane = worldPlane[first];
+                Vector3f normal = plane.getNormal();
+                float radius = Math.abs(ex * normal.x) + Math.abs(ey * normal.y)
+                        + Math.abs(ez * normal.z);
+                float distance = cx * normal.x + cy * normal.y + cz * normal.z
+                        - plane.getConstant();
+                if (distance < -radius) {
+                    results[i] = OUTSIDE_MASK;
+                    continue;
+                }
+                if (distance <= radius) {
+                    result = 1 << first;
+                }
+            }
+
+            for (int k = 0; k < numPlanes * 5; k += 5) {
+                int planeId = (int) planes[k + 4];
+                if (planeId == first) {
+                    continue;
+                }
+                float nx = planes[k], ny = planes[k + 1], nz = planes[k + 2];
+                float radius = Math.abs(ex * nx) + Math.abs(ey * ny) + Math.abs(ez * nz);
+                float distance = cx * nx + cy * ny + cz * nz - planes[k + 3];
+                if (distance < -radius) {
+                    result = OUTSIDE_MASK;
+                    if (checkPlanes != null) {
+                        checkPlanes[offset + i] = (byte) planeId;
+                    }
+                    break;
+                }
+                if (distance <= radius) {
+                    result |= 1 << planeId;
+                }
+            }
+
+            results[i] = result;
+            if (result != OUTSIDE_MASK) {
+                visible++;
+            }
+        }
+        return visible;
+    }
+
     /**
      * <code>containsGui</code> tests a bounding volume against the ortho
      * bounding box of the camera. A bounding box spanning from
@@ -215,6 +215,10 @@ public enum Caps {
     NonPowerOfTwoTextures,
 
     /// Vertex Buffer features
+    /**
+     * Supports instanced draw calls and per-instance vertex attributes,
+     * see {@link com.jme3.scene.VertexBuffer#setInstanceSpan(int) }
+     */
     MeshInstancing,
 
     /**
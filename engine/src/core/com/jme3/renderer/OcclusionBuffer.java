@@ -0,0 +1,405 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.renderer;
+
+import com.jme3.bounding.BoundingBox;
+import com.jme3.bounding.BoundingSphere;
+import com.jme3.bounding.BoundingVolume;
+import com.jme3.math.Matrix4f;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Mesh.Mode;
+import com.jme3.scene.VertexBuffer.Type;
+import com.jme3.scene.mesh.IndexBuffer;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * <code>OcclusionBuffer</code> is a low resolution depth buffer that is
+ * rendered in software.
+ * <p>
+ * Occluder meshes are rasterized into the buffer with
+ * {@link #rasterize(com.jme3.scene.Geometry) }, after which bounding volumes
+ * can be tested against it with {@link #isOccluded(com.jme3.bounding.BoundingVolume) }.
+ * A bounding volume is occluded if all the pixels its screen rectangle
+ * covers hold a depth that is closer than the closest point of the volume.
+ * <p>
+ * Triangles that cross the near plane are not rasterized, and bounding
+ * volumes that cross it are never occluded. The occluders are sampled at
+ * the pixel centers, with the farthest depth they have within the pixel,
+ * so a pixel may be marked covered while part of it is not. To make up
+ * for it, a bounding volume is only occluded if the pixels around its
+ * screen rectangle are covered as well: in effect the occluders are
+ * shrunk by one pixel, and an object peeking out from behind their 
+ * edges is not culled. Objects only visible through gaps between 
+ * occluders that are narrower than about a pixel may still be culled.
+ * <p>
+ * The buffer is written in pure Java and does not need any
+ * graphics hardware support.
+ *
+ * @see com.jme3.post.OcclusionCullingProcessor
+ */
+public class OcclusionBuffer {
+
+    /**
+     * Fraction of the distance to the camera that a bounding volume must
+     * be behind the occluders to be occluded, so occluders are not culled
+     * by their own bounds because of rounding errors.
+     */
+    private static final float DEPTH_BIAS = 0.001f;
+
+    private final int width;
+    private final int height;
+    private final float[] depth;
+    private final Matrix4f viewProjection = new Matrix4f();
+    private final Matrix4f transform = new Matrix4f();
+    private float[] vertices = new float[3 * 64];
+    private boolean empty = true;
+    private int triangleCount;
+    private int testCount;
+    private int occludedCount;
+
+    /**
+     * Creates a new occlusion buffer with the given resolution.
+     *
+     * @param width The width of the buffer in pixels
+     * @param height The height of the buffer in pixels
+     */
+    public OcclusionBuffer(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Occlusion buffer size must be positive");
+        }
+        this.width = width;
+        this.height = height;
+        this.depth = new float[width * height];
+        Arrays.fill(depth, Float.POSITIVE_INFINITY);
+    }
+
+    /**
+     * @return The width of the buffer in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return The height of the buffer in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the depth values of the buffer, row by row starting from the
+     * bottom of the screen. Depth values are in normalized device
+     * coordinates, pixels without any occluder hold positive infinity.
+     *
+     * @return The depth values of the buffer
+     */
+    public float[] getDepthData() {
+        return depth;
+    }
+
+    /**
+     * Clears the buffer and sets the camera from which the occluders will
+     * be rasterized and the bounding volumes tested.
+     *
+     * @param cam The camera to use
+     */
+    public void clear(Camera cam) {
+        clear(cam.getViewProjectionMatrix());
+    }
+
+    /**
+     * Clears the buffer and sets the view projection matrix with which the
+     * occluders will be rasterized and the bounding volumes tested.
+     *
+     * @param viewProjectionMatrix The view projection matrix to use
+     */
+    public void clear(Matrix4f viewProjectionMatrix) {
+        viewProjection.set(viewProjectionMatrix);
+        if (!empty) {
+            Arrays.fill(depth, Float.POSITIVE_INFINITY);
+        }
+        empty = true;
+        triangleCount = 0;
+        testCount = 0;
+        occludedCount = 0;
+    }
+
+    /**
+     * @return True if nothing has been rasterized since the last clear.
+     */
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * @return The number of triangles rasterized since the last clear.
+     */
+    public int getTriangleCount() {
+        return triangleCount;
+    }
+
+    /**
+     * @return The number of bounding volumes tested since the last clear.
+     */
+    public int getTestCount() {
+        return testCount;
+    }
+
+    /**
+     * @return The number of bounding volumes found occluded since the
+     * last clear.
+     */
+    public int getOccludedCount() {
+        return occludedCount;
+    }
+
+    /**
+     * Rasterizes the given geometry at its world transform.
+     *
+     * @param occluder The geometry to rasterize
+     */
+    public void rasterize(Geometry occluder) {
+        rasterize(occluder.getMesh(), occluder.getWorldMatrix());
+    }
+
+    /**
+     * Rasterizes the triangles of the given mesh into the buffer.
+     * Meshes that do not consist of triangles are ignored.
+     *
+     * @param mesh The mesh to rasterize
+     * @param worldMatrix The world matrix of the mesh
+     */
+    public void rasterize(Mesh mesh, Matrix4f worldMatrix) {
+        Mode mode = mesh.getMode();
+        if (mode != Mode.Triangles && mode != Mode.TriangleStrip
+                && mode != Mode.TriangleFan) {
+            return;
+        }
+        FloatBuffer positions = mesh.getFloatBuffer(Type.Position);
+        if (positions == null) {
+            return;
+        }
+
+        // transform all vertices into screen space once, 
+        // w is negative for vertices in front of the near plane
+        viewProjection.mult(worldMatrix, transform);
+        Matrix4f m = transform;
+        int vertexCount = mesh.getVertexCount();
+        if (vertices.length < vertexCount * 3) {
+            vertices = new float[vertexCount * 3];
+        }
+        float[] v = vertices;
+        for (int i = 0; i < vertexCount; i++) {
+            float x = positions.get(i * 3);
+            float y = positions.get(i * 3 + 1);
+            float z = positions.get(i * 3 + 2);
+            float cx = m.m00 * x + m.m01 * y + m.m02 * z + m.m03;
+            float cy = m.m10 * x + m.m11 * y + m.m12 * z + m.m13;
+            float cz = m.m20 * x + m.m21 * y + m.m22 * z + m.m23;
+            float cw = m.m30 * x + m.m31 * y + m.m32 * z + m.m33;
+            if (cw <= 0f || cz < -cw) {
+                v[i * 3 + 2] = Float.NaN;
+            } else {
+                float invW = 1f / cw;
+                v[i * 3] = (cx * invW * 0.5f + 0.5f) * width;
+                v[i * 3 + 1] = (cy * invW * 0.5f + 0.5f) * height;
+                v[i * 3 + 2] = cz * invW;
+            }
+        }
+
+        IndexBuffer indices = mesh.getIndicesAsList();
+        int indexCount = indices.size();
+        for (int i = 0; i + 2 < indexCount; i += 3) {
+            int i0 = indices.get(i) * 3;
+            int i1 = indices.get(i + 1) * 3;
+            int i2 = indices.get(i + 2) * 3;
+            float z0 = v[i0 + 2], z1 = v[i1 + 2], z2 = v[i2 + 2];
+            if (z0 != z0 || z1 != z1 || z2 != z2) {
+                // crosses the near plane
+                continue;
+            }
+            rasterizeTriangle(v[i0], v[i0 + 1], z0,
+                    v[i1], v[i1 + 1], z1,
+                    v[i2], v[i2 + 1], z2);
+        }
+    }
+
+    private void rasterizeTriangle(float x0, float y0, float z0,
+            float x1, float y1, float z1,
+            float x2, float y2, float z2) {
+        float area = (x1 - x0) * (y2 - y0) - (x2 - x0) * (y1 - y0);
+        if (area == 0f) {
+            return;
+        }
+        if (area < 0f) {
+            // rasterize both sides, swap to counter clockwise order
+            float t = x1; x1 = x2; x2 = t;
+            t = y1; y1 = y2; y2 = t;
+            t = z1; z1 = z2; z2 = t;
+            area = -area;
+        }
+
+        // pixels are sampled at their centers
+        int minX = Math.max(0, (int) Math.ceil(Math.min(x0, Math.min(x1, x2)) - 0.5f));
+        int maxX = Math.min(width - 1, (int) Math.floor(Math.max(x0, Math.max(x1, x2)) - 0.5f));
+        int minY = Math.max(0, (int) Math.ceil(Math.min(y0, Math.min(y1, y2)) - 0.5f));
+        int maxY = Math.min(height - 1, (int) Math.floor(Math.max(y0, Math.max(y1, y2)) - 0.5f));
+        if (minX > maxX || minY > maxY) {
+            return;
+        }
+
+        triangleCount++;
+        empty = false;
+
+        // edge functions and their steps along x and y, the depth is
+        // interpolated with the normalized barycentric coordinates
+        float invArea = 1f / area;
+        float a0 = (y1 - y2), b0 = (x2 - x1);
+        float a1 = (y2 - y0), b1 = (x0 - x2);
+        float a2 = (y0 - y1), b2 = (x1 - x0);
+        float px = minX + 0.5f, py = minY + 0.5f;
+        float w0Row = b0 * (py - y1) + a0 * (px - x1);
+        float w1Row = b1 * (py - y2) + a1 * (px - x2);
+        float w2Row = b2 * (py - y0) + a2 * (px - x0);
+        float zRow = (w0Row * z0 + w1Row * z1 + w2Row * z2) * invArea;
+        float zStepX = (a0 * z0 + a1 * z1 + a2 * z2) * invArea;
+        float zStepY = (b0 * z0 + b1 * z1 + b2 * z2) * invArea;
+
+        // write the farthest depth of the triangle within the pixel
+        zRow += 0.5f * (Math.abs(zStepX) + Math.abs(zStepY));
+
+        for (int y = minY; y <= maxY; y++) {
+            float w0 = w0Row, w1 = w1Row, w2 = w2Row, z = zRow;
+            int index = y * width + minX;
+            for (int x = minX; x <= maxX; x++, index++) {
+                if (w0 >= 0f && w1 >= 0f && w2 >= 0f && z < depth[index]) {
+                    depth[index] = z;
+                }
+                w0 += a0;
+                w1 += a1;
+                w2 += a2;
+                z += zStepX;
+            }
+            w0Row += b0;
+            w1Row += b1;
+            w2Row += b2;
+            zRow += zStepY;
+        }
+    }
+
+    /**
+     * Tests if the given bounding volume is hidden behind the rasterized
+     * occluders.
+     *
+     * @param bound The bounding volume to test
+     * @return True if the volume is completely occluded, false if it may
+     * be visible.
+     */
+    public boolean isOccluded(BoundingVolume bound) {
+        if (empty || bound == null) {
+            return false;
+        }
+
+        float ex, ey, ez;
+        Vector3f center = bound.getCenter();
+        if (bound instanceof BoundingBox) {
+            BoundingBox box = (BoundingBox) bound;
+            ex = box.getXExtent();
+            ey = box.getYExtent();
+            ez = box.getZExtent();
+        } else if (bound instanceof BoundingSphere) {
+            ex = ey = ez = ((BoundingSphere) bound).getRadius();
+        } else {
+            return false;
+        }
+        testCount++;
+
+        // project the corners of the box
+        Matrix4f m = viewProjection;
+        float minX = Float.POSITIVE_INFINITY, maxX = Float.NEGATIVE_INFINITY;
+        float minY = Float.POSITIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+        float minZ = Float.POSITIVE_INFINITY;
+        for (int i = 0; i < 8; i++) {
+            float x = center.x + ((i & 1) == 0 ? -ex : ex);
+            float y = center.y + ((i & 2) == 0 ? -ey : ey);
+            float z = center.z + ((i & 4) == 0 ? -ez : ez);
+            float cw = m.m30 * x + m.m31 * y + m.m32 * z + m.m33;
+            float cz = m.m20 * x + m.m21 * y + m.m22 * z + m.m23;
+            if (cw <= 0f || cz < -cw) {
+                // crosses the near plane
+                return false;
+            }
+            float invW = 1f / cw;
+            float sx = (m.m00 * x + m.m01 * y + m.m02 * z + m.m03) * invW;
+            float sy = (m.m10 * x + m.m11 * y + m.m12 * z + m.m13) * invW;
+            minX = Math.min(minX, sx);
+            maxX = Math.max(maxX, sx);
+            minY = Math.min(minY, sy);
+            maxY = Math.max(maxY, sy);
+            minZ = Math.min(minZ, cz * invW);
+        }
+
+        // every pixel touched by the screen rectangle must be covered
+        int x0 = (int) Math.floor((minX * 0.5f + 0.5f) * width);
+        int x1 = (int) Math.floor((maxX * 0.5f + 0.5f) * width);
+        int y0 = (int) Math.floor((minY * 0.5f + 0.5f) * height);
+        int y1 = (int) Math.floor((maxY * 0.5f + 0.5f) * height);
+        if (x1 < 0 || x0 >= width || y1 < 0 || y0 >= height) {
+            // outside of the screen, leave it to frustum culling
+            return false;
+        }
+
+        // and so must the pixels around it: a pixel whose center is 
+        // covered may be partly uncovered, the volume could show there
+        x0 = Math.max(0, x0 - 1);
+        x1 = Math.min(width - 1, x1 + 1);
+        y0 = Math.max(0, y0 - 1);
+        y1 = Math.min(height - 1, y1 + 1);
+
+        // 1 - z is about proportional to the inverse distance
+        float limit = minZ - (1f - minZ) * DEPTH_BIAS;
+        for (int y = y0; y <= y1; y++) {
+            int index = y * width + x0;
+            for (int x = x0; x <= x1; x++, index++) {
+                if (depth[index] >= limit) {
+                    return false;
+                }
+            }
+        }
+        occludedCount++;
+        return true;
+    }
+}
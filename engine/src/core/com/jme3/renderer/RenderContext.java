@@ -264,6 +264,56 @@ public class RenderContext {
      */
     public boolean useVertexColor;
 
+    /**
+     * Returns true if the given render state is already applied, that is
+     * if {@link Renderer#applyRenderState(com.jme3.material.RenderState) }
+     * would not have to change any GL state for it.
+     * <p>
+     * Every field set by <code>applyRenderState</code> is compared:
+     * wireframe, depth test, alpha test and fall off, depth write,
+     * color write, point sprite, polygon offset, face culling, 
+     * blending and stencil.
+     * 
+     * @param state The render state to compare
+     * @return True if applying the state would be redundant
+     */
+    public boolean isApplied(RenderState state){
+        if (state.isWireframe() != wireframe
+         || state.isDepthTest() != depthTestEnabled
+         || state.isDepthWrite() != depthWriteEnabled
+         || state.isColorWrite() != colorWriteEnabled
+         || state.isPointSprite() != pointSprite
+         || state.getFaceCullMode() != cullMode
+         || state.getBlendMode() != blendMode
+         || state.isPolyOffset() != polyOffsetEnabled)
+            return false;
+
+        if (state.isAlphaTest()){
+            if (state.getAlphaFallOff() != alphaTestFallOff)
+                return false;
+        }else if (alphaTestFallOff != 0){
+            return false;
+        }
+
+        if (polyOffsetEnabled
+         && (state.getPolyOffsetFactor() != polyOffsetFactor
+          || state.getPolyOffsetUnits() != polyOffsetUnits))
+            return false;
+
+        if (state.isStencilTest() != stencilTest
+         || state.getFrontStencilStencilFailOperation() != frontStencilStencilFailOperation
+         || state.getFrontStencilDepthFailOperation() != frontStencilDepthFailOperation
+         || state.getFrontStencilDepthPassOperation() != frontStencilDepthPassOperation
+         || state.getBackStencilStencilFailOperation() != backStencilStencilFailOperation
+         || state.getBackStencilDepthFailOperation() != backStencilDepthFailOperation
+         || state.getBackStencilDepthPassOperation() != backStencilDepthPassOperation
+         || state.getFrontStencilFunction() != frontStencilFunction
+         || state.getBackStencilFunction() != backStencilFunction)
+            return false;
+
+        return true;
+    }
+
     /**
      * Reset the RenderContext to default GL state
      */
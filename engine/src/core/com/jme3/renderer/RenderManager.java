@@ -644,7 +644,7 @@ public class RenderManager {
     private void renderSubScene(Spatial scene, ViewPort vp) {
 
         // check culling first.
-        if (!scene.checkCulling(vp.getCamera())) {
+        if (!scene.checkCulling(vp.getCamera()) || isOccluded(scene, vp)) {
             // move on to shadow-only render
             if ((scene.getShadowMode() != RenderQueue.ShadowMode.Off || scene instanceof Node) && scene.getCullHint() != Spatial.CullHint.Always) {
                 renderShadow(scene, vp.getQueue());
@@ -681,6 +681,19 @@ public class RenderManager {
         }
     }
 
+    // tests the spatial against the viewport's occlusion buffer, if any
+    private boolean isOccluded(Spatial scene, ViewPort vp) {
+        OcclusionBuffer occlusionBuffer = vp.getOcclusionBuffer();
+        if (occlusionBuffer == null || occlusionBuffer.isEmpty()) {
+            return false;
+        }
+        if (scene.getCullHint() == Spatial.CullHint.Never
+                || scene.getQueueBucket() == Bucket.Gui) {
+            return false;
+        }
+        return occlusionBuffer.isOccluded(scene.getWorldBound());
+    }
+
     /**
      * Returns the camera currently used for rendering.
      * <p>
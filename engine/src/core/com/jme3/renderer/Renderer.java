@@ -60,6 +60,15 @@ public interface Renderer {
      */
     public EnumSet<Caps> getCaps();
 
+    /**
+     * Get the maximum number of float components the uniforms of a
+     * vertex shader can hold, a 4x4 matrix takes 16 components.
+     * 
+     * @return The maximum number of vertex uniform components, 0 if the
+     * renderer does not support shaders.
+     */
+    public int getMaxVertexUniformComponents();
+
     /**
      * The statistics allow tracking of how data
      * per frame, such as number of objects rendered, number of triangles, etc.
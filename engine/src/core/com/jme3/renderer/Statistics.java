@@ -31,6 +31,7 @@
  */
 package com.jme3.renderer;
 
+import com.jme3.renderer.queue.RenderQueue.Bucket;
 import com.jme3.scene.Mesh;
 import com.jme3.shader.Shader;
 import com.jme3.texture.FrameBuffer;
@@ -53,6 +54,11 @@ public class Statistics {
     protected int numTextureBinds;
     protected int numFboSwitches;
     protected int numUniformsSet;
+    protected int numUniformsSkipped;
+    protected int numRenderStates;
+    protected int numRedundantRenderStates;
+    protected int[] numBucketObjects = new int[Bucket.values().length];
+    protected Bucket currentBucket;
 
     protected int memoryShaders;
     protected int memoryFrameBuffers;
@@ -86,7 +92,18 @@ public class Statistics {
 
                              "FrameBuffers (S)",
                              "FrameBuffers (F)",
-                             "FrameBuffers (M)" };
+                             "FrameBuffers (M)",
+
+                             "Uniforms (Skipped)",
+
+                             "RenderStates",
+                             "RenderStates (Redundant)",
+
+                             "Objects (Opaque)",
+                             "Objects (Transparent)",
+                             "Objects (Translucent)",
+                             "Objects (Sky)",
+                             "Objects (Gui)" };
 
     }
 
@@ -114,6 +131,17 @@ public class Statistics {
         data[10] = numFboSwitches;
         data[11] = fbosUsed.size();
         data[12] = memoryFrameBuffers;
+
+        data[13] = numUniformsSkipped;
+
+        data[14] = numRenderStates;
+        data[15] = numRedundantRenderStates;
+
+        data[16] = numBucketObjects[Bucket.Opaque.ordinal()];
+        data[17] = numBucketObjects[Bucket.Transparent.ordinal()];
+        data[18] = numBucketObjects[Bucket.Translucent.ordinal()];
+        data[19] = numBucketObjects[Bucket.Sky.ordinal()];
+        data[20] = numBucketObjects[Bucket.Gui.ordinal()];
     }
 
     /**
@@ -122,6 +150,8 @@ public class Statistics {
      */
     public void onMeshDrawn(Mesh mesh, int lod){
         numObjects ++;
+        if (currentBucket != null)
+            numBucketObjects[currentBucket.ordinal()] ++;
         numTriangles += mesh.getTriangleCount(lod);
         numVertices += mesh.getVertexCount();
     }
@@ -149,6 +179,36 @@ public class Statistics {
         numUniformsSet ++;
     }
 
+    /**
+     * Called by the Renderer when a uniform did not have to be set
+     * because its value did not change.
+     */
+    public void onUniformSkipped(){
+        numUniformsSkipped ++;
+    }
+
+    /**
+     * Called by the Renderer when a render state has been applied.
+     * 
+     * @param redundant If true, the render state was already applied and
+     * did not require any state change
+     */
+    public void onRenderStateApplied(boolean redundant){
+        numRenderStates ++;
+        if (redundant)
+            numRedundantRenderStates ++;
+    }
+
+    /**
+     * Called by the RenderQueue before and after a bucket is rendered.
+     * Meshes drawn in between are counted for that bucket.
+     * 
+     * @param bucket The bucket being rendered, or null when done
+     */
+    public void onBucketRender(Bucket bucket){
+        currentBucket = bucket;
+    }
+
     /**
      * Called by the Renderer when a texture has been set.
      * 
@@ -198,6 +258,11 @@ public class Statistics {
         numTextureBinds = 0;
         numFboSwitches = 0;
         numUniformsSet = 0;
+        numUniformsSkipped = 0;
+        numRenderStates = 0;
+        numRedundantRenderStates = 0;
+        for (int i = 0; i < numBucketObjects.length; i++)
+            numBucketObjects[i] = 0;
     }
 
     /**
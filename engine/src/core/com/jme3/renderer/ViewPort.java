@@ -71,6 +71,7 @@ public class ViewPort {
     protected final ArrayList<Spatial> sceneList = new ArrayList<Spatial>();
     protected final ArrayList<SceneProcessor> processors = new ArrayList<SceneProcessor>();
     protected FrameBuffer out = null;
+    protected OcclusionBuffer occlusionBuffer = null;
 
     protected final ColorRGBA backColor = new ColorRGBA(0,0,0,0);
     protected boolean clearDepth = false, clearColor = false, clearStencil = false;
@@ -273,6 +274,33 @@ public class ViewPort {
         this.out = out;
     }
 
+    /**
+     * Returns the occlusion buffer that the attached scenes are tested
+     * against.
+     * 
+     * @return the occlusion buffer, or null if occlusion culling is disabled.
+     * 
+     * @see #setOcclusionBuffer(com.jme3.renderer.OcclusionBuffer) 
+     */
+    public OcclusionBuffer getOcclusionBuffer() {
+        return occlusionBuffer;
+    }
+
+    /**
+     * Sets the occlusion buffer for the ViewPort.
+     * <p>
+     * When set, the {@link RenderManager} tests the bounds of every spatial
+     * that passed frustum culling against the buffer, and occluded spatials 
+     * are not queued for rendering. The buffer is usually managed by an 
+     * {@link com.jme3.post.OcclusionCullingProcessor}.
+     * 
+     * @param occlusionBuffer The occlusion buffer, or null to disable 
+     * occlusion culling.
+     */
+    public void setOcclusionBuffer(OcclusionBuffer occlusionBuffer) {
+        this.occlusionBuffer = occlusionBuffer;
+    }
+
     /**
      * Returns the camera which renders the attached scenes.
      * 
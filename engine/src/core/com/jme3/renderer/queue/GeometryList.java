@@ -51,6 +51,12 @@ public class GeometryList {
     private Geometry[] geometries2;
     private int size;
     private GeometryComparator comparator;
+    private boolean useSortKeys = false;
+    private long[] keys;
+    private long[] keys2;
+    private int[] indices;
+    private int[] indices2;
+    private int[] radixCounts;
 
     /**
      * Initializes the GeometryList to use the given {@link GeometryComparator}
@@ -73,6 +79,27 @@ public class GeometryList {
         return comparator;
     }     
 
+    /**
+     * Enables sorting by keys for comparators that implement
+     * {@link GeometrySortKeyComparator}. The sort key of every geometry
+     * is then computed once per sort and the keys are radix sorted, 
+     * instead of comparing the geometries pairwise.
+     * Other comparators are not affected by this setting.
+     * 
+     * @param useSortKeys True to sort by keys, false by default.
+     */
+    public void setUseSortKeys(boolean useSortKeys) {
+        this.useSortKeys = useSortKeys;
+    }
+
+    /**
+     * @return True if this list is sorted by keys.
+     * @see #setUseSortKeys(boolean) 
+     */
+    public boolean isUseSortKeys() {
+        return useSortKeys;
+    }
+
     /**
      * Set the camera that will be set on the geometry comparators 
      * via {@link GeometryComparator#setCamera(com.jme3.renderer.Camera)}.
@@ -136,6 +163,11 @@ public class GeometryList {
      */
     public void sort() {
         if (size > 1) {
+            if (useSortKeys && comparator instanceof GeometrySortKeyComparator) {
+                sortByKeys((GeometrySortKeyComparator) comparator);
+                return;
+            }
+
             // sort the spatial list using the comparator
             
 //            SortUtil.qsort(geometries, 0, size, comparator);
@@ -147,4 +179,39 @@ public class GeometryList {
 
         }
     }
+
+    private void sortByKeys(GeometrySortKeyComparator keyComparator) {
+        if (keys == null || keys.length < geometries.length) {
+            keys = new long[geometries.length];
+            keys2 = new long[geometries.length];
+            indices = new int[geometries.length];
+            indices2 = new int[geometries.length];
+        }
+        if (radixCounts == null) {
+            radixCounts = new int[SortUtil.RSORT_COUNTS_SIZE];
+        }
+
+        boolean sorted = true;
+        for (int i = 0; i < size; i++) {
+            keys[i] = keyComparator.getSortKey(geometries[i]);
+            indices[i] = i;
+            if (sorted && i > 0 && keys[i] + Long.MIN_VALUE < keys[i - 1] + Long.MIN_VALUE) {
+                sorted = false;
+            }
+        }
+
+        // frame to frame coherence, the order often stays the same
+        if (sorted) {
+            return;
+        }
+
+        SortUtil.rsort(keys, indices, keys2, indices2, radixCounts, size);
+
+        for (int i = 0; i < size; i++) {
+            geometries2[i] = geometries[indices[i]];
+        }
+        Geometry[] temp = geometries;
+        geometries = geometries2;
+        geometries2 = temp;
+    }
 }
\ No newline at end of file
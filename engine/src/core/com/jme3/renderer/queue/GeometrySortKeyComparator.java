@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.renderer.queue;
+
+import com.jme3.scene.Geometry;
+
+/**
+ * <code>GeometrySortKeyComparator</code> is a {@link GeometryComparator}
+ * that can express its ordering as a 64 bit key computed once per geometry.
+ * <p>
+ * When sort keys are enabled on the {@link RenderQueue}, the
+ * {@link GeometryList} computes the key of every geometry once and radix
+ * sorts the keys instead of calling {@link #compare(java.lang.Object, java.lang.Object) }
+ * for every pair of geometries.
+ * 
+ * @see RenderQueue#setUseSortKeys(boolean) 
+ */
+public interface GeometrySortKeyComparator extends GeometryComparator {
+
+    /**
+     * Computes the sort key of the given geometry for the current camera.
+     * Comparing the keys of two geometries as unsigned values must give
+     * the same ordering as {@link #compare(java.lang.Object, java.lang.Object) }.
+     * 
+     * @param g The geometry
+     * @return The sort key of the geometry.
+     */
+    public long getSortKey(Geometry g);
+}
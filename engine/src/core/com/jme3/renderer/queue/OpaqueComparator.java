@@ -35,8 +35,9 @@ import com.jme3.material.Material;
 import com.jme3.math.Vector3f;
 import com.jme3.renderer.Camera;
 import com.jme3.scene.Geometry;
+import com.jme3.util.SortUtil;
 
-public class OpaqueComparator implements GeometryComparator {
+public class OpaqueComparator implements GeometrySortKeyComparator {
 
     private Camera cam;
     private final Vector3f tempVec  = new Vector3f();
@@ -91,4 +92,15 @@ public class OpaqueComparator implements GeometryComparator {
         }
     }
 
+    /**
+     * The material sort id, which combines the shader and texture ids,
+     * is stored in descending order in the upper 32 bits and
+     * the distance to the camera in ascending order in the lower 32 bits.
+     */
+    public long getSortKey(Geometry g) {
+        long sortId = g.getMaterial().getSortId();
+        return ((0x7fffffffL - sortId) << 32)
+                | SortUtil.floatToSortableBits(distanceToCam(g));
+    }
+
 }
@@ -34,6 +34,7 @@ package com.jme3.renderer.queue;
 import com.jme3.post.SceneProcessor;
 import com.jme3.renderer.Camera;
 import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.Statistics;
 import com.jme3.scene.Geometry;
 import com.jme3.scene.Spatial;
 
@@ -52,6 +53,7 @@ public class RenderQueue {
     private GeometryList skyList;
     private GeometryList shadowRecv;
     private GeometryList shadowCast;
+    private boolean useSortKeys = false;
 
     /**
      * Creates a new RenderQueue, the default {@link GeometryComparator comparators}
@@ -161,6 +163,37 @@ public class RenderQueue {
         Inherit
     }
 
+    /**
+     * Enables sorting by keys for all the geometry lists of this queue
+     * that use a {@link GeometrySortKeyComparator}, which includes the
+     * default comparators. The sort key of every geometry is computed once
+     * per frame and the keys are radix sorted instead of comparing the
+     * geometries pairwise, which is faster for large numbers of geometries.
+     * The resulting order is the same.
+     * 
+     * @param useSortKeys True to sort by keys, false by default.
+     * 
+     * @see GeometryList#setUseSortKeys(boolean) 
+     */
+    public void setUseSortKeys(boolean useSortKeys) {
+        this.useSortKeys = useSortKeys;
+        opaqueList.setUseSortKeys(useSortKeys);
+        guiList.setUseSortKeys(useSortKeys);
+        transparentList.setUseSortKeys(useSortKeys);
+        translucentList.setUseSortKeys(useSortKeys);
+        skyList.setUseSortKeys(useSortKeys);
+        shadowRecv.setUseSortKeys(useSortKeys);
+        shadowCast.setUseSortKeys(useSortKeys);
+    }
+
+    /**
+     * @return True if the geometry lists are sorted by keys.
+     * @see #setUseSortKeys(boolean) 
+     */
+    public boolean isUseSortKeys() {
+        return useSortKeys;
+    }
+
     /**
      *  Sets a different geometry comparator for the specified bucket, one
      *  of Gui, Opaque, Sky, Transparent, or Translucent.  The GeometryComparators are
@@ -189,25 +222,31 @@ public class RenderQueue {
     public void setGeometryComparator(Bucket bucket, GeometryComparator c) {
         switch (bucket) {
             case Gui:
-                guiList = new GeometryList(c);
+                guiList = createGeometryList(c);
                 break;
             case Opaque:
-                opaqueList = new GeometryList(c);
+                opaqueList = createGeometryList(c);
                 break;
             case Sky:
-                skyList = new GeometryList(c);
+                skyList = createGeometryList(c);
                 break;
             case Transparent:
-                transparentList = new GeometryList(c);
+                transparentList = createGeometryList(c);
                 break;
             case Translucent:
-                translucentList = new GeometryList(c);
+                translucentList = createGeometryList(c);
                 break;
             default:
                 throw new UnsupportedOperationException("Unknown bucket type: " + bucket);
         }
     }
 
+    private GeometryList createGeometryList(GeometryComparator c) {
+        GeometryList list = new GeometryList(c);
+        list.setUseSortKeys(useSortKeys);
+        return list;
+    }
+
     /**
      *  Returns the current GeometryComparator used by the specified bucket,
      *  one of Gui, Opaque, Sky, Transparent, or Translucent.
@@ -366,6 +405,13 @@ public class RenderQueue {
     }
 
     public void renderQueue(Bucket bucket, RenderManager rm, Camera cam, boolean clear) {
+        Statistics stats = rm.getRenderer().getStatistics();
+        stats.onBucketRender(bucket);
+        renderBucket(bucket, rm, cam, clear);
+        stats.onBucketRender(null);
+    }
+
+    private void renderBucket(Bucket bucket, RenderManager rm, Camera cam, boolean clear) {
         switch (bucket) {
             case Gui:
                 renderGeometryList(guiList, rm, cam, clear);
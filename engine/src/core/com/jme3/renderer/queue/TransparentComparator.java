@@ -34,8 +34,9 @@ package com.jme3.renderer.queue;
 import com.jme3.math.Vector3f;
 import com.jme3.renderer.Camera;
 import com.jme3.scene.Geometry;
+import com.jme3.util.SortUtil;
 
-public class TransparentComparator implements GeometryComparator {
+public class TransparentComparator implements GeometrySortKeyComparator {
 
     private Camera cam;
     private final Vector3f tempVec = new Vector3f();
@@ -98,4 +99,12 @@ public class TransparentComparator implements GeometryComparator {
         else
             return -1;
     }
+
+    /**
+     * Sorts back to front, the distance to the camera is stored in
+     * descending order in the lower 32 bits.
+     */
+    public long getSortKey(Geometry g) {
+        return ~SortUtil.floatToSortableBits(distanceToCam(g)) & 0xffffffffL;
+    }
 }
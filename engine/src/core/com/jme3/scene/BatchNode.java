@@ -120,16 +120,7 @@ public class BatchNode extends Node implements Savable {
                 child.updateGeometricState();
             }
 
-            for (Batch batch : batches.getArray()) {
-                if (batch.needMeshUpdate) {
-                    batch.geometry.updateModelBound();
-                    batch.geometry.updateWorldBound();
-                    batch.needMeshUpdate = false;
-
-                }
-            }
-
-
+            updateBatches();
         }
 
         if ((refreshFlags & RF_BOUND) != 0) {
@@ -139,6 +130,21 @@ public class BatchNode extends Node implements Savable {
         assert refreshFlags == 0;
     }
 
+    /**
+     * Refreshes the bounds of the batches whose mesh was updated.
+     * Called once the sub scene graph has been updated.
+     */
+    protected void updateBatches() {
+        for (Batch batch : batches.getArray()) {
+            if (batch.needMeshUpdate) {
+                batch.geometry.updateModelBound();
+                batch.geometry.updateWorldBound();
+                batch.needMeshUpdate = false;
+
+            }
+        }
+    }
+
     protected Transform getTransforms(Geometry geom) {
         return geom.getWorldTransform();
     }
@@ -158,12 +164,13 @@ public class BatchNode extends Node implements Savable {
                 VertexBuffer tvb = mesh.getBuffer(VertexBuffer.Type.Tangent);
                 FloatBuffer tanBuf = (FloatBuffer) tvb.getData();
                 doTransformsTangents(posBuf, normBuf, tanBuf, bg.startIndex, bg.startIndex + bg.getVertexCount(), bg.cachedOffsetMat);
-                tvb.updateData(tanBuf);
+                tvb.setUpdateNeeded(bg.startIndex, bg.getVertexCount());
             } else {
                 doTransforms(posBuf, normBuf, bg.startIndex, bg.startIndex + bg.getVertexCount(), bg.cachedOffsetMat);
             }
-            pvb.updateData(posBuf);
-            nvb.updateData(normBuf);
+            // only the vertices of this geometry need to be sent again
+            pvb.setUpdateNeeded(bg.startIndex, bg.getVertexCount());
+            nvb.setUpdateNeeded(bg.startIndex, bg.getVertexCount());
 
 
             batch.needMeshUpdate = true;
@@ -249,7 +256,7 @@ public class BatchNode extends Node implements Savable {
 
         if (n instanceof Geometry) {
 
-            if (!isBatch(n) && n.getBatchHint() != BatchHint.Never) {
+            if (!isBatch(n) && n.getBatchHint() != BatchHint.Never && isBatchable((Geometry) n)) {
                 Geometry g = (Geometry) n;
                 if (!g.isBatched() || rebatch) {
                     if (g.getMaterial() == null) {
@@ -293,7 +300,16 @@ public class BatchNode extends Node implements Savable {
         return null;
     }
 
-    private boolean isBatch(Spatial s) {
+    /**
+     * Returns true if the given geometry of the sub scene graph can be
+     * merged into a batch. Subclasses can override this to keep some
+     * geometries out of the batches.
+     */
+    protected boolean isBatchable(Geometry g) {
+        return true;
+    }
+
+    protected boolean isBatch(Spatial s) {
         for (Batch batch : batches.getArray()) {
             if (batch.geometry == s) {
                 return true;
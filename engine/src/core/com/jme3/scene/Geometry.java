@@ -35,6 +35,7 @@ import com.jme3.asset.AssetNotFoundException;
 import com.jme3.bounding.BoundingVolume;
 import com.jme3.collision.Collidable;
 import com.jme3.collision.CollisionResults;
+import com.jme3.collision.NearestCollisionResults;
 import com.jme3.export.InputCapsule;
 import com.jme3.export.JmeExporter;
 import com.jme3.export.JmeImporter;
@@ -283,6 +284,9 @@ public class Geometry extends Spatial {
                 worldBound = mesh.getBound().transform(worldTransform, worldBound);
             }
         }
+        if (spatialIndex != null) {
+            spatialIndex.update(this);
+        }
     }
 
     @Override
@@ -450,6 +454,12 @@ public class Geometry extends Spatial {
         if (mesh != null) {
             // NOTE: BIHTree in mesh already checks collision with the
             // mesh's bound
+            if (results instanceof NearestCollisionResults) {
+                // the results are sorted, the new ones have no geometry
+                int added = mesh.collideWith(other, cachedWorldMat, worldBound, results);
+                ((NearestCollisionResults) results).assignGeometry(this);
+                return added;
+            }
             int prevSize = results.size();
             int added = mesh.collideWith(other, cachedWorldMat, worldBound, results);
             int newSize = results.size();
@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.scene;
+
+import com.jme3.bounding.BoundingVolume;
+import com.jme3.collision.Collidable;
+import com.jme3.collision.CollisionResults;
+import com.jme3.export.InputCapsule;
+import com.jme3.export.JmeExporter;
+import com.jme3.export.JmeImporter;
+import com.jme3.export.OutputCapsule;
+import com.jme3.material.Material;
+import com.jme3.math.Matrix4f;
+import com.jme3.util.BufferUtils;
+import com.jme3.util.TempVars;
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+
+/**
+ * <code>InstancedGeometry</code> draws a group of geometries sharing the
+ * same {@link Mesh} and {@link Material} with a single instanced draw call.
+ * <p>
+ * The world matrices of the instances are uploaded in a
+ * {@link VertexBuffer.Type#InstanceData} buffer with an
+ * {@link VertexBuffer#setInstanceSpan(int) instance span} of 1, the
+ * vertex data of the mesh is not duplicated.
+ * The material must declare the <code>UseInstancing</code> parameter
+ * and use the <code>inInstanceData</code> attribute as the world matrix
+ * in its shaders when it is set, as the Unshaded and Lighting materials do.
+ * <p>
+ * Instanced geometries are usually created by an {@link InstancedNode}.
+ * They do not collide with anything, the instances collide themselves.
+ */
+public class InstancedGeometry extends Geometry {
+
+    /**
+     * number of floats per instance, one column-major 4x4 matrix
+     */
+    public static final int INSTANCE_SIZE = 16;
+    
+    protected ArrayList<Geometry> instances = new ArrayList<Geometry>();
+    protected VertexBuffer instanceData;
+    /**
+     * the world matrices of the instances, as last uploaded
+     */
+    private float[] instanceFloats = new float[0];
+    private boolean instancesChanged = true;
+
+    /**
+     * Serialization only. Do not use.
+     */
+    public InstancedGeometry() {
+    }
+
+    /**
+     * Create an instanced geometry drawing instances of the given mesh
+     * with the given material.
+     * <p>
+     * The vertex buffers of the mesh are shared with the instances. The <code>UseInstancing</code> parameter is set on
+     * the material.
+     * 
+     * @param name The name of the instanced geometry
+     * @param mesh The mesh shared by the instances
+     * @param material The material used to render the instances
+     */
+    public InstancedGeometry(String name, Mesh mesh, Material material) {
+        super(name, createInstanceMesh(mesh));
+        setMaterial(material);
+        // the instances' world matrices are uploaded, applying
+        // the transform of this geometry on top would apply it twice
+        setIgnoreTransform(true);
+    }
+
+    /**
+     * Creates a mesh sharing the vertex buffers of the given mesh, the
+     * instance data buffer is added to it without modifying the original.
+     */
+    private static Mesh createInstanceMesh(Mesh mesh) {
+        Mesh instanceMesh = new Mesh();
+        instanceMesh.setMode(mesh.getMode());
+        instanceMesh.setModeStart(mesh.getModeStart());
+        instanceMesh.setElementLengths(mesh.getElementLengths());
+        instanceMesh.setPointSize(mesh.getPointSize());
+        instanceMesh.setLineWidth(mesh.getLineWidth());
+        instanceMesh.setMaxNumWeights(mesh.getMaxNumWeights());
+        for (VertexBuffer vb : mesh.getBufferList().getArray()) {
+            instanceMesh.setBuffer(vb);
+        }
+        if (mesh.getNumLodLevels() > 0) {
+            VertexBuffer[] lodLevels = new VertexBuffer[mesh.getNumLodLevels()];
+            for (int i = 0; i < lodLevels.length; i++) {
+                lodLevels[i] = mesh.getLodLevel(i);
+            }
+            instanceMesh.setLodLevels(lodLevels);
+        }
+        if (mesh.getBound() != null) {
+            instanceMesh.setBound(mesh.getBound().clone());
+        }
+        return instanceMesh;
+    }
+
+    @Override
+    public void setMaterial(Material material) {
+        if (material != null && material.getMaterialDef().getMaterialParam("UseInstancing") != null) {
+            material.setBoolean("UseInstancing", true);
+        }
+        super.setMaterial(material);
+    }
+
+    /**
+     * Adds an instance to this geometry. The instance must use the
+     * same mesh as this geometry. It keeps its place in the scene graph,
+     * its world matrix is read in {@link #updateInstances() }.
+     * 
+     * @param geom The instance to add
+     * 
+     * @throws IllegalArgumentException If the instance uses another mesh
+     */
+    public void addInstance(Geometry geom) {
+        if (geom.getMesh() == null || geom.getMesh().getBuffer(VertexBuffer.Type.Position) != mesh.getBuffer(VertexBuffer.Type.Position)) {
+            throw new IllegalArgumentException("Instance " + geom.getName() + " does not share the mesh of " + name);
+        }
+        instances.add(geom);
+        instancesChanged = true;
+    }
+
+    /**
+     * Removes an instance from this geometry.
+     * 
+     * @param geom The instance to remove
+     * @return true if the geometry was an instance of this geometry
+     */
+    public boolean removeInstance(Geometry geom) {
+        if (instances.remove(geom)) {
+            instancesChanged = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return The number of instances drawn by this geometry
+     */
+    public int getNumInstances() {
+        return instances.size();
+    }
+
+    /**
+     * @param index The index of the instance
+     * @return The instance at the given index
+     */
+    public Geometry getInstance(int index) {
+        return instances.get(index);
+    }
+
+    /**
+     * Copies the world matrices of the instances in the instance data
+     * buffer. The buffer is only updated when an instance has moved, or
+     * when instances were added or removed.
+     * <p>
+     * The world transforms of the instances must be up to date.
+     * 
+     * @return true if the instance data has changed, the bound
+     * of this geometry then needs to be updated with {@link #updateModelBound() }.
+     */
+    public boolean updateInstances() {
+        int length = instances.size() * INSTANCE_SIZE;
+        boolean changed = instancesChanged;
+        if (instanceFloats.length < length) {
+            float[] floats = new float[length];
+            System.arraycopy(instanceFloats, 0, floats, 0, instanceFloats.length);
+            instanceFloats = floats;
+        }
+
+        TempVars vars = TempVars.get();
+        float[] matrix = vars.matrixWrite;
+        for (int i = 0, offset = 0; i < instances.size(); i++, offset += INSTANCE_SIZE) {
+            instances.get(i).getWorldMatrix().fillFloatArray(matrix, true);
+            for (int j = 0; j < INSTANCE_SIZE; j++) {
+                if (instanceFloats[offset + j] != matrix[j]) {
+                    System.arraycopy(matrix, j, instanceFloats, offset + j, INSTANCE_SIZE - j);
+                    changed = true;
+                    break;
+                }
+            }
+        }
+        vars.release();
+
+        if (!changed) {
+            return false;
+        }
+
+        FloatBuffer data = instanceData != null ? (FloatBuffer) instanceData.getData() : null;
+        if (data == null || data.capacity() < length) {
+            data = BufferUtils.createFloatBuffer(Math.max(length, INSTANCE_SIZE));
+        }
+        data.clear();
+        data.put(instanceFloats, 0, length);
+        data.flip();
+
+        if (instanceData == null) {
+            instanceData = new VertexBuffer(VertexBuffer.Type.InstanceData);
+            instanceData.setInstanceSpan(1);
+            instanceData.setupData(VertexBuffer.Usage.Stream, INSTANCE_SIZE, VertexBuffer.Format.Float, data);
+            mesh.setBuffer(instanceData);
+        } else {
+            instanceData.updateData(data);
+        }
+        instancesChanged = false;
+        return true;
+    }
+
+    /**
+     * Updates the bound of the mesh to contain the world bounds
+     * of all the instances.
+     */
+    @Override
+    public void updateModelBound() {
+        BoundingVolume bound = null;
+        for (int i = 0; i < instances.size(); i++) {
+            BoundingVolume instanceBound = instances.get(i).getWorldBound();
+            if (instanceBound == null) {
+                continue;
+            }
+            if (bound == null) {
+                bound = instanceBound.clone(mesh.getBound());
+            } else {
+                bound.mergeLocal(instanceBound);
+            }
+        }
+        if (bound != null) {
+            mesh.setBound(bound);
+        }
+        setBoundRefresh();
+    }
+
+    /**
+     * Instanced geometries do not collide, the instances are still in
+     * the scene graph and collide themselves.
+     * 
+     * @return 0
+     */
+    @Override
+    public int collideWith(Collidable other, CollisionResults results) {
+        return 0;
+    }
+
+    @Override
+    public InstancedGeometry clone(boolean cloneMaterial) {
+        InstancedGeometry geomClone = (InstancedGeometry) super.clone(cloneMaterial);
+        geomClone.instances = new ArrayList<Geometry>(instances);
+        geomClone.instanceFloats = new float[0];
+        geomClone.instancesChanged = true;
+        if (instanceData != null) {
+            geomClone.mesh = createInstanceMesh(mesh);
+            geomClone.mesh.clearBuffer(VertexBuffer.Type.InstanceData);
+            geomClone.instanceData = null;
+        }
+        return geomClone;
+    }
+
+    @Override
+    public void write(JmeExporter ex) throws IOException {
+        super.write(ex);
+        OutputCapsule oc = ex.getCapsule(this);
+        oc.writeSavableArrayList(instances, "instances", null);
+    }
+
+    @Override
+    public void read(JmeImporter im) throws IOException {
+        super.read(im);
+        InputCapsule ic = im.getCapsule(this);
+        instances = ic.readSavableArrayList("instances", new ArrayList<Geometry>());
+        instanceData = mesh.getBuffer(VertexBuffer.Type.InstanceData);
+        instancesChanged = true;
+        // re-enable instancing if the material was loaded from its J3M file
+        setMaterial(material);
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.scene;
+
+import com.jme3.material.Material;
+import com.jme3.renderer.Caps;
+import com.jme3.renderer.Renderer;
+import com.jme3.util.SafeArrayList;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * InstancedNode draws the geometries of its sub scenegraph that share the same mesh and material
+ * with hardware instancing, using one {@link InstancedGeometry} per mesh and material.
+ * Usage is like the {@link BatchNode}: call the {@link #instance(com.jme3.renderer.Renderer)} method once all
+ * the geometries have been attached to the sub scene graph and their material set.
+ * The instanced geometries are set to {@link CullHint#Always} to not render them, they can be transformed as usual,
+ * their world matrices are uploaded as per-instance data instead of rewriting the vertex data on the CPU.
+ * <p>
+ * Only the geometries whose material declares the <code>UseInstancing</code> parameter can be instanced,
+ * the other ones, and the ones that don't share their mesh, are batched.
+ * If the renderer does not support {@link Caps#MeshInstancing} (e.g. OpenGL ES 2.0 renderers), the whole
+ * sub scene graph is batched like a {@link BatchNode}.
+ * <p>
+ * Instances removed from the scene graph, or whose ancestor is removed, are removed from their instanced geometry
+ * on the next update, instances added after the instance() method has been called are rendered as normal geometries
+ * until it is called again.
+ * The instanced geometries are only drawn by the techniques mapping <code>UseInstancing</code> to a define,
+ * they are skipped by the other techniques and by forced materials, e.g. the fallback materials of the shadow renderers.
+ */
+public class InstancedNode extends BatchNode {
+
+    private static final Logger logger = Logger.getLogger(InstancedNode.class.getName());
+    /**
+     * the list of geometries drawing the instances
+     */
+    protected SafeArrayList<InstancedGeometry> instancedGeoms = new SafeArrayList<InstancedGeometry>(InstancedGeometry.class);
+    /**
+     * the cull hints the instances had before being instanced, by instance
+     */
+    protected Map<Geometry, CullHint> instanceCullHints = new HashMap<Geometry, CullHint>();
+    /**
+     * true if a spatial was detached from the sub scene graph since the last update
+     */
+    private boolean instancesDetached = false;
+
+    /**
+     * Construct an InstancedNode
+     */
+    public InstancedNode() {
+        super();
+    }
+
+    public InstancedNode(String name) {
+        super(name);
+    }
+
+    /**
+     * Instance the geometries of this node for the given renderer.
+     * 
+     * @param renderer the renderer that will render this node
+     * @see #instance(java.util.EnumSet) 
+     */
+    public void instance(Renderer renderer) {
+        instance(renderer.getCaps());
+    }
+
+    /**
+     * Instance this InstancedNode.
+     * Every geometry of the sub scene graph sharing its mesh and material with others will be rendered
+     * with one instanced draw call, the remaining geometries are batched.
+     * If the given caps do not contain {@link Caps#MeshInstancing}, every geometry is batched.
+     * 
+     * @param caps the capabilities of the renderer that will render this node
+     */
+    public void instance(EnumSet<Caps> caps) {
+        uninstance();
+        if (caps.contains(Caps.MeshInstancing)) {
+            doInstance();
+        } else {
+            logger.log(Level.INFO, "Hardware instancing is not supported, batching {0} instead.", name);
+        }
+        batch();
+    }
+
+    /**
+     * Removes the instanced geometries and makes the instances render as normal geometries again.
+     */
+    public void uninstance() {
+        for (InstancedGeometry ig : instancedGeoms.getArray()) {
+            ig.removeFromParent();
+            for (int i = 0; i < ig.getNumInstances(); i++) {
+                restoreInstance(ig.getInstance(i));
+            }
+        }
+        instancedGeoms.clear();
+        instanceCullHints.clear();
+        instancesDetached = false;
+    }
+
+    protected void doInstance() {
+        Map<Mesh, List<List<Geometry>>> meshMap = new IdentityHashMap<Mesh, List<List<Geometry>>>();
+        gatherInstances(meshMap, this);
+
+        int nbGeoms = 0;
+        for (List<List<Geometry>> groups : meshMap.values()) {
+            for (List<Geometry> list : groups) {
+                if (list.size() < 2) {
+                    // nothing to gain, will be batched
+                    continue;
+                }
+                Geometry first = list.get(0);
+                InstancedGeometry ig = new InstancedGeometry(name + "-instance" + instancedGeoms.size(),
+                        first.getMesh(), first.getMaterial().clone());
+                for (Geometry g : list) {
+                    instanceCullHints.put(g, g.getLocalCullHint());
+                    g.setCullHint(CullHint.Always);
+                    ig.addInstance(g);
+                }
+                nbGeoms += list.size();
+                instancedGeoms.add(ig);
+                this.attachChild(ig);
+            }
+        }
+
+        logger.log(Level.INFO, "Instanced {0} geometries in {1} instanced geometries.", new Object[]{nbGeoms, instancedGeoms.size()});
+    }
+
+    private void gatherInstances(Map<Mesh, List<List<Geometry>>> map, Spatial n) {
+
+        if (n instanceof Geometry) {
+
+            Geometry g = (Geometry) n;
+            if (isInstanceable(g)) {
+                List<List<Geometry>> groups = map.get(g.getMesh());
+                if (groups == null) {
+                    groups = new ArrayList<List<Geometry>>();
+                    map.put(g.getMesh(), groups);
+                }
+                List<Geometry> list = null;
+                for (List<Geometry> group : groups) {
+                    if (g.getMaterial().contentEquals(group.get(0).getMaterial())) {
+                        list = group;
+                        break;
+                    }
+                }
+                if (list == null) {
+                    list = new ArrayList<Geometry>();
+                    groups.add(list);
+                }
+                list.add(g);
+            }
+
+        } else if (n instanceof Node) {
+            for (Spatial child : ((Node) n).getChildren()) {
+                if (child instanceof BatchNode) {
+                    continue;
+                }
+                gatherInstances(map, child);
+            }
+        }
+
+    }
+
+    private boolean isInstanceable(Geometry g) {
+        if (g instanceof InstancedGeometry || isBatch(g) || g.isBatched() || g.getBatchHint() == BatchHint.Never) {
+            return false;
+        }
+        if (g.getMaterial() == null) {
+            throw new IllegalStateException("No material is set for Geometry: " + g.getName() + " please set a material before instancing");
+        }
+        Mesh mesh = g.getMesh();
+        return mesh.getBuffer(VertexBuffer.Type.InstanceData) == null
+                && mesh.getBuffer(VertexBuffer.Type.InterleavedData) == null
+                && g.getMaterial().getMaterialDef().getMaterialParam("UseInstancing") != null;
+    }
+
+    private void restoreInstance(Geometry g) {
+        CullHint hint = instanceCullHints.remove(g);
+        if (hint != null) {
+            g.setCullHint(hint);
+        }
+    }
+
+    /**
+     * Returns true if the given instance is still attached to the sub scene graph of this node.
+     */
+    private boolean isInstanceAttached(Geometry g) {
+        for (Node parent = g.getParent(); parent != null; parent = parent.getParent()) {
+            if (parent == this) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    void descendantDetached(Spatial spatial) {
+        instancesDetached = true;
+    }
+
+    @Override
+    protected boolean isBatchable(Geometry g) {
+        return !(g instanceof InstancedGeometry) && !instanceCullHints.containsKey(g);
+    }
+
+    @Override
+    protected void updateBatches() {
+        super.updateBatches();
+
+        // only look for removed instances when something was detached
+        boolean checkAttached = instancesDetached;
+        for (InstancedGeometry ig : instancedGeoms.getArray()) {
+            for (int i = ig.getNumInstances() - 1; checkAttached && i >= 0; i--) {
+                Geometry g = ig.getInstance(i);
+                if (!isInstanceAttached(g)) {
+                    // removed from the scene graph, itself or one of its ancestors
+                    ig.removeInstance(g);
+                    restoreInstance(g);
+                }
+            }
+            if (ig.getNumInstances() == 0) {
+                ig.removeFromParent();
+                instancedGeoms.remove(ig);
+            } else if (ig.updateInstances()) {
+                ig.updateModelBound();
+                ig.updateWorldBound();
+            }
+        }
+        // removing the empty instanced geometries is not a detach to look for
+        instancesDetached = false;
+    }
+
+    /**
+     * @return the geometries drawing the instances of this node
+     */
+    public List<InstancedGeometry> getInstancedGeometries() {
+        return instancedGeoms;
+    }
+}
@@ -346,28 +346,65 @@ public class Mesh implements Savable, Cloneable {
     }
 
     /**
-     * Prepares the mesh for software skinning by converting the bone index
-     * and weight buffers to heap buffers. 
+     * Prepares the mesh for software or hardware skinning.
+     * <p>
+     * For software skinning the bone index and weight buffers are converted
+     * to heap buffers kept on the CPU, and the position, normal and tangent
+     * buffers are streamed. For hardware skinning the bone index and weight
+     * buffers are converted to direct buffers sent to the GPU, and the
+     * position, normal and tangent buffers are static.
+     * The converted buffers are set as new vertex buffers, so that the
+     * clones sharing the bone buffers of this mesh are left untouched.
      * 
-     * @param forSoftwareAnim Should be true to enable the conversion.
+     * @param forSoftwareAnim True to prepare for software skinning,
+     * false to prepare for hardware skinning.
      */
     public void prepareForAnim(boolean forSoftwareAnim){
+        VertexBuffer indices = getBuffer(Type.BoneIndex);
+        VertexBuffer weights = getBuffer(Type.BoneWeight);
+        ByteBuffer originalIndex = (ByteBuffer) indices.getData();
+        FloatBuffer originalWeight = (FloatBuffer) weights.getData();
+        originalIndex.clear();
+        originalWeight.clear();
+
+        ByteBuffer newIndex;
+        FloatBuffer newWeight;
         if (forSoftwareAnim){
-            // convert indices
-            VertexBuffer indices = getBuffer(Type.BoneIndex);
-            ByteBuffer originalIndex = (ByteBuffer) indices.getData();
-            ByteBuffer arrayIndex = ByteBuffer.allocate(originalIndex.capacity());
-            originalIndex.clear();
-            arrayIndex.put(originalIndex);
-            indices.updateData(arrayIndex);
-
-            // convert weights
-            VertexBuffer weights = getBuffer(Type.BoneWeight);
-            FloatBuffer originalWeight = (FloatBuffer) weights.getData();
-            FloatBuffer arrayWeight = FloatBuffer.allocate(originalWeight.capacity());
-            originalWeight.clear();
-            arrayWeight.put(originalWeight);
-            weights.updateData(arrayWeight);
+            newIndex = ByteBuffer.allocate(originalIndex.capacity());
+            newWeight = FloatBuffer.allocate(originalWeight.capacity());
+        } else {
+            newIndex = BufferUtils.createByteBuffer(originalIndex.capacity());
+            newWeight = BufferUtils.createFloatBuffer(originalWeight.capacity());
+        }
+        newIndex.put(originalIndex).clear();
+        newWeight.put(originalWeight).clear();
+
+        Usage usage = forSoftwareAnim ? Usage.CpuOnly : Usage.Static;
+
+        // convert indices
+        VertexBuffer newIndices = new VertexBuffer(Type.BoneIndex);
+        newIndices.setupData(usage, indices.getNumComponents(), indices.getFormat(), newIndex);
+        clearBuffer(Type.BoneIndex);
+        setBuffer(newIndices);
+
+        // convert weights
+        VertexBuffer newWeights = new VertexBuffer(Type.BoneWeight);
+        newWeights.setupData(usage, weights.getNumComponents(), Format.Float, newWeight);
+        clearBuffer(Type.BoneWeight);
+        setBuffer(newWeights);
+
+        usage = forSoftwareAnim ? Usage.Stream : Usage.Static;
+        VertexBuffer pos = getBuffer(Type.Position);
+        if (pos != null) {
+            pos.setUsage(usage);
+        }
+        VertexBuffer norm = getBuffer(Type.Normal);
+        if (norm != null) {
+            norm.setUsage(usage);
+        }
+        VertexBuffer tangents = getBuffer(Type.Tangent);
+        if (tangents != null) {
+            tangents.setUsage(usage);
         }
     }
 
@@ -836,6 +873,15 @@ public class Mesh implements Savable, Cloneable {
         collisionTree = tree;
     }
 
+    /**
+     * Clears any previously generated collision data. Use this if
+     * the mesh data has changed in some way, it will be generated again
+     * the next time it is needed.
+     */
+    public void clearCollisionData(){
+        collisionTree = null;
+    }
+
     /**
      * Handles collision detection, internal use only.
      * User code should only use collideWith() on scene
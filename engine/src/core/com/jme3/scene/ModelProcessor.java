@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.scene;
+
+import com.jme3.asset.AssetKey;
+import com.jme3.asset.CloneableAssetProcessor;
+import com.jme3.asset.ModelKey;
+import com.jme3.scene.Mesh.Mode;
+import com.jme3.scene.VertexBuffer.Type;
+import com.jme3.scene.mesh.VertexCacheOptimizer;
+import java.util.IdentityHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <code>ModelProcessor</code> applies the load time options of a
+ * {@link ModelKey} to the loaded model before it is cached, and clones
+ * it like {@link CloneableAssetProcessor} does.
+ */
+public class ModelProcessor extends CloneableAssetProcessor {
+
+    private static final Logger logger = Logger.getLogger(ModelProcessor.class.getName());
+
+    @Override
+    public Object postProcess(AssetKey key, Object obj) {
+        if (key instanceof ModelKey && ((ModelKey) key).isOptimizeVertexCache()
+                && obj instanceof Spatial) {
+            optimizeVertexCache((Spatial) obj, new IdentityHashMap<Mesh, Mesh>());
+        }
+        return obj;
+    }
+
+    private void optimizeVertexCache(Spatial spatial, IdentityHashMap<Mesh, Mesh> processed) {
+        if (spatial instanceof Node) {
+            for (Spatial child : ((Node) spatial).getChildren()) {
+                optimizeVertexCache(child, processed);
+            }
+        } else if (spatial instanceof Geometry) {
+            Mesh mesh = ((Geometry) spatial).getMesh();
+            if (processed.containsKey(mesh)) {
+                return;
+            }
+            processed.put(mesh, mesh);
+            if (mesh.getMode() != Mode.Triangles || mesh.getBuffer(Type.Index) == null
+                    || mesh.getBuffer(Type.InterleavedData) != null) {
+                return;
+            }
+
+            if (!logger.isLoggable(Level.FINE)) {
+                VertexCacheOptimizer.optimize(mesh);
+            } else {
+                float before = VertexCacheOptimizer.computeACMR(mesh, VertexCacheOptimizer.DEFAULT_CACHE_SIZE);
+                VertexCacheOptimizer.optimize(mesh);
+                float after = VertexCacheOptimizer.computeACMR(mesh, VertexCacheOptimizer.DEFAULT_CACHE_SIZE);
+                logger.log(Level.FINE, "Optimized {0} for the vertex cache, ACMR {1} -> {2}",
+                        new Object[]{spatial.getName(), before, after});
+            }
+        }
+    }
+}
@@ -34,10 +34,12 @@ package com.jme3.scene;
 import com.jme3.bounding.BoundingVolume;
 import com.jme3.collision.Collidable;
 import com.jme3.collision.CollisionResults;
+import com.jme3.collision.SweepSphere;
 import com.jme3.export.JmeExporter;
 import com.jme3.export.JmeImporter;
 import com.jme3.export.Savable;
 import com.jme3.material.Material;
+import com.jme3.math.Ray;
 import com.jme3.util.SafeArrayList;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -66,6 +68,16 @@ public class Node extends Spatial implements Savable {
      */
     protected SafeArrayList<Spatial> children = new SafeArrayList<Spatial>(Spatial.class);
 
+    /**
+     * Updates the geometric state of the children in parallel, if set.
+     */
+    protected transient ParallelUpdater parallelUpdater;
+
+    /**
+     * Indexes the geometries of this node's subtree, if enabled.
+     */
+    transient SpatialIndex rootSpatialIndex;
+
     /**
      * Serialization only. Do not use.
      */
@@ -138,6 +150,9 @@ public class Node extends Spatial implements Savable {
             }
         }
         this.worldBound = resultBound;
+        if (spatialIndex != null) {
+            spatialIndex.update(this);
+        }
     }
 
     @Override
@@ -171,8 +186,12 @@ public class Node extends Spatial implements Savable {
             // a round-trip later on.
             // NOTE 9/19/09
             // Although it does save a round trip,
-            for (Spatial child : children.getArray()) {
-                child.updateGeometricState();
+            if (parallelUpdater != null && !isInsideBatchNode()) {
+                parallelUpdater.updateChildren(children.getArray());
+            } else {
+                for (Spatial child : children.getArray()) {
+                    child.updateGeometricState();
+                }
             }
         }            
 
@@ -183,6 +202,138 @@ public class Node extends Spatial implements Savable {
         assert refreshFlags == 0;
     }
 
+    /**
+     * Batched geometries write into the shared buffers of their
+     * {@link BatchNode}, so they cannot be updated concurrently.
+     */
+    private boolean isInsideBatchNode() {
+        for (Node node = parent; node != null; node = node.getParent()) {
+            if (node instanceof BatchNode) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sets the {@link ParallelUpdater} used to refresh the geometric state
+     * of this node's children concurrently in {@link #updateGeometricState() }.
+     * <p>
+     * This is useful on nodes with many independent child subtrees,
+     * such as the root node of a large scene. The children are updated
+     * serially by default.
+     * 
+     * @param parallelUpdater The updater to use, for example
+     * {@link ParallelUpdater#getDefault() }, or null to update the
+     * children serially.
+     */
+    public void setParallelUpdater(ParallelUpdater parallelUpdater) {
+        this.parallelUpdater = parallelUpdater;
+    }
+
+    /**
+     * @return The {@link ParallelUpdater} used to update the children of
+     * this node, or null if they are updated serially.
+     * 
+     * @see #setParallelUpdater(com.jme3.scene.ParallelUpdater) 
+     */
+    public ParallelUpdater getParallelUpdater() {
+        return parallelUpdater;
+    }
+
+    /**
+     * Enables or disables the {@link SpatialIndex} of this node.
+     * <p>
+     * With the index enabled, the geometries under this node are kept in
+     * a bounding volume tree updated with their world bounds, and 
+     * {@link #collideWith(com.jme3.collision.Collidable, com.jme3.collision.CollisionResults) }
+     * only tests the geometries whose world bound is hit instead of walking
+     * the whole scene graph. This is intended for root nodes of large 
+     * scenes that are picked or queried often. Nodes colliding in their
+     * own way, like terrains, are indexed as a whole, see {@link SpatialIndex}.
+     * <p>
+     * Indices cannot be nested, the index cannot be enabled when an
+     * ancestor or a descendant of this node has one.
+     * 
+     * @param enabled True to enable the spatial index, false by default.
+     * @throws IllegalStateException if an ancestor or a descendant of this
+     * node has a spatial index
+     */
+    public void setSpatialIndexEnabled(boolean enabled) {
+        if (enabled && rootSpatialIndex == null) {
+            if (parent != null && parent.findSpatialIndex() != null) {
+                throw new IllegalStateException("An ancestor of " + getName() + " already has a spatial index");
+            }
+            for (Spatial child : children.getArray()) {
+                if (child instanceof Node && ((Node) child).containsSpatialIndex()) {
+                    throw new IllegalStateException("A descendant of " + getName() + " already has a spatial index");
+                }
+            }
+            rootSpatialIndex = new SpatialIndex(this);
+        } else if (!enabled && rootSpatialIndex != null) {
+            rootSpatialIndex.release();
+            rootSpatialIndex = null;
+        }
+    }
+
+    /**
+     * @return True if this node has a {@link SpatialIndex}.
+     * @see #setSpatialIndexEnabled(boolean) 
+     */
+    public boolean isSpatialIndexEnabled() {
+        return rootSpatialIndex != null;
+    }
+
+    /**
+     * @return The {@link SpatialIndex} of this node's subtree, or null
+     * if not enabled.
+     * @see #setSpatialIndexEnabled(boolean) 
+     */
+    public SpatialIndex getSpatialIndex() {
+        return rootSpatialIndex;
+    }
+
+    /**
+     * @return The spatial index of this node or of its closest ancestor 
+     * having one, or null.
+     */
+    private SpatialIndex findSpatialIndex() {
+        for (Node node = this; node != null; node = node.getParent()) {
+            if (node.rootSpatialIndex != null) {
+                return node.rootSpatialIndex;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Throws an IllegalStateException if attaching the given child would
+     * nest spatial indices.
+     */
+    private void checkSpatialIndexNesting(Spatial child) {
+        if (child instanceof Node && ((Node) child).containsSpatialIndex()
+                && findSpatialIndex() != null) {
+            throw new IllegalStateException("Cannot attach " + child.getName() 
+                    + " to " + getName() + ", spatial indices cannot be nested");
+        }
+    }
+
+    /**
+     * @return True if this node or one of its descendants has a spatial
+     * index.
+     */
+    private boolean containsSpatialIndex() {
+        if (rootSpatialIndex != null) {
+            return true;
+        }
+        for (Spatial child : children.getArray()) {
+            if (child instanceof Node && ((Node) child).containsSpatialIndex()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * <code>getTriangleCount</code> returns the number of triangles contained
      * in all sub-branches of this node that contain geometry.
@@ -230,17 +381,24 @@ public class Node extends Spatial implements Savable {
      *            the child to attach to this node.
      * @return the number of children maintained by this node.
      * @throws NullPointerException If child is null.
+     * @throws IllegalStateException if both this node or an ancestor and 
+     * the child or a descendant have a {@link SpatialIndex}.
      */
     public int attachChild(Spatial child) {
         if (child == null)
             throw new IllegalArgumentException("child cannot be null");
 
         if (child.getParent() != this && child != this) {
+            checkSpatialIndexNesting(child);
             if (child.getParent() != null) {
                 child.getParent().detachChild(child);
             }
             child.setParent(this);
             children.add(child);
+            SpatialIndex index = findSpatialIndex();
+            if (index != null) {
+                index.add(child);
+            }
 
             // XXX: Not entirely correct? Forces bound update up the
             // tree stemming from the attached child. Also forces
@@ -268,17 +426,24 @@ public class Node extends Spatial implements Savable {
      *            the child to attach to this node.
      * @return the number of children maintained by this node.
      * @throws NullPointerException if child is null.
+     * @throws IllegalStateException if both this node or an ancestor and 
+     * the child or a descendant have a {@link SpatialIndex}.
      */
     public int attachChildAt(Spatial child, int index) {
         if (child == null)
             throw new NullPointerException();
 
         if (child.getParent() != this && child != this) {
+            checkSpatialIndexNesting(child);
             if (child.getParent() != null) {
                 child.getParent().detachChild(child);
             }
             child.setParent(this);
             children.add(index, child);
+            SpatialIndex sceneIndex = findSpatialIndex();
+            if (sceneIndex != null) {
+                sceneIndex.add(child);
+            }
             child.setTransformRefresh();
             child.setLightListRefresh();
             if (logger.isLoggable(Level.INFO)) {
@@ -348,6 +513,13 @@ public class Node extends Spatial implements Savable {
     public Spatial detachChildAt(int index) {
         Spatial child =  children.remove(index);
         if ( child != null ) {
+            SpatialIndex sceneIndex = findSpatialIndex();
+            if (sceneIndex != null) {
+                sceneIndex.remove(child);
+            }
+            for (Node node = this; node != null; node = node.getParent()) {
+                node.descendantDetached(child);
+            }
             child.setParent( null );
             logger.log(Level.INFO, "{0}: Child removed.", this.toString());
 
@@ -365,6 +537,15 @@ public class Node extends Spatial implements Savable {
         return child;
     }
 
+    /**
+     * Called on a node and all its ancestors when a spatial is detached
+     * from the node.
+     * 
+     * @param spatial The detached spatial
+     */
+    void descendantDetached(Spatial spatial) {
+    }
+
     /**
      * 
      * <code>detachAllChildren</code> removes all children attached to this
@@ -487,6 +668,12 @@ public class Node extends Spatial implements Savable {
     }
 
     public int collideWith(Collidable other, CollisionResults results){
+        if (rootSpatialIndex != null && (refreshFlags & RF_BOUND) == 0
+                && (other instanceof Ray || other instanceof BoundingVolume
+                || other instanceof SweepSphere)) {
+            // the world bounds in the index are up to date
+            return rootSpatialIndex.collideWith(other, results);
+        }
         int total = 0;
         for (Spatial child : children.getArray()){
             total += child.collideWith(other, results);
@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.scene;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <code>ParallelUpdater</code> refreshes the geometric state of sibling
+ * subtrees on a pool of worker threads.
+ * <p>
+ * Set it on a {@link Node} with {@link Node#setParallelUpdater(com.jme3.scene.ParallelUpdater) }
+ * to have {@link Node#updateGeometricState() } update the world transforms,
+ * light lists and world bounds of the node's children concurrently.
+ * The children that need a refresh are split into small chunks which the
+ * worker threads and the calling thread take from a shared counter until
+ * all of them are done, so that large and small subtrees balance out.
+ * Every subtree is updated serially inside its chunk and the node's own
+ * world bound is merged on the calling thread once all chunks have
+ * completed, in child order, so the result is identical to the serial
+ * update.
+ * <p>
+ * Subtrees must not share mutable state for this to be safe, nodes that
+ * are located under a {@link BatchNode} are therefore always updated
+ * serially.
+ */
+public class ParallelUpdater {
+
+    /**
+     * The default minimum number of children that need a refresh
+     * for the update to be split across threads.
+     */
+    public static final int DEFAULT_MIN_PARALLEL_CHILDREN = 16;
+
+    private static ParallelUpdater defaultUpdater;
+
+    private final ExecutorService executor;
+    private final int threads;
+    private int minParallelChildren = DEFAULT_MIN_PARALLEL_CHILDREN;
+    private int chunksPerThread = 4;
+
+    /**
+     * Marks the threads of the pool so that nested parallel nodes are
+     * updated serially instead of waiting on the same pool.
+     */
+    private static class UpdateThread extends Thread {
+
+        public UpdateThread(Runnable r, String name) {
+            super(r, name);
+        }
+    }
+
+    private class UpdateThreadFactory implements ThreadFactory {
+
+        private int nextThreadId = 0;
+
+        public Thread newThread(Runnable r) {
+            Thread t = new UpdateThread(r, "jME3 Scene Update Thread " + (nextThreadId++));
+            t.setDaemon(true);
+            return t;
+        }
+    }
+
+    /**
+     * Takes chunks from the shared counter until none are left.
+     */
+    private class UpdateTask implements Runnable {
+
+        private final Spatial[] spatials;
+        private final int chunkSize;
+        private final AtomicInteger nextChunk;
+
+        public UpdateTask(Spatial[] spatials, int chunkSize, AtomicInteger nextChunk) {
+            this.spatials = spatials;
+            this.chunkSize = chunkSize;
+            this.nextChunk = nextChunk;
+        }
+
+        public void run() {
+            int start;
+            while ((start = nextChunk.getAndIncrement() * chunkSize) < spatials.length) {
+                int end = Math.min(start + chunkSize, spatials.length);
+                for (int i = start; i < end; i++) {
+                    spatials[i].updateGeometricState();
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a <code>ParallelUpdater</code> that uses one worker thread 
+     * per available processor, the calling thread included.
+     */
+    public ParallelUpdater() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a <code>ParallelUpdater</code>.
+     * 
+     * @param threads The number of threads updating the scene, including
+     * the thread calling {@link Node#updateGeometricState() }.
+     */
+    public ParallelUpdater(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one thread is required");
+        }
+        this.threads = threads;
+        this.executor = threads > 1
+                ? Executors.newFixedThreadPool(threads - 1, new UpdateThreadFactory())
+                : null;
+    }
+
+    /**
+     * @return A shared <code>ParallelUpdater</code> using all available
+     * processors.
+     */
+    public static synchronized ParallelUpdater getDefault() {
+        if (defaultUpdater == null) {
+            defaultUpdater = new ParallelUpdater();
+        }
+        return defaultUpdater;
+    }
+
+    /**
+     * @return The number of threads updating the scene.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the minimum number of children that need to be refreshed
+     * for the update to be split across threads. Below that the children
+     * are updated serially on the calling thread.
+     * 
+     * @param minParallelChildren The minimum number of children, 
+     * {@link #DEFAULT_MIN_PARALLEL_CHILDREN} by default.
+     */
+    public void setMinParallelChildren(int minParallelChildren) {
+        this.minParallelChildren = minParallelChildren;
+    }
+
+    /**
+     * @return The minimum number of children for a parallel update.
+     * @see #setMinParallelChildren(int) 
+     */
+    public int getMinParallelChildren() {
+        return minParallelChildren;
+    }
+
+    /**
+     * Sets the number of chunks the children are split into for each
+     * thread. More chunks balance uneven subtrees better at the cost
+     * of more synchronization.
+     * 
+     * @param chunksPerThread The number of chunks per thread, 4 by default.
+     */
+    public void setChunksPerThread(int chunksPerThread) {
+        if (chunksPerThread < 1) {
+            throw new IllegalArgumentException("At least one chunk per thread is required");
+        }
+        this.chunksPerThread = chunksPerThread;
+    }
+
+    /**
+     * @return The number of chunks per thread.
+     * @see #setChunksPerThread(int) 
+     */
+    public int getChunksPerThread() {
+        return chunksPerThread;
+    }
+
+    /**
+     * Stops the worker threads. The updater must not be used afterwards.
+     */
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Refreshes the geometric state of the given children, in parallel
+     * when worthwhile. Returns once all children have been updated.
+     * 
+     * @param children The children of the node being updated
+     */
+    void updateChildren(Spatial[] children) {
+        if (executor == null
+                || children.length < minParallelChildren
+                || Thread.currentThread() instanceof UpdateThread) {
+            updateSerial(children);
+            return;
+        }
+
+        // only subtrees flagged for refresh have any work to do,
+        // a clean child implies a clean subtree.
+        ArrayList<Spatial> dirtyChildren = new ArrayList<Spatial>(children.length);
+        for (Spatial child : children) {
+            if (child.refreshFlags != 0) {
+                dirtyChildren.add(child);
+            }
+        }
+        Spatial[] spatials = dirtyChildren.toArray(new Spatial[dirtyChildren.size()]);
+
+        if (spatials.length < minParallelChildren) {
+            updateSerial(spatials);
+            return;
+        }
+
+        int chunks = Math.min(spatials.length, threads * chunksPerThread);
+        int chunkSize = (spatials.length + chunks - 1) / chunks;
+        AtomicInteger nextChunk = new AtomicInteger(0);
+        UpdateTask task = new UpdateTask(spatials, chunkSize, nextChunk);
+
+        ArrayList<Future<?>> futures = new ArrayList<Future<?>>(threads - 1);
+        for (int i = 0; i < threads - 1; i++) {
+            futures.add(executor.submit(task));
+        }
+
+        // the calling thread does its share of the work as well
+        RuntimeException failure = null;
+        try {
+            task.run();
+        } catch (RuntimeException ex) {
+            failure = ex;
+        }
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                if (failure == null) {
+                    failure = new IllegalStateException("Interrupted while updating the scene", ex);
+                }
+            } catch (ExecutionException ex) {
+                if (failure == null) {
+                    Throwable cause = ex.getCause();
+                    failure = cause instanceof RuntimeException
+                            ? (RuntimeException) cause
+                            : new IllegalStateException("Failed to update the scene", cause);
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static void updateSerial(Spatial[] children) {
+        for (Spatial child : children) {
+            child.updateGeometricState();
+        }
+    }
+}
@@ -159,6 +159,11 @@ public abstract class Spatial implements Savable, Cloneable, Collidable, Cloneab
      * updated to reflect the correct state.
      */
     protected transient int refreshFlags = 0;
+    /**
+     * The spatial index holding this spatial and its leaf in the index.
+     */
+    transient SpatialIndex spatialIndex;
+    transient int spatialIndexLeaf = -1;
 
     /**
      * Serialization only. Do not use.
@@ -1152,6 +1157,8 @@ public abstract class Spatial implements Savable, Cloneable, Collidable, Cloneab
             // set below so it will have to update anyway.
             clone.worldTransform = worldTransform.clone();
             clone.localTransform = localTransform.clone();
+            clone.spatialIndex = null;
+            clone.spatialIndexLeaf = -1;
 
             if (clone instanceof Node) {
                 Node node = (Node) this;
@@ -1162,6 +1169,10 @@ public abstract class Spatial implements Savable, Cloneable, Collidable, Cloneab
                     childClone.parent = nodeClone;
                     nodeClone.children.add(childClone);
                 }
+                nodeClone.rootSpatialIndex = null;
+                if (node.rootSpatialIndex != null) {
+                    nodeClone.rootSpatialIndex = new SpatialIndex(nodeClone);
+                }
             }
 
             clone.parent = null;
@@ -0,0 +1,808 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.scene;
+
+import com.jme3.bounding.BoundingBox;
+import com.jme3.bounding.BoundingSphere;
+import com.jme3.bounding.BoundingVolume;
+import com.jme3.collision.Collidable;
+import com.jme3.collision.CollisionResults;
+import com.jme3.collision.SweepSphere;
+import com.jme3.collision.UnsupportedCollisionException;
+import com.jme3.math.Ray;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <code>SpatialIndex</code> is a dynamic bounding volume tree of the
+ * geometries under a node, to find the geometries hit by a ray, 
+ * intersecting a bounding volume or inside a camera frustum without 
+ * testing all of them.
+ * <p>
+ * Enable it with {@link Node#setSpatialIndexEnabled(boolean) }. Every 
+ * geometry is a leaf of the tree with an axis aligned box enlarged by 
+ * a margin, see {@link #setMargin(float) }. When the world bound of a 
+ * geometry is refreshed by {@link Spatial#updateGeometricState() }, its leaf 
+ * is only moved if the new bound leaves the enlarged box, so geometries
+ * moving a little do not change the tree. Leaves are inserted where they
+ * enlarge the tree the least and the tree is kept balanced by rotations,
+ * so the queries visit a logarithmic number of boxes. Geometries attached
+ * to or detached from the subtree of the node are added and removed as
+ * they are. {@link InstancedGeometry instanced geometries} are not
+ * indexed, their instances are.
+ * <p>
+ * A node overriding {@link Node#collideWith(com.jme3.collision.Collidable, com.jme3.collision.CollisionResults) },
+ * like a terrain, is a leaf of its own: its children are not indexed and
+ * the queries return the node instead of its geometries. A geometry 
+ * without a bound, with an infinite bound or with a bound other than a 
+ * {@link BoundingBox} or a {@link BoundingSphere} cannot be indexed, 
+ * the queries always return it.
+ * <p>
+ * The queries use the world bounds of the last update of the geometric 
+ * state, {@link Node#collideWith(com.jme3.collision.Collidable, com.jme3.collision.CollisionResults) }
+ * uses the index once the node is updated.
+ * The queries must not run while the geometric state is updated.
+ * <p>
+ * The queries, including {@link #collideWith(com.jme3.collision.Collidable, com.jme3.collision.CollisionResults) },
+ * share scratch buffers of the index, they are not thread safe: an index
+ * must only be queried by one thread at a time. Only the updates of the
+ * world bounds are synchronized.
+ * <p>
+ * Indices cannot be nested, a node inside the subtree of an index cannot
+ * have an index of its own, see {@link Node#setSpatialIndexEnabled(boolean) }.
+ */
+public final class SpatialIndex {
+
+    /**
+     * The default margin added to the boxes of the geometries.
+     */
+    public static final float DEFAULT_MARGIN = 0.1f;
+    private static final int NULL_NODE = -1;
+    private static final int UNINDEXED = -2;
+
+    private final Node root;
+    private float margin = DEFAULT_MARGIN;
+    private int rootNode = NULL_NODE;
+    private int freeList = NULL_NODE;
+    private int leafCount = 0;
+    // the nodes of the tree, a leaf has no children and a free node a 
+    // height of -1, the parent of a free node is the next free node
+    private float[] centers = new float[0];
+    private float[] extents = new float[0];
+    private int[] parents = new int[0];
+    private int[] children1 = new int[0];
+    private int[] children2 = new int[0];
+    private int[] heights = new int[0];
+    private Spatial[] spatials = new Spatial[0];
+    // the spatials which cannot be indexed, their leaf is UNINDEXED
+    private final ArrayList<Spatial> unindexed = new ArrayList<Spatial>();
+    // query state
+    private int[] stack = new int[64];
+    private int[] planeStates = new int[64];
+    private final int[] cullResult = new int[1];
+    private final ArrayList<Spatial> candidates = new ArrayList<Spatial>();
+    private final BoundingBox sweptBounds = new BoundingBox();
+    private final Vector3f tempCenter = new Vector3f();
+    private final Vector3f tempExtent = new Vector3f();
+
+    SpatialIndex(Node root) {
+        this.root = root;
+        for (Spatial child : root.getChildren()) {
+            addSubtree(child);
+        }
+    }
+
+    /**
+     * @return The node whose geometries are indexed.
+     */
+    public Node getRoot() {
+        return root;
+    }
+
+    /**
+     * @return The number of leaves in the index, geometries and nodes
+     * colliding in their own way.
+     */
+    public int size() {
+        return leafCount;
+    }
+
+    /**
+     * @return The number of spatials which cannot be indexed and are
+     * returned by every query.
+     */
+    public int getUnindexedCount() {
+        return unindexed.size();
+    }
+
+    /**
+     * @return The height of the tree, 0 for a single geometry and -1 when
+     * empty.
+     */
+    public int getHeight() {
+        return rootNode == NULL_NODE ? -1 : heights[rootNode];
+    }
+
+    /**
+     * Sets the margin added to the boxes of the geometries, as a fraction
+     * of the size of the box. Larger margins move the leaves less often
+     * at the cost of less precise boxes. Applies to the leaves moved 
+     * afterwards.
+     * 
+     * @param margin The margin, {@link #DEFAULT_MARGIN} by default.
+     */
+    public void setMargin(float margin) {
+        if (margin < 0) {
+            throw new IllegalArgumentException("The margin cannot be negative");
+        }
+        this.margin = margin;
+    }
+
+    /**
+     * @return The margin added to the boxes of the geometries.
+     * @see #setMargin(float) 
+     */
+    public float getMargin() {
+        return margin;
+    }
+
+    /**
+     * Adds the given subtree, just attached, to the index.
+     */
+    void add(Spatial spatial) {
+        for (Node node = spatial.getParent(); node != root; node = node.getParent()) {
+            if (node.spatialIndex == this) {
+                // attached under a node colliding in its own way
+                return;
+            }
+        }
+        addSubtree(spatial);
+    }
+
+    private void addSubtree(Spatial spatial) {
+        if (spatial instanceof InstancedGeometry) {
+            // the instances are indexed instead
+            return;
+        } else if (spatial instanceof Geometry || isOpaque((Node) spatial)) {
+            if (spatial.spatialIndex == null) {
+                spatial.spatialIndex = this;
+                update(spatial);
+            }
+        } else {
+            for (Spatial child : ((Node) spatial).getChildren()) {
+                addSubtree(child);
+            }
+        }
+    }
+
+    /**
+     * Checks if a node overrides 
+     * {@link Node#collideWith(com.jme3.collision.Collidable, com.jme3.collision.CollisionResults) }, 
+     * the geometries of a terrain for example cannot collide with a ray
+     * on their own.
+     */
+    private static boolean isOpaque(Node node) {
+        if (node.getClass() == Node.class) {
+            return false;
+        }
+        try {
+            return node.getClass().getMethod("collideWith", Collidable.class,
+                    CollisionResults.class).getDeclaringClass() != Node.class;
+        } catch (NoSuchMethodException ex) {
+            throw new AssertionError(ex);
+        }
+    }
+
+    /**
+     * Removes the given subtree from the index.
+     */
+    void remove(Spatial spatial) {
+        if (spatial.spatialIndex == this) {
+            synchronized (this) {
+                int leaf = spatial.spatialIndexLeaf;
+                if (leaf == UNINDEXED) {
+                    unindexed.remove(spatial);
+                } else if (leaf != NULL_NODE) {
+                    removeLeaf(leaf);
+                    freeNode(leaf);
+                    leafCount--;
+                }
+            }
+            spatial.spatialIndex = null;
+            spatial.spatialIndexLeaf = NULL_NODE;
+        } else if (spatial instanceof Node) {
+            for (Spatial child : ((Node) spatial).getChildren()) {
+                remove(child);
+            }
+        }
+    }
+
+    /**
+     * Moves the leaf of a spatial to its world bound, called when the 
+     * world bound is refreshed. Spatials of parallel subtrees can be
+     * updated concurrently.
+     */
+    synchronized void update(Spatial spatial) {
+        BoundingVolume bound = spatial.getWorldBound();
+        int leaf = spatial.spatialIndexLeaf;
+        if (bound == null || !getBox(bound, tempCenter, tempExtent)) {
+            if (leaf == UNINDEXED) {
+                return;
+            }
+            if (leaf != NULL_NODE) {
+                removeLeaf(leaf);
+                freeNode(leaf);
+                leafCount--;
+            }
+            spatial.spatialIndexLeaf = UNINDEXED;
+            unindexed.add(spatial);
+            return;
+        }
+
+        if (leaf == UNINDEXED) {
+            unindexed.remove(spatial);
+            leaf = NULL_NODE;
+        }
+        if (leaf != NULL_NODE) {
+            int i = leaf * 3;
+            if (Math.abs(tempCenter.x - centers[i]) + tempExtent.x <= extents[i]
+                    && Math.abs(tempCenter.y - centers[i + 1]) + tempExtent.y <= extents[i + 1]
+                    && Math.abs(tempCenter.z - centers[i + 2]) + tempExtent.z <= extents[i + 2]) {
+                // still inside of the enlarged box
+                return;
+            }
+            removeLeaf(leaf);
+        } else {
+            leaf = allocateNode();
+            spatials[leaf] = spatial;
+            heights[leaf] = 0;
+            spatial.spatialIndexLeaf = leaf;
+            leafCount++;
+        }
+
+        float scale = 1f + margin;
+        int i = leaf * 3;
+        centers[i] = tempCenter.x;
+        centers[i + 1] = tempCenter.y;
+        centers[i + 2] = tempCenter.z;
+        extents[i] = tempExtent.x * scale;
+        extents[i + 1] = tempExtent.y * scale;
+        extents[i + 2] = tempExtent.z * scale;
+        insertLeaf(leaf);
+    }
+
+    /**
+     * Removes all the spatials from the index.
+     */
+    void release() {
+        for (Spatial child : root.getChildren()) {
+            remove(child);
+        }
+    }
+
+    private static boolean getBox(BoundingVolume bound, Vector3f center, Vector3f extent) {
+        if (bound instanceof BoundingBox) {
+            BoundingBox box = (BoundingBox) bound;
+            center.set(box.getCenter());
+            extent.set(box.getXExtent(), box.getYExtent(), box.getZExtent());
+        } else if (bound instanceof BoundingSphere) {
+            float radius = ((BoundingSphere) bound).getRadius();
+            center.set(bound.getCenter());
+            extent.set(radius, radius, radius);
+        } else {
+            return false;
+        }
+        // infinite bounds, or bounds made invalid by infinite values,
+        // cannot be indexed
+        return extent.x < Float.POSITIVE_INFINITY && extent.y < Float.POSITIVE_INFINITY
+                && extent.z < Float.POSITIVE_INFINITY && !Float.isNaN(center.x)
+                && !Float.isNaN(center.y) && !Float.isNaN(center.z);
+    }
+
+    private int allocateNode() {
+        if (freeList == NULL_NODE) {
+            int oldCapacity = heights.length;
+            int capacity = Math.max(16, oldCapacity * 2);
+            centers = grow(centers, capacity * 3);
+            extents = grow(extents, capacity * 3);
+            parents = grow(parents, capacity);
+            children1 = grow(children1, capacity);
+            children2 = grow(children2, capacity);
+            heights = grow(heights, capacity);
+            Spatial[] newSpatials = new Spatial[capacity];
+            System.arraycopy(spatials, 0, newSpatials, 0, oldCapacity);
+            spatials = newSpatials;
+            for (int i = capacity - 1; i >= oldCapacity; i--) {
+                parents[i] = freeList;
+                heights[i] = -1;
+                freeList = i;
+            }
+        }
+        int node = freeList;
+        freeList = parents[node];
+        parents[node] = NULL_NODE;
+        children1[node] = NULL_NODE;
+        children2[node] = NULL_NODE;
+        heights[node] = 0;
+        return node;
+    }
+
+    private void freeNode(int node) {
+        spatials[node] = null;
+        heights[node] = -1;
+        parents[node] = freeList;
+        freeList = node;
+    }
+
+    private static float[] grow(float[] array, int length) {
+        float[] newArray = new float[length];
+        System.arraycopy(array, 0, newArray, 0, array.length);
+        return newArray;
+    }
+
+    private static int[] grow(int[] array, int length) {
+        int[] newArray = new int[length];
+        System.arraycopy(array, 0, newArray, 0, array.length);
+        return newArray;
+    }
+
+    private boolean isLeaf(int node) {
+        return children1[node] == NULL_NODE;
+    }
+
+    /**
+     * @return Half of the surface of the box enclosing two nodes.
+     */
+    private float unionArea(int a, int b) {
+        int i = a * 3, j = b * 3;
+        float x = Math.max(centers[i] + extents[i], centers[j] + extents[j])
+                - Math.min(centers[i] - extents[i], centers[j] - extents[j]);
+        float y = Math.max(centers[i + 1] + extents[i + 1], centers[j + 1] + extents[j + 1])
+                - Math.min(centers[i + 1] - extents[i + 1], centers[j + 1] - extents[j + 1]);
+        float z = Math.max(centers[i + 2] + extents[i + 2], centers[j + 2] + extents[j + 2])
+                - Math.min(centers[i + 2] - extents[i + 2], centers[j + 2] - extents[j + 2]);
+        return x * y + y * z + z * x;
+    }
+
+    /**
+     * @return Half of the surface of the box of a node.
+     */
+    private float area(int node) {
+        int i = node * 3;
+        float x = extents[i] * 2, y = extents[i + 1] * 2, z = extents[i + 2] * 2;
+        return x * y + y * z + z * x;
+    }
+
+    /**
+     * Sets the box of a node to the box enclosing two other nodes.
+     */
+    private void setUnion(int node, int a, int b) {
+        int i = a * 3, j = b * 3, k = node * 3;
+        for (int axis = 0; axis < 3; axis++) {
+            float min = Math.min(centers[i + axis] - extents[i + axis], centers[j + axis] - extents[j + axis]);
+            float max = Math.max(centers[i + axis] + extents[i + axis], centers[j + axis] + extents[j + axis]);
+            centers[k + axis] = (min + max) * 0.5f;
+            extents[k + axis] = (max - min) * 0.5f;
+        }
+    }
+
+    private void insertLeaf(int leaf) {
+        if (rootNode == NULL_NODE) {
+            rootNode = leaf;
+            parents[leaf] = NULL_NODE;
+            return;
+        }
+
+        // find the sibling enlarging the tree the least
+        int sibling = rootNode;
+        while (!isLeaf(sibling)) {
+            int child1 = children1[sibling];
+            int child2 = children2[sibling];
+
+            float area = area(sibling);
+            float combinedArea = unionArea(sibling, leaf);
+
+            // cost of a new parent for this node and the leaf
+            float cost = 2f * combinedArea;
+            // minimum cost of pushing the leaf further down the tree
+            float inheritanceCost = 2f * (combinedArea - area);
+
+            float cost1 = unionArea(leaf, child1) + inheritanceCost;
+            if (!isLeaf(child1)) {
+                cost1 -= area(child1);
+            }
+            float cost2 = unionArea(leaf, child2) + inheritanceCost;
+            if (!isLeaf(child2)) {
+                cost2 -= area(child2);
+            }
+
+            if (cost < cost1 && cost < cost2) {
+                break;
+            }
+            sibling = cost1 < cost2 ? child1 : child2;
+        }
+
+        // create a new parent for the sibling and the leaf
+        int oldParent = parents[sibling];
+        int newParent = allocateNode();
+        parents[newParent] = oldParent;
+        setUnion(newParent, leaf, sibling);
+        heights[newParent] = heights[sibling] + 1;
+        children1[newParent] = sibling;
+        children2[newParent] = leaf;
+        parents[sibling] = newParent;
+        parents[leaf] = newParent;
+        if (oldParent != NULL_NODE) {
+            if (children1[oldParent] == sibling) {
+                children1[oldParent] = newParent;
+            } else {
+                children2[oldParent] = newParent;
+            }
+        } else {
+            rootNode = newParent;
+        }
+
+        refit(parents[leaf]);
+    }
+
+    private void removeLeaf(int leaf) {
+        if (leaf == rootNode) {
+            rootNode = NULL_NODE;
+            return;
+        }
+
+        int parent = parents[leaf];
+        int grandParent = parents[parent];
+        int sibling = children1[parent] == leaf ? children2[parent] : children1[parent];
+
+        if (grandParent != NULL_NODE) {
+            // replace the parent by the sibling
+            if (children1[grandParent] == parent) {
+                children1[grandParent] = sibling;
+            } else {
+                children2[grandParent] = sibling;
+            }
+            parents[sibling] = grandParent;
+            freeNode(parent);
+            refit(grandParent);
+        } else {
+            rootNode = sibling;
+            parents[sibling] = NULL_NODE;
+            freeNode(parent);
+        }
+        parents[leaf] = NULL_NODE;
+    }
+
+    /**
+     * Balances the tree and recomputes the boxes and heights from the
+     * given node up to the root.
+     */
+    private void refit(int node) {
+        while (node != NULL_NODE) {
+            node = balance(node);
+            int child1 = children1[node];
+            int child2 = children2[node];
+            heights[node] = 1 + Math.max(heights[child1], heights[child2]);
+            setUnion(node, child1, child2);
+            node = parents[node];
+        }
+    }
+
+    /**
+     * Rotates the higher child of a node up if the heights of its children
+     * differ by more than one.
+     * 
+     * @return The node now at the place of the given node.
+     */
+    private int balance(int a) {
+        if (isLeaf(a) || heights[a] < 2) {
+            return a;
+        }
+
+        int b = children1[a];
+        int c = children2[a];
+        int balance = heights[c] - heights[b];
+
+        if (balance > 1) {
+            // rotate c up
+            int f = children1[c];
+            int g = children2[c];
+            replaceChild(a, c);
+            children1[c] = a;
+            if (heights[f] > heights[g]) {
+                children2[c] = f;
+                children2[a] = g;
+                parents[g] = a;
+                setUnion(a, b, g);
+                setUnion(c, a, f);
+                heights[a] = 1 + Math.max(heights[b], heights[g]);
+                heights[c] = 1 + Math.max(heights[a], heights[f]);
+            } else {
+                children2[c] = g;
+                children2[a] = f;
+                parents[f] = a;
+                setUnion(a, b, f);
+                setUnion(c, a, g);
+                heights[a] = 1 + Math.max(heights[b], heights[f]);
+                heights[c] = 1 + Math.max(heights[a], heights[g]);
+            }
+            return c;
+        }
+
+        if (balance < -1) {
+            // rotate b up
+            int d = children1[b];
+            int e = children2[b];
+            replaceChild(a, b);
+            children1[b] = a;
+            if (heights[d] > heights[e]) {
+                children2[b] = d;
+                children1[a] = e;
+                parents[e] = a;
+                setUnion(a, c, e);
+                setUnion(b, a, d);
+                heights[a] = 1 + Math.max(heights[c], heights[e]);
+                heights[b] = 1 + Math.max(heights[a], heights[d]);
+            } else {
+                children2[b] = e;
+                children1[a] = d;
+                parents[d] = a;
+                setUnion(a, c, d);
+                setUnion(b, a, e);
+                heights[a] = 1 + Math.max(heights[c], heights[d]);
+                heights[b] = 1 + Math.max(heights[a], heights[e]);
+            }
+            return b;
+        }
+
+        return a;
+    }
+
+    /**
+     * Puts a child of a node at the place of the node, the node becomes
+     * a child of the child.
+     */
+    private void replaceChild(int node, int child) {
+        int parent = parents[node];
+        parents[child] = parent;
+        parents[node] = child;
+        if (parent != NULL_NODE) {
+            if (children1[parent] == node) {
+                children1[parent] = child;
+            } else {
+                children2[parent] = child;
+            }
+        } else {
+            rootNode = child;
+        }
+    }
+
+    private void push(int stackSize, int node, int planeState) {
+        if (stackSize == stack.length) {
+            stack = grow(stack, stackSize * 2);
+            planeStates = grow(planeStates, stackSize * 2);
+        }
+        stack[stackSize] = node;
+        planeStates[stackSize] = planeState;
+    }
+
+    /**
+     * Finds the spatials whose world bound is hit by the ray, 
+     * within the limit of the ray.
+     * 
+     * @param ray The ray.
+     * @param store The list receiving the spatials, geometries or nodes
+     * colliding in their own way.
+     * @return The number of spatials found.
+     */
+    public int query(Ray ray, List<Spatial> store) {
+        Vector3f origin = ray.getOrigin();
+        Vector3f direction = ray.getDirection();
+        float invX = 1f / direction.x, invY = 1f / direction.y, invZ = 1f / direction.z;
+        float limit = ray.getLimit();
+
+        store.addAll(unindexed);
+        int found = unindexed.size();
+        int stackSize = 0;
+        if (rootNode != NULL_NODE) {
+            push(stackSize++, rootNode, 0);
+        }
+        while (stackSize > 0) {
+            int node = stack[--stackSize];
+            int i = node * 3;
+
+            // slab test of the box of the node
+            float tMin = 0, tMax = limit;
+            float t1 = (centers[i] - extents[i] - origin.x) * invX;
+            float t2 = (centers[i] + extents[i] - origin.x) * invX;
+            tMin = Math.max(tMin, Math.min(t1, t2));
+            tMax = Math.min(tMax, Math.max(t1, t2));
+            t1 = (centers[i + 1] - extents[i + 1] - origin.y) * invY;
+            t2 = (centers[i + 1] + extents[i + 1] - origin.y) * invY;
+            tMin = Math.max(tMin, Math.min(t1, t2));
+            tMax = Math.min(tMax, Math.max(t1, t2));
+            t1 = (centers[i + 2] - extents[i + 2] - origin.z) * invZ;
+            t2 = (centers[i + 2] + extents[i + 2] - origin.z) * invZ;
+            tMin = Math.max(tMin, Math.min(t1, t2));
+            tMax = Math.min(tMax, Math.max(t1, t2));
+            if (!(tMin <= tMax)) {
+                continue;
+            }
+
+            if (isLeaf(node)) {
+                Spatial spatial = spatials[node];
+                if (spatial.getWorldBound().intersects(ray)) {
+                    store.add(spatial);
+                    found++;
+                }
+            } else {
+                push(stackSize++, children1[node], 0);
+                push(stackSize++, children2[node], 0);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Finds the spatials whose world bound intersects the given bounding
+     * volume, for example a {@link BoundingSphere} or a {@link BoundingBox}.
+     * 
+     * @param volume The bounding volume.
+     * @param store The list receiving the spatials, geometries or nodes
+     * colliding in their own way.
+     * @return The number of spatials found.
+     */
+    public int query(BoundingVolume volume, List<Spatial> store) {
+        if (!getBox(volume, tempCenter, tempExtent)) {
+            throw new UnsupportedCollisionException("Unsupported bounding volume " + volume);
+        }
+        float cx = tempCenter.x, cy = tempCenter.y, cz = tempCenter.z;
+        float ex = tempExtent.x, ey = tempExtent.y, ez = tempExtent.z;
+
+        store.addAll(unindexed);
+        int found = unindexed.size();
+        int stackSize = 0;
+        if (rootNode != NULL_NODE) {
+            push(stackSize++, rootNode, 0);
+        }
+        while (stackSize > 0) {
+            int node = stack[--stackSize];
+            int i = node * 3;
+            if (Math.abs(centers[i] - cx) > extents[i] + ex
+                    || Math.abs(centers[i + 1] - cy) > extents[i + 1] + ey
+                    || Math.abs(centers[i + 2] - cz) > extents[i + 2] + ez) {
+                continue;
+            }
+
+            if (isLeaf(node)) {
+                Spatial spatial = spatials[node];
+                if (spatial.getWorldBound().intersects(volume)) {
+                    store.add(spatial);
+                    found++;
+                }
+            } else {
+                push(stackSize++, children1[node], 0);
+                push(stackSize++, children2[node], 0);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Finds the spatials whose world bound is not outside of the frustum
+     * of the camera. The boxes of the tree completely inside of a plane 
+     * are not tested against that plane again.
+     * 
+     * @param cam The camera.
+     * @param store The list receiving the spatials, geometries or nodes
+     * colliding in their own way.
+     * @return The number of spatials found.
+     */
+    public int query(Camera cam, List<Spatial> store) {
+        store.addAll(unindexed);
+        int found = unindexed.size();
+        int stackSize = 0;
+        if (rootNode != NULL_NODE) {
+            push(stackSize++, rootNode, 0);
+        }
+        while (stackSize > 0) {
+            stackSize--;
+            int node = stack[stackSize];
+            int planeState = planeStates[stackSize];
+
+            if (planeState != Camera.ALL_PLANES_MASK) {
+                cam.contains(centers, extents, node, 1, planeState, cullResult, null);
+                if (cullResult[0] == Camera.OUTSIDE_MASK) {
+                    continue;
+                }
+                // the planes tested and not intersected contain the box
+                planeState |= Camera.ALL_PLANES_MASK & ~cullResult[0];
+            }
+
+            if (isLeaf(node)) {
+                Spatial spatial = spatials[node];
+                boolean visible = planeState == Camera.ALL_PLANES_MASK;
+                if (!visible) {
+                    // test the exact bound against the planes left, 
+                    // leaving the state of the camera and bound unchanged
+                    BoundingVolume bound = spatial.getWorldBound();
+                    int savedState = cam.getPlaneState();
+                    int savedCheckPlane = bound.getCheckPlane();
+                    cam.setPlaneState(planeState);
+                    visible = cam.contains(bound) != Camera.FrustumIntersect.Outside;
+                    cam.setPlaneState(savedState);
+                    bound.setCheckPlane(savedCheckPlane);
+                }
+                if (visible) {
+                    store.add(spatial);
+                    found++;
+                }
+            } else {
+                push(stackSize++, children1[node], planeState);
+                push(stackSize++, children2[node], planeState);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Collides the spatials of the index with a {@link Ray}, a 
+     * {@link BoundingVolume} or a {@link SweepSphere}, only testing the 
+     * spatials whose world bound is hit, or within the bounds swept by
+     * the sphere, and the spatials which cannot be indexed.
+     * <p>
+     * Like the queries, this must only be called by one thread at a time.
+     * 
+     * @see Spatial#collideWith(com.jme3.collision.Collidable, com.jme3.collision.CollisionResults) 
+     */
+    public int collideWith(Collidable other, CollisionResults results) {
+        candidates.clear();
+        if (other instanceof Ray) {
+            query((Ray) other, candidates);
+        } else if (other instanceof BoundingVolume) {
+            query((BoundingVolume) other, candidates);
+        } else if (other instanceof SweepSphere) {
+            query(((SweepSphere) other).getSweptBounds(1f, sweptBounds), candidates);
+        } else {
+            throw new UnsupportedCollisionException();
+        }
+
+        int total = 0;
+        for (int i = 0; i < candidates.size(); i++) {
+            total += candidates.get(i).collideWith(other, results);
+        }
+        candidates.clear();
+        return total;
+    }
+}
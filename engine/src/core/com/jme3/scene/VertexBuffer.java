@@ -192,6 +192,14 @@ public class VertexBuffer extends NativeObject implements Savable, Cloneable {
          * on the heap.
          */
         BindPoseTangent,
+
+        /**
+         * Per-instance data, used with hardware instancing.
+         * Holds one world matrix per instance (16 floats, column-major),
+         * see {@link VertexBuffer#setInstanceSpan(int) } and
+         * {@link com.jme3.scene.InstancedGeometry}.
+         */
+        InstanceData,
     }
 
     /**
@@ -301,6 +309,7 @@ public class VertexBuffer extends NativeObject implements Savable, Cloneable {
     protected int lastLimit = 0;
     protected int stride = 0;
     protected int components = 0;
+    protected int instanceSpan = 0;
 
     /**
      * derived from components * format.getComponentSize()
@@ -313,6 +322,20 @@ public class VertexBuffer extends NativeObject implements Savable, Cloneable {
     protected boolean normalized = false;
     protected transient boolean dataSizeChanged = false;
 
+    /**
+     * Maximum number of separate update ranges, more ranges
+     * are merged into one.
+     */
+    private static final int MAX_UPDATE_RANGES = 8;
+    
+    /**
+     * the modified element ranges as (start, end) pairs, only meaningful
+     * while an update is needed. No ranges means the whole buffer
+     * must be sent.
+     */
+    protected transient int[] updateRanges;
+    protected transient int numUpdateRanges = 0;
+
     /**
      * Creates an empty, uninitialized buffer.
      * Must call setupData() to initialize.
@@ -468,6 +491,37 @@ public class VertexBuffer extends NativeObject implements Savable, Cloneable {
         return normalized;
     }
 
+    /**
+     * Sets the number of instances drawn with each element of this buffer
+     * when the mesh is rendered with hardware instancing.
+     * A value of 0 (the default) means the buffer holds per-vertex data.
+     * 
+     * @param instanceSpan The number of instances per element, or 0.
+     */
+    public void setInstanceSpan(int instanceSpan){
+        if (instanceSpan < 0)
+            throw new IllegalArgumentException("instanceSpan cannot be negative");
+
+        this.instanceSpan = instanceSpan;
+    }
+
+    /**
+     * @return The number of instances drawn with each element of this buffer,
+     * or 0 if the buffer holds per-vertex data.
+     * @see VertexBuffer#setInstanceSpan(int) 
+     */
+    public int getInstanceSpan(){
+        return instanceSpan;
+    }
+
+    /**
+     * @return True if this buffer holds per-instance data.
+     * @see VertexBuffer#setInstanceSpan(int) 
+     */
+    public boolean isInstanced(){
+        return instanceSpan > 0;
+    }
+
     /**
      * @return The type of information that this buffer has.
      */
@@ -522,8 +576,9 @@ public class VertexBuffer extends NativeObject implements Savable, Cloneable {
         if (data.isReadOnly()) 
             throw new IllegalArgumentException( "VertexBuffer data cannot be read-only." );
 
-        if (components < 1 || components > 4)
-            throw new IllegalArgumentException("components must be between 1 and 4");
+        int maxComponents = bufType == Type.InstanceData ? 16 : 4;
+        if (components < 1 || components > maxComponents)
+            throw new IllegalArgumentException("components must be between 1 and " + maxComponents);
 
         this.data = data;
         this.components = components;
@@ -582,6 +637,105 @@ public class VertexBuffer extends NativeObject implements Savable, Cloneable {
     public void clearUpdateNeeded(){
         super.clearUpdateNeeded();
         dataSizeChanged = false;
+        numUpdateRanges = 0;
+    }
+
+    /**
+     * Indicates that the whole buffer has changed and must be sent
+     * to the GPU again.
+     */
+    @Override
+    public void setUpdateNeeded(){
+        super.setUpdateNeeded();
+        numUpdateRanges = 0;
+    }
+
+    /**
+     * Indicates that only the given range of elements has been modified
+     * in the data buffer. Unless the whole buffer needs to be updated
+     * anyway, the renderer then only sends the modified ranges to the GPU
+     * (with glBufferSubData) instead of the whole buffer.
+     * Overlapping and adjacent ranges are merged.
+     * 
+     * @param startElement The index of the first modified element
+     * @param numElements The number of modified elements
+     */
+    public void setUpdateNeeded(int startElement, int numElements){
+        if (startElement < 0 || numElements < 0)
+            throw new IllegalArgumentException("Range cannot be negative");
+
+        if (numElements == 0)
+            return;
+
+        if (isUpdateNeeded() && numUpdateRanges == 0){
+            // whole buffer is already going to be sent
+            return;
+        }
+
+        super.setUpdateNeeded();
+
+        int start = startElement;
+        int end = startElement + numElements;
+        if (updateRanges == null){
+            updateRanges = new int[MAX_UPDATE_RANGES * 2];
+        }
+
+        // merge with the ranges this one touches
+        for (int i = 0; i < numUpdateRanges; ){
+            int rangeStart = updateRanges[i * 2];
+            int rangeEnd = updateRanges[i * 2 + 1];
+            if (rangeStart <= end && start <= rangeEnd){
+                start = Math.min(start, rangeStart);
+                end = Math.max(end, rangeEnd);
+                numUpdateRanges--;
+                updateRanges[i * 2] = updateRanges[numUpdateRanges * 2];
+                updateRanges[i * 2 + 1] = updateRanges[numUpdateRanges * 2 + 1];
+            } else {
+                i++;
+            }
+        }
+
+        if (numUpdateRanges == MAX_UPDATE_RANGES){
+            // too many ranges, send everything between the first
+            // and the last modified element
+            for (int i = 0; i < numUpdateRanges; i++){
+                start = Math.min(start, updateRanges[i * 2]);
+                end = Math.max(end, updateRanges[i * 2 + 1]);
+            }
+            numUpdateRanges = 0;
+        }
+
+        updateRanges[numUpdateRanges * 2] = start;
+        updateRanges[numUpdateRanges * 2 + 1] = end;
+        numUpdateRanges++;
+    }
+
+    /**
+     * Internal use only.
+     * @return The number of modified element ranges to send to the GPU,
+     * or 0 if the whole buffer must be sent.
+     * @see VertexBuffer#setUpdateNeeded(int, int) 
+     */
+    public int getNumUpdateRanges(){
+        return numUpdateRanges;
+    }
+
+    /**
+     * Internal use only.
+     * @return The first element of the given update range.
+     */
+    public int getUpdateRangeStart(int range){
+        return updateRanges[range * 2];
+    }
+
+    /**
+     * Internal use only.
+     * @return The number of elements in the given update range,
+     * clamped to the elements in the data buffer.
+     */
+    public int getUpdateRangeLength(int range){
+        int end = Math.min(updateRanges[range * 2 + 1], getNumElements());
+        return Math.max(0, end - updateRanges[range * 2]);
     }
 
     /**
@@ -887,6 +1041,8 @@ public class VertexBuffer extends NativeObject implements Savable, Cloneable {
         VertexBuffer vb = (VertexBuffer) super.clone();
         vb.handleRef = new Object();
         vb.id = -1;
+        vb.updateRanges = null;
+        vb.numUpdateRanges = 0;
         if (data != null) {
             // Make sure to pass a read-only buffer to clone so that
             // the position information doesn't get clobbered by another
@@ -921,6 +1077,7 @@ public class VertexBuffer extends NativeObject implements Savable, Cloneable {
         vb.normalized = normalized;
         vb.offset = offset;
         vb.stride = stride;
+        vb.instanceSpan = instanceSpan;
         vb.updateNeeded = true;
         vb.usage = usage;
         return vb;
@@ -964,6 +1121,7 @@ public class VertexBuffer extends NativeObject implements Savable, Cloneable {
         oc.write(normalized, "normalized", false);
         oc.write(offset, "offset", 0);
         oc.write(stride, "stride", 0);
+        oc.write(instanceSpan, "instance_span", 0);
 
         String dataName = "data" + format.name();
         Buffer roData = getDataReadOnly();
@@ -998,6 +1156,7 @@ public class VertexBuffer extends NativeObject implements Savable, Cloneable {
         normalized = ic.readBoolean("normalized", false);
         offset = ic.readInt("offset", 0);
         stride = ic.readInt("stride", 0);
+        instanceSpan = ic.readInt("instance_span", 0);
         componentsLength = components * format.getComponentSize();
 
         String dataName = "data" + format.name();
@@ -0,0 +1,617 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.scene.mesh;
+
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Mesh.Mode;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.scene.VertexBuffer.Format;
+import com.jme3.scene.VertexBuffer.Type;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * <code>VertexCacheOptimizer</code> reorders the triangles of indexed
+ * meshes so that consecutive triangles reuse the vertices left in the
+ * post-transform vertex cache of the GPU, and reorders the vertices so
+ * they are fetched in the order they are first used.
+ * <p>
+ * The triangle order is computed with the Tipsify algorithm from
+ * "Fast Triangle Reordering for Vertex Locality and Reduced Overdraw"
+ * (Sander, Nehab and Barczak, 2007). It runs in linear time and is not
+ * very sensitive to the cache size given, which only needs to be close
+ * to the size of the hardware cache. The triangles can then be grouped
+ * in clusters drawn from the outside of the mesh inwards to reduce
+ * overdraw, at a small cost in cache efficiency.
+ * <p>
+ * The efficiency of an ordering is measured by its average cache miss
+ * ratio (ACMR): the number of vertices transformed per triangle with a
+ * FIFO cache. It ranges from 3 for a triangle soup down to about 0.5
+ * for a large regular grid.
+ */
+public final class VertexCacheOptimizer {
+
+    /**
+     * Cache size used by default, close to the post-transform cache of
+     * current desktop hardware.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 16;
+
+    /**
+     * How much worse than the cluster average the cache efficiency may get
+     * when clusters are split to reduce overdraw.
+     */
+    public static final float DEFAULT_OVERDRAW_THRESHOLD = 1.05f;
+
+    private VertexCacheOptimizer() {
+    }
+
+    /**
+     * Reorders the triangles and then the vertices of the mesh, with the
+     * default cache size.
+     * 
+     * @param mesh The mesh to optimize
+     * 
+     * @see #optimizeTriangleOrder(com.jme3.scene.Mesh, int) 
+     * @see #optimizeVertexOrder(com.jme3.scene.Mesh) 
+     */
+    public static void optimize(Mesh mesh) {
+        optimizeTriangleOrder(mesh, DEFAULT_CACHE_SIZE);
+        optimizeVertexOrder(mesh);
+    }
+
+    /**
+     * Computes the average cache miss ratio of the main index buffer of
+     * the mesh.
+     * 
+     * @param mesh The mesh, in {@link Mode#Triangles} mode
+     * @param cacheSize The number of entries in the simulated FIFO cache
+     * @return The number of vertices transformed per triangle
+     */
+    public static float computeACMR(Mesh mesh, int cacheSize) {
+        if (mesh.getMode() != Mode.Triangles) {
+            throw new IllegalArgumentException("Only triangle lists are supported, got " + mesh.getMode());
+        }
+        IndexBuffer ib = mesh.getIndicesAsList();
+        int[] indices = new int[ib.size() - ib.size() % 3];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = ib.get(i);
+        }
+        return computeACMR(indices, indices.length, mesh.getVertexCount(), cacheSize);
+    }
+
+    /**
+     * Computes the average cache miss ratio of a triangle list.
+     * 
+     * @param indices The triangle list
+     * @param count The number of indices to read
+     * @param vertexCount The number of vertices referenced by the list
+     * @param cacheSize The number of entries in the simulated FIFO cache
+     * @return The number of vertices transformed per triangle
+     */
+    public static float computeACMR(int[] indices, int count, int vertexCount, int cacheSize) {
+        if (count < 3) {
+            return 0f;
+        }
+        int[] cacheTime = new int[vertexCount];
+        int time = cacheSize + 1;
+        int misses = 0;
+        for (int i = 0; i < count; i++) {
+            int v = indices[i];
+            if (time - cacheTime[v] > cacheSize) {
+                cacheTime[v] = time++;
+                misses++;
+            }
+        }
+        return misses / (float) (count / 3);
+    }
+
+    /**
+     * Reorders the triangles of the mesh for the vertex cache. The level
+     * of detail index buffers, if any, are reordered as well.
+     * Meshes that are not indexed triangle lists are left untouched.
+     * 
+     * @param mesh The mesh to optimize
+     * @param cacheSize The size of the vertex cache to optimize for
+     */
+    public static void optimizeTriangleOrder(Mesh mesh, int cacheSize) {
+        if (mesh.getMode() != Mode.Triangles) {
+            return;
+        }
+        int vertexCount = mesh.getVertexCount();
+        for (VertexBuffer vb : getIndexBuffers(mesh)) {
+            IndexBuffer ib = IndexBuffer.wrapIndexBuffer(vb.getData());
+            int[] indices = readIndices(ib);
+            int[] ordered = optimizeTriangleOrder(indices, indices.length, vertexCount, cacheSize);
+            // some exporters already produce a good order, keep it then
+            if (computeACMR(ordered, ordered.length, vertexCount, cacheSize)
+                    >= computeACMR(indices, indices.length, vertexCount, cacheSize)) {
+                continue;
+            }
+            writeIndices(ib, ordered);
+            vb.setUpdateNeeded();
+        }
+        mesh.clearCollisionData();
+    }
+
+    /**
+     * Groups the triangles of the mesh in clusters, and draws first the
+     * clusters facing away from its center, which are the most likely to
+     * occlude the others. The mesh should have been optimized with
+     * {@link #optimizeTriangleOrder(com.jme3.scene.Mesh, int) } first, the
+     * clusters are split where the cache ordering allows it.
+     * 
+     * @param mesh The mesh to optimize
+     * @param cacheSize The size of the vertex cache to optimize for
+     * @param threshold How much the ACMR may grow within a cluster before
+     * it is split, {@link #DEFAULT_OVERDRAW_THRESHOLD} gives good results
+     */
+    public static void optimizeOverdraw(Mesh mesh, int cacheSize, float threshold) {
+        VertexBuffer pb = mesh.getBuffer(Type.Position);
+        if (mesh.getMode() != Mode.Triangles || pb == null
+                || pb.getFormat() != Format.Float || pb.getNumComponents() != 3) {
+            return;
+        }
+        FloatBuffer fb = (FloatBuffer) pb.getData();
+        float[] positions = new float[mesh.getVertexCount() * 3];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = fb.get(i);
+        }
+        for (VertexBuffer vb : getIndexBuffers(mesh)) {
+            IndexBuffer ib = IndexBuffer.wrapIndexBuffer(vb.getData());
+            int[] indices = readIndices(ib);
+            int[] ordered = optimizeOverdraw(indices, indices.length, positions, cacheSize, threshold);
+            writeIndices(ib, ordered);
+            vb.setUpdateNeeded();
+        }
+        mesh.clearCollisionData();
+    }
+
+    /**
+     * Reorders the vertices of the mesh in the order they are first
+     * referenced by its index buffers, so that the vertex fetch reads
+     * memory sequentially. Vertices that are never referenced are moved
+     * at the end. Every vertex buffer is remapped, as are the index
+     * buffers of the levels of detail.
+     * 
+     * @param mesh The mesh to optimize
+     * 
+     * @throws UnsupportedOperationException If the mesh uses interleaved
+     * vertex data.
+     */
+    public static void optimizeVertexOrder(Mesh mesh) {
+        if (mesh.getBuffer(Type.Index) == null) {
+            return;
+        }
+        if (mesh.getBuffer(Type.InterleavedData) != null) {
+            throw new UnsupportedOperationException("Interleaved meshes cannot be reordered");
+        }
+
+        int vertexCount = mesh.getVertexCount();
+        int[] remap = new int[vertexCount];
+        Arrays.fill(remap, -1);
+        int next = 0;
+        List<VertexBuffer> indexBuffers = getIndexBuffers(mesh);
+        for (VertexBuffer vb : indexBuffers) {
+            IndexBuffer ib = IndexBuffer.wrapIndexBuffer(vb.getData());
+            for (int i = 0; i < ib.size(); i++) {
+                int v = ib.get(i);
+                if (remap[v] < 0) {
+                    remap[v] = next++;
+                }
+            }
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            if (remap[v] < 0) {
+                remap[v] = next++;
+            }
+        }
+
+        for (VertexBuffer vb : indexBuffers) {
+            IndexBuffer ib = IndexBuffer.wrapIndexBuffer(vb.getData());
+            for (int i = 0; i < ib.size(); i++) {
+                ib.put(i, remap[ib.get(i)]);
+            }
+            vb.setUpdateNeeded();
+        }
+
+        for (VertexBuffer vb : mesh.getBufferList()) {
+            if (vb.getBufferType() == Type.Index || vb.getData() == null
+                    || vb.getNumElements() != vertexCount) {
+                continue;
+            }
+            remapVertexBuffer(vb, remap);
+        }
+        mesh.clearCollisionData();
+    }
+
+    /**
+     * Computes the Tipsify ordering of a triangle list.
+     * <p>
+     * The triangles are emitted by fanning around a vertex, the next
+     * vertex being the one emitted by the fan that will still be in the
+     * cache once all its remaining triangles are emitted. When no such
+     * vertex is left, the most recently emitted vertex with remaining
+     * triangles is used.
+     * 
+     * @param indices The triangle list
+     * @param count The number of indices to read
+     * @param vertexCount The number of vertices referenced by the list
+     * @param cacheSize The size of the vertex cache to optimize for
+     * @return The reordered triangle list
+     */
+    public static int[] optimizeTriangleOrder(int[] indices, int count, int vertexCount, int cacheSize) {
+        count -= count % 3;
+        int[] offsets = new int[vertexCount + 1];
+        int[] triangles = buildAdjacency(indices, count, vertexCount, offsets);
+
+        int[] live = new int[vertexCount];
+        for (int v = 0; v < vertexCount; v++) {
+            live[v] = offsets[v + 1] - offsets[v];
+        }
+        int[] cacheTime = new int[vertexCount];
+        boolean[] emitted = new boolean[count / 3];
+        int[] deadEnd = new int[count];
+        int deadEndSize = 0;
+        int[] candidates = new int[count];
+        int[] output = new int[count];
+        int outputSize = 0;
+
+        int time = cacheSize + 1;
+        int cursor = 0;
+        int fanning = nextLiveVertex(live, 0);
+        cursor = fanning;
+        while (fanning >= 0) {
+            int candidateCount = 0;
+            for (int i = offsets[fanning]; i < offsets[fanning + 1]; i++) {
+                int t = triangles[i];
+                if (emitted[t]) {
+                    continue;
+                }
+                emitted[t] = true;
+                for (int k = 0; k < 3; k++) {
+                    int v = indices[t * 3 + k];
+                    output[outputSize++] = v;
+                    deadEnd[deadEndSize++] = v;
+                    candidates[candidateCount++] = v;
+                    live[v]--;
+                    if (time - cacheTime[v] > cacheSize) {
+                        cacheTime[v] = time++;
+                    }
+                }
+            }
+
+            int best = -1;
+            int bestPriority = -1;
+            for (int i = 0; i < candidateCount; i++) {
+                int v = candidates[i];
+                if (live[v] <= 0) {
+                    continue;
+                }
+                // a vertex that stays in the cache while its remaining
+                // triangles are emitted is worth its age in the cache
+                int priority = 0;
+                if (time - cacheTime[v] + 2 * live[v] <= cacheSize) {
+                    priority = time - cacheTime[v];
+                }
+                if (priority > bestPriority) {
+                    best = v;
+                    bestPriority = priority;
+                }
+            }
+
+            if (best < 0) {
+                while (deadEndSize > 0) {
+                    int v = deadEnd[--deadEndSize];
+                    if (live[v] > 0) {
+                        best = v;
+                        break;
+                    }
+                }
+            }
+            if (best < 0) {
+                cursor = nextLiveVertex(live, cursor);
+                best = cursor;
+            }
+            fanning = best;
+        }
+        return output;
+    }
+
+    /**
+     * Splits a cache optimized triangle list in clusters and sorts them
+     * to reduce overdraw.
+     * <p>
+     * Clusters start where the ordering restarts with a cold cache, and
+     * are split further wherever the ACMR since the start of the cluster
+     * falls below <code>threshold</code> times the ACMR of the whole
+     * cluster. They are then sorted by how much they face away from the
+     * center of the mesh.
+     * 
+     * @param indices The cache optimized triangle list
+     * @param count The number of indices to read
+     * @param positions The vertex positions, 3 floats per vertex
+     * @param cacheSize The size of the vertex cache the list was
+     * optimized for
+     * @param threshold How much the ACMR may grow within a cluster before
+     * it is split
+     * @return The reordered triangle list
+     */
+    public static int[] optimizeOverdraw(int[] indices, int count, float[] positions,
+                                         int cacheSize, float threshold) {
+        count -= count % 3;
+        int triangleCount = count / 3;
+        int vertexCount = positions.length / 3;
+        if (triangleCount == 0) {
+            return new int[0];
+        }
+
+        // hard boundaries, where all the vertices of a triangle miss
+        int[] cacheTime = new int[vertexCount];
+        int time = cacheSize + 1;
+        int[] hard = new int[triangleCount + 1];
+        int hardCount = 0;
+        for (int t = 0; t < triangleCount; t++) {
+            int misses = 0;
+            for (int k = 0; k < 3; k++) {
+                int v = indices[t * 3 + k];
+                if (time - cacheTime[v] > cacheSize) {
+                    cacheTime[v] = time++;
+                    misses++;
+                }
+            }
+            if (misses == 3 || t == 0) {
+                hard[hardCount++] = t;
+            }
+        }
+        hard[hardCount] = triangleCount;
+
+        // soft boundaries inside each hard cluster
+        List<Integer> clusters = new ArrayList<Integer>();
+        for (int c = 0; c < hardCount; c++) {
+            int start = hard[c];
+            int end = hard[c + 1];
+
+            time += cacheSize + 1;
+            int clusterMisses = 0;
+            for (int t = start; t < end; t++) {
+                int m = countMisses(indices, t, cacheTime, time, cacheSize);
+                clusterMisses += m;
+                time += m;
+            }
+            float clusterThreshold = threshold * clusterMisses / (end - start);
+
+            time += cacheSize + 1;
+            int clusterStart = start;
+            int misses = 0;
+            clusters.add(start);
+            for (int t = start; t < end; t++) {
+                int m = countMisses(indices, t, cacheTime, time, cacheSize);
+                misses += m;
+                time += m;
+                if (t + 1 < end && misses <= clusterThreshold * (t - clusterStart + 1)) {
+                    clusters.add(t + 1);
+                    clusterStart = t + 1;
+                    misses = 0;
+                    time += cacheSize + 1;
+                }
+            }
+        }
+
+        int clusterCount = clusters.size();
+        int[] starts = new int[clusterCount + 1];
+        for (int c = 0; c < clusterCount; c++) {
+            starts[c] = clusters.get(c);
+        }
+        starts[clusterCount] = triangleCount;
+
+        float cx = 0, cy = 0, cz = 0;
+        for (int v = 0; v < vertexCount; v++) {
+            cx += positions[v * 3];
+            cy += positions[v * 3 + 1];
+            cz += positions[v * 3 + 2];
+        }
+        if (vertexCount > 0) {
+            cx /= vertexCount;
+            cy /= vertexCount;
+            cz /= vertexCount;
+        }
+
+        final float[] sortKeys = new float[clusterCount];
+        for (int c = 0; c < clusterCount; c++) {
+            float area = 0, px = 0, py = 0, pz = 0, nx = 0, ny = 0, nz = 0;
+            for (int t = starts[c]; t < starts[c + 1]; t++) {
+                int i0 = indices[t * 3] * 3, i1 = indices[t * 3 + 1] * 3, i2 = indices[t * 3 + 2] * 3;
+                float e1x = positions[i1] - positions[i0], e1y = positions[i1 + 1] - positions[i0 + 1], e1z = positions[i1 + 2] - positions[i0 + 2];
+                float e2x = positions[i2] - positions[i0], e2y = positions[i2 + 1] - positions[i0 + 1], e2z = positions[i2 + 2] - positions[i0 + 2];
+                float tx = e1y * e2z - e1z * e2y;
+                float ty = e1z * e2x - e1x * e2z;
+                float tz = e1x * e2y - e1y * e2x;
+                float a = (float) Math.sqrt(tx * tx + ty * ty + tz * tz);
+                px += a * (positions[i0] + positions[i1] + positions[i2]) / 3f;
+                py += a * (positions[i0 + 1] + positions[i1 + 1] + positions[i2 + 1]) / 3f;
+                pz += a * (positions[i0 + 2] + positions[i1 + 2] + positions[i2 + 2]) / 3f;
+                nx += tx;
+                ny += ty;
+                nz += tz;
+                area += a;
+            }
+            float nl = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+            if (area > 0 && nl > 0) {
+                sortKeys[c] = ((px / area - cx) * nx + (py / area - cy) * ny + (pz / area - cz) * nz) / nl;
+            }
+        }
+
+        Integer[] order = new Integer[clusterCount];
+        for (int c = 0; c < clusterCount; c++) {
+            order[c] = c;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer c1, Integer c2) {
+                return Float.compare(sortKeys[c2], sortKeys[c1]);
+            }
+        });
+
+        int[] output = new int[count];
+        int outputSize = 0;
+        for (int c : order) {
+            int length = (starts[c + 1] - starts[c]) * 3;
+            System.arraycopy(indices, starts[c] * 3, output, outputSize, length);
+            outputSize += length;
+        }
+        return output;
+    }
+
+    private static int countMisses(int[] indices, int t, int[] cacheTime, int time, int cacheSize) {
+        int misses = 0;
+        for (int k = 0; k < 3; k++) {
+            int v = indices[t * 3 + k];
+            if (time - cacheTime[v] > cacheSize) {
+                cacheTime[v] = time++;
+                misses++;
+            }
+        }
+        return misses;
+    }
+
+    private static int nextLiveVertex(int[] live, int start) {
+        for (int v = start; v < live.length; v++) {
+            if (live[v] > 0) {
+                return v;
+            }
+        }
+        return -1;
+    }
+
+    private static int[] buildAdjacency(int[] indices, int count, int vertexCount, int[] offsets) {
+        for (int i = 0; i < count; i++) {
+            offsets[indices[i] + 1]++;
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        int[] fill = new int[vertexCount];
+        System.arraycopy(offsets, 0, fill, 0, vertexCount);
+        int[] triangles = new int[count];
+        for (int i = 0; i < count; i++) {
+            triangles[fill[indices[i]]++] = i / 3;
+        }
+        return triangles;
+    }
+
+    /**
+     * Returns the main index buffer followed by the level of detail index
+     * buffers, each buffer appearing only once.
+     */
+    private static List<VertexBuffer> getIndexBuffers(Mesh mesh) {
+        List<VertexBuffer> buffers = new ArrayList<VertexBuffer>();
+        VertexBuffer main = mesh.getBuffer(Type.Index);
+        if (main != null) {
+            buffers.add(main);
+        }
+        for (int i = 0; i < mesh.getNumLodLevels(); i++) {
+            VertexBuffer lod = mesh.getLodLevel(i);
+            boolean found = false;
+            for (VertexBuffer vb : buffers) {
+                if (vb == lod) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                buffers.add(lod);
+            }
+        }
+        return buffers;
+    }
+
+    private static int[] readIndices(IndexBuffer ib) {
+        int[] indices = new int[ib.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = ib.get(i);
+        }
+        return indices;
+    }
+
+    private static void writeIndices(IndexBuffer ib, int[] indices) {
+        for (int i = 0; i < indices.length; i++) {
+            ib.put(i, indices[i]);
+        }
+    }
+
+    private static void remapVertexBuffer(VertexBuffer vb, int[] remap) {
+        int components = vb.getNumComponents();
+        if (vb.getFormat() == Format.Half) {
+            components *= 2;
+        }
+        Buffer in = vb.getData();
+        Buffer out = VertexBuffer.createBuffer(vb.getFormat(), vb.getNumComponents(), remap.length);
+        int size = remap.length * components;
+        if (in instanceof FloatBuffer) {
+            FloatBuffer src = (FloatBuffer) in, dst = (FloatBuffer) out;
+            for (int i = 0; i < size; i++) {
+                dst.put(remap[i / components] * components + i % components, src.get(i));
+            }
+        } else if (in instanceof ShortBuffer) {
+            ShortBuffer src = (ShortBuffer) in, dst = (ShortBuffer) out;
+            for (int i = 0; i < size; i++) {
+                dst.put(remap[i / components] * components + i % components, src.get(i));
+            }
+        } else if (in instanceof ByteBuffer) {
+            ByteBuffer src = (ByteBuffer) in, dst = (ByteBuffer) out;
+            for (int i = 0; i < size; i++) {
+                dst.put(remap[i / components] * components + i % components, src.get(i));
+            }
+        } else if (in instanceof IntBuffer) {
+            IntBuffer src = (IntBuffer) in, dst = (IntBuffer) out;
+            for (int i = 0; i < size; i++) {
+                dst.put(remap[i / components] * components + i % components, src.get(i));
+            }
+        } else if (in instanceof DoubleBuffer) {
+            DoubleBuffer src = (DoubleBuffer) in, dst = (DoubleBuffer) out;
+            for (int i = 0; i < size; i++) {
+                dst.put(remap[i / components] * components + i % components, src.get(i));
+            }
+        } else {
+            throw new UnsupportedOperationException("Unrecognized buffer type: " + in.getClass());
+        }
+        vb.updateData(out);
+    }
+}
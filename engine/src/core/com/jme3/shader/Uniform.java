@@ -33,6 +33,7 @@ package com.jme3.shader;
 
 import com.jme3.math.*;
 import com.jme3.util.BufferUtils;
+import com.jme3.util.TempVars;
 import java.nio.FloatBuffer;
 
 public class Uniform extends ShaderVariable {
@@ -109,35 +110,113 @@ public class Uniform extends ShaderVariable {
         setByCurrentMaterial = false;
     }
 
-    private static void setVector4(Vector4f vec, Object value) {
+    /**
+     * Stores the given value into the multiData buffer at the given
+     * index, returns true if the stored value was different.
+     */
+    private boolean putFloat(int index, float value) {
+        if (multiData.get(index) != value) {
+            multiData.put(index, value);
+            return true;
+        }
+        return false;
+    }
+
+    private boolean putFloats(float[] values, int offset, int length) {
+        boolean changed = false;
+        for (int i = 0; i < length; i++) {
+            changed |= putFloat(offset + i, values[i]);
+        }
+        return changed;
+    }
+
+    /**
+     * Makes sure the multiData buffer can hold the given number of floats,
+     * returns true if a new buffer had to be allocated.
+     */
+    private boolean ensureMultiData(int length) {
+        if (multiData == null) {
+            multiData = BufferUtils.createFloatBuffer(length);
+            return true;
+        }
+        multiData.clear();
+        FloatBuffer fb = BufferUtils.ensureLargeEnough(multiData, length);
+        if (fb != multiData) {
+            multiData = fb;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Copies a ColorRGBA, Quaternion or Vector4f value,
+     * returns true if the copy was different.
+     */
+    private boolean setVector4(Object value) {
         if (value instanceof ColorRGBA) {
             ColorRGBA color = (ColorRGBA) value;
-            vec.set(color.r, color.g, color.b, color.a);
+            if (this.value instanceof ColorRGBA) {
+                ColorRGBA current = (ColorRGBA) this.value;
+                if (current.r == color.r && current.g == color.g
+                        && current.b == color.b && current.a == color.a) {
+                    return false;
+                }
+                current.set(color);
+            } else {
+                this.value = color.clone();
+            }
         } else if (value instanceof Quaternion) {
             Quaternion quat = (Quaternion) value;
-            vec.set(quat.getX(), quat.getY(), quat.getZ(), quat.getW());
+            if (this.value instanceof Quaternion) {
+                Quaternion current = (Quaternion) this.value;
+                if (current.getX() == quat.getX() && current.getY() == quat.getY()
+                        && current.getZ() == quat.getZ() && current.getW() == quat.getW()) {
+                    return false;
+                }
+                current.set(quat);
+            } else {
+                this.value = quat.clone();
+            }
         } else if (value instanceof Vector4f) {
-            Vector4f vec4 = (Vector4f) value;
-            vec.set(vec4);
-        } else{
+            Vector4f vec = (Vector4f) value;
+            if (this.value instanceof Vector4f) {
+                Vector4f current = (Vector4f) this.value;
+                if (current.x == vec.x && current.y == vec.y
+                        && current.z == vec.z && current.w == vec.w) {
+                    return false;
+                }
+                current.set(vec);
+            } else {
+                this.value = vec.clone();
+            }
+        } else {
             throw new IllegalArgumentException();
         }
+        return true;
     }
     
+    /**
+     * Sets the value of the uniform to zero. The uniform is only 
+     * marked for update if its value was not already zero.
+     */
     public void clearValue(){
-        updateNeeded = true;
-
         if (multiData != null){
-            ZERO_BUF.clear();
-            multiData.clear();
-
-            while (multiData.remaining() > 0){
-                ZERO_BUF.limit( Math.min(multiData.remaining(), 16) );
-                multiData.put(ZERO_BUF);
+            int capacity = multiData.capacity();
+            for (int i = 0; i < capacity; i++) {
+                if (multiData.get(i) != 0f) {
+                    ZERO_BUF.clear();
+                    multiData.clear();
+
+                    while (multiData.remaining() > 0){
+                        ZERO_BUF.limit( Math.min(multiData.remaining(), 16) );
+                        multiData.put(ZERO_BUF);
+                    }
+
+                    multiData.clear();
+                    updateNeeded = true;
+                    break;
+                }
             }
-
-            multiData.clear();
-
             return;
         }
 
@@ -147,22 +226,57 @@ public class Uniform extends ShaderVariable {
             
         switch (varType){
             case Int:
-                this.value = ZERO_INT;
+                if (!ZERO_INT.equals(value)) {
+                    this.value = ZERO_INT;
+                    updateNeeded = true;
+                }
                 break;
             case Boolean:
-                this.value = Boolean.FALSE;
+                if (!Boolean.FALSE.equals(value)) {
+                    this.value = Boolean.FALSE;
+                    updateNeeded = true;
+                }
                 break;
             case Float:
-                this.value = ZERO_FLT; 
+                if (!ZERO_FLT.equals(value)) {
+                    this.value = ZERO_FLT;
+                    updateNeeded = true;
+                }
                 break;
             case Vector2:
-                this.value = Vector2f.ZERO;
+                Vector2f v2 = (Vector2f) value;
+                if (v2.x != 0f || v2.y != 0f) {
+                    v2.set(0f, 0f);
+                    updateNeeded = true;
+                }
                 break;
             case Vector3:
-                this.value = Vector3f.ZERO;
+                Vector3f v3 = (Vector3f) value;
+                if (v3.x != 0f || v3.y != 0f || v3.z != 0f) {
+                    v3.set(0f, 0f, 0f);
+                    updateNeeded = true;
+                }
                 break;
             case Vector4:
-                this.value = Vector4f.ZERO;
+                if (value instanceof ColorRGBA) {
+                    ColorRGBA c = (ColorRGBA) value;
+                    if (c.r != 0f || c.g != 0f || c.b != 0f || c.a != 0f) {
+                        c.set(0f, 0f, 0f, 0f);
+                        updateNeeded = true;
+                    }
+                } else if (value instanceof Quaternion) {
+                    Quaternion q = (Quaternion) value;
+                    if (q.getX() != 0f || q.getY() != 0f || q.getZ() != 0f || q.getW() != 0f) {
+                        q.set(0f, 0f, 0f, 0f);
+                        updateNeeded = true;
+                    }
+                } else {
+                    Vector4f v4 = (Vector4f) value;
+                    if (v4.x != 0f || v4.y != 0f || v4.z != 0f || v4.w != 0f) {
+                        v4.set(0f, 0f, 0f, 0f);
+                        updateNeeded = true;
+                    }
+                }
                 break;
             default:
                 // won't happen because those are either textures
@@ -170,6 +284,16 @@ public class Uniform extends ShaderVariable {
         }
     }
     
+    /**
+     * Sets the value of the uniform.
+     * <p>
+     * The value is copied, and the uniform is only marked for update 
+     * if the copy differs from the value currently set, so uniforms 
+     * that keep their values between geometries are not uploaded again.
+     * 
+     * @param type The type of the value
+     * @param value The value to set
+     */
     public void setValue(VarType type, Object value){
         if (location == LOC_NOT_DEFINED) {
             return;
@@ -185,104 +309,126 @@ public class Uniform extends ShaderVariable {
 
         setByCurrentMaterial = true;
 
+        // the first value always needs an update
+        boolean changed = varType == null;
+        TempVars vars;
         switch (type){
             case Matrix3:
                 Matrix3f m3 = (Matrix3f) value;
-                if (multiData == null) {
-                    multiData = BufferUtils.createFloatBuffer(9);
-                }
-                m3.fillFloatBuffer(multiData, true);
+                changed |= ensureMultiData(9);
+                vars = TempVars.get();
+                m3.fillFloatArray(vars.matrixWrite, true);
+                changed |= putFloats(vars.matrixWrite, 0, 9);
+                vars.release();
                 multiData.clear();
                 break;
             case Matrix4:
                 Matrix4f m4 = (Matrix4f) value;
-                if (multiData == null) {
-                    multiData = BufferUtils.createFloatBuffer(16);
-                }
-                m4.fillFloatBuffer(multiData, true);
+                changed |= ensureMultiData(16);
+                vars = TempVars.get();
+                m4.fillFloatArray(vars.matrixWrite, true);
+                changed |= putFloats(vars.matrixWrite, 0, 16);
+                vars.release();
                 multiData.clear();
                 break;
             case FloatArray:
                 float[] fa = (float[]) value;
-                if (multiData == null) {
-                    multiData = BufferUtils.createFloatBuffer(fa);
-                } else {
-                    multiData = BufferUtils.ensureLargeEnough(multiData, fa.length);
-                }
-                multiData.put(fa);
+                changed |= ensureMultiData(fa.length);
+                changed |= putFloats(fa, 0, fa.length);
                 multiData.clear();
                 break;
             case Vector2Array:
                 Vector2f[] v2a = (Vector2f[]) value;
-                if (multiData == null) {
-                    multiData = BufferUtils.createFloatBuffer(v2a);
-                } else {
-                    multiData = BufferUtils.ensureLargeEnough(multiData, v2a.length * 2);
-                }
+                changed |= ensureMultiData(v2a.length * 2);
                 for (int i = 0; i < v2a.length; i++) {
-                    BufferUtils.setInBuffer(v2a[i], multiData, i);
+                    changed |= putFloat(i * 2, v2a[i].x);
+                    changed |= putFloat(i * 2 + 1, v2a[i].y);
                 }
                 multiData.clear();
                 break;
             case Vector3Array:
                 Vector3f[] v3a = (Vector3f[]) value;
-                if (multiData == null) {
-                    multiData = BufferUtils.createFloatBuffer(v3a);
-                } else {
-                    multiData = BufferUtils.ensureLargeEnough(multiData, v3a.length * 3);
-                }
+                changed |= ensureMultiData(v3a.length * 3);
                 for (int i = 0; i < v3a.length; i++) {
-                    BufferUtils.setInBuffer(v3a[i], multiData, i);
+                    changed |= putFloat(i * 3, v3a[i].x);
+                    changed |= putFloat(i * 3 + 1, v3a[i].y);
+                    changed |= putFloat(i * 3 + 2, v3a[i].z);
                 }
                 multiData.clear();
                 break;
             case Vector4Array:
                 Vector4f[] v4a = (Vector4f[]) value;
-                if (multiData == null) {
-                    multiData = BufferUtils.createFloatBuffer(v4a);
-                } else {
-                    multiData = BufferUtils.ensureLargeEnough(multiData, v4a.length * 4);
-                }
+                changed |= ensureMultiData(v4a.length * 4);
                 for (int i = 0; i < v4a.length; i++) {
-                    BufferUtils.setInBuffer(v4a[i], multiData, i);
+                    changed |= putFloat(i * 4, v4a[i].x);
+                    changed |= putFloat(i * 4 + 1, v4a[i].y);
+                    changed |= putFloat(i * 4 + 2, v4a[i].z);
+                    changed |= putFloat(i * 4 + 3, v4a[i].w);
                 }
                 multiData.clear();
                 break;
             case Matrix3Array:
                 Matrix3f[] m3a = (Matrix3f[]) value;
-                if (multiData == null) {
-                    multiData = BufferUtils.createFloatBuffer(m3a.length * 9);
-                } else {
-                    multiData = BufferUtils.ensureLargeEnough(multiData, m3a.length * 9);
-                }
+                changed |= ensureMultiData(m3a.length * 9);
+                vars = TempVars.get();
                 for (int i = 0; i < m3a.length; i++) {
-                    m3a[i].fillFloatBuffer(multiData, true);
+                    m3a[i].fillFloatArray(vars.matrixWrite, true);
+                    changed |= putFloats(vars.matrixWrite, i * 9, 9);
                 }
+                vars.release();
                 multiData.clear();
                 break;
             case Matrix4Array:
                 Matrix4f[] m4a = (Matrix4f[]) value;
-                if (multiData == null) {
-                    multiData = BufferUtils.createFloatBuffer(m4a.length * 16);
-                } else {
-                    multiData = BufferUtils.ensureLargeEnough(multiData, m4a.length * 16);
-                }
+                changed |= ensureMultiData(m4a.length * 16);
+                vars = TempVars.get();
                 for (int i = 0; i < m4a.length; i++) {
-                    m4a[i].fillFloatBuffer(multiData, true);
+                    m4a[i].fillFloatArray(vars.matrixWrite, true);
+                    changed |= putFloats(vars.matrixWrite, i * 16, 16);
                 }
+                vars.release();
                 multiData.clear();
                 break;
-                // Only use check if equals optimization for primitive values
+            case Vector2:
+                Vector2f v2 = (Vector2f) value;
+                if (this.value instanceof Vector2f) {
+                    Vector2f current = (Vector2f) this.value;
+                    if (current.x != v2.x || current.y != v2.y) {
+                        current.set(v2);
+                        changed = true;
+                    }
+                } else {
+                    this.value = v2.clone();
+                    changed = true;
+                }
+                break;
+            case Vector3:
+                Vector3f v3 = (Vector3f) value;
+                if (this.value instanceof Vector3f) {
+                    Vector3f current = (Vector3f) this.value;
+                    if (current.x != v3.x || current.y != v3.y || current.z != v3.z) {
+                        current.set(v3);
+                        changed = true;
+                    }
+                } else {
+                    this.value = v3.clone();
+                    changed = true;
+                }
+                break;
+            case Vector4:
+                changed |= setVector4(value);
+                break;
             case Int:
             case Float:
             case Boolean:
-                if (this.value != null && this.value.equals(value)) {
-                    return;
+                if (this.value == null || !this.value.equals(value)) {
+                    this.value = value;
+                    changed = true;
                 }
-                this.value = value;
                 break;
             default:
                 this.value = value;
+                changed = true;
                 break;
         }
 
@@ -291,7 +437,9 @@ public class Uniform extends ShaderVariable {
         }
 
         varType = type;
-        updateNeeded = true;
+        if (changed) {
+            updateNeeded = true;
+        }
     }
 
     public void setVector4Length(int length){
@@ -299,12 +447,15 @@ public class Uniform extends ShaderVariable {
             return;
 
         FloatBuffer fb = (FloatBuffer) value;
-        if (fb == null || fb.capacity() < length) {
+        if (fb == null || fb.capacity() < length * 4) {
             value = BufferUtils.createFloatBuffer(length * 4);
+            updateNeeded = true;
         }
 
-        varType = VarType.Vector4Array;
-        updateNeeded = true;
+        if (varType != VarType.Vector4Array) {
+            varType = VarType.Vector4Array;
+            updateNeeded = true;
+        }
         setByCurrentMaterial = true;
     }
 
@@ -316,10 +467,14 @@ public class Uniform extends ShaderVariable {
             throw new IllegalArgumentException("Expected a "+varType.name()+" value!");
 
         FloatBuffer fb = (FloatBuffer) value;
-        fb.position(index * 4);
-        fb.put(x).put(y).put(z).put(w);
-        fb.rewind();
-        updateNeeded = true;
+        int i = index * 4;
+        if (fb.get(i) != x || fb.get(i + 1) != y
+         || fb.get(i + 2) != z || fb.get(i + 3) != w) {
+            fb.position(i);
+            fb.put(x).put(y).put(z).put(w);
+            fb.rewind();
+            updateNeeded = true;
+        }
         setByCurrentMaterial = true;
     }
     
@@ -57,6 +57,10 @@ public class NullRenderer implements Renderer {
         return caps;
     }
 
+    public int getMaxVertexUniformComponents() {
+        return 0;
+    }
+
     public Statistics getStatistics() {
         return stats;
     }
@@ -35,8 +35,8 @@ import java.util.Arrays;
 import java.util.Comparator;
 
 /**
- * Quick and merge sort implementations that create no garbage, unlike {@link
- * Arrays#sort}. The merge sort is stable, the quick sort is not.
+ * Quick, merge and radix sort implementations that create no garbage, unlike {@link
+ * Arrays#sort}. The merge and radix sorts are stable, the quick sort is not.
  */
 public class SortUtil {
 
@@ -349,4 +349,93 @@ end procedure
             src[high] = dest[high];
         }
     }
+
+    /**
+     * The number of counters needed by 
+     * {@link #rsort(long[], int[], long[], int[], int[], int) }.
+     */
+    public static final int RSORT_COUNTS_SIZE = 8 * 256;
+
+    /**
+     * Radix sort of unsigned 64 bit keys, carrying along an int value
+     * (usually an index) for every key. The sort is stable.
+     * <p>
+     * Byte positions that are identical for all keys are skipped, so
+     * keys that only use some of their bits are sorted in fewer passes.
+     * The sorted keys and values are stored back into <code>keys</code>
+     * and <code>values</code>.
+     *
+     * @param keys The keys to sort, compared as unsigned values
+     * @param values The values to reorder along with the keys
+     * @param keysTmp Temporary storage of at least <code>size</code> elements
+     * @param valuesTmp Temporary storage of at least <code>size</code> elements
+     * @param counts Temporary storage of at least {@link #RSORT_COUNTS_SIZE} elements
+     * @param size The number of keys to sort
+     */
+    public static void rsort(long[] keys, int[] values, long[] keysTmp, 
+            int[] valuesTmp, int[] counts, int size) {
+        Arrays.fill(counts, 0, RSORT_COUNTS_SIZE, 0);
+
+        // histogram of every byte position in a single pass
+        for (int i = 0; i < size; i++) {
+            long key = keys[i];
+            for (int b = 0; b < 8; b++) {
+                counts[(b << 8) + (int) ((key >>> (b << 3)) & 0xff)]++;
+            }
+        }
+
+        long[] srcKeys = keys, dstKeys = keysTmp;
+        int[] srcValues = values, dstValues = valuesTmp;
+        for (int b = 0; b < 8; b++) {
+            int offset = b << 8;
+            int shift = b << 3;
+
+            // all keys share this byte, the pass would not change anything
+            if (counts[offset + (int) ((srcKeys[0] >>> shift) & 0xff)] == size) {
+                continue;
+            }
+
+            // convert counts to starting positions
+            int total = 0;
+            for (int i = offset; i < offset + 256; i++) {
+                int count = counts[i];
+                counts[i] = total;
+                total += count;
+            }
+
+            for (int i = 0; i < size; i++) {
+                long key = srcKeys[i];
+                int pos = counts[offset + (int) ((key >>> shift) & 0xff)]++;
+                dstKeys[pos] = key;
+                dstValues[pos] = srcValues[i];
+            }
+
+            long[] tk = srcKeys;
+            srcKeys = dstKeys;
+            dstKeys = tk;
+            int[] tv = srcValues;
+            srcValues = dstValues;
+            dstValues = tv;
+        }
+
+        if (srcKeys != keys) {
+            System.arraycopy(srcKeys, 0, keys, 0, size);
+            System.arraycopy(srcValues, 0, values, 0, size);
+        }
+    }
+
+    /**
+     * Converts a float into an unsigned 32 bit integer (stored in a long)
+     * whose ordering matches the ordering of the float values. 
+     * Useful for building radix sort keys.
+     *
+     * @param value The float value, must not be NaN
+     * @return The sortable bits of the value, in the low 32 bits.
+     */
+    public static long floatToSortableBits(float value) {
+        // adding zero turns negative zero into positive zero
+        int bits = Float.floatToIntBits(value + 0f);
+        bits ^= (bits >> 31) | 0x80000000;
+        return bits & 0xffffffffL;
+    }
 }
@@ -218,4 +218,14 @@ public class TempVars {
      */
     public final float[] bihSwapTmp = new float[9];
     public final ArrayList<BIHStackData> bihStack = new ArrayList<BIHStackData>();
+    /**
+     * Packed BIHTree traversal, the node and the ray interval of each entry.
+     * Deeper than the trees built by BIHTree, see BIHTree.MAX_TREE_DEPTH
+     */
+    public final int[] bihNodeStack = new int[128];
+    public final float[] bihIntervalStack = new float[256];
+    /**
+     * Bounds swept by a SweepSphere in the space of a BIHTree, min then max.
+     */
+    public final float[] bihSweptBounds = new float[6];
 }
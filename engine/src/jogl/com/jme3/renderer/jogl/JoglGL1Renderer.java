@@ -113,6 +113,10 @@ public class JoglGL1Renderer implements GL1Renderer {
         return caps;
     }
 
+    public int getMaxVertexUniformComponents() {
+        return 0;
+    }
+
     public void initialize() {
         GL gl = GLContext.getCurrentGL();
         if (gl.isExtensionAvailable("GL_VERSION_1_2")){
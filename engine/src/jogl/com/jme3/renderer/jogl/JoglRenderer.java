@@ -138,6 +138,10 @@ public class JoglRenderer implements WrappedJoglRenderer {
         return caps;
     }
 
+    public int getMaxVertexUniformComponents() {
+        return vertexUniforms;
+    }
+
     public void initialize() {
         GL gl = GLContext.getCurrentGL();
         //logger.log(Level.INFO, "Vendor: {0}", gl.glGetString(GL.GL_VENDOR));
@@ -284,7 +288,7 @@ public class JoglRenderer implements WrappedJoglRenderer {
             caps.add(Caps.PackedDepthStencilBuffer);
         }
 
-        if (gl.isExtensionAvailable("GL_ARB_draw_instanced")) {
+        if (gl.isExtensionAvailable("GL_ARB_draw_instanced") && gl.isExtensionAvailable("GL_ARB_instanced_arrays")) {
             caps.add(Caps.MeshInstancing);
         }
 
@@ -489,6 +493,8 @@ public class JoglRenderer implements WrappedJoglRenderer {
     }
 
     public void applyRenderState(RenderState state) {
+        statistics.onRenderStateApplied(context.isApplied(state));
+
         GL gl = GLContext.getCurrentGL();
         if (state.isWireframe() && !context.wireframe) {
             gl.getGL2GL3().glPolygonMode(GL.GL_FRONT_AND_BACK, GL2.GL_LINE);
@@ -656,6 +662,7 @@ public class JoglRenderer implements WrappedJoglRenderer {
                 || context.frontStencilFunction != state.getFrontStencilFunction()
                 || context.backStencilFunction != state.getBackStencilFunction()) {
 
+            context.stencilTest = state.isStencilTest();
             context.frontStencilStencilFailOperation = state.getFrontStencilStencilFailOperation();   //terrible looking, I know
             context.frontStencilDepthFailOperation = state.getFrontStencilDepthFailOperation();
             context.frontStencilDepthPassOperation = state.getFrontStencilDepthPassOperation();
@@ -922,6 +929,8 @@ public class JoglRenderer implements WrappedJoglRenderer {
             Uniform uniform = uniforms.getValue(i);
             if (uniform.isUpdateNeeded()) {
                 updateUniform(shader, uniform);
+            } else {
+                statistics.onUniformSkipped();
             }
         }
     }
@@ -2116,6 +2125,16 @@ public class JoglRenderer implements WrappedJoglRenderer {
         if (created || vb.hasDataSizeChanged()) {
             // upload data based on format
             gl.glBufferData(target, data.capacity() * vb.getFormat().getComponentSize(), data, usage);
+        } else if (vb.getNumUpdateRanges() > 0) {
+            // only send the modified elements
+            int components = vb.getNumComponents();
+            int componentSize = vb.getFormat().getComponentSize();
+            for (int i = 0; i < vb.getNumUpdateRanges(); i++) {
+                int start = vb.getUpdateRangeStart(i) * components;
+                data.position(start);
+                gl.glBufferSubData(target, start * componentSize, vb.getUpdateRangeLength(i) * components * componentSize, data);
+            }
+            data.rewind();
         } else {
             gl.glBufferSubData(target, 0, data.capacity() * vb.getFormat().getComponentSize(), data);
         }
@@ -2143,6 +2162,9 @@ public class JoglRenderer implements WrappedJoglRenderer {
             int idx = attribList.oldList[i];
             GL gl = GLContext.getCurrentGL();
             gl.getGL2GL3().glDisableVertexAttribArray(idx);
+            if (context.boundAttribs[idx] != null && context.boundAttribs[idx].isInstanced()) {
+                gl.getGL2GL3().glVertexAttribDivisor(idx, 0);
+            }
             context.boundAttribs[idx] = null;
         }
         context.attribIndexList.copyNewToOld();
@@ -2182,9 +2204,13 @@ public class JoglRenderer implements WrappedJoglRenderer {
             }
 
             VertexBuffer[] attribs = context.boundAttribs;
-            if (!context.attribIndexList.moveToNew(loc)) {
-                gl.getGL2GL3().glEnableVertexAttribArray(loc);
-                //System.out.println("Enabled ATTRIB IDX: "+loc);
+            // matrices use one attribute location per column
+            int slots = vb.getNumComponents() > 4 ? vb.getNumComponents() / 4 : 1;
+            for (int i = 0; i < slots; i++) {
+                if (!context.attribIndexList.moveToNew(loc + i)) {
+                    gl.getGL2GL3().glEnableVertexAttribArray(loc + i);
+                    //System.out.println("Enabled ATTRIB IDX: "+loc);
+                }
             }
             if (attribs[loc] != vb) {
                 // NOTE: Use id from interleaved buffer if specified
@@ -2198,14 +2224,33 @@ public class JoglRenderer implements WrappedJoglRenderer {
                     //statistics.onVertexBufferUse(vb, false);
                 }
 
-                gl.getGL2GL3().glVertexAttribPointer(loc,
-                        vb.getNumComponents(),
-                        convertFormat(vb.getFormat()),
-                        vb.isNormalized(),
-                        vb.getStride(),
-                        vb.getOffset());
+                if (slots == 1) {
+                    gl.getGL2GL3().glVertexAttribPointer(loc,
+                            vb.getNumComponents(),
+                            convertFormat(vb.getFormat()),
+                            vb.isNormalized(),
+                            vb.getStride(),
+                            vb.getOffset());
+                } else {
+                    int columnSize = 4 * vb.getFormat().getComponentSize();
+                    int stride = vb.getStride() != 0 ? vb.getStride() : slots * columnSize;
+                    for (int i = 0; i < slots; i++) {
+                        gl.getGL2GL3().glVertexAttribPointer(loc + i,
+                                4,
+                                convertFormat(vb.getFormat()),
+                                vb.isNormalized(),
+                                stride,
+                                vb.getOffset() + i * columnSize);
+                    }
+                }
 
-                attribs[loc] = vb;
+                for (int i = 0; i < slots; i++) {
+                    VertexBuffer prevVb = attribs[loc + i];
+                    if (vb.isInstanced() || (prevVb != null && prevVb.isInstanced())) {
+                        gl.getGL2GL3().glVertexAttribDivisor(loc + i, vb.getInstanceSpan());
+                    }
+                    attribs[loc + i] = vb;
+                }
             }
         } else {
             throw new IllegalStateException("Cannot render mesh without shader bound");
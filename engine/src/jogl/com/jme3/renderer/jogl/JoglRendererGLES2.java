@@ -122,6 +122,10 @@ public class JoglRendererGLES2 implements WrappedJoglRenderer {
 		return caps;
 	}
 
+	public int getMaxVertexUniformComponents() {
+		return vertexUniforms;
+	}
+
 	private int extractVersion(String prefixStr, String versionStr) {
 		if (versionStr != null) {
 			int spaceIdx = versionStr.indexOf(" ", prefixStr.length());
@@ -192,6 +196,10 @@ public class JoglRendererGLES2 implements WrappedJoglRenderer {
 		fragTextureUnits = intBuf16.get(0);
 		logger.log(Level.INFO, "Texture Units: {0}", fragTextureUnits);
 
+		gl.glGetIntegerv(GL2ES2.GL_MAX_VERTEX_UNIFORM_VECTORS, intBuf16);
+		vertexUniforms = intBuf16.get(0) * 4;
+		logger.log(Level.INFO, "Vertex Uniforms: {0}", vertexUniforms);
+
 		gl.glGetIntegerv(GL2ES2.GL_SUBPIXEL_BITS, intBuf16);
 		int subpixelBits = intBuf16.get(0);
 		logger.log(Level.INFO, "Subpixel Bits: {0}", subpixelBits);
@@ -347,6 +355,7 @@ public class JoglRendererGLES2 implements WrappedJoglRenderer {
 	}
 
 	public void applyRenderState(RenderState state) {
+		statistics.onRenderStateApplied(context.isApplied(state));
 
 		GL2ES2 gl = getGL();
 		/*
@@ -689,6 +698,8 @@ public class JoglRendererGLES2 implements WrappedJoglRenderer {
 			Uniform uniform = uniforms.getValue(i);
 			if (uniform.isUpdateNeeded()) {
 				updateUniform(shader, uniform);
+			} else {
+				statistics.onUniformSkipped();
 			}
 		}
 	}
@@ -1637,6 +1648,18 @@ public class JoglRendererGLES2 implements WrappedJoglRenderer {
 			default:
 				throw new RuntimeException("Unknown buffer format.");
 			}
+		} else if (vb.getNumUpdateRanges() > 0) {
+			// only send the modified elements
+			Buffer data = vb.getData();
+			int components = vb.getNumComponents();
+			int componentSize = vb.getFormat().getComponentSize();
+			for (int i = 0; i < vb.getNumUpdateRanges(); i++) {
+				int start = vb.getUpdateRangeStart(i) * components;
+				data.position(start);
+				gl.glBufferSubData(target, start * componentSize,
+						vb.getUpdateRangeLength(i) * components * componentSize, data);
+			}
+			data.rewind();
 		} else {
 			int size = vb.getData().limit() * vb.getFormat().getComponentSize();
 
@@ -85,6 +85,10 @@ public class LwjglGL1Renderer implements GL1Renderer {
         return caps;
     }
 
+    public int getMaxVertexUniformComponents() {
+        return 0;
+    }
+
     public void initialize() {
         if (GLContext.getCapabilities().OpenGL12){
             gl12 = true;
@@ -137,6 +137,10 @@ public class LwjglRenderer implements Renderer {
         return caps;
     }
 
+    public int getMaxVertexUniformComponents() {
+        return vertexUniforms;
+    }
+
     @SuppressWarnings("fallthrough")
     public void initialize() {
         ContextCapabilities ctxCaps = GLContext.getCapabilities();
@@ -275,7 +279,7 @@ public class LwjglRenderer implements Renderer {
             caps.add(Caps.PackedDepthStencilBuffer);
         }
 
-        if (ctxCaps.GL_ARB_draw_instanced) {
+        if (ctxCaps.GL_ARB_draw_instanced && ctxCaps.GL_ARB_instanced_arrays) {
             caps.add(Caps.MeshInstancing);
         }
 
@@ -470,6 +474,8 @@ public class LwjglRenderer implements Renderer {
     }
 
     public void applyRenderState(RenderState state) {
+        statistics.onRenderStateApplied(context.isApplied(state));
+
         if (state.isWireframe() && !context.wireframe) {
             glPolygonMode(GL_FRONT_AND_BACK, GL_LINE);
             context.wireframe = true;
@@ -636,6 +642,7 @@ public class LwjglRenderer implements Renderer {
                 || context.frontStencilFunction != state.getFrontStencilFunction()
                 || context.backStencilFunction != state.getBackStencilFunction()) {
 
+            context.stencilTest = state.isStencilTest();
             context.frontStencilStencilFailOperation = state.getFrontStencilStencilFailOperation();   //terrible looking, I know
             context.frontStencilDepthFailOperation = state.getFrontStencilDepthFailOperation();
             context.frontStencilDepthPassOperation = state.getFrontStencilDepthPassOperation();
@@ -898,6 +905,8 @@ public class LwjglRenderer implements Renderer {
             Uniform uniform = uniforms.getValue(i);
             if (uniform.isUpdateNeeded()) {
                 updateUniform(shader, uniform);
+            } else {
+                statistics.onUniformSkipped();
             }
         }
     }
@@ -2081,34 +2090,53 @@ public class LwjglRenderer implements Renderer {
                 default:
                     throw new UnsupportedOperationException("Unknown buffer format.");
             }
+        } else if (vb.getNumUpdateRanges() > 0) {
+            // only send the modified elements
+            Buffer data = vb.getData();
+            int limit = data.limit();
+            int components = vb.getNumComponents();
+            long elementSize = components * vb.getFormat().getComponentSize();
+            for (int i = 0; i < vb.getNumUpdateRanges(); i++) {
+                int start = vb.getUpdateRangeStart(i);
+                int length = vb.getUpdateRangeLength(i);
+                data.limit((start + length) * components);
+                data.position(start * components);
+                bufferSubData(target, start * elementSize, vb.getFormat(), data);
+                data.limit(limit);
+            }
+            data.rewind();
         } else {
-            switch (vb.getFormat()) {
-                case Byte:
-                case UnsignedByte:
-                    glBufferSubData(target, 0, (ByteBuffer) vb.getData());
-                    break;
-                case Short:
-                case UnsignedShort:
-                    glBufferSubData(target, 0, (ShortBuffer) vb.getData());
-                    break;
-                case Int:
-                case UnsignedInt:
-                    glBufferSubData(target, 0, (IntBuffer) vb.getData());
-                    break;
-                case Float:
-                    glBufferSubData(target, 0, (FloatBuffer) vb.getData());
-                    break;
-                case Double:
-                    glBufferSubData(target, 0, (DoubleBuffer) vb.getData());
-                    break;
-                default:
-                    throw new UnsupportedOperationException("Unknown buffer format.");
-            }
+            bufferSubData(target, 0, vb.getFormat(), vb.getData());
         }
 
         vb.clearUpdateNeeded();
     }
 
+    private void bufferSubData(int target, long offset, Format format, Buffer data) {
+        switch (format) {
+            case Byte:
+            case UnsignedByte:
+                glBufferSubData(target, offset, (ByteBuffer) data);
+                break;
+            case Short:
+            case UnsignedShort:
+                glBufferSubData(target, offset, (ShortBuffer) data);
+                break;
+            case Int:
+            case UnsignedInt:
+                glBufferSubData(target, offset, (IntBuffer) data);
+                break;
+            case Float:
+                glBufferSubData(target, offset, (FloatBuffer) data);
+                break;
+            case Double:
+                glBufferSubData(target, offset, (DoubleBuffer) data);
+                break;
+            default:
+                throw new UnsupportedOperationException("Unknown buffer format.");
+        }
+    }
+
     public void deleteBuffer(VertexBuffer vb) {
         int bufId = vb.getId();
         if (bufId != -1) {
@@ -2127,6 +2155,9 @@ public class LwjglRenderer implements Renderer {
         for (int i = 0; i < attribList.oldLen; i++) {
             int idx = attribList.oldList[i];
             glDisableVertexAttribArray(idx);
+            if (context.boundAttribs[idx] != null && context.boundAttribs[idx].isInstanced()) {
+                ARBInstancedArrays.glVertexAttribDivisorARB(idx, 0);
+            }
             context.boundAttribs[idx] = null;
         }
         context.attribIndexList.copyNewToOld();
@@ -2165,9 +2196,13 @@ public class LwjglRenderer implements Renderer {
             }
 
             VertexBuffer[] attribs = context.boundAttribs;
-            if (!context.attribIndexList.moveToNew(loc)) {
-                glEnableVertexAttribArray(loc);
-                //System.out.println("Enabled ATTRIB IDX: "+loc);
+            // matrices use one attribute location per column
+            int slots = vb.getNumComponents() > 4 ? vb.getNumComponents() / 4 : 1;
+            for (int i = 0; i < slots; i++) {
+                if (!context.attribIndexList.moveToNew(loc + i)) {
+                    glEnableVertexAttribArray(loc + i);
+                    //System.out.println("Enabled ATTRIB IDX: "+loc);
+                }
             }
             if (attribs[loc] != vb) {
                 // NOTE: Use id from interleaved buffer if specified
@@ -2181,14 +2216,33 @@ public class LwjglRenderer implements Renderer {
                     //statistics.onVertexBufferUse(vb, false);
                 }
 
-                glVertexAttribPointer(loc,
-                        vb.getNumComponents(),
-                        convertFormat(vb.getFormat()),
-                        vb.isNormalized(),
-                        vb.getStride(),
-                        vb.getOffset());
+                if (slots == 1) {
+                    glVertexAttribPointer(loc,
+                            vb.getNumComponents(),
+                            convertFormat(vb.getFormat()),
+                            vb.isNormalized(),
+                            vb.getStride(),
+                            vb.getOffset());
+                } else {
+                    int columnSize = 4 * vb.getFormat().getComponentSize();
+                    int stride = vb.getStride() != 0 ? vb.getStride() : slots * columnSize;
+                    for (int i = 0; i < slots; i++) {
+                        glVertexAttribPointer(loc + i,
+                                4,
+                                convertFormat(vb.getFormat()),
+                                vb.isNormalized(),
+                                stride,
+                                vb.getOffset() + i * columnSize);
+                    }
+                }
 
-                attribs[loc] = vb;
+                for (int i = 0; i < slots; i++) {
+                    VertexBuffer prevVb = attribs[loc + i];
+                    if (vb.isInstanced() || (prevVb != null && prevVb.isInstanced())) {
+                        ARBInstancedArrays.glVertexAttribDivisorARB(loc + i, vb.getInstanceSpan());
+                    }
+                    attribs[loc + i] = vb;
+                }
             }
         } else {
             throw new IllegalStateException("Cannot render mesh without shader bound");
@@ -59,6 +59,7 @@ public class MaterialLoader implements AssetLoader {
 
     private String folderName;
     private AssetManager assetManager;
+    private DependencyLoader dependencies;
     private ColorRGBA ambient, diffuse, specular, emissive;
     private Texture[] textures = new Texture[4];
     private String texName;
@@ -133,11 +134,9 @@ public class MaterialLoader implements AssetLoader {
         texKey.setAsCube(cubic);
 
         try {
-            Texture loadedTexture = assetManager.loadTexture(texKey);
-            
-            textures[texUnit].setImage(loadedTexture.getImage());
-            textures[texUnit].setMinFilter(loadedTexture.getMinFilter());
-            textures[texUnit].setKey(loadedTexture.getKey());
+            // the image is set once the textures loading 
+            // in parallel are joined at the end of the load
+            dependencies.loadTexture(texKey, textures[texUnit]);
 
             // XXX: Is this really neccessary?
             textures[texUnit].setWrap(WrapMode.Repeat);
@@ -197,7 +196,7 @@ public class MaterialLoader implements AssetLoader {
         for (Statement texUnitStat : statement.getContents()){
             readTextureUnitStatement(texUnitStat);
         }
-        if (textures[texUnit].getImage() != null){
+        if (textures[texUnit].getImage() != null || textures[texUnit].getKey() != null){
             texUnit++;
         }else{
             // no image was loaded, ignore
@@ -424,34 +423,44 @@ public class MaterialLoader implements AssetLoader {
     private MaterialList load(AssetManager assetManager, AssetKey key, InputStream in) throws IOException{
         folderName = key.getFolder();
         this.assetManager = assetManager;
+        dependencies = new DependencyLoader(assetManager, key);
         
         MaterialList list = null;
-        List<Statement> statements = BlockLanguageParser.parse(in);
-        
-        for (Statement statement : statements){
-            if (statement.getLine().startsWith("import")){
-                MaterialExtensionSet matExts = null;
-                if (key instanceof OgreMaterialKey){
-                     matExts = ((OgreMaterialKey)key).getMaterialExtensionSet();
-                }
-
-                if (matExts == null){
-                    throw new IOException("Must specify MaterialExtensionSet when loading\n"+
-                                          "Ogre3D materials with extended materials");
-                }
-
-                list = new MaterialExtensionLoader().load(assetManager, key, matExts, statements);
-                break;
-            }else if (statement.getLine().startsWith("material")){
-                if (list == null){
-                    list = new MaterialList();
+        try {
+            List<Statement> statements = BlockLanguageParser.parse(in);
+            
+            for (Statement statement : statements){
+                if (statement.getLine().startsWith("import")){
+                    MaterialExtensionSet matExts = null;
+                    if (key instanceof OgreMaterialKey){
+                         matExts = ((OgreMaterialKey)key).getMaterialExtensionSet();
+                    }
+
+                    if (matExts == null){
+                        throw new IOException("Must specify MaterialExtensionSet when loading\n"+
+                                              "Ogre3D materials with extended materials");
+                    }
+
+                    list = new MaterialExtensionLoader().load(assetManager, key, matExts, statements);
+                    break;
+                }else if (statement.getLine().startsWith("material")){
+                    if (list == null){
+                        list = new MaterialList();
+                    }
+                    String[] split = statement.getLine().split(" ", 2);
+                    matName = split[1].trim();
+                    readMaterial(statement);
+                    Material mat = compileMaterial();
+                    list.put(matName, mat);
                 }
-                String[] split = statement.getLine().split(" ", 2);
-                matName = split[1].trim();
-                readMaterial(statement);
-                Material mat = compileMaterial();
-                list.put(matName, mat);
             }
+            
+            // wait for the textures loading in parallel
+            dependencies.join();
+        } finally {
+            // stop loading the textures if the list failed to load
+            dependencies.cancel();
+            dependencies = null;
         }
         
         return list;
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3test.animation;
+
+import com.jme3.animation.AnimChannel;
+import com.jme3.animation.AnimControl;
+import com.jme3.animation.Bone;
+import com.jme3.animation.BoneTrack;
+import com.jme3.animation.CompressedBoneTrack;
+import com.jme3.animation.Skeleton;
+import com.jme3.math.FastMath;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.util.TempVars;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the sampling of {@link CompressedBoneTrack}.
+ */
+public class CompressedBoneTrackTest {
+
+    private static final float START_TIME = 1.452f;
+    private static final float END_TIME = 3.518f;
+    private static final float SAMPLE_RATE = 60;
+
+    private Bone bone;
+    private AnimControl control;
+    private AnimChannel channel;
+    private BoneTrack track;
+
+    @Before
+    public void setUp() {
+        bone = new Bone("bone");
+        Skeleton skeleton = new Skeleton(new Bone[]{bone});
+        control = new AnimControl(skeleton);
+        channel = control.createChannel();
+
+        float[] times = {START_TIME, 2f, END_TIME};
+        Vector3f[] translations = {
+            new Vector3f(0, 0, 0), new Vector3f(1, 2, 3), new Vector3f(-4, 5, 6)
+        };
+        Quaternion[] rotations = {
+            new Quaternion(),
+            new Quaternion().fromAngles(0, FastMath.HALF_PI, 0),
+            new Quaternion().fromAngles(FastMath.HALF_PI, 0, 0)
+        };
+        track = new BoneTrack(0, times, translations, rotations);
+    }
+
+    private void sample(CompressedBoneTrack compressed, float time) {
+        TempVars vars = TempVars.get();
+        try {
+            compressed.setTime(time, 1, control, channel, vars);
+        } finally {
+            vars.release();
+        }
+    }
+
+    /**
+     * The track starts after time 0, times just below its end must not
+     * be rounded past the last keyframe.
+     */
+    @Test
+    public void testTimesBeforeEndOfLateTrack() {
+        CompressedBoneTrack compressed = new CompressedBoneTrack(track, SAMPLE_RATE);
+        assertEquals(125, compressed.getNumKeys());
+
+        float time = END_TIME;
+        for (int i = 0; i < 4096; i++) {
+            sample(compressed, time);
+            time = Math.nextAfter(time, 0);
+        }
+    }
+
+    @Test
+    public void testEndOfLateTrack() {
+        CompressedBoneTrack compressed = new CompressedBoneTrack(track, SAMPLE_RATE);
+        sample(compressed, Math.nextAfter(END_TIME, 0));
+        bone.updateWorldVectors();
+        Vector3f end = new Vector3f(-4, 5, 6);
+        assertTrue(bone.getModelSpacePosition().distance(end) < 0.01f);
+    }
+
+    @Test
+    public void testBeforeStartOfLateTrack() {
+        CompressedBoneTrack compressed = new CompressedBoneTrack(track, SAMPLE_RATE);
+        sample(compressed, 0);
+        bone.updateWorldVectors();
+        assertTrue(bone.getModelSpacePosition().length() < 0.01f);
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3test.asset;
+
+import com.jme3.app.Application;
+import com.jme3.asset.AssetInfo;
+import com.jme3.asset.AssetKey;
+import com.jme3.asset.AssetLoader;
+import com.jme3.asset.AssetLocator;
+import com.jme3.asset.AssetManager;
+import com.jme3.asset.AssetRequest;
+import com.jme3.asset.AssetRequestListener;
+import com.jme3.asset.AssetStreamer;
+import com.jme3.asset.DesktopAssetManager;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the order, cancellation and failures of the requests of an
+ * {@link AssetStreamer} with a single loading thread.
+ */
+public class AssetStreamerTest {
+
+    private static final List<String> loaded = Collections.synchronizedList(new ArrayList<String>());
+    private static volatile CountDownLatch blockStarted;
+    private static volatile CountDownLatch blockReleased;
+
+    /**
+     * Locates every asset, with empty content.
+     */
+    public static class AnyLocator implements AssetLocator {
+
+        public void setRootPath(String rootPath) {
+        }
+
+        public AssetInfo locate(AssetManager manager, AssetKey key) {
+            return new AssetInfo(manager, key) {
+
+                @Override
+                public InputStream openStream() {
+                    return new ByteArrayInputStream(new byte[0]);
+                }
+            };
+        }
+    }
+
+    /**
+     * Loads the name of the asset, records the loads, blocks on "block"
+     * assets until released and fails on "fail" and "error" assets.
+     */
+    public static class RecordingLoader implements AssetLoader {
+
+        public Object load(AssetInfo assetInfo) throws IOException {
+            String name = assetInfo.getKey().getName();
+            loaded.add(name);
+            if (name.startsWith("block")) {
+                blockStarted.countDown();
+                try {
+                    blockReleased.await();
+                } catch (InterruptedException ex) {
+                    throw new IOException(ex);
+                }
+            } else if (name.startsWith("fail")) {
+                throw new IOException("Failed to load " + name);
+            } else if (name.startsWith("error")) {
+                throw new TestError();
+            }
+            return name;
+        }
+    }
+
+    private static class TestError extends Error {
+    }
+
+    private static class TestApplication extends Application {
+
+        public TestApplication(AssetManager assetManager) {
+            this.assetManager = assetManager;
+        }
+
+        public void runTasks() {
+            runQueuedTasks();
+        }
+    }
+
+    private class RecordingListener implements AssetRequestListener<Object> {
+
+        final List<Object> loadedAssets = new ArrayList<Object>();
+        final List<Throwable> failures = new ArrayList<Throwable>();
+
+        public void assetLoaded(AssetRequest<Object> request, Object asset) {
+            loadedAssets.add(asset);
+        }
+
+        public void assetFailed(AssetRequest<Object> request, Throwable cause) {
+            failures.add(cause);
+        }
+
+        /**
+         * Runs the tasks of the application until the listener has been
+         * notified the given number of times, the listener is notified 
+         * after the request completes.
+         */
+        void await(int notifications) throws InterruptedException {
+            long end = System.currentTimeMillis() + 5000;
+            while (loadedAssets.size() + failures.size() < notifications) {
+                assertTrue(System.currentTimeMillis() < end);
+                Thread.sleep(1);
+                app.runTasks();
+            }
+        }
+    }
+
+    private TestApplication app;
+    private AssetStreamer streamer;
+
+    @Before
+    public void setUp() {
+        loaded.clear();
+        blockStarted = new CountDownLatch(1);
+        blockReleased = new CountDownLatch(1);
+        DesktopAssetManager assetManager = new DesktopAssetManager(false);
+        assetManager.registerLocator("/", AnyLocator.class);
+        assetManager.registerLoader(RecordingLoader.class, "test");
+        app = new TestApplication(assetManager);
+        streamer = new AssetStreamer(app, 1);
+    }
+
+    @After
+    public void tearDown() {
+        blockReleased.countDown();
+        streamer.shutdown();
+    }
+
+    /**
+     * Occupies the loading thread until {@link #blockReleased} is released.
+     */
+    private AssetRequest<Object> block() throws InterruptedException {
+        AssetRequest<Object> request = streamer.request(new AssetKey<Object>("block.test"), 0, null);
+        assertTrue(blockStarted.await(5, TimeUnit.SECONDS));
+        return request;
+    }
+
+    private static Object get(AssetRequest<?> request) throws Exception {
+        return request.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testPriorityOrder() throws Exception {
+        block();
+        AssetRequest<Object> c = streamer.request(new AssetKey<Object>("c.test"), 3, null);
+        AssetRequest<Object> a = streamer.request(new AssetKey<Object>("a.test"), 1, null);
+        AssetRequest<Object> d = streamer.request(new AssetKey<Object>("d.test"), 4, null);
+        AssetRequest<Object> b = streamer.request(new AssetKey<Object>("b.test"), 2, null);
+        d.setPriority(0);
+        blockReleased.countDown();
+
+        assertEquals("c.test", get(c));
+        assertEquals("a.test", get(a));
+        assertEquals("b.test", get(b));
+        assertEquals("d.test", get(d));
+        assertEquals(Arrays.asList("block.test", "d.test", "a.test", "b.test", "c.test"), loaded);
+    }
+
+    @Test
+    public void testCancelWaiting() throws Exception {
+        block();
+        RecordingListener listener = new RecordingListener();
+        AssetRequest<Object> cancelled = streamer.request(new AssetKey<Object>("cancelled.test"), 1, listener);
+        AssetRequest<Object> other = streamer.request(new AssetKey<Object>("other.test"), 2, listener);
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        blockReleased.countDown();
+
+        assertEquals("other.test", get(other));
+        assertTrue(cancelled.isCancelled());
+        assertTrue(cancelled.isDone());
+        try {
+            get(cancelled);
+            fail("A cancelled request has no asset");
+        } catch (CancellationException ex) {
+        }
+        listener.await(1);
+        assertFalse(loaded.contains("cancelled.test"));
+        assertEquals(Arrays.asList((Object) "other.test"), listener.loadedAssets);
+    }
+
+    @Test
+    public void testCancelBeforeDelivery() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        AssetRequest<Object> request = streamer.request(new AssetKey<Object>("loaded.test"), 1, listener);
+        assertEquals("loaded.test", get(request));
+
+        // loaded, but the listener is only notified on the render thread
+        assertTrue(request.cancel());
+
+        // notified after the cancelled request would have been
+        AssetRequest<Object> delivered = streamer.request(new AssetKey<Object>("delivered.test"), 1, listener);
+        listener.await(1);
+        assertFalse(delivered.cancel());
+        assertEquals(Arrays.asList((Object) "delivered.test"), listener.loadedAssets);
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        AssetRequest<Object> request = streamer.request(new AssetKey<Object>("fail.test"), 1, listener);
+        try {
+            get(request);
+            fail("The asset failed to load");
+        } catch (ExecutionException ex) {
+            assertSame(ex.getCause(), request.getError());
+        }
+        assertTrue(request.isDone());
+        assertNull(request.getAsset());
+
+        listener.await(1);
+        assertTrue(listener.loadedAssets.isEmpty());
+        assertEquals(1, listener.failures.size());
+        assertSame(request.getError(), listener.failures.get(0));
+    }
+
+    @Test
+    public void testErrorCompletesRequest() throws Exception {
+        final List<Throwable> uncaught = Collections.synchronizedList(new ArrayList<Throwable>());
+        Thread.UncaughtExceptionHandler handler = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+
+            public void uncaughtException(Thread t, Throwable e) {
+                uncaught.add(e);
+            }
+        });
+        try {
+            RecordingListener listener = new RecordingListener();
+            AssetRequest<Object> request = streamer.request(new AssetKey<Object>("error.test"), 1, listener);
+            try {
+                get(request);
+                fail("The asset failed to load");
+            } catch (ExecutionException ex) {
+                assertTrue(ex.getCause() instanceof TestError);
+            }
+            listener.await(1);
+            assertEquals(1, listener.failures.size());
+
+            // the error is thrown again on the loading thread, which is replaced
+            AssetRequest<Object> next = streamer.request(new AssetKey<Object>("next.test"), 1, null);
+            assertEquals("next.test", get(next));
+            long end = System.currentTimeMillis() + 5000;
+            while (uncaught.isEmpty()) {
+                assertTrue(System.currentTimeMillis() < end);
+                Thread.sleep(1);
+            }
+            assertEquals(1, uncaught.size());
+            assertTrue(uncaught.get(0) instanceof TestError);
+        } finally {
+            Thread.setDefaultUncaughtExceptionHandler(handler);
+        }
+    }
+
+    @Test
+    public void testDependencies() throws Exception {
+        block();
+        AssetKey<Object> shared = new AssetKey<Object>("shared.test");
+        AssetRequest<Object> first = streamer.request(new AssetKey<Object>("first.test"), 2, null, shared);
+        AssetRequest<Object> second = streamer.request(new AssetKey<Object>("second.test"), 1, null, shared);
+        AssetRequest<Object> cancelled = streamer.request(new AssetKey<Object>("cancelled.test"), 0, null,
+                                                          new AssetKey<Object>("unused.test"));
+        // the shared dependency is still needed by the second request
+        assertTrue(first.cancel());
+        assertTrue(cancelled.cancel());
+        blockReleased.countDown();
+
+        assertEquals("second.test", get(second));
+        assertEquals(Arrays.asList("block.test", "shared.test", "second.test"), loaded);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package jme3test.bench;
+
+import com.jme3.animation.AnimControl;
+import com.jme3.animation.AnimLodControl;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.ViewPort;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+
+/**
+ * Measures a frame of a crowd of animated Oto models spread in depth
+ * in front of the camera, optionally with an {@link AnimLodControl} 
+ * lowering the animation rate of the distant models.
+ */
+public class AnimationLodBenchmark extends MicroBenchmark {
+
+    private static final int MODELS = 100;
+    private static final float TPF = 1f / 60f;
+
+    private final boolean lod;
+    private Node crowd;
+    private RenderManager rm;
+    private ViewPort vp;
+
+    public AnimationLodBenchmark(boolean lod) {
+        this.lod = lod;
+    }
+
+    @Override
+    public String getName() {
+        return lod ? super.getName() + "(lod)" : super.getName();
+    }
+
+    @Override
+    public void setUp(HeadlessEnvironment env) {
+        rm = env.getRenderManager();
+        vp = env.getViewPort();
+        vp.getCamera().setLocation(new Vector3f(0, 5, 30));
+        vp.getCamera().lookAt(new Vector3f(0, 5, 0), Vector3f.UNIT_Y);
+
+        Spatial oto = env.getAssetManager().loadModel("Models/Oto/Oto.mesh.xml");
+        crowd = new Node("Crowd");
+        for (int i = 0; i < MODELS; i++) {
+            Spatial model = oto.clone();
+            model.getControl(AnimControl.class).createChannel().setAnim("Walk");
+            if (lod) {
+                model.addControl(new AnimLodControl());
+            }
+            // rows of 10 models going away from the camera
+            model.setLocalTranslation((i % 10 - 4.5f) * 8f * (1 + i / 10), 0, -(i / 10) * 40f);
+            crowd.attachChild(model);
+        }
+        crowd.updateGeometricState();
+        vp.attachScene(crowd);
+    }
+
+    @Override
+    public Object run() {
+        crowd.updateLogicalState(TPF);
+        crowd.updateGeometricState();
+        rm.renderViewPort(vp, TPF);
+        return crowd;
+    }
+
+    @Override
+    public void tearDown() {
+        vp.detachScene(crowd);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3test.bench;
+
+import com.jme3.animation.AnimControl;
+import com.jme3.animation.CompressedBoneTrack;
+import com.jme3.scene.Spatial;
+
+/**
+ * Measures the evaluation of the animation of a crowd of Ninja models,
+ * optionally with the bone tracks replaced by {@link CompressedBoneTrack}s.
+ * Skinning is not included.
+ */
+public class AnimationSamplingBenchmark extends MicroBenchmark {
+
+    private static final int MODELS = 100;
+    private static final float TPF = 1f / 60f;
+    private static final float SAMPLE_RATE = 24f;
+
+    private final boolean compressed;
+    private AnimControl[] controls;
+
+    public AnimationSamplingBenchmark(boolean compressed) {
+        this.compressed = compressed;
+    }
+
+    @Override
+    public String getName() {
+        return compressed ? super.getName() + "(compressed)" : super.getName();
+    }
+
+    @Override
+    public void setUp(HeadlessEnvironment env) {
+        Spatial ninja = env.getAssetManager().loadModel("Models/Ninja/Ninja.mesh.xml");
+        if (compressed) {
+            // the clones share the tracks
+            AnimControl control = ninja.getControl(AnimControl.class);
+            for (String name : control.getAnimationNames()) {
+                CompressedBoneTrack.compress(control.getAnim(name), SAMPLE_RATE);
+            }
+        }
+        controls = new AnimControl[MODELS];
+        for (int i = 0; i < MODELS; i++) {
+            AnimControl control = ninja.clone().getControl(AnimControl.class);
+            control.createChannel().setAnim("Walk", 0);
+            // spread the models over the animation
+            control.update(i * 0.01f);
+            controls[i] = control;
+        }
+    }
+
+    @Override
+    public Object run() {
+        for (AnimControl control : controls) {
+            control.update(TPF);
+        }
+        return controls;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jme3test.bench;
+
+import com.jme3.collision.CollisionResults;
+import com.jme3.collision.NearestCollisionResults;
+import com.jme3.collision.bih.BIHTree;
+import com.jme3.math.FastMath;
+import com.jme3.math.Ray;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.shape.Sphere;
+import java.util.Arrays;
+
+/**
+ * Measures ray picking against a {@link com.jme3.collision.bih.BIHTree}
+ * of a 32,000 triangle sphere. Each operation casts 64 rays from
+ * random points outside the sphere towards its center, either one at
+ * a time through {@link Geometry#collideWith}, keeping all the collisions
+ * or only the closest one with {@link NearestCollisionResults}, or as one
+ * batch through {@link BIHTree#intersectRays}.
+ */
+public class BIHCollideBenchmark extends MicroBenchmark {
+
+    private static final int RAYS = 64;
+
+    private Geometry geom;
+    private Ray[] rays;
+    private final CollisionResults results;
+
+    private final boolean batch;
+    private final boolean nearest;
+    private BIHTree tree;
+    private float[] origins;
+    private float[] directions;
+    private final float[] distances = new float[RAYS];
+    private final int[] triangles = new int[RAYS];
+
+    public BIHCollideBenchmark(boolean batch, boolean nearest) {
+        this.batch = batch;
+        this.nearest = nearest;
+        results = nearest ? new NearestCollisionResults() : new CollisionResults();
+    }
+
+    @Override
+    public String getName() {
+        if (batch) {
+            return super.getName() + "(batch)";
+        }
+        return nearest ? super.getName() + "(nearest)" : super.getName();
+    }
+
+    @Override
+    public void setUp(HeadlessEnvironment env) {
+        geom = new Geometry("Sphere", new Sphere(128, 128, 10f));
+        geom.updateGeometricState();
+        geom.getMesh().createCollisionData();
+
+        tree = new BIHTree(geom.getMesh());
+        tree.construct();
+
+        rays = new Ray[RAYS];
+        origins = new float[RAYS * 3];
+        directions = new float[RAYS * 3];
+        for (int i = 0; i < RAYS; i++) {
+            Vector3f origin = new Vector3f(FastMath.nextRandomFloat() - 0.5f,
+                    FastMath.nextRandomFloat() - 0.5f,
+                    FastMath.nextRandomFloat() - 0.5f);
+            origin.normalizeLocal().multLocal(50f);
+            rays[i] = new Ray(origin, origin.negate().normalizeLocal());
+            origins[i * 3] = origin.x;
+            origins[i * 3 + 1] = origin.y;
+            origins[i * 3 + 2] = origin.z;
+            directions[i * 3] = rays[i].direction.x;
+            directions[i * 3 + 1] = rays[i].direction.y;
+            directions[i * 3 + 2] = rays[i].direction.z;
+        }
+    }
+
+    @Override
+    public Object run() {
+        if (batch) {
+            Arrays.fill(distances, Float.POSITIVE_INFINITY);
+            return tree.intersectRays(origins, directions, distances, triangles,
+                    RAYS, geom.getWorldMatrix(), false);
+        }
+        int hits = 0;
+        for (int i = 0; i < RAYS; i++) {
+            results.clear();
+            hits += geom.collideWith(rays[i], results);
+        }
+        return hits;
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jme3test.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs the engine CPU micro-benchmarks headless and prints the time
+ * per operation for each one.
+ * <p>
+ * Usage: <code>BenchmarkRunner [-wi warmupIterations] [-i iterations]
+ * [-t iterationMillis] [nameFilter]</code>
+ * <p>
+ * Each benchmark is warmed up for the given number of iterations, then
+ * measured for the given number of iterations; an iteration calls
+ * {@link MicroBenchmark#run() } repeatedly until the iteration time has
+ * elapsed. The mean and standard deviation of the per-iteration averages
+ * are reported in microseconds per operation.
+ */
+public class BenchmarkRunner {
+
+    private int warmupIterations = 5;
+    private int iterations = 10;
+    private long iterationMillis = 1000;
+
+    /**
+     * Consumer of benchmark results so that the work is not optimized away.
+     */
+    private int sink;
+
+    public static List<MicroBenchmark> getBenchmarks() {
+        List<MicroBenchmark> benchmarks = new ArrayList<MicroBenchmark>();
+        benchmarks.add(new UpdateGeometricStateBenchmark(false));
+        benchmarks.add(new UpdateGeometricStateBenchmark(true));
+        benchmarks.add(new GeometryListSortBenchmark(false));
+        benchmarks.add(new GeometryListSortBenchmark(true));
+        benchmarks.add(new FrustumCullBenchmark(false));
+        benchmarks.add(new FrustumCullBenchmark(true));
+        benchmarks.add(new OcclusionCullingBenchmark(false));
+        benchmarks.add(new OcclusionCullingBenchmark(true));
+        benchmarks.add(new MaterialRenderBenchmark());
+        benchmarks.add(new InstancingBenchmark(false));
+        benchmarks.add(new InstancingBenchmark(true));
+        benchmarks.add(new BIHCollideBenchmark(false, false));
+        benchmarks.add(new BIHCollideBenchmark(false, true));
+        benchmarks.add(new BIHCollideBenchmark(true, false));
+        benchmarks.add(new ScenePickBenchmark(false));
+        benchmarks.add(new ScenePickBenchmark(true));
+        benchmarks.add(new SoftwareSkinningBenchmark(false));
+        benchmarks.add(new SoftwareSkinningBenchmark(true));
+        benchmarks.add(new HardwareSkinningBenchmark());
+        benchmarks.add(new AnimationLodBenchmark(false));
+        benchmarks.add(new AnimationLodBenchmark(true));
+        benchmarks.add(new AnimationSamplingBenchmark(false));
+        benchmarks.add(new AnimationSamplingBenchmark(true));
+        benchmarks.add(new BinaryImportBenchmark());
+        benchmarks.add(new SerializerBenchmark());
+        benchmarks.add(new TerrainLodBenchmark());
+        return benchmarks;
+    }
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkRunner runner = new BenchmarkRunner();
+        String filter = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-wi")) {
+                runner.warmupIterations = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-i")) {
+                runner.iterations = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-t")) {
+                runner.iterationMillis = Long.parseLong(args[++i]);
+            } else {
+                filter = args[i];
+            }
+        }
+
+        Logger.getLogger("").setLevel(Level.SEVERE);
+        HeadlessEnvironment env = new HeadlessEnvironment();
+        for (MicroBenchmark benchmark : getBenchmarks()) {
+            if (filter == null || benchmark.getName().matches(filter)) {
+                runner.run(benchmark, env);
+            }
+        }
+    }
+
+    private double iteration(MicroBenchmark benchmark) throws Exception {
+        long ops = 0;
+        long start = System.nanoTime();
+        long end = start + iterationMillis * 1000000L;
+        long now;
+        do {
+            Object result = benchmark.run();
+            sink += result != null ? result.hashCode() : 0;
+            ops++;
+            now = System.nanoTime();
+        } while (now < end);
+        return (now - start) / 1000.0 / ops;
+    }
+
+    public void run(MicroBenchmark benchmark, HeadlessEnvironment env) throws Exception {
+        benchmark.setUp(env);
+        try {
+            for (int i = 0; i < warmupIterations; i++) {
+                iteration(benchmark);
+            }
+
+            double[] results = new double[iterations];
+            double sum = 0;
+            for (int i = 0; i < iterations; i++) {
+                results[i] = iteration(benchmark);
+                sum += results[i];
+            }
+
+            double mean = sum / iterations;
+            double variance = 0;
+            for (int i = 0; i < iterations; i++) {
+                variance += (results[i] - mean) * (results[i] - mean);
+            }
+            double stdDev = iterations > 1 ? Math.sqrt(variance / (iterations - 1)) : 0;
+
+            System.out.println(String.format("%-36s %12.3f us/op  +- %10.3f   (%d)",
+                    benchmark.getName(), mean, stdDev, sink & 0xf));
+        } finally {
+            benchmark.tearDown();
+        }
+    }
+}
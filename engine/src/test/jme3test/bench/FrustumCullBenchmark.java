@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jme3test.bench;
+
+import com.jme3.bounding.BoundingBox;
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+
+/**
+ * Measures frustum culling of 10,000 bounding boxes, either one by one
+ * with {@link Camera#contains(com.jme3.bounding.BoundingVolume) } or
+ * in one batch with {@link Camera#contains(float[], float[], int, int, int, int[], byte[]) }.
+ */
+public class FrustumCullBenchmark extends MicroBenchmark {
+
+    private static final int BOXES = 10000;
+
+    private final boolean batch;
+    private Camera cam;
+    private BoundingBox[] boxes;
+    private float[] centers;
+    private float[] extents;
+    private int[] results;
+    private byte[] checkPlanes;
+
+    public FrustumCullBenchmark(boolean batch) {
+        this.batch = batch;
+    }
+
+    @Override
+    public String getName() {
+        return batch ? super.getName() + "(batch)" : super.getName();
+    }
+
+    @Override
+    public void setUp(HeadlessEnvironment env) {
+        cam = env.getCamera();
+        cam.setLocation(new Vector3f(0, 0, 100));
+        cam.lookAt(Vector3f.ZERO, Vector3f.UNIT_Y);
+
+        boxes = new BoundingBox[BOXES];
+        centers = new float[BOXES * 3];
+        extents = new float[BOXES * 3];
+        results = new int[BOXES];
+        checkPlanes = new byte[BOXES];
+        for (int i = 0; i < BOXES; i++) {
+            Vector3f center = new Vector3f(FastMath.nextRandomFloat() * 400f - 200f,
+                    FastMath.nextRandomFloat() * 400f - 200f,
+                    FastMath.nextRandomFloat() * 400f - 200f);
+            float extent = FastMath.nextRandomFloat() * 5f;
+            boxes[i] = new BoundingBox(center, extent, extent, extent);
+            centers[i * 3] = center.x;
+            centers[i * 3 + 1] = center.y;
+            centers[i * 3 + 2] = center.z;
+            extents[i * 3] = extent;
+            extents[i * 3 + 1] = extent;
+            extents[i * 3 + 2] = extent;
+        }
+    }
+
+    @Override
+    public Object run() {
+        int visible = 0;
+        if (batch) {
+            visible = cam.contains(centers, extents, 0, BOXES, 0, results, checkPlanes);
+        } else {
+            for (int i = 0; i < BOXES; i++) {
+                cam.setPlaneState(0);
+                if (cam.contains(boxes[i]) != Camera.FrustumIntersect.Outside) {
+                    visible++;
+                }
+            }
+        }
+        return visible;
+    }
+}
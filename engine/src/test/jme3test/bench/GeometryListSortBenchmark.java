@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jme3test.bench;
+
+import com.jme3.material.Material;
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.FastMath;
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.queue.GeometryList;
+import com.jme3.renderer.queue.OpaqueComparator;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.shape.Box;
+import com.jme3.shader.Shader;
+import com.jme3.texture.Image;
+import com.jme3.texture.Image.Format;
+import com.jme3.texture.Texture2D;
+import com.jme3.util.BufferUtils;
+
+/**
+ * Measures {@link GeometryList#sort() } of the opaque bucket with 20,000
+ * geometries using 8 different shaders and 16 different textures.
+ * The keyed variant sorts with {@link GeometryList#setUseSortKeys(boolean) }
+ * enabled.
+ */
+public class GeometryListSortBenchmark extends MicroBenchmark {
+
+    private static final int GEOMETRIES = 20000;
+    private static final int TEXTURES = 16;
+
+    private final boolean useSortKeys;
+    private Geometry[] geometries;
+    private GeometryList list;
+    private Camera cam;
+
+    public GeometryListSortBenchmark(boolean useSortKeys) {
+        this.useSortKeys = useSortKeys;
+    }
+
+    @Override
+    public String getName() {
+        return useSortKeys ? super.getName() + "(keys)" : super.getName();
+    }
+
+    @Override
+    public void setUp(HeadlessEnvironment env) {
+        Texture2D[] textures = new Texture2D[TEXTURES];
+        for (int i = 0; i < TEXTURES; i++) {
+            Image image = new Image(Format.RGBA8, 1, 1, BufferUtils.createByteBuffer(4));
+            // pretend the image was uploaded by the renderer
+            image.setId(i + 1);
+            textures[i] = new Texture2D(image);
+        }
+
+        Material[] materials = new Material[TEXTURES * 8];
+        int shaderIds = 0;
+        for (int i = 0; i < materials.length; i++) {
+            Material mat = new Material(env.getAssetManager(), "Common/MatDefs/Misc/Unshaded.j3md");
+            mat.setTexture("ColorMap", textures[i % TEXTURES]);
+            int variant = i / TEXTURES;
+            mat.setBoolean("VertexColor", (variant & 1) != 0);
+            mat.setBoolean("SeparateTexCoord", (variant & 2) != 0);
+            if ((variant & 4) != 0) {
+                mat.setColor("Color", ColorRGBA.Red);
+            }
+            mat.selectTechnique("Default", env.getRenderManager());
+            Shader shader = mat.getActiveTechnique().getShader();
+            if (shader.getId() == -1) {
+                shader.setId(++shaderIds);
+            }
+            materials[i] = mat;
+        }
+
+        Box box = new Box(0.5f, 0.5f, 0.5f);
+        Node root = new Node("Root");
+        geometries = new Geometry[GEOMETRIES];
+        for (int i = 0; i < GEOMETRIES; i++) {
+            Geometry geom = new Geometry("Box " + i, box);
+            geom.setMaterial(materials[FastMath.nextRandomInt(0, materials.length - 1)]);
+            geom.setLocalTranslation(FastMath.nextRandomFloat() * 200f - 100f,
+                    FastMath.nextRandomFloat() * 200f - 100f,
+                    FastMath.nextRandomFloat() * -500f);
+            root.attachChild(geom);
+            geometries[i] = geom;
+        }
+        root.updateGeometricState();
+
+        cam = env.getCamera();
+        list = new GeometryList(new OpaqueComparator());
+        list.setUseSortKeys(useSortKeys);
+    }
+
+    @Override
+    public Object run() {
+        list.clear();
+        for (int i = 0; i < geometries.length; i++) {
+            Geometry geom = geometries[i];
+            geom.queueDistance = Float.NEGATIVE_INFINITY;
+            list.add(geom);
+        }
+        list.setCamera(cam);
+        list.sort();
+        return list.get(0);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package jme3test.bench;
+
+import com.jme3.animation.AnimChannel;
+import com.jme3.animation.AnimControl;
+import com.jme3.animation.SkeletonControl;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.ViewPort;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Spatial;
+
+/**
+ * Measures the CPU side of the animation of the Oto model playing its
+ * walk cycle when {@link SkeletonControl} skins it on the GPU, to compare
+ * with {@link SoftwareSkinningBenchmark}.
+ */
+public class HardwareSkinningBenchmark extends MicroBenchmark {
+
+    private static final float TPF = 1f / 60f;
+
+    private Spatial model;
+    private SkeletonControl skeletonControl;
+    private RenderManager rm;
+    private ViewPort vp;
+
+    @Override
+    public void setUp(HeadlessEnvironment env) {
+        model = env.getAssetManager().loadModel("Models/Oto/Oto.mesh.xml");
+        AnimControl animControl = model.getControl(AnimControl.class);
+        AnimChannel channel = animControl.createChannel();
+        channel.setAnim("Walk");
+        skeletonControl = model.getControl(SkeletonControl.class);
+        skeletonControl.setHardwareSkinningPreferred(true);
+        rm = env.getRenderManager();
+        vp = env.getViewPort();
+
+        skeletonControl.render(rm, vp);
+        for (Mesh target : skeletonControl.getTargets()) {
+            if (!skeletonControl.isHardwareSkinned(target)) {
+                throw new IllegalStateException("Expected " + target + " to be skinned on the GPU");
+            }
+        }
+    }
+
+    @Override
+    public Object run() {
+        model.updateLogicalState(TPF);
+        model.updateGeometricState();
+        skeletonControl.render(rm, vp);
+        return skeletonControl.getTargets()[0];
+    }
+}
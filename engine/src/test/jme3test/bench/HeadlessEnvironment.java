@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jme3test.bench;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.Caps;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.ViewPort;
+import com.jme3.scene.Mesh;
+import com.jme3.system.JmeSystem;
+import com.jme3.system.NullRenderer;
+import java.util.EnumSet;
+
+/**
+ * Shared fixture for the headless benchmarks. Provides an asset manager,
+ * a {@link RenderManager} backed by a {@link NullRenderer} and a main
+ * camera / viewport, without creating a display or GL context.
+ */
+public class HeadlessEnvironment {
+
+    /**
+     * A {@link NullRenderer} that claims GLSL support so that
+     * material techniques can be selected without a GL context.
+     * It records the draw calls it receives, benchmarks can add
+     * other caps to the mutable set returned by {@link #getCaps() }.
+     */
+    public static class ShaderNullRenderer extends NullRenderer {
+
+        private final EnumSet<Caps> caps = EnumSet.of(Caps.GLSL100);
+        private int vertexUniforms = 1024;
+        private int drawCalls;
+        private int instancesDrawn;
+
+        @Override
+        public EnumSet<Caps> getCaps() {
+            return caps;
+        }
+
+        @Override
+        public int getMaxVertexUniformComponents() {
+            return vertexUniforms;
+        }
+
+        public void setMaxVertexUniformComponents(int vertexUniforms) {
+            this.vertexUniforms = vertexUniforms;
+        }
+
+        @Override
+        public void renderMesh(Mesh mesh, int lod, int count) {
+            drawCalls++;
+            instancesDrawn += count;
+        }
+
+        /**
+         * @return The number of renderMesh() calls since the last reset.
+         */
+        public int getDrawCalls() {
+            return drawCalls;
+        }
+
+        /**
+         * @return The sum of the instance counts of the renderMesh()
+         * calls since the last reset.
+         */
+        public int getInstancesDrawn() {
+            return instancesDrawn;
+        }
+
+        public void resetDrawCalls() {
+            drawCalls = 0;
+            instancesDrawn = 0;
+        }
+    }
+
+    private final AssetManager assetManager;
+    private final RenderManager renderManager;
+    private final Camera cam;
+    private final ViewPort viewPort;
+
+    public HeadlessEnvironment() {
+        assetManager = JmeSystem.newAssetManager(Thread.currentThread()
+                .getContextClassLoader()
+                .getResource("com/jme3/asset/Desktop.cfg"));
+        renderManager = new RenderManager(new ShaderNullRenderer());
+        // normally set by RenderManager.render(), which skips null renderers
+        renderManager.setUsingShaders(true);
+        cam = new Camera(1024, 768);
+        cam.setFrustumPerspective(45f, 1024f / 768f, 1f, 1000f);
+        viewPort = renderManager.createMainView("Benchmark View", cam);
+    }
+
+    public AssetManager getAssetManager() {
+        return assetManager;
+    }
+
+    public RenderManager getRenderManager() {
+        return renderManager;
+    }
+
+    public Camera getCamera() {
+        return cam;
+    }
+
+    public ViewPort getViewPort() {
+        return viewPort;
+    }
+}
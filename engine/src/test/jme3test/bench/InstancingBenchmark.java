@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3test.bench;
+
+import com.jme3.material.Material;
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Caps;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.ViewPort;
+import com.jme3.scene.BatchNode;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.InstancedNode;
+import com.jme3.scene.shape.Box;
+import jme3test.bench.HeadlessEnvironment.ShaderNullRenderer;
+
+/**
+ * Measures updating and rendering 2,000 rotating boxes under an
+ * {@link InstancedNode}, either with hardware instancing or, when the
+ * renderer lacks {@link Caps#MeshInstancing}, with the {@link BatchNode}
+ * fallback that transforms the vertices on the CPU.
+ * <p>
+ * The draw calls recorded by the renderer are checked during setup.
+ */
+public class InstancingBenchmark extends MicroBenchmark {
+
+    private static final int GEOMETRIES = 2000;
+
+    private final boolean instancing;
+    private ShaderNullRenderer renderer;
+    private RenderManager rm;
+    private ViewPort vp;
+    private InstancedNode node;
+    private Geometry[] geoms;
+    private Quaternion rotation = new Quaternion();
+    private float angle;
+
+    public InstancingBenchmark(boolean instancing) {
+        this.instancing = instancing;
+    }
+
+    @Override
+    public String getName() {
+        return instancing ? super.getName() + "(instancing)" : super.getName() + "(batching)";
+    }
+
+    @Override
+    public void setUp(HeadlessEnvironment env) {
+        rm = env.getRenderManager();
+        vp = env.getViewPort();
+        vp.getCamera().setLocation(new Vector3f(0, 0, 60));
+        vp.getCamera().lookAt(Vector3f.ZERO, Vector3f.UNIT_Y);
+        renderer = (ShaderNullRenderer) rm.getRenderer();
+        if (instancing) {
+            renderer.getCaps().add(Caps.MeshInstancing);
+        }
+
+        Material mat = new Material(env.getAssetManager(), "Common/MatDefs/Misc/Unshaded.j3md");
+        mat.setColor("Color", ColorRGBA.Green);
+
+        node = new InstancedNode("Instances");
+        geoms = new Geometry[GEOMETRIES];
+        Box box = new Box(0.25f, 0.25f, 0.25f);
+        for (int i = 0; i < GEOMETRIES; i++) {
+            geoms[i] = new Geometry("Box " + i, box);
+            geoms[i].setMaterial(mat);
+            geoms[i].setLocalTranslation(i % 50 - 25f, (i / 50) - 20f, 0);
+            node.attachChild(geoms[i]);
+        }
+        node.instance(renderer);
+        node.updateGeometricState();
+        vp.attachScene(node);
+
+        renderer.resetDrawCalls();
+        rm.renderViewPort(vp, 0);
+        int expectedInstances = instancing ? GEOMETRIES : 1;
+        if (renderer.getDrawCalls() != 1 || renderer.getInstancesDrawn() != expectedInstances) {
+            throw new IllegalStateException("Expected 1 draw call of " + expectedInstances
+                    + " instances, got " + renderer.getDrawCalls()
+                    + " draw calls of " + renderer.getInstancesDrawn() + " instances");
+        }
+    }
+
+    @Override
+    public Object run() {
+        angle += 0.01f;
+        rotation.fromAngles(0, angle, 0);
+        for (int i = 0; i < GEOMETRIES; i++) {
+            geoms[i].setLocalRotation(rotation);
+        }
+        node.updateGeometricState();
+        rm.renderViewPort(vp, 0);
+        return node;
+    }
+
+    @Override
+    public void tearDown() {
+        vp.detachScene(node);
+        renderer.getCaps().remove(Caps.MeshInstancing);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3test.bench;
+
+import com.jme3.light.DirectionalLight;
+import com.jme3.material.Material;
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.ViewPort;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.shape.Box;
+
+/**
+ * Measures {@link RenderManager#renderViewPort(com.jme3.renderer.ViewPort, float) }
+ * of 2,000 geometries sharing a single lit material, which is dominated by
+ * {@link Material#render(com.jme3.scene.Geometry, com.jme3.renderer.RenderManager) }
+ * updating material parameters and world bindings.
+ */
+public class MaterialRenderBenchmark extends MicroBenchmark {
+
+    private static final int GEOMETRIES = 2000;
+
+    private RenderManager rm;
+    private ViewPort vp;
+    private Node root;
+
+    @Override
+    public void setUp(HeadlessEnvironment env) {
+        rm = env.getRenderManager();
+        vp = env.getViewPort();
+        vp.getCamera().setLocation(new Vector3f(0, 0, 60));
+        vp.getCamera().lookAt(Vector3f.ZERO, Vector3f.UNIT_Y);
+
+        Material mat = new Material(env.getAssetManager(), "Common/MatDefs/Light/Lighting.j3md");
+        mat.setBoolean("UseMaterialColors", true);
+        mat.setColor("Diffuse", ColorRGBA.Blue);
+        mat.setColor("Specular", ColorRGBA.White);
+        mat.setFloat("Shininess", 16f);
+
+        root = new Node("Root");
+        DirectionalLight light = new DirectionalLight();
+        light.setDirection(new Vector3f(-1, -1, -1).normalizeLocal());
+        root.addLight(light);
+
+        Box box = new Box(0.25f, 0.25f, 0.25f);
+        for (int i = 0; i < GEOMETRIES; i++) {
+            Geometry geom = new Geometry("Box " + i, box);
+            geom.setMaterial(mat);
+            geom.setLocalTranslation(i % 50 - 25f, (i / 50) - 20f, 0);
+            root.attachChild(geom);
+        }
+        root.updateGeometricState();
+        vp.attachScene(root);
+    }
+
+    @Override
+    public Object run() {
+        rm.renderViewPort(vp, 0);
+        return root;
+    }
+
+    @Override
+    public void tearDown() {
+        vp.detachScene(root);
+    }
+}
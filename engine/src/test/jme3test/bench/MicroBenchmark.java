@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jme3test.bench;
+
+/**
+ * A single CPU micro-benchmark executed by the {@link BenchmarkRunner}.
+ * <p>
+ * Implementations build their fixture in {@link #setUp(jme3test.bench.HeadlessEnvironment) } and perform
+ * exactly one operation per call to {@link #run() }. The value returned
+ * by <code>run()</code> is consumed by the runner so that the JIT cannot
+ * eliminate the measured work.
+ */
+public abstract class MicroBenchmark {
+
+    /**
+     * @return The name under which the results are reported.
+     */
+    public String getName() {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * Builds the fixture. Called once before warmup.
+     */
+    public void setUp(HeadlessEnvironment env) throws Exception {
+    }
+
+    /**
+     * Performs one measured operation.
+     *
+     * @return A value depending on the work performed, never used other
+     * than to keep the computation alive.
+     */
+    public abstract Object run() throws Exception;
+
+    /**
+     * Releases any resources held by the fixture.
+     */
+    public void tearDown() {
+    }
+}
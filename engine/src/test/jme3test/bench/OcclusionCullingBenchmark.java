@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3test.bench;
+
+import com.jme3.material.Material;
+import com.jme3.math.Vector3f;
+import com.jme3.post.OcclusionCullingProcessor;
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.ViewPort;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.shape.Box;
+
+/**
+ * Measures rendering an indoor-like scene of 16 rooms with 400 boxes each
+ * behind a wall through {@link RenderManager#renderViewPort(com.jme3.renderer.ViewPort, float) },
+ * with and without an {@link OcclusionCullingProcessor}.
+ */
+public class OcclusionCullingBenchmark extends MicroBenchmark {
+
+    private static final int ROOMS = 16;
+    private static final int BOXES_PER_ROOM = 400;
+
+    private final boolean occlusion;
+    private RenderManager rm;
+    private ViewPort vp;
+    private Node root;
+    private OcclusionCullingProcessor processor;
+
+    public OcclusionCullingBenchmark(boolean occlusion) {
+        this.occlusion = occlusion;
+    }
+
+    @Override
+    public String getName() {
+        return occlusion ? super.getName() + "(occlusion)" : super.getName();
+    }
+
+    @Override
+    public void setUp(HeadlessEnvironment env) {
+        rm = env.getRenderManager();
+        vp = env.getViewPort();
+        Camera cam = env.getCamera();
+        cam.setLocation(new Vector3f(0, 2, 0));
+        cam.lookAt(new Vector3f(0, 2, -1), Vector3f.UNIT_Y);
+
+        Material mat = new Material(env.getAssetManager(), "Common/MatDefs/Misc/Unshaded.j3md");
+        root = new Node("Root");
+        processor = new OcclusionCullingProcessor();
+
+        // a wall in front of the camera, with rooms of boxes behind it
+        Geometry wall = new Geometry("Wall", new Box(100, 10, 0.5f));
+        wall.setLocalTranslation(0, 0, -10);
+        wall.setMaterial(mat);
+        root.attachChild(wall);
+        processor.addOccluder(wall);
+
+        Box box = new Box(0.25f, 0.25f, 0.25f);
+        int side = (int) Math.sqrt(ROOMS);
+        for (int r = 0; r < ROOMS; r++) {
+            Node room = new Node("Room " + r);
+            room.setLocalTranslation((r % side - side / 2) * 20f, 0, -20f - (r / side) * 20f);
+            for (int i = 0; i < BOXES_PER_ROOM; i++) {
+                Geometry geom = new Geometry("Box " + i, box);
+                geom.setLocalTranslation(i % 20 - 10f, (i / 20) % 5, -(i / 100) * 2f);
+                geom.setMaterial(mat);
+                room.attachChild(geom);
+            }
+            root.attachChild(room);
+        }
+        root.updateGeometricState();
+
+        vp.attachScene(root);
+        if (occlusion) {
+            vp.addProcessor(processor);
+        }
+    }
+
+    @Override
+    public Object run() {
+        rm.renderViewPort(vp, 0);
+        return root;
+    }
+
+    @Override
+    public void tearDown() {
+        vp.detachScene(root);
+        if (occlusion) {
+            vp.removeProcessor(processor);
+        }
+    }
+}
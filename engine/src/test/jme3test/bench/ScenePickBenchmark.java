@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jme3test.bench;
+
+import com.jme3.collision.CollisionResults;
+import com.jme3.math.FastMath;
+import com.jme3.math.Ray;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.shape.Box;
+
+/**
+ * Measures ray picking in a scene of 4,000 boxes spread in 10 groups. 
+ * Each operation moves 40 of the boxes, updates the geometric state and 
+ * casts 16 rays through {@link Node#collideWith}, either walking the 
+ * scene graph or through the {@link com.jme3.scene.SpatialIndex} of the 
+ * root node.
+ */
+public class ScenePickBenchmark extends MicroBenchmark {
+
+    private static final int BOXES = 4000;
+    private static final int GROUPS = 10;
+    private static final int MOVED = 40;
+    private static final int RAYS = 16;
+
+    private final boolean indexed;
+    private Node root;
+    private Geometry[] boxes;
+    private Ray[] rays;
+    private int next = 0;
+    private final CollisionResults results = new CollisionResults();
+
+    public ScenePickBenchmark(boolean indexed) {
+        this.indexed = indexed;
+    }
+
+    @Override
+    public String getName() {
+        return indexed ? super.getName() + "(index)" : super.getName();
+    }
+
+    private static Vector3f randomPoint(float size) {
+        return new Vector3f((FastMath.nextRandomFloat() - 0.5f) * size,
+                (FastMath.nextRandomFloat() - 0.5f) * size,
+                (FastMath.nextRandomFloat() - 0.5f) * size);
+    }
+
+    @Override
+    public void setUp(HeadlessEnvironment env) {
+        root = new Node("Root");
+        root.setSpatialIndexEnabled(indexed);
+        Box mesh = new Box(1, 1, 1);
+        mesh.createCollisionData();
+        Node[] groups = new Node[GROUPS];
+        for (int i = 0; i < GROUPS; i++) {
+            groups[i] = new Node("Group " + i);
+            root.attachChild(groups[i]);
+        }
+        boxes = new Geometry[BOXES];
+        for (int i = 0; i < BOXES; i++) {
+            boxes[i] = new Geometry("Box " + i, mesh);
+            boxes[i].setLocalTranslation(randomPoint(400f));
+            groups[i % GROUPS].attachChild(boxes[i]);
+        }
+        rays = new Ray[RAYS];
+        for (int i = 0; i < RAYS; i++) {
+            rays[i] = new Ray(randomPoint(400f), randomPoint(1f).normalizeLocal());
+        }
+        root.updateGeometricState();
+    }
+
+    @Override
+    public Object run() {
+        for (int i = 0; i < MOVED; i++) {
+            Geometry box = boxes[next];
+            next = (next + 1) % BOXES;
+            box.setLocalTranslation(randomPoint(400f));
+        }
+        root.updateGeometricState();
+
+        int hits = 0;
+        for (int i = 0; i < RAYS; i++) {
+            results.clear();
+            hits += root.collideWith(rays[i], results);
+        }
+        return hits;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jme3test.bench;
+
+import com.jme3.network.serializing.Serializer;
+import java.nio.ByteBuffer;
+import jme3test.network.TestSerialization.SomeObject;
+import jme3test.network.TestSerialization.TestSerializationMessage;
+
+/**
+ * Measures {@link Serializer#writeClassAndObject(java.nio.ByteBuffer, java.lang.Object) }
+ * followed by {@link Serializer#readClassAndObject(java.nio.ByteBuffer) }
+ * of a message using all the supported field types.
+ */
+public class SerializerBenchmark extends MicroBenchmark {
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(32767);
+    private TestSerializationMessage message;
+
+    @Override
+    public void setUp(HeadlessEnvironment env) {
+        Serializer.registerClass(SomeObject.class);
+        Serializer.registerClass(TestSerializationMessage.class);
+        message = new TestSerializationMessage(true);
+    }
+
+    @Override
+    public Object run() throws Exception {
+        buffer.clear();
+        Serializer.writeClassAndObject(buffer, message);
+        buffer.flip();
+        return Serializer.readClassAndObject(buffer);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jme3test.bench;
+
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jme3.terrain.geomipmap.TerrainLodControl;
+import com.jme3.terrain.geomipmap.TerrainQuad;
+import com.jme3.terrain.geomipmap.UpdatedTerrainPatch;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Measures the LOD calculation of {@link TerrainLodControl} on a
+ * 513x513 terrain. The calculation normally runs on the terrain thread,
+ * here it is called synchronously with the camera alternating between
+ * two locations so the LOD of the patches changes every operation.
+ */
+public class TerrainLodBenchmark extends MicroBenchmark {
+
+    private static final int SIZE = 513;
+
+    /**
+     * Exposes the LOD calculation task of the control.
+     */
+    private static class SyncTerrainLodControl extends TerrainLodControl {
+
+        public SyncTerrainLodControl(TerrainQuad terrain, Camera cam) {
+            super(terrain, cam);
+        }
+
+        public HashMap<String, UpdatedTerrainPatch> calculateLod(List<Vector3f> locations) throws Exception {
+            prepareTerrain();
+            return getLodThread(locations, getLodCalculator()).call();
+        }
+    }
+
+    private SyncTerrainLodControl control;
+    private final List<Vector3f> locations = new ArrayList<Vector3f>();
+    private boolean flip;
+
+    @Override
+    public void setUp(HeadlessEnvironment env) {
+        float[] heightMap = new float[SIZE * SIZE];
+        for (int z = 0; z < SIZE; z++) {
+            for (int x = 0; x < SIZE; x++) {
+                heightMap[z * SIZE + x] = (float) (Math.sin(x * 0.05) * Math.cos(z * 0.05)) * 20f;
+            }
+        }
+        TerrainQuad terrain = new TerrainQuad("Terrain", 65, SIZE, heightMap);
+        control = new SyncTerrainLodControl(terrain, env.getCamera());
+        terrain.addControl(control);
+        terrain.updateGeometricState();
+        locations.add(new Vector3f());
+    }
+
+    @Override
+    public Object run() throws Exception {
+        flip = !flip;
+        locations.get(0).set(flip ? -200f : 200f, 10f, flip ? -200f : 200f);
+        return control.calculateLod(locations);
+    }
+}
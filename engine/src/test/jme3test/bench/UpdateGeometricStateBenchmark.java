@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jme3test.bench;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Node;
+import com.jme3.scene.ParallelUpdater;
+import com.jme3.scene.shape.Box;
+
+/**
+ * Measures {@link Node#updateGeometricState() } on a scene of 40,000
+ * geometries grouped under 160 nodes. The root is rotated every operation
+ * so that every world transform and world bound is refreshed.
+ * The parallel variant updates the groups with a {@link ParallelUpdater}.
+ */
+public class UpdateGeometricStateBenchmark extends MicroBenchmark {
+
+    private static final int GROUPS = 160;
+    private static final int GEOMS_PER_GROUP = 250;
+
+    private final boolean parallel;
+    private Node root;
+    private final Quaternion rotation = new Quaternion();
+    private float angle;
+
+    public UpdateGeometricStateBenchmark(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    @Override
+    public String getName() {
+        return parallel ? super.getName() + "(parallel)" : super.getName();
+    }
+
+    @Override
+    public void setUp(HeadlessEnvironment env) {
+        Mesh box = new Box(0.5f, 0.5f, 0.5f);
+        root = new Node("Root");
+        for (int g = 0; g < GROUPS; g++) {
+            Node group = new Node("Group " + g);
+            group.setLocalTranslation(g * 10f, 0, 0);
+            for (int i = 0; i < GEOMS_PER_GROUP; i++) {
+                Geometry geom = new Geometry("Box " + i, box);
+                geom.setLocalTranslation(i % 16, i / 16, FastMath.nextRandomFloat());
+                group.attachChild(geom);
+            }
+            root.attachChild(group);
+        }
+        if (parallel) {
+            root.setParallelUpdater(ParallelUpdater.getDefault());
+        }
+        root.updateGeometricState();
+    }
+
+    @Override
+    public Object run() {
+        angle += 0.001f;
+        rotation.fromAngleAxis(angle, Vector3f.UNIT_Y);
+        root.setLocalRotation(rotation);
+        root.updateGeometricState();
+        return root.getWorldBound();
+    }
+}
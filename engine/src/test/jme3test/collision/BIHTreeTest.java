@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3test.collision;
+
+import com.jme3.collision.bih.BIHTree;
+import com.jme3.export.binary.BinaryExporter;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.VertexBuffer.Type;
+import com.jme3.scene.shape.Sphere;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that {@link BIHTree#construct(java.util.concurrent.Executor) } builds
+ * the same tree with several threads as with one.
+ */
+public class BIHTreeTest {
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    /**
+     * A sphere with jittered vertices, so that the triangles are not
+     * sorted the same way along every axis.
+     */
+    private static Mesh createMesh(int samples) {
+        Mesh mesh = new Sphere(samples, samples, 10f);
+        FloatBuffer positions = mesh.getFloatBuffer(Type.Position);
+        Random random = new Random(42);
+        for (int i = 0; i < positions.limit(); i++) {
+            positions.put(i, positions.get(i) + (random.nextFloat() - 0.5f) * 0.1f);
+        }
+        mesh.updateBound();
+        return mesh;
+    }
+
+    private static byte[] export(BIHTree tree) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryExporter.getInstance().save(tree, out);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testParallelConstructionMatchesSerial() throws IOException {
+        Mesh mesh = createMesh(128);
+        assertTrue(mesh.getTriangleCount() >= BIHTree.MIN_PARALLEL_TRIS * 4);
+
+        BIHTree serial = new BIHTree(mesh);
+        serial.construct(null);
+        BIHTree parallel = new BIHTree(mesh);
+        parallel.construct(executor);
+
+        // the triangles are sorted in the same order
+        Vector3f[] s = {new Vector3f(), new Vector3f(), new Vector3f()};
+        Vector3f[] p = {new Vector3f(), new Vector3f(), new Vector3f()};
+        for (int i = 0; i < mesh.getTriangleCount(); i++) {
+            serial.getTriangle(i, s[0], s[1], s[2]);
+            parallel.getTriangle(i, p[0], p[1], p[2]);
+            for (int v = 0; v < 3; v++) {
+                assertEquals("triangle " + i, s[v], p[v]);
+            }
+        }
+
+        // the exported trees hold the axes, triangle ranges and planes of
+        // every node in depth first order
+        assertArrayEquals(export(serial), export(parallel));
+    }
+}
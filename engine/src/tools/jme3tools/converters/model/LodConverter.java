@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3tools.converters.model;
+
+import com.jme3.scene.Spatial;
+import java.util.Map;
+import jme3tools.converters.Converter;
+import jme3tools.optimize.LodGenerator;
+import jme3tools.optimize.LodGenerator.TriangleReductionMethod;
+
+/**
+ * Generates the levels of detail of every triangle mesh in a model, so
+ * they can be saved along with it.
+ * <p>
+ * Parameters:
+ * <ul>
+ * <li><code>method</code> - the name of a {@link TriangleReductionMethod},
+ * <code>PROPORTIONAL</code> by default</li>
+ * <li><code>values</code> - the comma separated reduction of each level,
+ * <code>0.5,0.75,0.9</code> by default</li>
+ * </ul>
+ * 
+ * @see LodGenerator
+ */
+public class LodConverter implements Converter<Spatial> {
+
+    public Spatial convert(Spatial input, Map<String, String> params) {
+        TriangleReductionMethod method = TriangleReductionMethod.PROPORTIONAL;
+        String methodName = params.get("method");
+        if (methodName != null) {
+            method = TriangleReductionMethod.valueOf(methodName.trim().toUpperCase());
+        }
+
+        float[] values = new float[]{ 0.5f, 0.75f, 0.9f };
+        String valueList = params.get("values");
+        if (valueList != null) {
+            String[] split = valueList.split(",");
+            values = new float[split.length];
+            for (int i = 0; i < split.length; i++) {
+                values[i] = Float.parseFloat(split[i].trim());
+            }
+        }
+
+        LodGenerator.bakeLods(input, method, values);
+        return input;
+    }
+}
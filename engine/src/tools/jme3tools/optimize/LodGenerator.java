@@ -0,0 +1,794 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3tools.optimize;
+
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Mesh.Mode;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.scene.VertexBuffer.Format;
+import com.jme3.scene.VertexBuffer.Type;
+import com.jme3.scene.VertexBuffer.Usage;
+import com.jme3.scene.mesh.IndexBuffer;
+import com.jme3.scene.mesh.IndexIntBuffer;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <code>LodGenerator</code> computes reduced index buffers for a triangle
+ * mesh using quadric error metrics.
+ * <p>
+ * The mesh is simplified with half-edge collapses: a vertex is always moved
+ * onto one of its neighbours, so no vertex is created and every level of
+ * detail keeps referencing the vertex buffers of the original mesh. Only
+ * an index buffer is generated per level.
+ * <p>
+ * Vertices sharing a position but differing in their other attributes
+ * (texture coordinate or normal seams) are tracked together. A seam vertex
+ * may only slide along the seam and both of its copies collapse at once,
+ * so seams never open. Vertices on open borders may only slide along the
+ * border, and vertices where several seams or borders meet are kept.
+ * <p>
+ * The levels are set on the mesh with
+ * {@link #bakeLods(jme3tools.optimize.LodGenerator.TriangleReductionMethod, float[]) }
+ * and then selected at runtime by a {@link com.jme3.scene.control.LodControl}.
+ */
+public class LodGenerator {
+
+    private static final Logger logger = Logger.getLogger(LodGenerator.class.getName());
+
+    /**
+     * Describes how the reduction values given to the generator are
+     * interpreted.
+     */
+    public enum TriangleReductionMethod {
+        /**
+         * Each value is the fraction of the original triangles to remove,
+         * 0.5 keeps half of the triangles.
+         */
+        PROPORTIONAL,
+        /**
+         * Each value is the number of triangles to remove.
+         */
+        CONSTANT,
+        /**
+         * Each value is the largest error a collapse may introduce, as a
+         * fraction of the mesh bounding radius. The mesh is reduced as far
+         * as this error allows.
+         */
+        COLLAPSE_COST
+    }
+
+    private static final byte MANIFOLD = 0;
+    private static final byte BORDER = 1;
+    private static final byte SEAM = 2;
+    private static final byte LOCKED = 3;
+
+    /**
+     * Weight of the quadrics keeping open edges and seams in place,
+     * relative to the quadrics of the triangle planes.
+     */
+    private static final float BOUNDARY_WEIGHT = 4f;
+
+    private static final int QUADRIC_SIZE = 11;
+
+    private final Mesh mesh;
+    private final int vertexCount;
+    private final float[] positions;
+    private final int[] indices;
+    private final float radius;
+
+    /**
+     * First vertex with the same position as a vertex, all quadrics and
+     * locks are kept on this vertex.
+     */
+    private final int[] remap;
+    /**
+     * Circular list linking the vertices sharing a position.
+     */
+    private final int[] wedges;
+    private final byte[] kinds;
+
+    private double[] quadrics;
+    private int[] marks;
+    private int mark;
+    private float maxError = Float.POSITIVE_INFINITY;
+
+    /**
+     * Creates a generator for the given mesh. The mesh must be in
+     * {@link Mode#Triangles} mode.
+     * 
+     * @param mesh The mesh to simplify
+     * 
+     * @throws IllegalArgumentException If the mesh is not a triangle list
+     * or has no positions.
+     */
+    public LodGenerator(Mesh mesh) {
+        if (mesh.getMode() != Mode.Triangles) {
+            throw new IllegalArgumentException("Only triangle lists are supported, got " + mesh.getMode());
+        }
+        VertexBuffer pb = mesh.getBuffer(Type.Position);
+        if (pb == null || pb.getNumComponents() != 3) {
+            throw new IllegalArgumentException("The mesh must have 3 component positions");
+        }
+
+        this.mesh = mesh;
+        vertexCount = mesh.getVertexCount();
+        positions = new float[vertexCount * 3];
+        FloatBuffer fb = (FloatBuffer) pb.getData();
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = fb.get(i);
+        }
+
+        IndexBuffer ib = mesh.getIndicesAsList();
+        indices = new int[ib.size() - ib.size() % 3];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = ib.get(i);
+        }
+
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY, minZ = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY, maxZ = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < positions.length; i += 3) {
+            minX = Math.min(minX, positions[i]);
+            minY = Math.min(minY, positions[i + 1]);
+            minZ = Math.min(minZ, positions[i + 2]);
+            maxX = Math.max(maxX, positions[i]);
+            maxY = Math.max(maxY, positions[i + 1]);
+            maxZ = Math.max(maxZ, positions[i + 2]);
+        }
+        float extent = vertexCount == 0 ? 0f : new Vector3f(maxX - minX, maxY - minY, maxZ - minZ).length() * 0.5f;
+        radius = extent > 0f ? extent : 1f;
+
+        remap = new int[vertexCount];
+        wedges = new int[vertexCount];
+        kinds = new byte[vertexCount];
+        weldPositions();
+        classifyVertices();
+    }
+
+    /**
+     * Sets the largest error a single collapse may introduce, as a fraction
+     * of the mesh bounding radius. Levels requested with
+     * {@link TriangleReductionMethod#PROPORTIONAL} or
+     * {@link TriangleReductionMethod#CONSTANT} stop early instead of
+     * exceeding it. Unbounded by default.
+     * 
+     * @param maxError The maximum relative error
+     */
+    public void setMaxError(float maxError) {
+        this.maxError = maxError;
+    }
+
+    /**
+     * @return The maximum relative error of a collapse.
+     * 
+     * @see #setMaxError(float) 
+     */
+    public float getMaxError() {
+        return maxError;
+    }
+
+    /**
+     * Computes the levels of detail of the mesh.
+     * <p>
+     * Each level is reduced from the previous one, so the values should
+     * be given in increasing order. A level that cannot be reduced further
+     * than the previous one is left out.
+     * 
+     * @param method How to interpret the reduction values
+     * @param reductionValues The reduction of each level
+     * @return The index buffers of the levels, the first one being the
+     * full index buffer of the mesh.
+     */
+    public VertexBuffer[] computeLods(TriangleReductionMethod method, float... reductionValues) {
+        List<VertexBuffer> levels = new ArrayList<VertexBuffer>(reductionValues.length + 1);
+        VertexBuffer original = mesh.getBuffer(Type.Index);
+        levels.add(original != null ? original : createIndexBuffer(indices, indices.length));
+
+        computeQuadrics();
+        int[] current = indices.clone();
+        int count = current.length;
+        int triangleCount = count / 3;
+        float relativeError = maxError;
+
+        for (float value : reductionValues) {
+            int targetTriangles;
+            switch (method) {
+                case PROPORTIONAL:
+                    if (value < 0f || value > 1f) {
+                        throw new IllegalArgumentException("Proportional reduction must be in [0, 1], got " + value);
+                    }
+                    targetTriangles = Math.round(triangleCount * (1f - value));
+                    break;
+                case CONSTANT:
+                    targetTriangles = triangleCount - (int) value;
+                    break;
+                case COLLAPSE_COST:
+                    targetTriangles = 0;
+                    relativeError = Math.min(value, maxError);
+                    break;
+                default:
+                    throw new UnsupportedOperationException("Unknown reduction method: " + method);
+            }
+
+            float limit = relativeError * radius;
+            int newCount = simplify(current, count, Math.max(targetTriangles, 0) * 3, limit * limit);
+            if (newCount >= count) {
+                continue;
+            }
+            count = newCount;
+            levels.add(createIndexBuffer(current, count));
+        }
+
+        quadrics = null;
+        marks = null;
+        return levels.toArray(new VertexBuffer[levels.size()]);
+    }
+
+    /**
+     * Computes the levels of detail of the mesh and sets them on it.
+     * 
+     * @param method How to interpret the reduction values
+     * @param reductionValues The reduction of each level
+     * 
+     * @see #computeLods(jme3tools.optimize.LodGenerator.TriangleReductionMethod, float[]) 
+     */
+    public void bakeLods(TriangleReductionMethod method, float... reductionValues) {
+        mesh.setLodLevels(computeLods(method, reductionValues));
+    }
+
+    /**
+     * Computes and sets the levels of detail of every triangle mesh in the
+     * given scene graph. Meshes shared by several geometries are only
+     * processed once, meshes in other modes are skipped.
+     * 
+     * @param scene The scene graph to process
+     * @param method How to interpret the reduction values
+     * @param reductionValues The reduction of each level
+     */
+    public static void bakeLods(Spatial scene, TriangleReductionMethod method, float... reductionValues) {
+        List<Geometry> geometries = new ArrayList<Geometry>();
+        gatherGeoms(scene, geometries);
+
+        IdentityHashMap<Mesh, Mesh> processed = new IdentityHashMap<Mesh, Mesh>();
+        for (Geometry geom : geometries) {
+            Mesh m = geom.getMesh();
+            if (processed.containsKey(m)) {
+                continue;
+            }
+            processed.put(m, m);
+            if (m.getMode() != Mode.Triangles || m.getBuffer(Type.Position) == null) {
+                logger.log(Level.FINE, "Skipping {0}, only triangle lists can be reduced", geom.getName());
+                continue;
+            }
+            new LodGenerator(m).bakeLods(method, reductionValues);
+            if (logger.isLoggable(Level.FINE)) {
+                StringBuilder sb = new StringBuilder();
+                for (int i = 0; i < m.getNumLodLevels(); i++) {
+                    sb.append(' ').append(m.getLodLevel(i).getNumElements());
+                }
+                logger.log(Level.FINE, "Generated levels of {0}, triangles:{1}", new Object[]{geom.getName(), sb});
+            }
+        }
+    }
+
+    private static void gatherGeoms(Spatial scene, List<Geometry> geoms) {
+        if (scene instanceof Node) {
+            Node node = (Node) scene;
+            for (Spatial child : node.getChildren()) {
+                gatherGeoms(child, geoms);
+            }
+        } else if (scene instanceof Geometry) {
+            geoms.add((Geometry) scene);
+        }
+    }
+
+    private VertexBuffer createIndexBuffer(int[] data, int count) {
+        IndexBuffer ib = IndexBuffer.createIndexBuffer(vertexCount, count);
+        for (int i = 0; i < count; i++) {
+            ib.put(i, data[i]);
+        }
+        VertexBuffer vb = new VertexBuffer(Type.Index);
+        if (ib instanceof IndexIntBuffer) {
+            vb.setupData(Usage.Static, 3, Format.UnsignedInt, ib.getBuffer());
+        } else {
+            vb.setupData(Usage.Static, 3, Format.UnsignedShort, ib.getBuffer());
+        }
+        return vb;
+    }
+
+    /**
+     * Links together the vertices that share the same position.
+     */
+    private void weldPositions() {
+        HashMap<Vector3f, Integer> firstVertex = new HashMap<Vector3f, Integer>(vertexCount * 2);
+        for (int i = 0; i < vertexCount; i++) {
+            Vector3f pos = new Vector3f(positions[i * 3], positions[i * 3 + 1], positions[i * 3 + 2]);
+            Integer first = firstVertex.get(pos);
+            if (first == null) {
+                firstVertex.put(pos, i);
+                remap[i] = i;
+                wedges[i] = i;
+            } else {
+                int f = first;
+                remap[i] = f;
+                wedges[i] = wedges[f];
+                wedges[f] = i;
+            }
+        }
+    }
+
+    /**
+     * Finds out which collapses each vertex allows, looking at the open
+     * edges around it. Seam edges are open edges too, since the triangles
+     * on each side reference different vertices.
+     */
+    private void classifyVertices() {
+        Adjacency adj = new Adjacency(indices, indices.length, vertexCount);
+        int[] openOut = new int[vertexCount];
+        int[] openIn = new int[vertexCount];
+        int[] openNext = new int[vertexCount];
+        int[] openPrev = new int[vertexCount];
+        for (int a = 0; a < vertexCount; a++) {
+            for (int i = adj.offsets[a]; i < adj.offsets[a + 1]; i++) {
+                int b = adj.targets[i];
+                if (!adj.hasEdge(b, a)) {
+                    openOut[a]++;
+                    openNext[a] = b;
+                    openIn[b]++;
+                    openPrev[b] = a;
+                }
+            }
+        }
+
+        for (int v = 0; v < vertexCount; v++) {
+            int w = wedges[v];
+            if (w == v) {
+                if (openOut[v] == 0 && openIn[v] == 0) {
+                    kinds[v] = MANIFOLD;
+                } else if (openOut[v] == 1 && openIn[v] == 1) {
+                    kinds[v] = BORDER;
+                } else {
+                    kinds[v] = LOCKED;
+                }
+            } else if (wedges[w] == v
+                    && openOut[v] == 1 && openIn[v] == 1
+                    && openOut[w] == 1 && openIn[w] == 1
+                    && remap[openNext[v]] == remap[openPrev[w]]
+                    && remap[openPrev[v]] == remap[openNext[w]]) {
+                // exactly two copies whose open edges run along each other
+                kinds[v] = SEAM;
+            } else {
+                kinds[v] = LOCKED;
+            }
+        }
+    }
+
+    /**
+     * Sums the area weighted plane quadrics of the triangles around each
+     * position, plus the quadrics of the planes perpendicular to the open
+     * edges so that borders and seams keep their shape.
+     */
+    private void computeQuadrics() {
+        quadrics = new double[vertexCount * QUADRIC_SIZE];
+        Adjacency adj = new Adjacency(indices, indices.length, vertexCount);
+        for (int t = 0; t < indices.length; t += 3) {
+            int i0 = indices[t] * 3, i1 = indices[t + 1] * 3, i2 = indices[t + 2] * 3;
+            double e1x = positions[i1] - positions[i0], e1y = positions[i1 + 1] - positions[i0 + 1], e1z = positions[i1 + 2] - positions[i0 + 2];
+            double e2x = positions[i2] - positions[i0], e2y = positions[i2 + 1] - positions[i0 + 1], e2z = positions[i2 + 2] - positions[i0 + 2];
+            double nx = e1y * e2z - e1z * e2y;
+            double ny = e1z * e2x - e1x * e2z;
+            double nz = e1x * e2y - e1y * e2x;
+            double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+            if (length == 0) {
+                continue;
+            }
+            nx /= length;
+            ny /= length;
+            nz /= length;
+            double d = -(nx * positions[i0] + ny * positions[i0 + 1] + nz * positions[i0 + 2]);
+            double area = length * 0.5;
+            for (int k = 0; k < 3; k++) {
+                addPlane(remap[indices[t + k]], nx, ny, nz, d, area);
+            }
+
+            for (int k = 0; k < 3; k++) {
+                int a = indices[t + k];
+                int b = indices[t + (k + 1) % 3];
+                if (adj.hasEdge(b, a)) {
+                    continue;
+                }
+                double ex = positions[b * 3] - positions[a * 3];
+                double ey = positions[b * 3 + 1] - positions[a * 3 + 1];
+                double ez = positions[b * 3 + 2] - positions[a * 3 + 2];
+                double px = ey * nz - ez * ny;
+                double py = ez * nx - ex * nz;
+                double pz = ex * ny - ey * nx;
+                double plength = Math.sqrt(px * px + py * py + pz * pz);
+                if (plength == 0) {
+                    continue;
+                }
+                px /= plength;
+                py /= plength;
+                pz /= plength;
+                double pd = -(px * positions[a * 3] + py * positions[a * 3 + 1] + pz * positions[a * 3 + 2]);
+                double weight = (ex * ex + ey * ey + ez * ez) * BOUNDARY_WEIGHT;
+                addPlane(remap[a], px, py, pz, pd, weight);
+                addPlane(remap[b], px, py, pz, pd, weight);
+            }
+        }
+    }
+
+    private void addPlane(int vertex, double a, double b, double c, double d, double weight) {
+        int q = vertex * QUADRIC_SIZE;
+        quadrics[q] += weight * a * a;
+        quadrics[q + 1] += weight * b * b;
+        quadrics[q + 2] += weight * c * c;
+        quadrics[q + 3] += weight * a * b;
+        quadrics[q + 4] += weight * a * c;
+        quadrics[q + 5] += weight * b * c;
+        quadrics[q + 6] += weight * a * d;
+        quadrics[q + 7] += weight * b * d;
+        quadrics[q + 8] += weight * c * d;
+        quadrics[q + 9] += weight * d * d;
+        quadrics[q + 10] += weight;
+    }
+
+    /**
+     * Squared distance, averaged over the accumulated planes, between the
+     * position of <code>target</code> and the planes of <code>vertex</code>.
+     */
+    private float quadricError(int vertex, int target) {
+        int q = vertex * QUADRIC_SIZE;
+        double x = positions[target * 3], y = positions[target * 3 + 1], z = positions[target * 3 + 2];
+        double error = quadrics[q] * x * x + quadrics[q + 1] * y * y + quadrics[q + 2] * z * z
+                + 2 * (quadrics[q + 3] * x * y + quadrics[q + 4] * x * z + quadrics[q + 5] * y * z)
+                + 2 * (quadrics[q + 6] * x + quadrics[q + 7] * y + quadrics[q + 8] * z)
+                + quadrics[q + 9];
+        double weight = quadrics[q + 10];
+        return (float) (weight > 0 ? Math.abs(error) / weight : 0);
+    }
+
+    private void mergeQuadric(int source, int target) {
+        int s = source * QUADRIC_SIZE;
+        int t = target * QUADRIC_SIZE;
+        for (int i = 0; i < QUADRIC_SIZE; i++) {
+            quadrics[t + i] += quadrics[s + i];
+        }
+    }
+
+    private boolean canCollapse(int source, boolean openEdge) {
+        switch (kinds[source]) {
+            case MANIFOLD:
+                return true;
+            case BORDER:
+            case SEAM:
+                return openEdge;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Reduces the triangle list in place until it holds at most
+     * <code>targetCount</code> indices or no collapse under the error limit
+     * remains.
+     * <p>
+     * Each pass sorts the candidate collapses by cost and applies them
+     * greedily, locking the neighbourhood of every collapsed vertex so the
+     * adjacency used by the pass stays valid.
+     * 
+     * @return The new number of indices.
+     */
+    private int simplify(int[] current, int count, int targetCount, float errorLimit) {
+        boolean[] locked = new boolean[vertexCount];
+        marks = new int[vertexCount];
+        mark = 0;
+        int[] collapse = new int[vertexCount];
+
+        while (count > targetCount) {
+            Adjacency adj = new Adjacency(current, count, vertexCount);
+
+            int[] sources = new int[count * 2];
+            int[] targets = new int[count * 2];
+            float[] costs = new float[count * 2];
+            int candidates = 0;
+            for (int t = 0; t < count; t += 3) {
+                for (int k = 0; k < 3; k++) {
+                    int a = current[t + k];
+                    int b = current[t + (k + 1) % 3];
+                    boolean open = !adj.hasEdge(b, a);
+                    // an inner edge is seen from both of its triangles
+                    if (!open && a > b) {
+                        continue;
+                    }
+                    if (canCollapse(a, open)) {
+                        sources[candidates] = a;
+                        targets[candidates] = b;
+                        costs[candidates++] = quadricError(remap[a], b);
+                    }
+                    if (canCollapse(b, open)) {
+                        sources[candidates] = b;
+                        targets[candidates] = a;
+                        costs[candidates++] = quadricError(remap[b], a);
+                    }
+                }
+            }
+
+            // costs are positive, so their bits sort like the floats do
+            long[] order = new long[candidates];
+            for (int i = 0; i < candidates; i++) {
+                order[i] = ((long) Float.floatToIntBits(costs[i]) << 32) | i;
+            }
+            Arrays.sort(order);
+
+            Arrays.fill(locked, false);
+            for (int v = 0; v < vertexCount; v++) {
+                collapse[v] = v;
+            }
+
+            int triangles = count / 3;
+            int targetTriangles = targetCount / 3;
+            int collapsed = 0;
+            for (int i = 0; i < candidates && triangles > targetTriangles; i++) {
+                int c = (int) order[i];
+                if (costs[c] > errorLimit) {
+                    break;
+                }
+                int a = sources[c];
+                int b = targets[c];
+                int pa = remap[a];
+                int pb = remap[b];
+                if (locked[pa] || locked[pb] || pa == pb) {
+                    continue;
+                }
+
+                int sibling = -1;
+                int siblingTarget = -1;
+                if (kinds[a] == SEAM) {
+                    sibling = wedges[a];
+                    siblingTarget = findSeamTarget(adj, sibling, b);
+                    if (siblingTarget < 0) {
+                        continue;
+                    }
+                }
+
+                int removed = countRemovedTriangles(adj, current, a, pb);
+                if (removed < 0 || countSharedNeighbours(adj, current, a, b) != removed) {
+                    continue;
+                }
+
+                collapse[a] = b;
+                if (sibling >= 0) {
+                    collapse[sibling] = siblingTarget;
+                }
+                mergeQuadric(pa, pb);
+                lockNeighbourhood(adj, current, a, locked);
+                triangles -= removed;
+                collapsed++;
+            }
+
+            if (collapsed == 0) {
+                break;
+            }
+
+            int newCount = 0;
+            for (int t = 0; t < count; t += 3) {
+                int a = collapse[current[t]];
+                int b = collapse[current[t + 1]];
+                int c = collapse[current[t + 2]];
+                if (remap[a] == remap[b] || remap[b] == remap[c] || remap[a] == remap[c]) {
+                    continue;
+                }
+                current[newCount++] = a;
+                current[newCount++] = b;
+                current[newCount++] = c;
+            }
+            count = newCount;
+        }
+        return count;
+    }
+
+    /**
+     * Finds the copy of the target position the other side of a seam
+     * collapses to.
+     */
+    private int findSeamTarget(Adjacency adj, int sibling, int target) {
+        int t = target;
+        do {
+            boolean out = adj.hasEdge(sibling, t);
+            boolean in = adj.hasEdge(t, sibling);
+            if (out != in) {
+                return t;
+            }
+            t = wedges[t];
+        } while (t != target);
+        return -1;
+    }
+
+    /**
+     * Counts the triangles that degenerate when the position of
+     * <code>source</code> moves onto <code>targetPosition</code>.
+     * 
+     * @return The number of removed triangles, or -1 if one of the
+     * remaining triangles would flip.
+     */
+    private int countRemovedTriangles(Adjacency adj, int[] current, int source, int targetPosition) {
+        int sourcePosition = remap[source];
+        int removed = 0;
+        int v = source;
+        do {
+            for (int i = adj.offsets[v]; i < adj.offsets[v + 1]; i++) {
+                int t = adj.triangles[i];
+                int i0 = current[t], i1 = current[t + 1], i2 = current[t + 2];
+                if (remap[i0] == targetPosition || remap[i1] == targetPosition || remap[i2] == targetPosition) {
+                    removed++;
+                    continue;
+                }
+                int n0 = remap[i0] == sourcePosition ? targetPosition : i0;
+                int n1 = remap[i1] == sourcePosition ? targetPosition : i1;
+                int n2 = remap[i2] == sourcePosition ? targetPosition : i2;
+                if (flips(i0, i1, i2, n0, n1, n2)) {
+                    return -1;
+                }
+            }
+            v = wedges[v];
+        } while (v != source);
+        return removed;
+    }
+
+    /**
+     * Counts the positions adjacent to both ends of the edge. When there
+     * are more of them than triangles on the edge, the collapse would fold
+     * the surface onto itself and change its topology.
+     */
+    private int countSharedNeighbours(Adjacency adj, int[] current, int source, int target) {
+        int sourceMark = ++mark;
+        markNeighbours(adj, current, source, sourceMark);
+        int sharedMark = ++mark;
+        marks[remap[target]] = sharedMark;
+        int shared = 0;
+        int v = target;
+        do {
+            for (int i = adj.offsets[v]; i < adj.offsets[v + 1]; i++) {
+                int t = adj.triangles[i];
+                for (int k = 0; k < 3; k++) {
+                    int p = remap[current[t + k]];
+                    if (marks[p] == sourceMark) {
+                        marks[p] = sharedMark;
+                        shared++;
+                    }
+                }
+            }
+            v = wedges[v];
+        } while (v != target);
+        return shared;
+    }
+
+    private void markNeighbours(Adjacency adj, int[] current, int vertex, int value) {
+        int v = vertex;
+        do {
+            for (int i = adj.offsets[v]; i < adj.offsets[v + 1]; i++) {
+                int t = adj.triangles[i];
+                for (int k = 0; k < 3; k++) {
+                    marks[remap[current[t + k]]] = value;
+                }
+            }
+            v = wedges[v];
+        } while (v != vertex);
+        marks[remap[vertex]] = 0;
+    }
+
+    private boolean flips(int i0, int i1, int i2, int n0, int n1, int n2) {
+        float ax = normalX(i0, i1, i2), ay = normalY(i0, i1, i2), az = normalZ(i0, i1, i2);
+        float bx = normalX(n0, n1, n2), by = normalY(n0, n1, n2), bz = normalZ(n0, n1, n2);
+        return ax * bx + ay * by + az * bz <= 0f;
+    }
+
+    private float normalX(int i0, int i1, int i2) {
+        return (positions[i1 * 3 + 1] - positions[i0 * 3 + 1]) * (positions[i2 * 3 + 2] - positions[i0 * 3 + 2])
+                - (positions[i1 * 3 + 2] - positions[i0 * 3 + 2]) * (positions[i2 * 3 + 1] - positions[i0 * 3 + 1]);
+    }
+
+    private float normalY(int i0, int i1, int i2) {
+        return (positions[i1 * 3 + 2] - positions[i0 * 3 + 2]) * (positions[i2 * 3] - positions[i0 * 3])
+                - (positions[i1 * 3] - positions[i0 * 3]) * (positions[i2 * 3 + 2] - positions[i0 * 3 + 2]);
+    }
+
+    private float normalZ(int i0, int i1, int i2) {
+        return (positions[i1 * 3] - positions[i0 * 3]) * (positions[i2 * 3 + 1] - positions[i0 * 3 + 1])
+                - (positions[i1 * 3 + 1] - positions[i0 * 3 + 1]) * (positions[i2 * 3] - positions[i0 * 3]);
+    }
+
+    private void lockNeighbourhood(Adjacency adj, int[] current, int source, boolean[] locked) {
+        int v = source;
+        do {
+            for (int i = adj.offsets[v]; i < adj.offsets[v + 1]; i++) {
+                int t = adj.triangles[i];
+                locked[remap[current[t]]] = true;
+                locked[remap[current[t + 1]]] = true;
+                locked[remap[current[t + 2]]] = true;
+            }
+            v = wedges[v];
+        } while (v != source);
+    }
+
+    /**
+     * Half edges of a triangle list grouped by their start vertex.
+     */
+    private static final class Adjacency {
+
+        final int[] offsets;
+        final int[] targets;
+        final int[] triangles;
+
+        Adjacency(int[] indices, int count, int vertexCount) {
+            offsets = new int[vertexCount + 1];
+            for (int i = 0; i < count; i++) {
+                offsets[indices[i] + 1]++;
+            }
+            for (int v = 0; v < vertexCount; v++) {
+                offsets[v + 1] += offsets[v];
+            }
+
+            targets = new int[count];
+            triangles = new int[count];
+            int[] fill = new int[vertexCount];
+            System.arraycopy(offsets, 0, fill, 0, vertexCount);
+            for (int t = 0; t < count; t += 3) {
+                for (int k = 0; k < 3; k++) {
+                    int slot = fill[indices[t + k]]++;
+                    targets[slot] = indices[t + (k + 1) % 3];
+                    triangles[slot] = t;
+                }
+            }
+        }
+
+        boolean hasEdge(int a, int b) {
+            for (int i = offsets[a]; i < offsets[a + 1]; i++) {
+                if (targets[i] == b) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3tools.optimize;
+
+import com.jme3.asset.AssetProcessor;
+import com.jme3.asset.ModelKey;
+import com.jme3.export.InputCapsule;
+import com.jme3.export.JmeExporter;
+import com.jme3.export.JmeImporter;
+import com.jme3.export.OutputCapsule;
+import java.io.IOException;
+import java.util.Arrays;
+import jme3tools.optimize.LodGenerator.TriangleReductionMethod;
+
+/**
+ * Used to load models and generate the levels of detail of their meshes
+ * as they are loaded, see {@link LodGenerator}.
+ * <p>
+ * The generated levels are cached with the model, so loading the same
+ * model again with the same reduction settings does not run the
+ * simplification again.
+ */
+public class LodModelKey extends ModelKey {
+
+    private TriangleReductionMethod method = TriangleReductionMethod.PROPORTIONAL;
+    private float[] reductionValues = new float[0];
+
+    public LodModelKey(String name, TriangleReductionMethod method, float... reductionValues) {
+        super(name);
+        this.method = method;
+        this.reductionValues = reductionValues.clone();
+    }
+
+    public LodModelKey(String name) {
+        super(name);
+    }
+
+    public LodModelKey() {
+        super();
+    }
+
+    /**
+     * @return How the reduction values are interpreted.
+     */
+    public TriangleReductionMethod getMethod() {
+        return method;
+    }
+
+    /**
+     * @return The reduction of each generated level.
+     */
+    public float[] getReductionValues() {
+        return reductionValues.clone();
+    }
+
+    /**
+     * Sets the levels to generate when the model is loaded.
+     * 
+     * @param method How to interpret the reduction values
+     * @param reductionValues The reduction of each level
+     * 
+     * @see LodGenerator#computeLods(jme3tools.optimize.LodGenerator.TriangleReductionMethod, float[]) 
+     */
+    public void setReduction(TriangleReductionMethod method, float... reductionValues) {
+        this.method = method;
+        this.reductionValues = reductionValues.clone();
+    }
+
+    @Override
+    public Class<? extends AssetProcessor> getProcessorType() {
+        return LodAssetProcessor.class;
+    }
+
+    @Override
+    public LodModelKey clone() {
+        LodModelKey clone = (LodModelKey) super.clone();
+        clone.reductionValues = reductionValues.clone();
+        return clone;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final LodModelKey other = (LodModelKey) obj;
+        if (!super.equals(obj)) {
+            return false;
+        }
+        if (this.method != other.method) {
+            return false;
+        }
+        return Arrays.equals(this.reductionValues, other.reductionValues);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 7;
+        hash = 17 * hash + (super.hashCode());
+        hash = 17 * hash + this.method.hashCode();
+        hash = 17 * hash + Arrays.hashCode(this.reductionValues);
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (LOD " + method + " " + Arrays.toString(reductionValues) + ")";
+    }
+
+    @Override
+    public void write(JmeExporter ex) throws IOException {
+        super.write(ex);
+        OutputCapsule oc = ex.getCapsule(this);
+        oc.write(method, "method", TriangleReductionMethod.PROPORTIONAL);
+        oc.write(reductionValues, "reduction_values", null);
+    }
+
+    @Override
+    public void read(JmeImporter im) throws IOException {
+        super.read(im);
+        InputCapsule ic = im.getCapsule(this);
+        method = ic.readEnum("method", TriangleReductionMethod.class, TriangleReductionMethod.PROPORTIONAL);
+        reductionValues = ic.readFloatArray("reduction_values", new float[0]);
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2009-2012 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3tools.optimize;
+
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Mesh.Mode;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.VertexBuffer.Type;
+import com.jme3.scene.mesh.VertexCacheOptimizer;
+import java.util.IdentityHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <code>MeshOptimizer</code> reorders the index and vertex buffers of every
+ * mesh in a scene graph for the vertex cache, and reports how the average
+ * cache miss ratio (ACMR) of the scene changed.
+ * 
+ * @see VertexCacheOptimizer
+ */
+public class MeshOptimizer {
+
+    private static final Logger logger = Logger.getLogger(MeshOptimizer.class.getName());
+
+    private int cacheSize = VertexCacheOptimizer.DEFAULT_CACHE_SIZE;
+    private boolean reduceOverdraw = false;
+    private float overdrawThreshold = VertexCacheOptimizer.DEFAULT_OVERDRAW_THRESHOLD;
+
+    private int triangles;
+    private int missesBefore;
+    private int missesAfter;
+
+    /**
+     * @param cacheSize The size of the vertex cache to optimize for, and
+     * to measure the ACMR with
+     */
+    public void setCacheSize(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * Enables sorting the triangles to reduce overdraw after they are
+     * ordered for the vertex cache.
+     * 
+     * @param reduceOverdraw True to reduce overdraw
+     * @param threshold How much the ACMR may grow in exchange
+     * 
+     * @see VertexCacheOptimizer#optimizeOverdraw(com.jme3.scene.Mesh, int, float) 
+     */
+    public void setReduceOverdraw(boolean reduceOverdraw, float threshold) {
+        this.reduceOverdraw = reduceOverdraw;
+        this.overdrawThreshold = threshold;
+    }
+
+    public boolean isReduceOverdraw() {
+        return reduceOverdraw;
+    }
+
+    /**
+     * Optimizes the meshes of the given scene graph. Meshes shared by
+     * several geometries are optimized once, meshes that are not indexed
+     * triangle lists are skipped.
+     * 
+     * @param scene The scene graph to optimize
+     */
+    public void optimize(Spatial scene) {
+        triangles = 0;
+        missesBefore = 0;
+        missesAfter = 0;
+        optimize(scene, new IdentityHashMap<Mesh, Mesh>());
+        logger.log(Level.INFO, "Optimized {0} triangles, ACMR {1} -> {2}",
+                new Object[]{triangles, getACMRBefore(), getACMRAfter()});
+    }
+
+    /**
+     * @return The ACMR of all the meshes of the last optimized scene,
+     * before optimization.
+     */
+    public float getACMRBefore() {
+        return triangles == 0 ? 0f : missesBefore / (float) triangles;
+    }
+
+    /**
+     * @return The ACMR of all the meshes of the last optimized scene,
+     * after optimization.
+     */
+    public float getACMRAfter() {
+        return triangles == 0 ? 0f : missesAfter / (float) triangles;
+    }
+
+    private void optimize(Spatial spatial, IdentityHashMap<Mesh, Mesh> processed) {
+        if (spatial instanceof Node) {
+            for (Spatial child : ((Node) spatial).getChildren()) {
+                optimize(child, processed);
+            }
+        } else if (spatial instanceof Geometry) {
+            Mesh mesh = ((Geometry) spatial).getMesh();
+            if (processed.containsKey(mesh)) {
+                return;
+            }
+            processed.put(mesh, mesh);
+            if (mesh.getMode() != Mode.Triangles || mesh.getBuffer(Type.Index) == null
+                    || mesh.getBuffer(Type.InterleavedData) != null) {
+                logger.log(Level.FINE, "Skipping {0}, not an indexed triangle list", spatial.getName());
+                return;
+            }
+
+            int meshTriangles = mesh.getTriangleCount();
+            float before = VertexCacheOptimizer.computeACMR(mesh, cacheSize);
+            VertexCacheOptimizer.optimizeTriangleOrder(mesh, cacheSize);
+            if (reduceOverdraw) {
+                VertexCacheOptimizer.optimizeOverdraw(mesh, cacheSize, overdrawThreshold);
+            }
+            VertexCacheOptimizer.optimizeVertexOrder(mesh);
+            float after = VertexCacheOptimizer.computeACMR(mesh, cacheSize);
+
+            triangles += meshTriangles;
+            missesBefore += Math.round(before * meshTriangles);
+            missesAfter += Math.round(after * meshTriangles);
+            logger.log(Level.FINE, "{0}: ACMR {1} -> {2}", new Object[]{spatial.getName(), before, after});
+        }
+    }
+}